@@ -0,0 +1,246 @@
+package de.opengamebackend.collection.benchmarks;
+
+import de.opengamebackend.collection.cache.PlayerCollectionCache;
+import de.opengamebackend.collection.cache.PlayerCollectionCacheProperties;
+import de.opengamebackend.collection.catalog.CatalogVersion;
+import de.opengamebackend.collection.catalog.CatalogVersionProperties;
+import de.opengamebackend.collection.catalog.ItemCatalogProvider;
+import de.opengamebackend.collection.controller.CollectionService;
+import de.opengamebackend.collection.controller.LoadoutMapper;
+import de.opengamebackend.collection.loot.ThreadLocalLootRandomProvider;
+import de.opengamebackend.collection.model.entities.*;
+import de.opengamebackend.collection.model.repositories.*;
+import de.opengamebackend.collection.model.requests.PutItemDefinitionsRequest;
+import de.opengamebackend.collection.model.requests.PutItemDefinitionsRequestItem;
+import de.opengamebackend.collection.model.requests.PutItemDefinitionsRequestItemContainer;
+import de.opengamebackend.collection.model.requests.PutItemDefinitionsRequestItemContainerItem;
+import de.opengamebackend.collection.writebehind.CollectionWriteBehind;
+import de.opengamebackend.collection.writebehind.WriteBehindProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Wires the services under test to in-memory repositories, and generates a synthetic catalog: every item definition
+ * has one rarity tag and one of a fixed number of type tags, every tenth item definition has a max count,
+ * and a single container rolls items by rarity, optionally guaranteeing a legendary item within a number of openings.
+ */
+class BenchmarkEnvironment {
+    static final String PLAYER_ID = "benchmarkPlayer";
+    static final String CONTAINER_ID = "benchmarkContainer";
+
+    private static final String[] RARITIES = { "common", "rare", "epic", "legendary" };
+    private static final int[] RARITY_PROBABILITIES = { 70, 20, 8, 2 };
+    private static final int TYPE_COUNT = 16;
+
+    private final int catalogSize;
+    private final int containerItemCount;
+
+    private final LinkedHashMap<String, ItemTag> itemTags = new LinkedHashMap<>();
+    private final LinkedHashMap<String, ItemDefinition> itemDefinitions = new LinkedHashMap<>();
+    private final InMemoryRepositories.CollectionItems collectionItems =
+            new InMemoryRepositories.CollectionItems(itemDefinitions);
+    private final ArrayList<ContainerPityRule> containerPityRules = new ArrayList<>();
+    private final ArrayList<LoadoutType> loadoutTypes = new ArrayList<>();
+
+    private final CatalogVersion catalogVersion;
+    private final ItemCatalogProvider itemCatalogProvider;
+    private final CollectionService collectionService;
+    private final LoadoutMapper loadoutMapper;
+
+    BenchmarkEnvironment(int catalogSize, int containerItemCount) {
+        this(catalogSize, containerItemCount, 0);
+    }
+
+    /**
+     * @param pityMaxOpenings openings within which a legendary item is guaranteed, or 0 for no pity rule
+     */
+    BenchmarkEnvironment(int catalogSize, int containerItemCount, int pityMaxOpenings) {
+        this.catalogSize = catalogSize;
+        this.containerItemCount = containerItemCount;
+
+        ItemTagRepository itemTagRepository = InMemoryRepositories.create(ItemTagRepository.class,
+                new InMemoryRepositories.ItemTags(itemTags));
+        ItemDefinitionRepository itemDefinitionRepository = InMemoryRepositories.create(ItemDefinitionRepository.class,
+                new InMemoryRepositories.ItemDefinitions(itemDefinitions));
+        CollectionItemRepository collectionItemRepository = InMemoryRepositories.create(CollectionItemRepository.class,
+                collectionItems);
+
+        InMemoryRepositories.NoOpTransactionManager transactionManager = new InMemoryRepositories.NoOpTransactionManager();
+        this.catalogVersion = new CatalogVersion(new CatalogVersionProperties(),
+                InMemoryRepositories.create(CatalogRevisionRepository.class, new InMemoryRepositories.CatalogRevisions()),
+                transactionManager);
+        catalogVersion.refresh();
+
+        this.itemCatalogProvider = new ItemCatalogProvider(itemTagRepository, itemDefinitionRepository,
+                InMemoryRepositories.create(ContainerPityRuleRepository.class,
+                        new InMemoryRepositories.ContainerPityRules(containerPityRules)),
+                InMemoryRepositories.create(LoadoutTypeRepository.class,
+                        new InMemoryRepositories.LoadoutTypes(loadoutTypes)),
+                catalogVersion, transactionManager);
+        PlayerCollectionCacheProperties playerCollectionCacheProperties = new PlayerCollectionCacheProperties();
+        playerCollectionCacheProperties.setEnabled(false);
+
+        PlayerCollectionCache playerCollectionCache = new PlayerCollectionCache(playerCollectionCacheProperties,
+                catalogVersion, new SimpleMeterRegistry());
+
+        CollectionWriteBehind collectionWriteBehind = new CollectionWriteBehind(new WriteBehindProperties(),
+                collectionItemRepository, InMemoryRepositories.create(WriteBehindFlushRepository.class, new Object()),
+                playerCollectionCache, itemCatalogProvider, transactionManager);
+
+        this.collectionService = new CollectionService(collectionItemRepository, itemDefinitionRepository,
+                itemTagRepository, InMemoryRepositories.create(ItemSetRepository.class, new Object()),
+                InMemoryRepositories.create(ClaimedItemSetRepository.class, new Object()),
+                InMemoryRepositories.create(ContainerOpeningRepository.class,
+                        new InMemoryRepositories.ContainerOpenings(collectionItems)),
+                InMemoryRepositories.create(ContainerPityRuleRepository.class, new Object()), itemCatalogProvider,
+                catalogVersion, collectionWriteBehind, playerId -> { }, new ThreadLocalLootRandomProvider(),
+                playerCollectionCache);
+        this.loadoutMapper = new LoadoutMapper(itemDefinitionRepository, itemCatalogProvider);
+
+        // Import catalog the same way the admin API does.
+        collectionService.putItemDefinitions(createPutItemDefinitionsRequest(0));
+
+        if (pityMaxOpenings > 0) {
+            ContainerPityRule containerPityRule = new ContainerPityRule();
+            containerPityRule.setItemDefinition(itemDefinitions.get(CONTAINER_ID));
+            containerPityRule.setItemTag(itemTags.get("legendary"));
+            containerPityRule.setMaxOpenings(pityMaxOpenings);
+            containerPityRules.add(containerPityRule);
+
+            itemCatalogProvider.rebuild();
+        }
+    }
+
+    ItemCatalogProvider getItemCatalogProvider() {
+        return itemCatalogProvider;
+    }
+
+    CatalogVersion getCatalogVersion() {
+        return catalogVersion;
+    }
+
+    CollectionService getCollectionService() {
+        return collectionService;
+    }
+
+    LoadoutMapper getLoadoutMapper() {
+        return loadoutMapper;
+    }
+
+    /**
+     * Creates a request for importing the whole catalog. Requests with different revisions differ in the max count
+     * of every tenth item definition.
+     */
+    PutItemDefinitionsRequest createPutItemDefinitionsRequest(int revision) {
+        ArrayList<PutItemDefinitionsRequestItem> items = new ArrayList<>();
+
+        for (int i = 0; i < catalogSize; ++i) {
+            PutItemDefinitionsRequestItem item = new PutItemDefinitionsRequestItem();
+            item.setId(getItemDefinitionId(i));
+            item.setTags(createList(RARITIES[i % RARITIES.length], "type" + (i % TYPE_COUNT)));
+            item.setContainers(new ArrayList<>());
+
+            if (i % 10 == 0) {
+                item.setMaxCount(1);
+            } else if (i % 10 == 1) {
+                item.setMaxCount(revision + 2);
+            }
+
+            items.add(item);
+        }
+
+        // Add container.
+        PutItemDefinitionsRequestItemContainer container = new PutItemDefinitionsRequestItemContainer();
+        container.setItemCount(containerItemCount);
+        container.setContainedItems(new ArrayList<>());
+
+        for (int i = 0; i < RARITIES.length; ++i) {
+            PutItemDefinitionsRequestItemContainerItem containedItem = new PutItemDefinitionsRequestItemContainerItem();
+            containedItem.setRequiredTags(createList(RARITIES[i]));
+            containedItem.setRelativeProbability(RARITY_PROBABILITIES[i]);
+            container.getContainedItems().add(containedItem);
+        }
+
+        PutItemDefinitionsRequestItem containerItem = new PutItemDefinitionsRequestItem();
+        containerItem.setId(CONTAINER_ID);
+        containerItem.setTags(createList("container"));
+        containerItem.setContainers(createList(container));
+        items.add(containerItem);
+
+        PutItemDefinitionsRequest request = new PutItemDefinitionsRequest();
+        request.setItemDefinitions(items);
+        return request;
+    }
+
+    /**
+     * Replaces the collection of the benchmark player by one copy of each of the first item definitions,
+     * and plenty of containers.
+     */
+    void givenCollection(int collectionSize) {
+        collectionItems.clear();
+
+        for (int i = 0; i < Math.min(collectionSize, catalogSize); ++i) {
+            collectionItems.incrementCount(PLAYER_ID, getItemDefinitionId(i), 1);
+        }
+
+        collectionItems.incrementCount(PLAYER_ID, CONTAINER_ID, Integer.MAX_VALUE / 2);
+    }
+
+    /**
+     * Creates a loadout type with one rule per rarity and one type rule, and a valid loadout of that type containing
+     * the first item definitions.
+     */
+    Loadout createLoadout(int loadoutSize) {
+        LoadoutType loadoutType = new LoadoutType();
+        loadoutType.setId("benchmarkLoadoutType");
+
+        for (String rarity : RARITIES) {
+            loadoutType.getRules().add(createLoadoutRule(loadoutType, rarity, 0, loadoutSize, 1));
+        }
+
+        loadoutType.getRules().add(createLoadoutRule(loadoutType, "type0", 0, loadoutSize, 1));
+
+        loadoutTypes.add(loadoutType);
+        itemCatalogProvider.rebuild();
+
+        Loadout loadout = new Loadout();
+        loadout.setPlayerId(PLAYER_ID);
+        loadout.setType(loadoutType);
+
+        for (int i = 0; i < Math.min(loadoutSize, catalogSize); ++i) {
+            LoadoutItem item = new LoadoutItem();
+            item.setLoadout(loadout);
+            item.setItemDefinition(itemDefinitions.get(getItemDefinitionId(i)));
+            item.setCount(1);
+            loadout.getItems().add(item);
+        }
+
+        return loadout;
+    }
+
+    private LoadoutRule createLoadoutRule(LoadoutType loadoutType, String tag, int minTotal, int maxTotal,
+                                          int maxCopies) {
+        LoadoutRule rule = new LoadoutRule();
+        rule.setType(loadoutType);
+        rule.setItemTag(itemTags.get(tag));
+        rule.setMinTotal(minTotal);
+        rule.setMaxTotal(maxTotal);
+        rule.setMaxCopies(maxCopies);
+        return rule;
+    }
+
+    private static String getItemDefinitionId(int index) {
+        return "item" + index;
+    }
+
+    @SafeVarargs
+    private static <T> List<T> createList(T... elements) {
+        ArrayList<T> list = new ArrayList<>(elements.length);
+        Collections.addAll(list, elements);
+        return list;
+    }
+}
@@ -0,0 +1,62 @@
+package de.opengamebackend.collection.benchmarks;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.opengamebackend.collection.cache.PlayerCollectionCache;
+import de.opengamebackend.collection.cache.PlayerCollectionCacheProperties;
+import de.opengamebackend.net.ApiException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures streaming the collection of a player to JSON the same way the controller does, and serving the
+ * serialized collection from the player collection cache.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GetCollectionBenchmark {
+    @Param({ "100", "1000", "10000" })
+    private int catalogSize;
+
+    @Param({ "10", "100", "1000" })
+    private int collectionSize;
+
+    private BenchmarkEnvironment environment;
+    private ObjectMapper objectMapper;
+    private PlayerCollectionCache playerCollectionCache;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        environment = new BenchmarkEnvironment(catalogSize, 1);
+        environment.givenCollection(collectionSize);
+
+        objectMapper = new ObjectMapper();
+        playerCollectionCache = new PlayerCollectionCache(new PlayerCollectionCacheProperties(),
+                environment.getCatalogVersion(), new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    public byte[] writeCollection() throws ApiException, IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(body, JsonEncoding.UTF8)) {
+            environment.getCollectionService().writeCollection(BenchmarkEnvironment.PLAYER_ID, generator);
+        }
+
+        return body.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] getCachedCollection() throws ApiException, IOException {
+        return playerCollectionCache.get(BenchmarkEnvironment.PLAYER_ID, this::writeCollection);
+    }
+}
@@ -0,0 +1,323 @@
+package de.opengamebackend.collection.benchmarks;
+
+import de.opengamebackend.collection.model.entities.CollectionItem;
+import de.opengamebackend.collection.model.entities.ContainerOpening;
+import de.opengamebackend.collection.model.entities.ContainerPityRule;
+import de.opengamebackend.collection.model.entities.ItemDefinition;
+import de.opengamebackend.collection.model.entities.ItemTag;
+import de.opengamebackend.collection.model.entities.LoadoutType;
+import de.opengamebackend.collection.model.repositories.CollectionItemCount;
+import de.opengamebackend.collection.model.repositories.CollectionItemWithOpening;
+import de.opengamebackend.collection.model.repositories.ItemDefinitionHash;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Creates in-memory fakes of the Spring Data repositories. Each repository method is dispatched to the public
+ * method with the same name and parameter types of a plain backing object, so that fakes only need to implement
+ * the methods actually used by the benchmarked code. All other methods throw {@link UnsupportedOperationException}.
+ */
+final class InMemoryRepositories {
+    private InMemoryRepositories() {
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> T create(Class<T> repositoryInterface, Object backingObject) {
+        Map<Method, Method> targets = new ConcurrentHashMap<>();
+
+        return (T) Proxy.newProxyInstance(repositoryInterface.getClassLoader(), new Class<?>[] { repositoryInterface },
+                (proxy, method, args) -> {
+                    if (method.getDeclaringClass() == Object.class) {
+                        return method.invoke(backingObject, args);
+                    }
+
+                    Method target = targets.computeIfAbsent(method, m -> findTarget(backingObject, m));
+
+                    try {
+                        return target.invoke(backingObject, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    private static Method findTarget(Object backingObject, Method method) {
+        try {
+            return backingObject.getClass().getMethod(method.getName(), method.getParameterTypes());
+        } catch (NoSuchMethodException e) {
+            throw new UnsupportedOperationException(backingObject.getClass().getSimpleName() +
+                    " does not support " + method.getName());
+        }
+    }
+
+    public static class ItemTags {
+        private final Map<String, ItemTag> itemTags;
+
+        public ItemTags(Map<String, ItemTag> itemTags) {
+            this.itemTags = itemTags;
+        }
+
+        public List<ItemTag> findAll() {
+            return new ArrayList<>(itemTags.values());
+        }
+
+        public Iterable<ItemTag> saveAll(Iterable<ItemTag> entities) {
+            for (ItemTag itemTag : entities) {
+                itemTags.put(itemTag.getTag(), itemTag);
+            }
+
+            return entities;
+        }
+
+        public void deleteAll(Iterable<ItemTag> entities) {
+            for (ItemTag itemTag : entities) {
+                itemTags.remove(itemTag.getTag());
+            }
+        }
+    }
+
+    public static class ItemDefinitions {
+        private final Map<String, ItemDefinition> itemDefinitions;
+
+        public ItemDefinitions(Map<String, ItemDefinition> itemDefinitions) {
+            this.itemDefinitions = itemDefinitions;
+        }
+
+        public List<ItemDefinition> findAll() {
+            return new ArrayList<>(itemDefinitions.values());
+        }
+
+        public ItemDefinition getOne(Object id) {
+            return itemDefinitions.get(id);
+        }
+
+        public List<ItemDefinitionHash> findAllHashes() {
+            ArrayList<ItemDefinitionHash> hashes = new ArrayList<>();
+
+            for (ItemDefinition itemDefinition : itemDefinitions.values()) {
+                hashes.add(new ItemDefinitionHash() {
+                    @Override
+                    public String getId() {
+                        return itemDefinition.getId();
+                    }
+
+                    @Override
+                    public String getContentHash() {
+                        return itemDefinition.getContentHash();
+                    }
+                });
+            }
+
+            return hashes;
+        }
+
+        public List<ItemDefinition> findAllById(Iterable<String> ids) {
+            ArrayList<ItemDefinition> found = new ArrayList<>();
+
+            for (String id : ids) {
+                ItemDefinition itemDefinition = itemDefinitions.get(id);
+
+                if (itemDefinition != null) {
+                    found.add(itemDefinition);
+                }
+            }
+
+            return found;
+        }
+
+        public List<ItemDefinition> saveAll(Iterable<ItemDefinition> entities) {
+            ArrayList<ItemDefinition> saved = new ArrayList<>();
+
+            for (ItemDefinition itemDefinition : entities) {
+                itemDefinitions.put(itemDefinition.getId(), itemDefinition);
+                saved.add(itemDefinition);
+            }
+
+            return saved;
+        }
+
+        public void deleteAll(Iterable<ItemDefinition> entities) {
+            for (ItemDefinition itemDefinition : entities) {
+                itemDefinitions.remove(itemDefinition.getId());
+            }
+        }
+    }
+
+    /**
+     * Holds the collection of a single player, along with the openings of its containers.
+     */
+    public static class CollectionItems {
+        private final Map<String, ItemDefinition> itemDefinitions;
+        private final LinkedHashMap<String, CollectionItem> items = new LinkedHashMap<>();
+        private final HashMap<String, ContainerOpening> openings = new HashMap<>();
+
+        public CollectionItems(Map<String, ItemDefinition> itemDefinitions) {
+            this.itemDefinitions = itemDefinitions;
+        }
+
+        public List<CollectionItem> findByPlayerId(String playerId) {
+            return new ArrayList<>(items.values());
+        }
+
+        public Stream<CollectionItemCount> streamByPlayerId(String playerId) {
+            return items.values().stream().map(item -> new CollectionItemCount() {
+                @Override
+                public String getItemDefinitionId() {
+                    return item.getItemDefinition().getId();
+                }
+
+                @Override
+                public int getCount() {
+                    return item.getCount();
+                }
+            });
+        }
+
+        public List<CollectionItemWithOpening> findWithContainerOpeningsByPlayerId(String playerId) {
+            ArrayList<CollectionItemWithOpening> result = new ArrayList<>(items.size());
+
+            for (CollectionItem item : items.values()) {
+                ContainerOpening opening = openings.get(item.getItemDefinition().getId());
+
+                result.add(new CollectionItemWithOpening() {
+                    @Override
+                    public CollectionItem getItem() {
+                        return item;
+                    }
+
+                    @Override
+                    public ContainerOpening getOpening() {
+                        return opening;
+                    }
+                });
+            }
+
+            return result;
+        }
+
+        public void incrementCount(String playerId, String itemDefinitionId, int count) {
+            CollectionItem item = items.get(itemDefinitionId);
+
+            if (item == null) {
+                item = new CollectionItem();
+                item.setPlayerId(playerId);
+                item.setItemDefinition(itemDefinitions.get(itemDefinitionId));
+                items.put(itemDefinitionId, item);
+            }
+
+            item.setCount(item.getCount() + count);
+        }
+
+        public Object save(Object entity) {
+            CollectionItem item = (CollectionItem) entity;
+            items.put(item.getItemDefinition().getId(), item);
+            return item;
+        }
+
+        public void delete(Object entity) {
+            items.remove(((CollectionItem) entity).getItemDefinition().getId());
+        }
+
+        public void clear() {
+            items.clear();
+            openings.clear();
+        }
+    }
+
+    /**
+     * Stores the container openings of the player along with the collection, so that they can be joined.
+     */
+    public static class ContainerOpenings {
+        private final CollectionItems collectionItems;
+
+        public ContainerOpenings(CollectionItems collectionItems) {
+            this.collectionItems = collectionItems;
+        }
+
+        public boolean insertIfAbsent(String playerId, String itemDefinitionId) {
+            if (collectionItems.openings.containsKey(itemDefinitionId)) {
+                return false;
+            }
+
+            ContainerOpening opening = new ContainerOpening();
+            opening.setPlayerId(playerId);
+            opening.setItemDefinition(collectionItems.itemDefinitions.get(itemDefinitionId));
+            collectionItems.openings.put(itemDefinitionId, opening);
+            return true;
+        }
+
+        public ContainerOpening findByPlayerIdAndItemDefinitionId(String playerId, String itemDefinitionId) {
+            return collectionItems.openings.get(itemDefinitionId);
+        }
+
+        public Object save(Object entity) {
+            ContainerOpening opening = (ContainerOpening) entity;
+            collectionItems.openings.put(opening.getItemDefinition().getId(), opening);
+            return opening;
+        }
+    }
+
+    public static class CatalogRevisions {
+        private long version = 1L;
+
+        public Long findVersion() {
+            return version;
+        }
+
+        public int incrementVersion() {
+            ++version;
+            return 1;
+        }
+    }
+
+    public static class ContainerPityRules {
+        private final List<ContainerPityRule> rules;
+
+        public ContainerPityRules(List<ContainerPityRule> rules) {
+            this.rules = rules;
+        }
+
+        public List<ContainerPityRule> findAll() {
+            return rules;
+        }
+    }
+
+    public static class LoadoutTypes {
+        private final List<LoadoutType> loadoutTypes;
+
+        public LoadoutTypes(List<LoadoutType> loadoutTypes) {
+            this.loadoutTypes = loadoutTypes;
+        }
+
+        public List<LoadoutType> findAllWithRules() {
+            return loadoutTypes;
+        }
+    }
+
+    /**
+     * Runs all "transactions" of the catalog provider without any transactional resources.
+     */
+    static class NoOpTransactionManager implements PlatformTransactionManager {
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}
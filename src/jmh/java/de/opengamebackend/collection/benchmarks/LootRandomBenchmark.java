@@ -0,0 +1,108 @@
+package de.opengamebackend.collection.benchmarks;
+
+import de.opengamebackend.collection.catalog.LootTable;
+import de.opengamebackend.collection.loot.DeterministicLootRandomProvider;
+import de.opengamebackend.collection.loot.LootRandom;
+import de.opengamebackend.collection.loot.LootRandomProvider;
+import de.opengamebackend.collection.loot.ThreadLocalLootRandomProvider;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the sources of randomness for rolling the contents of a single opening: a new {@link Random} per opening,
+ * the random of the current thread, and a random seeded from player, container and opening counter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LootRandomBenchmark {
+    @Param({ "random", "threadLocal", "deterministic" })
+    private String lootRandom;
+
+    @Param({ "1", "5", "20" })
+    private int itemCount;
+
+    private LootRandomProvider lootRandomProvider;
+    private LootTable lootTable;
+
+    @State(Scope.Thread)
+    public static class Openings {
+        private long opening;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkEnvironment environment = new BenchmarkEnvironment(100, itemCount);
+        lootTable = environment.getItemCatalogProvider().getCatalog()
+                .getLootTables(BenchmarkEnvironment.CONTAINER_ID).get(0);
+
+        switch (lootRandom) {
+            case "random":
+                lootRandomProvider = new RandomLootRandomProvider();
+                break;
+
+            case "threadLocal":
+                lootRandomProvider = new ThreadLocalLootRandomProvider();
+                break;
+
+            default:
+                lootRandomProvider = new DeterministicLootRandomProvider(42L);
+                break;
+        }
+    }
+
+    @Benchmark
+    public int rollOpening(Openings openings) {
+        return roll(openings);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int rollOpeningConcurrently(Openings openings) {
+        return roll(openings);
+    }
+
+    private int roll(Openings openings) {
+        LootRandom random = lootRandomProvider.getRandom(BenchmarkEnvironment.PLAYER_ID,
+                BenchmarkEnvironment.CONTAINER_ID, openings.opening++);
+        int rolled = 0;
+
+        for (int i = 0; i < lootTable.getItemCount(); ++i) {
+            rolled += lootTable.roll(random);
+        }
+
+        return rolled;
+    }
+
+    /**
+     * Allocates a new {@link Random} per opening, as container openings did before.
+     */
+    private static class RandomLootRandomProvider implements LootRandomProvider {
+        @Override
+        public boolean isDeterministic() {
+            return false;
+        }
+
+        @Override
+        public LootRandom getRandom(String playerId, String containerId, long opening) {
+            Random random = new Random();
+
+            return new LootRandom() {
+                @Override
+                public int nextInt(int bound) {
+                    return random.nextInt(bound);
+                }
+
+                @Override
+                public double nextDouble() {
+                    return random.nextDouble();
+                }
+            };
+        }
+    }
+}
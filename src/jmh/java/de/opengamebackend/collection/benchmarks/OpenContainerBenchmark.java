@@ -0,0 +1,48 @@
+package de.opengamebackend.collection.benchmarks;
+
+import de.opengamebackend.collection.model.responses.OpenContainerResponse;
+import de.opengamebackend.net.ApiException;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures opening a single container, including loading the collection of the player and applying all changes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OpenContainerBenchmark {
+    @Param({ "100", "1000", "10000" })
+    private int catalogSize;
+
+    @Param({ "0", "100", "1000" })
+    private int collectionSize;
+
+    @Param({ "1", "5", "20" })
+    private int itemCount;
+
+    @Param({ "0", "10" })
+    private int pityMaxOpenings;
+
+    private BenchmarkEnvironment environment;
+
+    @Setup(Level.Trial)
+    public void setUpCatalog() {
+        environment = new BenchmarkEnvironment(catalogSize, itemCount, pityMaxOpenings);
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpCollection() {
+        environment.givenCollection(collectionSize);
+    }
+
+    @Benchmark
+    public OpenContainerResponse openContainer() throws ApiException {
+        return environment.getCollectionService()
+                .openContainer(BenchmarkEnvironment.PLAYER_ID, BenchmarkEnvironment.CONTAINER_ID);
+    }
+}
@@ -0,0 +1,43 @@
+package de.opengamebackend.collection.benchmarks;
+
+import de.opengamebackend.collection.model.requests.PutItemDefinitionsRequest;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures diffing the whole catalog against the stored item definitions and rebuilding the catalog snapshot.
+ * Alternates between two revisions of the catalog that differ in ten percent of the item definitions.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PutItemDefinitionsBenchmark {
+    @Param({ "100", "1000", "10000" })
+    private int catalogSize;
+
+    @Param({ "5" })
+    private int itemCount;
+
+    private BenchmarkEnvironment environment;
+    private PutItemDefinitionsRequest[] requests;
+    private int revision;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        environment = new BenchmarkEnvironment(catalogSize, itemCount);
+        requests = new PutItemDefinitionsRequest[] {
+                environment.createPutItemDefinitionsRequest(0),
+                environment.createPutItemDefinitionsRequest(1)
+        };
+    }
+
+    @Benchmark
+    public void putItemDefinitions() {
+        revision = 1 - revision;
+        environment.getCollectionService().putItemDefinitions(requests[revision]);
+    }
+}
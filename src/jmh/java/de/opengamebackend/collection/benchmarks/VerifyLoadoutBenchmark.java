@@ -0,0 +1,39 @@
+package de.opengamebackend.collection.benchmarks;
+
+import de.opengamebackend.collection.model.entities.Loadout;
+import de.opengamebackend.net.ApiException;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures verifying a valid loadout against all rules of its type.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VerifyLoadoutBenchmark {
+    @Param({ "100", "1000", "10000" })
+    private int catalogSize;
+
+    @Param({ "10", "40", "100" })
+    private int loadoutSize;
+
+    private BenchmarkEnvironment environment;
+    private Loadout loadout;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        environment = new BenchmarkEnvironment(catalogSize, 1);
+        loadout = environment.createLoadout(loadoutSize);
+    }
+
+    @Benchmark
+    public Loadout verifyLoadout() throws ApiException {
+        environment.getLoadoutMapper().verifyLoadout(loadout);
+        return loadout;
+    }
+}
@@ -0,0 +1,45 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Creates the sequences for the pooled id generators of all child entities that are saved in bulk.
+ * This is a Java migration because neither MariaDB nor H2 allow starting a sequence at a value that is
+ * queried within the same SQL script, and every sequence must start past the ids already in use.
+ */
+public class V16__PooledIdSequences extends BaseJavaMigration {
+    /**
+     * Must match the allocation size of the sequence generators of the entities.
+     */
+    private static final int ALLOCATION_SIZE = 50;
+
+    private static final String[] TABLES = {
+            "collection_itemcontainer",
+            "collection_containeditem",
+            "collection_itemsetitem",
+            "collection_loadoutrule",
+            "collection_loadoutitem"
+    };
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        try (Statement statement = context.getConnection().createStatement()) {
+            for (String table : TABLES) {
+                long maxId;
+
+                try (ResultSet resultSet = statement.executeQuery("SELECT COALESCE(MAX(id), 0) FROM " + table)) {
+                    resultSet.next();
+                    maxId = resultSet.getLong(1);
+                }
+
+                // The pooled optimizer treats each sequence value as the upper end of a block of ALLOCATION_SIZE ids.
+                statement.execute("CREATE SEQUENCE " + table + "_seq START WITH " + (maxId + ALLOCATION_SIZE) +
+                        " INCREMENT BY " + ALLOCATION_SIZE);
+            }
+        }
+    }
+}
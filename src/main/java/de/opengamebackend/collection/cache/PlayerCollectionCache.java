@@ -0,0 +1,190 @@
+package de.opengamebackend.collection.cache;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import de.opengamebackend.collection.catalog.CatalogVersion;
+import de.opengamebackend.net.ApiException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Keeps the serialized collections of recently active players in memory, bounded by their total size and by
+ * time since loading. Collections are cached together with the {@link CatalogVersion} they have been serialized
+ * with, as they contain the tags of all items.
+ * <p>
+ * Every change to the collection of a player has to be followed by {@link #invalidateAfterCompletion(String)}.
+ * Loads racing with an invalidation are detected by a per-stripe invalidation counter, and never cached.
+ * <p>
+ * Invalidations only affect the cache of the instance that changed the collection. When running multiple instances,
+ * the others keep serving the previous collection until it expires, so the time to live bounds how stale collections
+ * may be and should be kept short.
+ */
+@Component
+public class PlayerCollectionCache {
+    public static final String GETS_METRIC = "collection.player.cache.gets";
+    public static final String EVICTIONS_METRIC = "collection.player.cache.evictions";
+
+    private static final int STRIPES = 1024;
+
+    private final CatalogVersion catalogVersion;
+    private final MeterRegistry meterRegistry;
+
+    private final Cache<String, CachedCollection> collections;
+    private final AtomicLongArray invalidations = new AtomicLongArray(STRIPES);
+
+    private final Counter hits;
+    private final Counter misses;
+
+    @Autowired
+    public PlayerCollectionCache(PlayerCollectionCacheProperties properties, CatalogVersion catalogVersion,
+                                 MeterRegistry meterRegistry) {
+        this(properties, catalogVersion, meterRegistry, Ticker.systemTicker());
+    }
+
+    PlayerCollectionCache(PlayerCollectionCacheProperties properties, CatalogVersion catalogVersion,
+                          MeterRegistry meterRegistry, Ticker ticker) {
+        this.catalogVersion = catalogVersion;
+        this.meterRegistry = meterRegistry;
+
+        this.collections = properties.isEnabled()
+                ? CacheBuilder.newBuilder()
+                    .maximumWeight(properties.getMaximumSize().toBytes())
+                    .weigher((String playerId, CachedCollection collection) -> collection.body.length)
+                    .expireAfterWrite(properties.getTimeToLive().toNanos(), TimeUnit.NANOSECONDS)
+                    .ticker(ticker)
+                    .removalListener(this::onRemoval)
+                    .build()
+                : null;
+
+        this.hits = Counter.builder(GETS_METRIC)
+                .description("Player collection cache lookups")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder(GETS_METRIC)
+                .description("Player collection cache lookups")
+                .tag("result", "miss")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Gets the serialized collection of the specified player, loading and caching it if it isn't cached yet or
+     * has been serialized with an outdated catalog.
+     */
+    public byte[] get(String playerId, Loader loader) throws ApiException, IOException {
+        if (collections == null || playerId == null) {
+            return loader.load();
+        }
+
+        // Get versions before reading any data: If either changes while loading, the collection is reloaded on
+        // the next request.
+        long version = catalogVersion.get();
+        CachedCollection cachedCollection = collections.asMap().get(playerId);
+
+        if (cachedCollection != null && cachedCollection.catalogVersion == version) {
+            hits.increment();
+            return cachedCollection.body;
+        }
+
+        misses.increment();
+
+        int stripe = getStripe(playerId);
+        long invalidation = invalidations.get(stripe);
+
+        cachedCollection = new CachedCollection(version, loader.load());
+        collections.put(playerId, cachedCollection);
+
+        // Invalidations increment the counter before removing the collection, so either they remove the collection
+        // just put, or this check sees them.
+        if (invalidations.get(stripe) != invalidation) {
+            collections.asMap().remove(playerId, cachedCollection);
+        }
+
+        return cachedCollection.body;
+    }
+
+    /**
+     * Removes the collection of the specified player as soon as the current transaction has completed, or
+     * immediately if there is no active transaction. Invalidating after rollbacks as well is required for changes
+     * that don't roll back, such as journaled grants.
+     */
+    public void invalidateAfterCompletion(String playerId) {
+        if (collections == null) {
+            return;
+        }
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(playerId);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {
+                invalidate(playerId);
+            }
+        });
+    }
+
+    /**
+     * Removes the collection of the specified player immediately. Only to be used for changes that have already
+     * been committed.
+     */
+    public void invalidate(String playerId) {
+        if (collections == null) {
+            return;
+        }
+
+        invalidations.incrementAndGet(getStripe(playerId));
+        collections.invalidate(playerId);
+    }
+
+    long size() {
+        return collections != null ? collections.size() : 0L;
+    }
+
+    private void onRemoval(RemovalNotification<String, CachedCollection> notification) {
+        if (!notification.wasEvicted()) {
+            return;
+        }
+
+        Counter.builder(EVICTIONS_METRIC)
+                .description("Player collections evicted from the cache")
+                .tag("cause", notification.getCause().name().toLowerCase())
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private static int getStripe(String playerId) {
+        int hash = playerId.hashCode();
+        hash ^= hash >>> 16;
+        return hash & (STRIPES - 1);
+    }
+
+    /**
+     * Serializes the current collection of a player.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        byte[] load() throws ApiException, IOException;
+    }
+
+    private static class CachedCollection {
+        private final long catalogVersion;
+        private final byte[] body;
+
+        private CachedCollection(long catalogVersion, byte[] body) {
+            this.catalogVersion = catalogVersion;
+            this.body = body;
+        }
+    }
+}
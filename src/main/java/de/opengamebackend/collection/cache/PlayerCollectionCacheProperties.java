@@ -0,0 +1,49 @@
+package de.opengamebackend.collection.cache;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "de.opengamebackend.collection.collection-cache")
+public class PlayerCollectionCacheProperties {
+    /**
+     * Whether to keep serialized player collections in memory between requests.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Maximum total size of all cached collections. Least recently used collections are evicted first.
+     */
+    private DataSize maximumSize = DataSize.ofMegabytes(64);
+
+    /**
+     * Maximum time a collection is cached after having been loaded. Invalidations are local to the instance that
+     * changed the collection, so other instances may serve the previous collection for up to this long.
+     */
+    private Duration timeToLive = Duration.ofSeconds(10);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public DataSize getMaximumSize() {
+        return maximumSize;
+    }
+
+    public void setMaximumSize(DataSize maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    public Duration getTimeToLive() {
+        return timeToLive;
+    }
+
+    public void setTimeToLive(Duration timeToLive) {
+        this.timeToLive = timeToLive;
+    }
+}
@@ -0,0 +1,30 @@
+package de.opengamebackend.collection.catalog;
+
+import de.opengamebackend.collection.model.entities.ContainedItem;
+import de.opengamebackend.collection.model.entities.ItemTag;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class CatalogContainedItem {
+    private final List<String> requiredTags;
+    private final int relativeProbability;
+
+    CatalogContainedItem(ContainedItem containedItem) {
+        this.requiredTags = containedItem.getRequiredTags() != null
+                ? Collections.unmodifiableList(containedItem.getRequiredTags().stream()
+                        .map(ItemTag::getTag)
+                        .collect(Collectors.toList()))
+                : Collections.emptyList();
+        this.relativeProbability = containedItem.getRelativeProbability();
+    }
+
+    public List<String> getRequiredTags() {
+        return requiredTags;
+    }
+
+    public int getRelativeProbability() {
+        return relativeProbability;
+    }
+}
@@ -0,0 +1,27 @@
+package de.opengamebackend.collection.catalog;
+
+import de.opengamebackend.collection.model.entities.ItemContainer;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class CatalogItemContainer {
+    private final int itemCount;
+    private final List<CatalogContainedItem> containedItems;
+
+    CatalogItemContainer(ItemContainer itemContainer) {
+        this.itemCount = itemContainer.getItemCount();
+        this.containedItems = Collections.unmodifiableList(itemContainer.getContainedItems().stream()
+                .map(CatalogContainedItem::new)
+                .collect(Collectors.toList()));
+    }
+
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    public List<CatalogContainedItem> getContainedItems() {
+        return containedItems;
+    }
+}
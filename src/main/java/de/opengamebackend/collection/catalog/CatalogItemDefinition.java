@@ -0,0 +1,52 @@
+package de.opengamebackend.collection.catalog;
+
+import de.opengamebackend.collection.model.entities.ItemDefinition;
+import de.opengamebackend.collection.model.entities.ItemTag;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class CatalogItemDefinition {
+    private final int ordinal;
+    private final String id;
+    private final Integer maxCount;
+    private final List<String> tags;
+    private final List<CatalogItemContainer> containers;
+
+    CatalogItemDefinition(int ordinal, ItemDefinition itemDefinition) {
+        this.ordinal = ordinal;
+        this.id = itemDefinition.getId();
+        this.maxCount = itemDefinition.getMaxCount();
+        this.tags = Collections.unmodifiableList(itemDefinition.getItemTags().stream()
+                .map(ItemTag::getTag)
+                .collect(Collectors.toList()));
+        this.containers = Collections.unmodifiableList(itemDefinition.getContainers().stream()
+                .map(CatalogItemContainer::new)
+                .collect(Collectors.toList()));
+    }
+
+    int getOrdinal() {
+        return ordinal;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Integer getMaxCount() {
+        return maxCount;
+    }
+
+    public List<String> getTags() {
+        return tags;
+    }
+
+    public List<CatalogItemContainer> getContainers() {
+        return containers;
+    }
+
+    public boolean isContainer() {
+        return !containers.isEmpty();
+    }
+}
@@ -0,0 +1,133 @@
+package de.opengamebackend.collection.catalog;
+
+import de.opengamebackend.collection.model.repositories.CatalogRevisionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts changes to item definitions, item sets and loadout types, so that clients and caches can cheaply check
+ * whether their copy of these is still up to date. The version is persisted and incremented along with every change,
+ * and polled periodically, so changes made by other instances are picked up within one poll interval.
+ * Entity tags are derived from the persisted version only, so all instances agree on them.
+ */
+@Component
+public class CatalogVersion {
+    private static final Logger logger = LoggerFactory.getLogger(CatalogVersion.class);
+
+    private final CatalogVersionProperties properties;
+    private final CatalogRevisionRepository catalogRevisionRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicLong version = new AtomicLong();
+
+    private ScheduledExecutorService scheduler;
+
+    @Autowired
+    public CatalogVersion(CatalogVersionProperties properties, CatalogRevisionRepository catalogRevisionRepository,
+                          PlatformTransactionManager transactionManager) {
+        this.properties = properties;
+        this.catalogRevisionRepository = catalogRevisionRepository;
+
+        // Always read the latest committed version, even if called within a transaction that started earlier.
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @PostConstruct
+    public void start() {
+        refresh();
+
+        long interval = properties.getPollInterval().toMillis();
+
+        if (interval <= 0) {
+            return;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "collection-catalog-version");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        scheduler.scheduleWithFixedDelay(this::refreshLogged, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    public long get() {
+        return version.get();
+    }
+
+    /**
+     * Gets the strong entity tag of the specified version, including quotes.
+     */
+    public String getETag(long version) {
+        return "\"" + version + "\"";
+    }
+
+    public String getETag() {
+        return getETag(get());
+    }
+
+    /**
+     * Increments the persisted version as part of the current transaction, and picks up the new version as soon as
+     * the transaction has been committed successfully, or immediately if there is no active transaction.
+     * Picking it up only after commit ensures that readers never see the new version before the changed data.
+     */
+    public void increment() {
+        catalogRevisionRepository.incrementVersion();
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            refresh();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                refresh();
+            }
+        });
+    }
+
+    /**
+     * Reads the latest committed version. The version never decreases, even if reads race with each other.
+     */
+    public long refresh() {
+        Long persistedVersion = transactionTemplate.execute(status -> catalogRevisionRepository.findVersion());
+
+        if (persistedVersion == null) {
+            return version.get();
+        }
+
+        return version.accumulateAndGet(persistedVersion, Math::max);
+    }
+
+    private void refreshLogged() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            logger.error("Failed to check catalog version.", e);
+        }
+    }
+}
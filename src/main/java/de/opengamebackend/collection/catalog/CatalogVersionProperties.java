@@ -0,0 +1,22 @@
+package de.opengamebackend.collection.catalog;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "de.opengamebackend.collection.catalog")
+public class CatalogVersionProperties {
+    /**
+     * Time between two checks for catalog changes made by other instances. Changes made by this instance are
+     * picked up immediately.
+     */
+    private Duration pollInterval = Duration.ofSeconds(1);
+
+    public Duration getPollInterval() {
+        return pollInterval;
+    }
+
+    public void setPollInterval(Duration pollInterval) {
+        this.pollInterval = pollInterval;
+    }
+}
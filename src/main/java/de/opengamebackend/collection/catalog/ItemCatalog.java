@@ -0,0 +1,138 @@
+package de.opengamebackend.collection.catalog;
+
+import de.opengamebackend.collection.model.entities.ContainerPityRule;
+import de.opengamebackend.collection.model.entities.ItemDefinition;
+import de.opengamebackend.collection.model.entities.ItemTag;
+import de.opengamebackend.collection.model.entities.LoadoutType;
+
+import java.util.*;
+
+/**
+ * Immutable snapshot of all item tags and item definitions, including their containers and pity rules, and of all
+ * loadout types. Safe to share between threads; a new snapshot is built whenever the definitions change.
+ */
+public class ItemCatalog {
+    private final Set<String> itemTags;
+    private final Map<String, CatalogItemDefinition> itemDefinitions;
+    private final TagIndex tagIndex;
+    private final Map<String, List<LootTable>> lootTables;
+    private final Map<String, List<PityRule>> pityRules;
+    private final Map<String, LoadoutValidator> loadoutValidators;
+
+    public ItemCatalog(Iterable<ItemTag> itemTags, Iterable<ItemDefinition> itemDefinitions) {
+        this(itemTags, itemDefinitions, Collections.emptyList());
+    }
+
+    public ItemCatalog(Iterable<ItemTag> itemTags, Iterable<ItemDefinition> itemDefinitions,
+                       Iterable<ContainerPityRule> containerPityRules) {
+        this(itemTags, itemDefinitions, containerPityRules, Collections.emptyList());
+    }
+
+    public ItemCatalog(Iterable<ItemTag> itemTags, Iterable<ItemDefinition> itemDefinitions,
+                       Iterable<ContainerPityRule> containerPityRules, Iterable<LoadoutType> loadoutTypes) {
+        LinkedHashSet<String> tags = new LinkedHashSet<>();
+
+        for (ItemTag itemTag : itemTags) {
+            tags.add(itemTag.getTag());
+        }
+
+        LinkedHashMap<String, CatalogItemDefinition> definitions = new LinkedHashMap<>();
+
+        for (ItemDefinition itemDefinition : itemDefinitions) {
+            CatalogItemDefinition definition = new CatalogItemDefinition(definitions.size(), itemDefinition);
+            definitions.put(definition.getId(), definition);
+            tags.addAll(definition.getTags());
+        }
+
+        // Index tags.
+        TagIndex index = new TagIndex(tags, Collections.unmodifiableList(new ArrayList<>(definitions.values())));
+
+        // Compile loot tables.
+        HashMap<String, List<LootTable>> tables = new HashMap<>();
+
+        for (CatalogItemDefinition definition : definitions.values()) {
+            if (!definition.isContainer()) {
+                continue;
+            }
+
+            ArrayList<LootTable> containerTables = new ArrayList<>();
+
+            for (CatalogItemContainer container : definition.getContainers()) {
+                containerTables.add(new LootTable(container, index));
+            }
+
+            tables.put(definition.getId(), Collections.unmodifiableList(containerTables));
+        }
+
+        // Compile pity rules. Rules of items that are no containers can't ever apply.
+        HashMap<String, List<PityRule>> rules = new HashMap<>();
+
+        for (ContainerPityRule containerPityRule : containerPityRules) {
+            List<LootTable> containerTables = tables.get(containerPityRule.getItemDefinition().getId());
+
+            if (containerTables == null) {
+                continue;
+            }
+
+            rules.computeIfAbsent(containerPityRule.getItemDefinition().getId(), id -> new ArrayList<>())
+                    .add(new PityRule(containerPityRule, containerTables, index));
+        }
+
+        this.itemTags = Collections.unmodifiableSet(tags);
+        this.itemDefinitions = Collections.unmodifiableMap(definitions);
+        this.tagIndex = index;
+        this.lootTables = tables;
+        this.pityRules = rules;
+
+        // Compile loadout rules against the tags and definitions of this snapshot.
+        HashMap<String, LoadoutValidator> validators = new HashMap<>();
+
+        for (LoadoutType loadoutType : loadoutTypes) {
+            validators.put(loadoutType.getId(), new LoadoutValidator(this, loadoutType));
+        }
+
+        this.loadoutValidators = validators;
+    }
+
+    public static ItemCatalog empty() {
+        return new ItemCatalog(Collections.emptyList(), Collections.emptyList());
+    }
+
+    public Set<String> getItemTags() {
+        return itemTags;
+    }
+
+    public Collection<CatalogItemDefinition> getItemDefinitions() {
+        return itemDefinitions.values();
+    }
+
+    public CatalogItemDefinition getItemDefinition(String id) {
+        return itemDefinitions.get(id);
+    }
+
+    public TagIndex getTagIndex() {
+        return tagIndex;
+    }
+
+    /**
+     * Gets the compiled loot tables of all containers of the specified item definition,
+     * or an empty list if the item is not a container.
+     */
+    public List<LootTable> getLootTables(String itemDefinitionId) {
+        return lootTables.getOrDefault(itemDefinitionId, Collections.emptyList());
+    }
+
+    /**
+     * Gets the compiled pity rules of the specified container, or an empty list if the container has no pity rules.
+     */
+    public List<PityRule> getPityRules(String itemDefinitionId) {
+        return pityRules.getOrDefault(itemDefinitionId, Collections.emptyList());
+    }
+
+    /**
+     * Gets the compiled rules of the specified loadout type, or {@code null} if there is no such loadout type.
+     */
+    public LoadoutValidator getLoadoutValidator(String loadoutTypeId) {
+        return loadoutValidators.get(loadoutTypeId);
+    }
+}
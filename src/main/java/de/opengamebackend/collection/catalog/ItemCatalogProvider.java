@@ -0,0 +1,135 @@
+package de.opengamebackend.collection.catalog;
+
+import de.opengamebackend.collection.model.repositories.ContainerPityRuleRepository;
+import de.opengamebackend.collection.model.repositories.ItemDefinitionRepository;
+import de.opengamebackend.collection.model.repositories.ItemTagRepository;
+import de.opengamebackend.collection.model.repositories.LoadoutTypeRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Holds the current {@link ItemCatalog} snapshot. The snapshot is built once on startup and replaced atomically
+ * whenever item definitions or loadout types have been changed, so that reading catalog data never requires a database round trip.
+ * Snapshots remember the {@link CatalogVersion} they have been built from, and are rebuilt on first access after
+ * another instance has changed the catalog.
+ */
+@Component
+public class ItemCatalogProvider {
+    private final ItemTagRepository itemTagRepository;
+    private final ItemDefinitionRepository itemDefinitionRepository;
+    private final ContainerPityRuleRepository containerPityRuleRepository;
+    private final LoadoutTypeRepository loadoutTypeRepository;
+    private final CatalogVersion catalogVersion;
+
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate newTransactionTemplate;
+
+    private volatile Snapshot snapshot;
+
+    @Autowired
+    public ItemCatalogProvider(ItemTagRepository itemTagRepository, ItemDefinitionRepository itemDefinitionRepository,
+                               ContainerPityRuleRepository containerPityRuleRepository,
+                               LoadoutTypeRepository loadoutTypeRepository, CatalogVersion catalogVersion,
+                               PlatformTransactionManager transactionManager) {
+        this.itemTagRepository = itemTagRepository;
+        this.itemDefinitionRepository = itemDefinitionRepository;
+        this.containerPityRuleRepository = containerPityRuleRepository;
+        this.loadoutTypeRepository = loadoutTypeRepository;
+        this.catalogVersion = catalogVersion;
+
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+
+        this.newTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.newTransactionTemplate.setReadOnly(true);
+        this.newTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public ItemCatalog getCatalog() {
+        Snapshot current = snapshot;
+
+        if (current == null) {
+            return rebuild();
+        }
+
+        if (current.catalogVersion < catalogVersion.get()) {
+            return rebuildIfOutdated();
+        }
+
+        return current.catalog;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * Rebuilds the catalog, joining the current transaction, if any.
+     */
+    public ItemCatalog rebuild() {
+        return rebuild(transactionTemplate);
+    }
+
+    /**
+     * Rebuilds the catalog as soon as the current transaction has been committed successfully,
+     * or immediately if there is no active transaction.
+     */
+    public void rebuildAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            rebuild();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                catalogVersion.refresh();
+                rebuild(newTransactionTemplate);
+            }
+        });
+    }
+
+    /**
+     * Rebuilds the catalog in a new transaction, unless another thread has already done so, so that the snapshot
+     * includes all changes committed up to the current catalog version.
+     */
+    private synchronized ItemCatalog rebuildIfOutdated() {
+        Snapshot current = snapshot;
+
+        if (current != null && current.catalogVersion >= catalogVersion.get()) {
+            return current.catalog;
+        }
+
+        return rebuild(newTransactionTemplate);
+    }
+
+    private synchronized ItemCatalog rebuild(TransactionTemplate template) {
+        // Get catalog version before reading any data: If it changes while reading, the catalog is rebuilt again.
+        long newCatalogVersion = catalogVersion.get();
+
+        ItemCatalog newCatalog = template.execute(status ->
+                new ItemCatalog(itemTagRepository.findAll(), itemDefinitionRepository.findAll(),
+                        containerPityRuleRepository.findAll(), loadoutTypeRepository.findAllWithRules()));
+
+        snapshot = new Snapshot(newCatalogVersion, newCatalog);
+        return newCatalog;
+    }
+
+    private static class Snapshot {
+        private final long catalogVersion;
+        private final ItemCatalog catalog;
+
+        private Snapshot(long catalogVersion, ItemCatalog catalog) {
+            this.catalogVersion = catalogVersion;
+            this.catalog = catalog;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package de.opengamebackend.collection.catalog;
+
+import de.opengamebackend.collection.model.entities.LoadoutRule;
+import de.opengamebackend.collection.model.entities.LoadoutType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Rules of a single loadout type, compiled against a catalog snapshot. Rules are indexed by the ordinal of their
+ * item tag, so each item definition of a loadout updates the counters of all matching rules at once, and validating
+ * takes a single pass over the loadout, regardless of the number of rules. Safe to share between threads.
+ */
+public class LoadoutValidator {
+    private final ItemCatalog catalog;
+
+    private final String[] ruleTags;
+
+    private final long[] minTotals;
+    private final long[] maxTotals;
+    private final long[] maxCopies;
+
+    private final long[] ruleTagMask;
+    private final int[][] rulesByTag;
+
+    public LoadoutValidator(ItemCatalog catalog, LoadoutType loadoutType) {
+        this.catalog = catalog;
+
+        List<LoadoutRule> rules = loadoutType.getRules();
+        int ruleCount = rules.size();
+
+        this.ruleTags = new String[ruleCount];
+
+        this.minTotals = new long[ruleCount];
+        this.maxTotals = new long[ruleCount];
+        this.maxCopies = new long[ruleCount];
+
+        // Resolve tags and limits. Missing limits don't restrict the loadout.
+        TagIndex tagIndex = catalog.getTagIndex();
+        int[] tagOrdinals = new int[ruleCount];
+        int maxTagOrdinal = -1;
+
+        for (int i = 0; i < ruleCount; ++i) {
+            LoadoutRule rule = rules.get(i);
+
+            ruleTags[i] = rule.getItemTag().getTag();
+
+            minTotals[i] = rule.getMinTotal() != null ? rule.getMinTotal() : 0L;
+            maxTotals[i] = rule.getMaxTotal() != null ? rule.getMaxTotal() : Long.MAX_VALUE;
+            maxCopies[i] = rule.getMaxCopies() != null ? rule.getMaxCopies() : Long.MAX_VALUE;
+
+            tagOrdinals[i] = tagIndex.getTagOrdinal(ruleTags[i]);
+            maxTagOrdinal = Math.max(maxTagOrdinal, tagOrdinals[i]);
+        }
+
+        // Index rules by tag. Rules with unknown tags can't match any item.
+        this.ruleTagMask = new long[(maxTagOrdinal + 64) >>> 6];
+        this.rulesByTag = new int[maxTagOrdinal + 1][];
+
+        for (int i = 0; i < ruleCount; ++i) {
+            int tagOrdinal = tagOrdinals[i];
+
+            if (tagOrdinal < 0) {
+                continue;
+            }
+
+            int[] tagRules = rulesByTag[tagOrdinal];
+
+            if (tagRules == null) {
+                tagRules = new int[] { i };
+            } else {
+                tagRules = Arrays.copyOf(tagRules, tagRules.length + 1);
+                tagRules[tagRules.length - 1] = i;
+            }
+
+            rulesByTag[tagOrdinal] = tagRules;
+            ruleTagMask[tagOrdinal >>> 6] |= 1L << tagOrdinal;
+        }
+    }
+
+    public ItemCatalog getCatalog() {
+        return catalog;
+    }
+
+    /**
+     * Validates the specified loadout items against all rules. Items of unknown item definitions are ignored.
+     *
+     * @return all violated rules, with violated copy limits in loadout order, followed by violated totals in rule
+     * order; empty if the loadout is valid
+     */
+    public <T> List<LoadoutViolation> validate(Collection<T> items, Function<T, String> itemDefinitionId,
+                                               ToIntFunction<T> count) {
+        // Sum up copies per item definition in loadout order, using an open addressing hash table of slot numbers.
+        CatalogItemDefinition[] definitions = new CatalogItemDefinition[items.size()];
+        long[] copies = new long[items.size()];
+        int[] slots = new int[Integer.highestOneBit(Math.max(items.size(), 1)) << 2];
+        int slotMask = slots.length - 1;
+        int distinct = 0;
+
+        for (T item : items) {
+            CatalogItemDefinition definition = catalog.getItemDefinition(itemDefinitionId.apply(item));
+
+            if (definition == null) {
+                continue;
+            }
+
+            int slot = definition.getOrdinal() & slotMask;
+
+            while (slots[slot] != 0 && definitions[slots[slot] - 1] != definition) {
+                slot = (slot + 1) & slotMask;
+            }
+
+            if (slots[slot] == 0) {
+                definitions[distinct] = definition;
+                slots[slot] = ++distinct;
+            }
+
+            copies[slots[slot] - 1] += count.applyAsInt(item);
+        }
+
+        // Update counters of all rules matching any tag of each item definition.
+        TagIndex tagIndex = catalog.getTagIndex();
+        long[] totals = new long[ruleTags.length];
+        ArrayList<LoadoutViolation> violations = new ArrayList<>(0);
+
+        for (int i = 0; i < distinct; ++i) {
+            long[] tagBits = tagIndex.getTagBits(definitions[i]);
+            int words = Math.min(tagBits.length, ruleTagMask.length);
+
+            for (int word = 0; word < words; ++word) {
+                for (long remaining = tagBits[word] & ruleTagMask[word]; remaining != 0; remaining &= remaining - 1) {
+                    int tagOrdinal = (word << 6) + Long.numberOfTrailingZeros(remaining);
+
+                    for (int rule : rulesByTag[tagOrdinal]) {
+                        totals[rule] += copies[i];
+
+                        if (copies[i] > maxCopies[rule]) {
+                            violations.add(new LoadoutViolation(ruleTags[rule], definitions[i].getId(),
+                                    String.format("Item %s with tag %s occurs more than %d times.",
+                                            definitions[i].getId(), ruleTags[rule], maxCopies[rule])));
+                        }
+                    }
+                }
+            }
+        }
+
+        // Check totals.
+        for (int rule = 0; rule < ruleTags.length; ++rule) {
+            if (totals[rule] < minTotals[rule]) {
+                violations.add(new LoadoutViolation(ruleTags[rule], null,
+                        String.format("Items with tag %s occur less than %d times.",
+                                ruleTags[rule], minTotals[rule])));
+            }
+
+            if (totals[rule] > maxTotals[rule]) {
+                violations.add(new LoadoutViolation(ruleTags[rule], null,
+                        String.format("Items with tag %s occur more than %d times.",
+                                ruleTags[rule], maxTotals[rule])));
+            }
+        }
+
+        return violations;
+    }
+}
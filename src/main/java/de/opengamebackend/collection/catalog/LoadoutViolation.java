@@ -0,0 +1,34 @@
+package de.opengamebackend.collection.catalog;
+
+/**
+ * Single loadout rule that has been violated by a loadout.
+ */
+public class LoadoutViolation {
+    private final String itemTag;
+    private final String itemDefinitionId;
+    private final String message;
+
+    LoadoutViolation(String itemTag, String itemDefinitionId, String message) {
+        this.itemTag = itemTag;
+        this.itemDefinitionId = itemDefinitionId;
+        this.message = message;
+    }
+
+    /**
+     * Gets the item tag of the violated rule.
+     */
+    public String getItemTag() {
+        return itemTag;
+    }
+
+    /**
+     * Gets the item definition occurring too often, or null if the total count of the rule has been violated.
+     */
+    public String getItemDefinitionId() {
+        return itemDefinitionId;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,124 @@
+package de.opengamebackend.collection.catalog;
+
+import de.opengamebackend.collection.loot.LootRandom;
+
+import java.util.ArrayDeque;
+import java.util.List;
+
+/**
+ * Compiled form of a single item container. Rolls one of the contained items in constant time using
+ * Vose's alias method, and provides the precomputed item definitions matching the required tags of each contained item.
+ */
+public class LootTable {
+    private final int itemCount;
+    private final long totalProbability;
+    private final double[] probabilities;
+    private final int[] aliases;
+    private final CatalogItemDefinition[][] candidates;
+    private final boolean[] candidatesHaveMaxCount;
+
+    LootTable(CatalogItemContainer container, TagIndex tagIndex) {
+        List<CatalogContainedItem> containedItems = container.getContainedItems();
+        int n = containedItems.size();
+
+        this.itemCount = container.getItemCount();
+        this.probabilities = new double[n];
+        this.aliases = new int[n];
+        this.candidates = new CatalogItemDefinition[n][];
+        this.candidatesHaveMaxCount = new boolean[n];
+
+        // Find matching item definitions.
+        for (int i = 0; i < n; ++i) {
+            CatalogContainedItem containedItem = containedItems.get(i);
+
+            candidates[i] = tagIndex.findWithAllTags(containedItem.getRequiredTags())
+                    .toArray(new CatalogItemDefinition[0]);
+
+            for (CatalogItemDefinition candidate : candidates[i]) {
+                candidatesHaveMaxCount[i] |= candidate.getMaxCount() != null;
+            }
+        }
+
+        // Build alias table.
+        this.totalProbability = containedItems.stream()
+                .mapToLong(containedItem -> Math.max(containedItem.getRelativeProbability(), 0))
+                .sum();
+
+        if (totalProbability <= 0) {
+            return;
+        }
+
+        double[] scaled = new double[n];
+        ArrayDeque<Integer> small = new ArrayDeque<>();
+        ArrayDeque<Integer> large = new ArrayDeque<>();
+
+        for (int i = 0; i < n; ++i) {
+            scaled[i] = (double) Math.max(containedItems.get(i).getRelativeProbability(), 0) * n / totalProbability;
+
+            if (scaled[i] < 1.0) {
+                small.push(i);
+            } else {
+                large.push(i);
+            }
+        }
+
+        while (!small.isEmpty() && !large.isEmpty()) {
+            int less = small.pop();
+            int more = large.pop();
+
+            probabilities[less] = scaled[less];
+            aliases[less] = more;
+
+            scaled[more] = (scaled[more] + scaled[less]) - 1.0;
+
+            if (scaled[more] < 1.0) {
+                small.push(more);
+            } else {
+                large.push(more);
+            }
+        }
+
+        // Remaining entries are (up to rounding errors) exactly full.
+        while (!large.isEmpty()) {
+            probabilities[large.pop()] = 1.0;
+        }
+
+        while (!small.isEmpty()) {
+            probabilities[small.pop()] = 1.0;
+        }
+    }
+
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    public int getContainedItemCount() {
+        return probabilities.length;
+    }
+
+    /**
+     * Rolls the index of one of the contained items, with respect to their relative probabilities.
+     */
+    public int roll(LootRandom random) {
+        if (totalProbability <= 0) {
+            throw new IllegalStateException("Container does not contain any items that can be rolled.");
+        }
+
+        int column = random.nextInt(probabilities.length);
+        return random.nextDouble() < probabilities[column] ? column : aliases[column];
+    }
+
+    /**
+     * Gets all item definitions that have all tags required by the contained item with the specified index.
+     */
+    public CatalogItemDefinition[] getCandidates(int containedItemIndex) {
+        return candidates[containedItemIndex];
+    }
+
+    /**
+     * Checks whether any of the candidates of the contained item with the specified index has a max count.
+     */
+    public boolean candidatesHaveMaxCount(int containedItemIndex) {
+        return candidatesHaveMaxCount[containedItemIndex];
+    }
+}
@@ -0,0 +1,69 @@
+package de.opengamebackend.collection.catalog;
+
+import de.opengamebackend.collection.model.entities.ContainerPityRule;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Compiled form of a single pity rule of a container. Guarantees an item with the tag of the rule at least once
+ * within the specified number of consecutive openings, and provides the precomputed item definitions of the container
+ * matching that tag.
+ */
+public class PityRule {
+    private final String itemTag;
+    private final int tagOrdinal;
+    private final int maxOpenings;
+    private final TagIndex tagIndex;
+    private final CatalogItemDefinition[] candidates;
+    private final boolean candidatesHaveMaxCount;
+
+    PityRule(ContainerPityRule rule, List<LootTable> lootTables, TagIndex tagIndex) {
+        this.itemTag = rule.getItemTag().getTag();
+        this.tagOrdinal = tagIndex.getTagOrdinal(itemTag);
+        this.maxOpenings = rule.getMaxOpenings();
+        this.tagIndex = tagIndex;
+
+        // Find all item definitions with the tag that the container can roll.
+        LinkedHashSet<CatalogItemDefinition> matchingCandidates = new LinkedHashSet<>();
+
+        for (LootTable lootTable : lootTables) {
+            for (int i = 0; i < lootTable.getContainedItemCount(); ++i) {
+                for (CatalogItemDefinition candidate : lootTable.getCandidates(i)) {
+                    if (matches(candidate)) {
+                        matchingCandidates.add(candidate);
+                    }
+                }
+            }
+        }
+
+        this.candidates = matchingCandidates.toArray(new CatalogItemDefinition[0]);
+        this.candidatesHaveMaxCount = matchingCandidates.stream().anyMatch(c -> c.getMaxCount() != null);
+    }
+
+    public String getItemTag() {
+        return itemTag;
+    }
+
+    public int getMaxOpenings() {
+        return maxOpenings;
+    }
+
+    /**
+     * Checks whether the specified item definition satisfies this rule.
+     */
+    public boolean matches(CatalogItemDefinition itemDefinition) {
+        return tagIndex.hasTag(itemDefinition, tagOrdinal);
+    }
+
+    /**
+     * Gets all item definitions of the container satisfying this rule. Empty if the rule can't be satisfied.
+     */
+    public CatalogItemDefinition[] getCandidates() {
+        return candidates;
+    }
+
+    public boolean candidatesHaveMaxCount() {
+        return candidatesHaveMaxCount;
+    }
+}
@@ -0,0 +1,162 @@
+package de.opengamebackend.collection.catalog;
+
+import java.util.*;
+
+/**
+ * Assigns each item tag a dense ordinal, and stores the tags of each item definition as bit set.
+ * Provides an inverted index from tags to item definitions for finding all definitions with a set of tags.
+ */
+public class TagIndex {
+    private final Map<String, Integer> tagOrdinals;
+    private final List<CatalogItemDefinition> itemDefinitions;
+    private final long[][] definitionTags;
+    private final int[][] postingLists;
+
+    TagIndex(Collection<String> tags, List<CatalogItemDefinition> itemDefinitions) {
+        this.itemDefinitions = itemDefinitions;
+
+        // Intern tags.
+        HashMap<String, Integer> ordinals = new HashMap<>();
+
+        for (String tag : tags) {
+            ordinals.putIfAbsent(tag, ordinals.size());
+        }
+
+        this.tagOrdinals = ordinals;
+
+        // Build bit sets and posting lists.
+        int words = (ordinals.size() + 63) >>> 6;
+        int[] postingListSizes = new int[ordinals.size()];
+
+        this.definitionTags = new long[itemDefinitions.size()][];
+
+        for (int i = 0; i < itemDefinitions.size(); ++i) {
+            long[] bits = new long[words];
+
+            for (String tag : itemDefinitions.get(i).getTags()) {
+                int ordinal = ordinals.get(tag);
+
+                if ((bits[ordinal >>> 6] & (1L << ordinal)) == 0) {
+                    bits[ordinal >>> 6] |= 1L << ordinal;
+                    ++postingListSizes[ordinal];
+                }
+            }
+
+            definitionTags[i] = bits;
+        }
+
+        this.postingLists = new int[ordinals.size()][];
+
+        for (int ordinal = 0; ordinal < postingLists.length; ++ordinal) {
+            postingLists[ordinal] = new int[postingListSizes[ordinal]];
+            postingListSizes[ordinal] = 0;
+        }
+
+        for (int i = 0; i < definitionTags.length; ++i) {
+            long[] bits = definitionTags[i];
+
+            for (int word = 0; word < bits.length; ++word) {
+                for (long remaining = bits[word]; remaining != 0; remaining &= remaining - 1) {
+                    int ordinal = (word << 6) + Long.numberOfTrailingZeros(remaining);
+                    postingLists[ordinal][postingListSizes[ordinal]++] = i;
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the ordinal of the specified tag, or -1 if the tag is unknown.
+     */
+    public int getTagOrdinal(String tag) {
+        return tagOrdinals.getOrDefault(tag, -1);
+    }
+
+    /**
+     * Gets a bit mask containing all specified tags, or null if any of these tags is unknown.
+     */
+    public long[] getTagMask(Collection<String> tags) {
+        long[] mask = new long[(tagOrdinals.size() + 63) >>> 6];
+
+        for (String tag : tags) {
+            int ordinal = getTagOrdinal(tag);
+
+            if (ordinal < 0) {
+                return null;
+            }
+
+            mask[ordinal >>> 6] |= 1L << ordinal;
+        }
+
+        return mask;
+    }
+
+    /**
+     * Gets the tags of the specified item definition as bit set indexed by tag ordinal. Must not be modified.
+     */
+    long[] getTagBits(CatalogItemDefinition itemDefinition) {
+        return definitionTags[itemDefinition.getOrdinal()];
+    }
+
+    public boolean hasTag(CatalogItemDefinition itemDefinition, int tagOrdinal) {
+        if (tagOrdinal < 0) {
+            return false;
+        }
+
+        long[] bits = definitionTags[itemDefinition.getOrdinal()];
+        return (bits[tagOrdinal >>> 6] & (1L << tagOrdinal)) != 0;
+    }
+
+    public boolean hasAllTags(CatalogItemDefinition itemDefinition, long[] tagMask) {
+        if (tagMask == null) {
+            return false;
+        }
+
+        long[] bits = definitionTags[itemDefinition.getOrdinal()];
+
+        for (int i = 0; i < tagMask.length; ++i) {
+            if ((bits[i] & tagMask[i]) != tagMask[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Finds all item definitions having all of the specified tags, in catalog order.
+     */
+    public List<CatalogItemDefinition> findWithAllTags(Collection<String> tags) {
+        if (tags.isEmpty()) {
+            return itemDefinitions;
+        }
+
+        long[] mask = getTagMask(tags);
+
+        if (mask == null) {
+            return Collections.emptyList();
+        }
+
+        // Walk the shortest posting list, checking the remaining tags by bit mask.
+        int[] shortestPostingList = null;
+
+        for (String tag : tags) {
+            int[] postingList = postingLists[getTagOrdinal(tag)];
+
+            if (shortestPostingList == null || postingList.length < shortestPostingList.length) {
+                shortestPostingList = postingList;
+            }
+        }
+
+        ArrayList<CatalogItemDefinition> result = new ArrayList<>(shortestPostingList.length);
+
+        for (int definitionOrdinal : shortestPostingList) {
+            CatalogItemDefinition itemDefinition = itemDefinitions.get(definitionOrdinal);
+
+            if (hasAllTags(itemDefinition, mask)) {
+                result.add(itemDefinition);
+            }
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,215 @@
+package de.opengamebackend.collection.controller;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.opengamebackend.collection.catalog.CatalogVersion;
+import de.opengamebackend.net.ApiException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serves catalog responses (item definitions, item sets, loadout types) with entity tags derived from the current
+ * {@link CatalogVersion}, the resource and the content coding. Requests with a matching <code>If-None-Match</code>
+ * header are answered with 304 without touching the database. Otherwise, the response body is serialized and
+ * gzip-compressed once per catalog version, decompressed once for clients not accepting gzip, and copied to all
+ * subsequent responses.
+ */
+@Component
+public class CatalogResponseCache {
+    private static final String GZIP = "gzip";
+
+    private final CatalogVersion catalogVersion;
+    private final ObjectMapper objectMapper;
+
+    private final ConcurrentHashMap<String, CachedResponse> responses = new ConcurrentHashMap<>();
+
+    @Autowired
+    public CatalogResponseCache(CatalogVersion catalogVersion, ObjectMapper objectMapper) {
+        this.catalogVersion = catalogVersion;
+        this.objectMapper = objectMapper;
+    }
+
+    public void write(String key, HttpServletRequest request, HttpServletResponse response, JsonWriter writer)
+            throws ApiException, IOException {
+        // Get version before reading any data: If the version is incremented while serializing, the response
+        // will just be serialized again on the next request.
+        long version = catalogVersion.get();
+        boolean gzip = acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        String eTag = getETag(version, key, gzip);
+
+        response.setHeader(HttpHeaders.ETAG, eTag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        // Both content codings are semantically equivalent, so clients that have switched codings since don't need
+        // to fetch the response again.
+        if (matchesETag(request.getHeader(HttpHeaders.IF_NONE_MATCH), eTag, getETag(version, key, !gzip))) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+
+        CachedResponse cachedResponse = responses.get(key);
+
+        if (cachedResponse == null || cachedResponse.version != version) {
+            cachedResponse = responses.merge(key, new CachedResponse(version, serialize(writer)),
+                    (oldResponse, newResponse) -> oldResponse.version > newResponse.version
+                            ? oldResponse
+                            : newResponse);
+        }
+
+        byte[] body = gzip ? cachedResponse.gzippedBody : cachedResponse.getBody();
+
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, GZIP);
+        }
+
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private byte[] serialize(JsonWriter writer) throws ApiException, IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(new GZIPOutputStream(body),
+                JsonEncoding.UTF8)) {
+            writer.write(generator);
+        }
+
+        return body.toByteArray();
+    }
+
+    /**
+     * Gets the strong entity tag of the specified catalog resource and content coding, including quotes.
+     */
+    private static String getETag(long version, String key, boolean gzip) {
+        return "\"" + version + "-" + key + (gzip ? "-" + GZIP : "") + "\"";
+    }
+
+    private static boolean matchesETag(String ifNoneMatch, String eTag, String otherCodingETag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+
+        // If-None-Match uses weak comparison, so ignore weakness indicators.
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+
+            if (trimmed.startsWith("W/")) {
+                trimmed = trimmed.substring(2);
+            }
+
+            if (trimmed.equals("*") || trimmed.equals(eTag) || trimmed.equals(otherCodingETag)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Checks whether gzip is acceptable and at least as preferred as no encoding, according to the quality values of
+     * the specified <code>Accept-Encoding</code> header.
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+
+        double gzipQuality = -1.0;
+        double identityQuality = -1.0;
+        double anyQuality = -1.0;
+
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parameters = coding.split(";");
+            String name = parameters[0].trim().toLowerCase();
+            double quality = 1.0;
+
+            for (int i = 1; i < parameters.length; ++i) {
+                String parameter = parameters[i].trim().toLowerCase();
+
+                if (parameter.startsWith("q=")) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        quality = 0.0;
+                    }
+                }
+            }
+
+            switch (name) {
+                case GZIP:
+                case "x-gzip":
+                    gzipQuality = Math.max(gzipQuality, quality);
+                    break;
+
+                case "identity":
+                    identityQuality = Math.max(identityQuality, quality);
+                    break;
+
+                case "*":
+                    anyQuality = Math.max(anyQuality, quality);
+                    break;
+            }
+        }
+
+        // The wildcard applies to all codings that aren't listed explicitly.
+        if (gzipQuality < 0.0) {
+            gzipQuality = anyQuality;
+        }
+
+        if (identityQuality < 0.0) {
+            identityQuality = anyQuality;
+        }
+
+        return gzipQuality > 0.0 && gzipQuality >= identityQuality;
+    }
+
+    private static class CachedResponse {
+        private final long version;
+        private final byte[] gzippedBody;
+
+        private volatile byte[] body;
+
+        private CachedResponse(long version, byte[] gzippedBody) {
+            this.version = version;
+            this.gzippedBody = gzippedBody;
+        }
+
+        /**
+         * Gets the uncompressed body, decompressing it on first access. Concurrent first accesses may decompress it
+         * more than once, with identical results.
+         */
+        private byte[] getBody() throws IOException {
+            byte[] uncompressedBody = body;
+
+            if (uncompressedBody == null) {
+                try (GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(gzippedBody))) {
+                    uncompressedBody = StreamUtils.copyToByteArray(input);
+                }
+
+                body = uncompressedBody;
+            }
+
+            return uncompressedBody;
+        }
+    }
+}
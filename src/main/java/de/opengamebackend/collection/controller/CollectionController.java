@@ -1,7 +1,15 @@
 package de.opengamebackend.collection.controller;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.opengamebackend.collection.cache.PlayerCollectionCache;
 import de.opengamebackend.collection.model.requests.AddCollectionItemsRequest;
+import de.opengamebackend.collection.model.requests.BulkAddCollectionItemsRequest;
+import de.opengamebackend.collection.model.requests.OpenContainersRequest;
+import de.opengamebackend.collection.model.requests.PatchItemDefinitionsRequest;
 import de.opengamebackend.collection.model.requests.PutCollectionItemsRequest;
+import de.opengamebackend.collection.model.requests.PutContainerPityRulesRequest;
 import de.opengamebackend.collection.model.requests.PutItemDefinitionsRequest;
 import de.opengamebackend.collection.model.requests.PutItemSetsRequest;
 import de.opengamebackend.collection.model.responses.*;
@@ -14,15 +22,29 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
 @RestController
 public class CollectionController {
     private final CollectionService collectionService;
+    private final CatalogResponseCache catalogResponseCache;
+    private final PlayerCollectionCache playerCollectionCache;
+    private final ObjectMapper objectMapper;
 
-    public CollectionController(CollectionService collectionService) {
+    public CollectionController(CollectionService collectionService, CatalogResponseCache catalogResponseCache,
+                                PlayerCollectionCache playerCollectionCache, ObjectMapper objectMapper) {
         this.collectionService = collectionService;
+        this.catalogResponseCache = catalogResponseCache;
+        this.playerCollectionCache = playerCollectionCache;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping("/client/collection")
@@ -40,10 +62,16 @@ public class CollectionController {
                             "Error " + ApiErrors.MISSING_PLAYER_ID_CODE + ": " + ApiErrors.MISSING_PLAYER_ID_MESSAGE,
                     content = { @Content })
     })
-    public ResponseEntity<GetCollectionResponse> getCollection(@RequestHeader(HttpHeader.PLAYER_ID) String playerId)
-            throws ApiException {
-        GetCollectionResponse response = collectionService.getCollection(playerId);
-        return new ResponseEntity<>(response, HttpStatus.OK);
+    public void getCollection(@RequestHeader(HttpHeader.PLAYER_ID) String playerId, HttpServletResponse response)
+            throws ApiException, IOException {
+        byte[] body = playerCollectionCache.get(playerId,
+                () -> serializeJson(generator -> collectionService.writeCollection(playerId, generator)));
+
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
     }
 
     @GetMapping("/admin/collection/{playerId}")
@@ -61,10 +89,9 @@ public class CollectionController {
                             "Error " + ApiErrors.MISSING_PLAYER_ID_CODE + ": " + ApiErrors.MISSING_PLAYER_ID_MESSAGE,
                     content = { @Content })
     })
-    public ResponseEntity<GetCollectionResponse> getCollectionAdmin(@PathVariable String playerId)
-            throws ApiException {
-        GetCollectionResponse response = collectionService.getCollection(playerId);
-        return new ResponseEntity<>(response, HttpStatus.OK);
+    public void getCollectionAdmin(@PathVariable String playerId, HttpServletResponse response)
+            throws ApiException, IOException {
+        writeJson(response, generator -> collectionService.writeCollection(playerId, generator));
     }
 
     @PostMapping("/admin/collection/{playerId}/items")
@@ -88,6 +115,27 @@ public class CollectionController {
         return new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
 
+    @PostMapping("/admin/collection/bulk")
+    @Operation(summary = "Adds items to the collections of multiple players at once. " +
+            "Invalid entries are skipped and reported in the result of that entry.")
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Valid items added. Results of invalid entries contain one of these errors: <br />" +
+                            "Error " + ApiErrors.MISSING_PLAYER_ID_CODE + ": " + ApiErrors.MISSING_PLAYER_ID_MESSAGE + "<br />" +
+                            "Error " + ApiErrors.MISSING_ITEM_DEFINITION_CODE + ": " + ApiErrors.MISSING_ITEM_DEFINITION_MESSAGE + "<br />" +
+                            "Error " + ApiErrors.UNKNOWN_ITEM_DEFINITION_CODE + ": " + ApiErrors.UNKNOWN_ITEM_DEFINITION_MESSAGE + "<br />" +
+                            "Error " + ApiErrors.INVALID_ITEM_COUNT_CODE + ": " + ApiErrors.INVALID_ITEM_COUNT_MESSAGE,
+                    content = { @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = BulkAddCollectionItemsResponse.class)) })
+    })
+    public ResponseEntity<BulkAddCollectionItemsResponse> postCollectionItemsBulk(
+            @RequestBody BulkAddCollectionItemsRequest request) {
+        BulkAddCollectionItemsResponse response = collectionService.bulkAddCollectionItems(request);
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
     @PutMapping("/admin/collection/{playerId}/items/{itemDefinitionId}")
     @Operation(summary = "Sets the number of items of a specific type in the collection of a player.")
     @ApiResponses(value = {
@@ -138,11 +186,14 @@ public class CollectionController {
                     description = "Definitions fetched.",
                     content = { @Content(
                             mediaType = "application/json",
-                            schema = @Schema(implementation = GetItemDefinitionsResponse.class)) })
+                            schema = @Schema(implementation = GetItemDefinitionsResponse.class)) }),
+            @ApiResponse(
+                    responseCode = "304",
+                    description = "Not modified since the version passed in If-None-Match.")
     })
-    public ResponseEntity<GetItemDefinitionsResponse> getItemDefinitions() {
-        GetItemDefinitionsResponse response = collectionService.getItemDefinitions();
-        return new ResponseEntity<>(response, HttpStatus.OK);
+    public void getItemDefinitions(HttpServletRequest request, HttpServletResponse response)
+            throws ApiException, IOException {
+        catalogResponseCache.write("itemDefinitions", request, response, collectionService::writeItemDefinitions);
     }
 
     @PutMapping("/admin/itemdefinitions")
@@ -157,6 +208,25 @@ public class CollectionController {
         return new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
 
+    @PatchMapping("/admin/itemdefinitions")
+    @Operation(summary = "Adds, replaces or removes individual item definitions.")
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "204",
+                    description = "Definitions updated."),
+            @ApiResponse(
+                    responseCode = "400",
+                    description =
+                            "Error " + ApiErrors.MISSING_ITEM_DEFINITION_CODE + ": " + ApiErrors.MISSING_ITEM_DEFINITION_MESSAGE + "<br />" +
+                            "Error " + ApiErrors.UNKNOWN_ITEM_DEFINITION_CODE + ": " + ApiErrors.UNKNOWN_ITEM_DEFINITION_MESSAGE,
+                    content = { @Content })
+    })
+    public ResponseEntity<Void> patchItemDefinitions(@RequestBody PatchItemDefinitionsRequest request)
+            throws ApiException {
+        collectionService.patchItemDefinitions(request);
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+
     @GetMapping("/admin/itemsets")
     @Operation(summary = "Gets the ids and items of all item sets.")
     @ApiResponses(value = {
@@ -165,11 +235,14 @@ public class CollectionController {
                     description = "Item sets fetched.",
                     content = { @Content(
                             mediaType = "application/json",
-                            schema = @Schema(implementation = GetItemSetsResponse.class)) })
+                            schema = @Schema(implementation = GetItemSetsResponse.class)) }),
+            @ApiResponse(
+                    responseCode = "304",
+                    description = "Not modified since the version passed in If-None-Match.")
     })
-    public ResponseEntity<GetItemSetsResponse> getItemSets() {
-        GetItemSetsResponse response = collectionService.getItemSets();
-        return new ResponseEntity<>(response, HttpStatus.OK);
+    public void getItemSets(HttpServletRequest request, HttpServletResponse response)
+            throws ApiException, IOException {
+        catalogResponseCache.write("itemSets", request, response, collectionService::writeItemSets);
     }
 
     @PutMapping("/admin/itemsets")
@@ -188,6 +261,43 @@ public class CollectionController {
         return new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
 
+    @GetMapping("/admin/containerpityrules")
+    @Operation(summary = "Gets all rules guaranteeing items with specific tags within a number of container openings.")
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Pity rules fetched.",
+                    content = { @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = GetContainerPityRulesResponse.class)) })
+    })
+    public ResponseEntity<GetContainerPityRulesResponse> getContainerPityRules() {
+        GetContainerPityRulesResponse response = collectionService.getContainerPityRules();
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+    @PutMapping("/admin/containerpityrules")
+    @Operation(summary = "Sets all rules guaranteeing items with specific tags within a number of container openings.")
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "204",
+                    description = "Pity rules updated."),
+            @ApiResponse(
+                    responseCode = "400",
+                    description =
+                            "Error " + ApiErrors.MISSING_ITEM_DEFINITION_CODE + ": " + ApiErrors.MISSING_ITEM_DEFINITION_MESSAGE + "<br />" +
+                            "Error " + ApiErrors.UNKNOWN_ITEM_DEFINITION_CODE + ": " + ApiErrors.UNKNOWN_ITEM_DEFINITION_MESSAGE + "<br />" +
+                            "Error " + ApiErrors.ITEM_NOT_A_CONTAINER_CODE + ": " + ApiErrors.ITEM_NOT_A_CONTAINER_MESSAGE + "<br />" +
+                            "Error " + ApiErrors.UNKNOWN_ITEMTAG_CODE + ": " + ApiErrors.UNKNOWN_ITEMTAG_MESSAGE + "<br />" +
+                            "Error " + ApiErrors.INVALID_ITEM_COUNT_CODE + ": " + ApiErrors.INVALID_ITEM_COUNT_MESSAGE,
+                    content = { @Content })
+    })
+    public ResponseEntity<Void> putContainerPityRules(@RequestBody PutContainerPityRulesRequest request)
+            throws ApiException {
+        collectionService.putContainerPityRules(request);
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+
     @GetMapping("/admin/claimeditemsets/{playerId}")
     @Operation(summary = "Gets all item sets that have already been claimed by the player.")
     @ApiResponses(value = {
@@ -221,7 +331,7 @@ public class CollectionController {
     }
 
     @PostMapping("/client/opencontainer/{itemDefinitionId}")
-    @Operation(summary = "Opens an item container owned by the player.")
+    @Operation(summary = "Opens one or more item containers of the same type owned by the player.")
     @ApiResponses(value = {
             @ApiResponse(
                     responseCode = "200",
@@ -232,14 +342,66 @@ public class CollectionController {
                             "Error " + ApiErrors.MISSING_PLAYER_ID_CODE + ": " + ApiErrors.MISSING_PLAYER_ID_MESSAGE + "<br />" +
                             "Error " + ApiErrors.MISSING_ITEM_DEFINITION_CODE + ": " + ApiErrors.MISSING_ITEM_DEFINITION_MESSAGE + "<br />" +
                             "Error " + ApiErrors.UNKNOWN_ITEM_DEFINITION_CODE + ": " + ApiErrors.UNKNOWN_ITEM_DEFINITION_MESSAGE  + "<br />" +
+                            "Error " + ApiErrors.INVALID_ITEM_COUNT_CODE + ": " + ApiErrors.INVALID_ITEM_COUNT_MESSAGE  + "<br />" +
                             "Error " + ApiErrors.PLAYER_DOES_NOT_OWN_ITEM_CODE + ": " + ApiErrors.PLAYER_DOES_NOT_OWN_ITEM_MESSAGE  + "<br />" +
                             "Error " + ApiErrors.ITEM_NOT_A_CONTAINER_CODE + ": " + ApiErrors.ITEM_NOT_A_CONTAINER_MESSAGE,
                     content = { @Content })
     })
     public ResponseEntity<OpenContainerResponse> openContainer(@RequestHeader(HttpHeader.PLAYER_ID) String playerId,
-                                                               @PathVariable String itemDefinitionId)
+                                                               @PathVariable String itemDefinitionId,
+                                                               @RequestParam(defaultValue = "1") int count)
+            throws ApiException {
+        OpenContainerResponse response = collectionService.openContainer(playerId, itemDefinitionId, count);
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+    @PostMapping("/client/opencontainers")
+    @Operation(summary = "Opens multiple item containers of different types owned by the player at once.")
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Items found inside all containers."),
+            @ApiResponse(
+                    responseCode = "400",
+                    description =
+                            "Error " + ApiErrors.MISSING_PLAYER_ID_CODE + ": " + ApiErrors.MISSING_PLAYER_ID_MESSAGE + "<br />" +
+                            "Error " + ApiErrors.MISSING_ITEM_DEFINITION_CODE + ": " + ApiErrors.MISSING_ITEM_DEFINITION_MESSAGE + "<br />" +
+                            "Error " + ApiErrors.UNKNOWN_ITEM_DEFINITION_CODE + ": " + ApiErrors.UNKNOWN_ITEM_DEFINITION_MESSAGE  + "<br />" +
+                            "Error " + ApiErrors.INVALID_ITEM_COUNT_CODE + ": " + ApiErrors.INVALID_ITEM_COUNT_MESSAGE  + "<br />" +
+                            "Error " + ApiErrors.PLAYER_DOES_NOT_OWN_ITEM_CODE + ": " + ApiErrors.PLAYER_DOES_NOT_OWN_ITEM_MESSAGE  + "<br />" +
+                            "Error " + ApiErrors.ITEM_NOT_A_CONTAINER_CODE + ": " + ApiErrors.ITEM_NOT_A_CONTAINER_MESSAGE,
+                    content = { @Content })
+    })
+    public ResponseEntity<OpenContainerResponse> openContainers(@RequestHeader(HttpHeader.PLAYER_ID) String playerId,
+                                                                @RequestBody OpenContainersRequest request)
             throws ApiException {
-        OpenContainerResponse response = collectionService.openContainer(playerId, itemDefinitionId);
+        OpenContainerResponse response = collectionService.openContainers(playerId, request);
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
+
+    /**
+     * Streams a JSON response body, instead of building the whole response in memory first.
+     */
+    private void writeJson(HttpServletResponse response, JsonWriter writer) throws ApiException, IOException {
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+        // Generator is only closed (and flushed) on success: If the writer fails before exceeding the buffer size,
+        // nothing has been committed yet, and the exception handler can still send a proper error response.
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream(),
+                JsonEncoding.UTF8);
+        writer.write(generator);
+        generator.close();
+    }
+
+    private byte[] serializeJson(JsonWriter writer) throws ApiException, IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(body, JsonEncoding.UTF8)) {
+            writer.write(generator);
+        }
+
+        return body.toByteArray();
+    }
 }
@@ -1,18 +1,32 @@
 package de.opengamebackend.collection.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.google.common.base.Strings;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import de.opengamebackend.collection.cache.PlayerCollectionCache;
+import de.opengamebackend.collection.catalog.*;
+import de.opengamebackend.collection.locking.PlayerLockManager;
+import de.opengamebackend.collection.loot.LootRandom;
+import de.opengamebackend.collection.loot.LootRandomProvider;
 import de.opengamebackend.collection.model.entities.*;
 import de.opengamebackend.collection.model.repositories.*;
 import de.opengamebackend.collection.model.requests.*;
 import de.opengamebackend.collection.model.responses.*;
+import de.opengamebackend.collection.retry.RetryOnConflict;
+import de.opengamebackend.collection.writebehind.CollectionWriteBehind;
+import de.opengamebackend.collection.writebehind.PendingRead;
 import de.opengamebackend.net.ApiErrors;
 import de.opengamebackend.net.ApiException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import javax.transaction.Transactional;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
@@ -22,39 +36,100 @@ public class CollectionService {
     private final ItemTagRepository itemTagRepository;
     private final ItemSetRepository itemSetRepository;
     private final ClaimedItemSetRepository claimedItemSetRepository;
+    private final ContainerOpeningRepository containerOpeningRepository;
+    private final ContainerPityRuleRepository containerPityRuleRepository;
+
+    private final ItemCatalogProvider itemCatalogProvider;
+    private final CatalogVersion catalogVersion;
+    private final CollectionWriteBehind collectionWriteBehind;
+    private final PlayerLockManager playerLockManager;
+    private final LootRandomProvider lootRandomProvider;
+    private final PlayerCollectionCache playerCollectionCache;
 
     @Autowired
     public CollectionService(CollectionItemRepository collectionItemRepository,
                              ItemDefinitionRepository itemDefinitionRepository, ItemTagRepository itemTagRepository,
-                             ItemSetRepository itemSetRepository, ClaimedItemSetRepository claimedItemSetRepository) {
+                             ItemSetRepository itemSetRepository, ClaimedItemSetRepository claimedItemSetRepository,
+                             ContainerOpeningRepository containerOpeningRepository,
+                             ContainerPityRuleRepository containerPityRuleRepository,
+                             ItemCatalogProvider itemCatalogProvider, CatalogVersion catalogVersion,
+                             CollectionWriteBehind collectionWriteBehind, PlayerLockManager playerLockManager,
+                             LootRandomProvider lootRandomProvider, PlayerCollectionCache playerCollectionCache) {
         this.collectionItemRepository = collectionItemRepository;
         this.itemDefinitionRepository = itemDefinitionRepository;
         this.itemTagRepository = itemTagRepository;
         this.itemSetRepository = itemSetRepository;
         this.claimedItemSetRepository = claimedItemSetRepository;
+        this.containerOpeningRepository = containerOpeningRepository;
+        this.containerPityRuleRepository = containerPityRuleRepository;
+
+        this.itemCatalogProvider = itemCatalogProvider;
+        this.catalogVersion = catalogVersion;
+        this.collectionWriteBehind = collectionWriteBehind;
+        this.playerLockManager = playerLockManager;
+        this.lootRandomProvider = lootRandomProvider;
+        this.playerCollectionCache = playerCollectionCache;
     }
 
-    public GetCollectionResponse getCollection(String playerId) throws ApiException {
+    /**
+     * Writes the collection of the specified player row by row, without holding the whole collection in memory.
+     */
+    public void writeCollection(String playerId, JsonGenerator generator) throws ApiException, IOException {
         if (Strings.isNullOrEmpty(playerId)) {
             throw new ApiException(ApiErrors.MISSING_PLAYER_ID_CODE, ApiErrors.MISSING_PLAYER_ID_MESSAGE);
         }
 
-        ArrayList<GetCollectionResponseItem> collection = new ArrayList<>();
+        // Take the pending grants before reading anything else, as repeatable read transactions don't see flushes
+        // committed after their first read.
+        try (PendingRead pendingRead = collectionWriteBehind.openRead(playerId)) {
+            ItemCatalog catalog = itemCatalogProvider.getCatalog();
+            HashMap<String, Integer> pendingDeltas = new HashMap<>(pendingRead.getDeltas());
 
-        List<CollectionItem> items = collectionItemRepository.findByPlayerId(playerId);
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("collection");
 
-        for (CollectionItem item : items) {
-            GetCollectionResponseItem responseItem = new GetCollectionResponseItem();
-            responseItem.setId(item.getItemDefinition().getId());
-            responseItem.setCount(item.getCount());
-            responseItem.setTags(item.getItemDefinition().getItemTags().stream()
-                    .map(ItemTag::getTag)
-                    .collect(Collectors.toList()));
+            try (Stream<CollectionItemCount> items = collectionItemRepository.streamByPlayerId(playerId)) {
+                Iterator<CollectionItemCount> iterator = items.iterator();
+
+                while (iterator.hasNext()) {
+                    CollectionItemCount item = iterator.next();
+                    Integer pendingDelta = pendingDeltas.remove(item.getItemDefinitionId());
+
+                    writeCollectionItem(generator, catalog, item.getItemDefinitionId(),
+                            pendingDelta != null ? item.getCount() + pendingDelta : item.getCount());
+                }
+            }
 
-            collection.add(responseItem);
+            for (Map.Entry<String, Integer> pendingDelta : pendingDeltas.entrySet()) {
+                writeCollectionItem(generator, catalog, pendingDelta.getKey(), pendingDelta.getValue());
+            }
         }
 
-        return new GetCollectionResponse(collection);
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+
+    private void writeCollectionItem(JsonGenerator generator, ItemCatalog catalog, String itemDefinitionId, int count)
+            throws IOException {
+        CatalogItemDefinition itemDefinition = catalog.getItemDefinition(itemDefinitionId);
+
+        generator.writeStartObject();
+        generator.writeStringField("id", itemDefinitionId);
+        generator.writeNumberField("count", count);
+        writeStringArrayField(generator, "tags",
+                itemDefinition != null ? itemDefinition.getTags() : Collections.emptyList());
+        generator.writeEndObject();
+    }
+
+    private void writeStringArrayField(JsonGenerator generator, String fieldName, Collection<String> values)
+            throws IOException {
+        generator.writeArrayFieldStart(fieldName);
+
+        for (String value : values) {
+            generator.writeString(value);
+        }
+
+        generator.writeEndArray();
     }
 
     public void addCollectionItems(String playerId, AddCollectionItemsRequest request) throws ApiException {
@@ -66,30 +141,76 @@ public class CollectionService {
             throw new ApiException(ApiErrors.MISSING_ITEM_DEFINITION_CODE, ApiErrors.MISSING_ITEM_DEFINITION_MESSAGE);
         }
 
-        ItemDefinition itemDefinition = itemDefinitionRepository.findById(request.getItemDefinitionId()).orElse(null);
-
-        if (itemDefinition == null) {
-            throw new ApiException(ApiErrors.UNKNOWN_ITEM_DEFINITION_CODE, ApiErrors.UNKNOWN_ITEM_DEFINITION_MESSAGE);
-        }
+        verifyItemDefinition(request.getItemDefinitionId());
 
         if (request.getItemCount() <= 0) {
             throw new ApiException(ApiErrors.INVALID_ITEM_COUNT_CODE, ApiErrors.INVALID_ITEM_COUNT_MESSAGE);
         }
 
-        CollectionItem collectionItem =
-                collectionItemRepository.findByPlayerIdAndItemDefinition(playerId, itemDefinition).orElse(null);
+        if (collectionWriteBehind.isEnabled()) {
+            collectionWriteBehind.add(playerId, request.getItemDefinitionId(), request.getItemCount());
+        } else {
+            collectionItemRepository.incrementCount(playerId, request.getItemDefinitionId(), request.getItemCount());
+        }
 
-        if (collectionItem == null) {
-            collectionItem = new CollectionItem();
-            collectionItem.setPlayerId(playerId);
-            collectionItem.setItemDefinition(itemDefinition);
+        playerCollectionCache.invalidateAfterCompletion(playerId);
+    }
+
+    public BulkAddCollectionItemsResponse bulkAddCollectionItems(BulkAddCollectionItemsRequest request) {
+        ItemCatalog catalog = itemCatalogProvider.getCatalog();
+
+        // Validate entries, and group valid ones by player, sorted to acquire row locks in a consistent order.
+        ArrayList<BulkAddCollectionItemsResponseEntry> results = new ArrayList<>(request.getEntries().size());
+        TreeMap<String, TreeMap<String, Integer>> countsByPlayer = new TreeMap<>();
+
+        for (BulkAddCollectionItemsRequestEntry entry : request.getEntries()) {
+            try {
+                verifyBulkAddCollectionItemsEntry(catalog, entry);
+            } catch (ApiException e) {
+                results.add(new BulkAddCollectionItemsResponseEntry(entry.getPlayerId(), entry.getItemDefinitionId(),
+                        e.getErrorCode(), e.getMessage()));
+                continue;
+            }
+
+            countsByPlayer.computeIfAbsent(entry.getPlayerId(), playerId -> new TreeMap<>())
+                    .merge(entry.getItemDefinitionId(), entry.getCount(), Integer::sum);
+
+            results.add(new BulkAddCollectionItemsResponseEntry(entry.getPlayerId(), entry.getItemDefinitionId(),
+                    null, null));
         }
 
-        collectionItem.setCount(collectionItem.getCount() + request.getItemCount());
+        // Apply all grants at once.
+        if (!countsByPlayer.isEmpty()) {
+            collectionItemRepository.incrementCounts(countsByPlayer);
+        }
 
-        collectionItemRepository.save(collectionItem);
+        for (String playerId : countsByPlayer.keySet()) {
+            playerCollectionCache.invalidateAfterCompletion(playerId);
+        }
+
+        return new BulkAddCollectionItemsResponse(results);
+    }
+
+    private void verifyBulkAddCollectionItemsEntry(ItemCatalog catalog, BulkAddCollectionItemsRequestEntry entry)
+            throws ApiException {
+        if (Strings.isNullOrEmpty(entry.getPlayerId())) {
+            throw new ApiException(ApiErrors.MISSING_PLAYER_ID_CODE, ApiErrors.MISSING_PLAYER_ID_MESSAGE);
+        }
+
+        if (Strings.isNullOrEmpty(entry.getItemDefinitionId())) {
+            throw new ApiException(ApiErrors.MISSING_ITEM_DEFINITION_CODE, ApiErrors.MISSING_ITEM_DEFINITION_MESSAGE);
+        }
+
+        if (catalog.getItemDefinition(entry.getItemDefinitionId()) == null) {
+            throw new ApiException(ApiErrors.UNKNOWN_ITEM_DEFINITION_CODE, ApiErrors.UNKNOWN_ITEM_DEFINITION_MESSAGE);
+        }
+
+        if (entry.getCount() <= 0) {
+            throw new ApiException(ApiErrors.INVALID_ITEM_COUNT_CODE, ApiErrors.INVALID_ITEM_COUNT_MESSAGE);
+        }
     }
 
+    @RetryOnConflict
     public void putCollectionItems(String playerId, String itemDefinitionId, PutCollectionItemsRequest request)
             throws ApiException {
         CollectionItem collectionItem = getCollectionItemOfPlayer(playerId, itemDefinitionId);
@@ -100,8 +221,11 @@ public class CollectionService {
 
         collectionItem.setCount(request.getItemCount());
         collectionItemRepository.save(collectionItem);
+
+        playerCollectionCache.invalidateAfterCompletion(playerId);
     }
 
+    @RetryOnConflict
     public void removeCollectionItems(String playerId, String itemDefinitionId) throws ApiException {
         if (Strings.isNullOrEmpty(playerId)) {
             throw new ApiException(ApiErrors.MISSING_PLAYER_ID_CODE, ApiErrors.MISSING_PLAYER_ID_MESSAGE);
@@ -111,92 +235,141 @@ public class CollectionService {
             throw new ApiException(ApiErrors.MISSING_ITEM_DEFINITION_CODE, ApiErrors.MISSING_ITEM_DEFINITION_MESSAGE);
         }
 
-        ItemDefinition itemDefinition = itemDefinitionRepository.findById(itemDefinitionId).orElse(null);
-
-        if (itemDefinition == null) {
-            throw new ApiException(ApiErrors.UNKNOWN_ITEM_DEFINITION_CODE, ApiErrors.UNKNOWN_ITEM_DEFINITION_MESSAGE);
-        }
+        ItemDefinition itemDefinition = getItemDefinitionReference(itemDefinitionId);
 
+        collectionWriteBehind.flush(playerId);
         collectionItemRepository.deleteByPlayerIdAndItemDefinition(playerId, itemDefinition);
-    }
 
-    public GetItemDefinitionsResponse getItemDefinitions() {
-        List<GetItemDefinitionsResponseItem> itemDefinitions = new ArrayList<>();
-
-        for (ItemDefinition itemDefinitionEntity : itemDefinitionRepository.findAll()) {
-            GetItemDefinitionsResponseItem itemDefinition = new GetItemDefinitionsResponseItem();
-            itemDefinition.setId(itemDefinitionEntity.getId());
-            itemDefinition.setMaxCount(itemDefinitionEntity.getMaxCount());
-            itemDefinition.setTags(itemDefinitionEntity.getItemTags().stream()
-                    .map(ItemTag::getTag)
-                    .collect(Collectors.toList()));
-
-            ArrayList<GetItemDefinitionsResponseItemContainer> itemContainers = new ArrayList<>();
+        playerCollectionCache.invalidateAfterCompletion(playerId);
+    }
 
-            for (ItemContainer itemContainerEntity : itemDefinitionEntity.getContainers()) {
-                GetItemDefinitionsResponseItemContainer itemContainer = new GetItemDefinitionsResponseItemContainer();
-                itemContainer.setItemCount(itemContainerEntity.getItemCount());
+    /**
+     * Writes all item definitions directly from the item catalog, without creating a copy of the whole catalog first.
+     */
+    public void writeItemDefinitions(JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        generator.writeArrayFieldStart("itemDefinitions");
+
+        for (CatalogItemDefinition itemDefinition : itemCatalogProvider.getCatalog().getItemDefinitions()) {
+            generator.writeStartObject();
+            generator.writeStringField("id", itemDefinition.getId());
+
+            if (itemDefinition.getMaxCount() != null) {
+                generator.writeNumberField("maxCount", itemDefinition.getMaxCount());
+            } else {
+                generator.writeNullField("maxCount");
+            }
 
-                ArrayList<GetItemDefinitionsResponseItemContainerItem> containedItems = new ArrayList<>();
+            writeStringArrayField(generator, "tags", itemDefinition.getTags());
 
-                for (ContainedItem containedItemEntity : itemContainerEntity.getContainedItems()) {
-                    GetItemDefinitionsResponseItemContainerItem item = new GetItemDefinitionsResponseItemContainerItem();
+            generator.writeArrayFieldStart("containers");
 
-                    item.setRequiredTags(containedItemEntity.getRequiredTags().stream()
-                            .map(ItemTag::getTag)
-                            .collect(Collectors.toList()));
-                    item.setRelativeProbability(containedItemEntity.getRelativeProbability());
+            for (CatalogItemContainer itemContainer : itemDefinition.getContainers()) {
+                generator.writeStartObject();
+                generator.writeNumberField("itemCount", itemContainer.getItemCount());
+                generator.writeArrayFieldStart("containedItems");
 
-                    containedItems.add(item);
+                for (CatalogContainedItem containedItem : itemContainer.getContainedItems()) {
+                    generator.writeStartObject();
+                    writeStringArrayField(generator, "requiredTags", containedItem.getRequiredTags());
+                    generator.writeNumberField("relativeProbability", containedItem.getRelativeProbability());
+                    generator.writeEndObject();
                 }
 
-                itemContainer.setContainedItems(containedItems);
-
-                itemContainers.add(itemContainer);
+                generator.writeEndArray();
+                generator.writeEndObject();
             }
 
-            itemDefinition.setContainers(itemContainers);
-
-            itemDefinitions.add(itemDefinition);
+            generator.writeEndArray();
+            generator.writeEndObject();
         }
 
-        return new GetItemDefinitionsResponse(itemDefinitions);
+        generator.writeEndArray();
+        generator.writeEndObject();
     }
 
     public void putItemDefinitions(PutItemDefinitionsRequest request) {
         // Prepare collections.
-        HashMap<String, ItemTag> itemTags = new HashMap<>();
-        HashMap<String, ItemDefinition> itemDefinitions = new HashMap<>();
+        LinkedHashMap<String, ItemTag> itemTags = new LinkedHashMap<>();
+        LinkedHashMap<String, String> itemDefinitionHashes = new LinkedHashMap<>();
+
+        HashSet<String> requestedItemTags = new HashSet<>();
+        HashSet<String> requestedItemDefinitions = new HashSet<>();
+        LinkedHashMap<PutItemDefinitionsRequestItem, String> changedItemDefinitions = new LinkedHashMap<>();
 
         ArrayList<ItemTag> itemTagsToSave = new ArrayList<>();
         ArrayList<ItemTag> itemTagsToDelete = new ArrayList<>();
         ArrayList<ItemDefinition> itemDefinitionsToSave = new ArrayList<>();
-        ArrayList<ItemDefinition> itemDefinitionsToDelete = new ArrayList<>();
+        ArrayList<String> itemDefinitionsToDelete = new ArrayList<>();
 
-        // Query current state from database.
+        // Query current state from database. Item definitions are compared by hash, without loading them.
         for (ItemTag itemTag : itemTagRepository.findAll()) {
             itemTags.put(itemTag.getTag(), itemTag);
         }
 
-        for (ItemDefinition itemDefinition : itemDefinitionRepository.findAll()) {
-            itemDefinitions.put(itemDefinition.getId(), itemDefinition);
+        for (ItemDefinitionHash itemDefinitionHash : itemDefinitionRepository.findAllHashes()) {
+            itemDefinitionHashes.put(itemDefinitionHash.getId(), itemDefinitionHash.getContentHash());
         }
 
         // Collect requested item tags.
         for (PutItemDefinitionsRequestItem itemDefinition : request.getItemDefinitions()) {
             for (String itemTag : itemDefinition.getTags()) {
-                ItemTag itemTagEntity = itemTags.get(itemTag);
+                requestedItemTags.add(itemTag);
 
-                if (itemTagEntity == null) {
-                    itemTagEntity = new ItemTag(itemTag);
+                if (!itemTags.containsKey(itemTag)) {
+                    ItemTag itemTagEntity = new ItemTag(itemTag);
                     itemTagsToSave.add(itemTagEntity);
                     itemTags.put(itemTag, itemTagEntity);
                 }
             }
         }
 
-        // Collect requested item definitions.
+        // Collect changed item definitions.
         for (PutItemDefinitionsRequestItem itemDefinition : request.getItemDefinitions()) {
+            requestedItemDefinitions.add(itemDefinition.getId());
+
+            String contentHash = hashItemDefinition(itemDefinition);
+
+            if (!contentHash.equals(itemDefinitionHashes.get(itemDefinition.getId()))) {
+                changedItemDefinitions.put(itemDefinition, contentHash);
+            }
+        }
+
+        // Find tags to remove.
+        for (Map.Entry<String, ItemTag> itemTag : itemTags.entrySet()) {
+            if (!requestedItemTags.contains(itemTag.getKey())) {
+                itemTagsToDelete.add(itemTag.getValue());
+            }
+        }
+
+        // Find definitions to remove.
+        for (String itemDefinitionId : itemDefinitionHashes.keySet()) {
+            if (!requestedItemDefinitions.contains(itemDefinitionId)) {
+                itemDefinitionsToDelete.add(itemDefinitionId);
+            }
+        }
+
+        // Skip all writes if nothing has changed, e.g. when re-importing the same catalog on deployment.
+        if (itemTagsToSave.isEmpty() && itemTagsToDelete.isEmpty() && changedItemDefinitions.isEmpty() &&
+                itemDefinitionsToDelete.isEmpty()) {
+            return;
+        }
+
+        // Load and update changed item definitions only.
+        HashMap<String, ItemDefinition> itemDefinitions = new HashMap<>();
+
+        List<String> changedItemDefinitionIds = changedItemDefinitions.keySet().stream()
+                .map(PutItemDefinitionsRequestItem::getId)
+                .filter(itemDefinitionHashes::containsKey)
+                .collect(Collectors.toList());
+
+        for (ItemDefinition itemDefinition : itemDefinitionRepository.findAllById(changedItemDefinitionIds)) {
+            itemDefinitions.put(itemDefinition.getId(), itemDefinition);
+        }
+
+        for (Map.Entry<PutItemDefinitionsRequestItem, String> changedItemDefinition :
+                changedItemDefinitions.entrySet()) {
+            PutItemDefinitionsRequestItem itemDefinition = changedItemDefinition.getKey();
             ItemDefinition itemDefinitionEntity = itemDefinitions.get(itemDefinition.getId());
 
             if (itemDefinitionEntity == null) {
@@ -205,76 +378,304 @@ public class CollectionService {
                 itemDefinitions.put(itemDefinition.getId(), itemDefinitionEntity);
             }
 
-            itemDefinitionEntity.setMaxCount(itemDefinition.getMaxCount());
-            itemDefinitionEntity.setItemTags(itemDefinition.getTags().stream()
-                    .map(itemTags::get)
-                    .collect(Collectors.toList()));
+            updateItemDefinition(itemDefinitionEntity, itemDefinition, itemTags);
+            itemDefinitionEntity.setContentHash(changedItemDefinition.getValue());
 
-            ArrayList<ItemContainer> itemContainerEntities = new ArrayList<>();
+            itemDefinitionsToSave.add(itemDefinitionEntity);
+        }
 
-            for (PutItemDefinitionsRequestItemContainer itemContainer : itemDefinition.getContainers()) {
-                ItemContainer itemContainerEntity = new ItemContainer();
-                itemContainerEntity.setOwningItemDefinition(itemDefinitionEntity);
-                itemContainerEntity.setItemCount(itemContainer.getItemCount());
+        // Apply changes.
+        itemTagRepository.saveAll(itemTagsToSave);
+        itemTagRepository.deleteAll(itemTagsToDelete);
 
-                ArrayList<ContainedItem> containedItemEntities = new ArrayList<>();
+        itemDefinitionRepository.saveAll(itemDefinitionsToSave);
 
-                for (PutItemDefinitionsRequestItemContainerItem item : itemContainer.getContainedItems()) {
-                    ContainedItem containedItemEntity = new ContainedItem();
+        // Openings of players reference their containers, but are meaningless without them.
+        if (!itemDefinitionsToDelete.isEmpty()) {
+            containerOpeningRepository.deleteByItemDefinitionIdIn(itemDefinitionsToDelete);
+        }
 
-                    containedItemEntity.setItemContainer(itemContainerEntity);
-                    containedItemEntity.setRequiredTags(item.getRequiredTags().stream()
-                            .map(itemTags::get)
-                            .collect(Collectors.toList()));
-                    containedItemEntity.setRelativeProbability(item.getRelativeProbability());
+        itemDefinitionRepository.deleteAll(itemDefinitionRepository.findAllById(itemDefinitionsToDelete));
 
-                    containedItemEntities.add(containedItemEntity);
-                }
+        // Rebuild catalog before incrementing its version, so that readers never see the new version with old data.
+        itemCatalogProvider.rebuildAfterCommit();
+        catalogVersion.increment();
+    }
+
+    /**
+     * Adds, replaces or removes individual item definitions, leaving all other item definitions untouched.
+     * Tags are created as required, but unused tags are only cleaned up by {@link #putItemDefinitions}.
+     */
+    public void patchItemDefinitions(PatchItemDefinitionsRequest request) throws ApiException {
+        // Verify request.
+        HashSet<String> upsertedItemDefinitionIds = new HashSet<>();
+        HashSet<String> requestedItemTags = new HashSet<>();
+
+        for (PutItemDefinitionsRequestItem itemDefinition : request.getUpserts()) {
+            if (Strings.isNullOrEmpty(itemDefinition.getId())) {
+                throw new ApiException(ApiErrors.MISSING_ITEM_DEFINITION_CODE,
+                        ApiErrors.MISSING_ITEM_DEFINITION_MESSAGE);
+            }
 
-                itemContainerEntity.setContainedItems(containedItemEntities);
+            upsertedItemDefinitionIds.add(itemDefinition.getId());
+            requestedItemTags.addAll(itemDefinition.getTags());
 
-                itemContainerEntities.add(itemContainerEntity);
+            for (PutItemDefinitionsRequestItemContainer container : itemDefinition.getContainers()) {
+                for (PutItemDefinitionsRequestItemContainerItem item : container.getContainedItems()) {
+                    requestedItemTags.addAll(item.getRequiredTags());
+                }
             }
+        }
 
-            itemDefinitionEntity.getContainers().clear();
-            itemDefinitionEntity.getContainers().addAll(itemContainerEntities);
+        List<ItemDefinition> itemDefinitionsToDelete = itemDefinitionRepository.findAllById(request.getDeletes());
 
-            itemDefinitionsToSave.add(itemDefinitionEntity);
+        if (itemDefinitionsToDelete.size() != new HashSet<>(request.getDeletes()).size()) {
+            Set<String> foundIds = itemDefinitionsToDelete.stream()
+                    .map(ItemDefinition::getId)
+                    .collect(Collectors.toSet());
+            String unknownId = request.getDeletes().stream()
+                    .filter(id -> !foundIds.contains(id))
+                    .findFirst()
+                    .orElse(null);
+
+            throw new ApiException(ApiErrors.UNKNOWN_ITEM_DEFINITION_CODE,
+                    ApiErrors.UNKNOWN_ITEM_DEFINITION_MESSAGE + unknownId);
         }
 
-        // Find tags to remove.
-        for (Map.Entry<String, ItemTag> itemTag : itemTags.entrySet()) {
-            if (request.getItemDefinitions().stream().noneMatch(i -> i.getTags().contains(itemTag.getKey()))) {
-                itemTagsToDelete.add(itemTag.getValue());
+        // Query current state of affected rows only.
+        HashMap<String, ItemTag> itemTags = new HashMap<>();
+        HashMap<String, ItemDefinition> itemDefinitions = new HashMap<>();
+
+        for (ItemTag itemTag : itemTagRepository.findAllById(requestedItemTags)) {
+            itemTags.put(itemTag.getTag(), itemTag);
+        }
+
+        for (ItemDefinition itemDefinition : itemDefinitionRepository.findAllById(upsertedItemDefinitionIds)) {
+            itemDefinitions.put(itemDefinition.getId(), itemDefinition);
+        }
+
+        // Collect missing tags.
+        ArrayList<ItemTag> itemTagsToSave = new ArrayList<>();
+
+        for (String itemTag : requestedItemTags) {
+            if (!itemTags.containsKey(itemTag)) {
+                ItemTag itemTagEntity = new ItemTag(itemTag);
+                itemTagsToSave.add(itemTagEntity);
+                itemTags.put(itemTag, itemTagEntity);
             }
         }
 
-        // Find definitions to remove.
-        for (Map.Entry<String, ItemDefinition> itemDefinition : itemDefinitions.entrySet()) {
-            if (request.getItemDefinitions().stream().noneMatch(i -> i.getId().equals(itemDefinition.getKey()))) {
-                itemDefinitionsToDelete.add(itemDefinition.getValue());
+        // Collect changed item definitions.
+        ArrayList<ItemDefinition> itemDefinitionsToSave = new ArrayList<>();
+
+        for (PutItemDefinitionsRequestItem itemDefinition : request.getUpserts()) {
+            String contentHash = hashItemDefinition(itemDefinition);
+            ItemDefinition itemDefinitionEntity = itemDefinitions.get(itemDefinition.getId());
+
+            if (itemDefinitionEntity == null) {
+                itemDefinitionEntity = new ItemDefinition();
+                itemDefinitionEntity.setId(itemDefinition.getId());
+                itemDefinitions.put(itemDefinition.getId(), itemDefinitionEntity);
+            } else if (contentHash.equals(itemDefinitionEntity.getContentHash())) {
+                continue;
             }
+
+            updateItemDefinition(itemDefinitionEntity, itemDefinition, itemTags);
+            itemDefinitionEntity.setContentHash(contentHash);
+
+            itemDefinitionsToSave.add(itemDefinitionEntity);
+        }
+
+        if (itemTagsToSave.isEmpty() && itemDefinitionsToSave.isEmpty() && itemDefinitionsToDelete.isEmpty()) {
+            return;
         }
 
         // Apply changes.
         itemTagRepository.saveAll(itemTagsToSave);
-        itemTagRepository.deleteAll(itemTagsToDelete);
 
         itemDefinitionRepository.saveAll(itemDefinitionsToSave);
+
+        if (!itemDefinitionsToDelete.isEmpty()) {
+            containerOpeningRepository.deleteByItemDefinitionIdIn(itemDefinitionsToDelete.stream()
+                    .map(ItemDefinition::getId)
+                    .collect(Collectors.toList()));
+        }
+
         itemDefinitionRepository.deleteAll(itemDefinitionsToDelete);
+
+        itemCatalogProvider.rebuildAfterCommit();
+        catalogVersion.increment();
     }
 
-    public GetItemSetsResponse getItemSets() {
-        ArrayList<GetItemSetsResponseItemSet> itemSets = new ArrayList<>();
+    /**
+     * Applies the requested state to the specified item definition, replacing tags and containers only
+     * if they have actually changed.
+     */
+    private void updateItemDefinition(ItemDefinition itemDefinitionEntity, PutItemDefinitionsRequestItem itemDefinition,
+                                      Map<String, ItemTag> itemTags) {
+        itemDefinitionEntity.setMaxCount(itemDefinition.getMaxCount());
 
-        for (ItemSet itemSet : itemSetRepository.findAll()) {
-            itemSets.add(new GetItemSetsResponseItemSet(itemSet.getId(),
-                    itemSet.getItems().stream()
-                            .map(i -> new GetItemSetsResponseItem(i.getItemDefinition().getId(), i.getCount()))
-                            .collect(Collectors.toList())));
+        if (!hasTags(itemDefinitionEntity.getItemTags(), itemDefinition.getTags())) {
+            itemDefinitionEntity.setItemTags(itemDefinition.getTags().stream()
+                    .map(itemTags::get)
+                    .collect(Collectors.toList()));
+        }
+
+        if (hasContainers(itemDefinitionEntity.getContainers(), itemDefinition.getContainers())) {
+            return;
+        }
+
+        ArrayList<ItemContainer> itemContainerEntities = new ArrayList<>();
+
+        for (PutItemDefinitionsRequestItemContainer itemContainer : itemDefinition.getContainers()) {
+            ItemContainer itemContainerEntity = new ItemContainer();
+            itemContainerEntity.setOwningItemDefinition(itemDefinitionEntity);
+            itemContainerEntity.setItemCount(itemContainer.getItemCount());
+
+            ArrayList<ContainedItem> containedItemEntities = new ArrayList<>();
+
+            for (PutItemDefinitionsRequestItemContainerItem item : itemContainer.getContainedItems()) {
+                ContainedItem containedItemEntity = new ContainedItem();
+
+                containedItemEntity.setItemContainer(itemContainerEntity);
+                containedItemEntity.setRequiredTags(item.getRequiredTags().stream()
+                        .map(itemTags::get)
+                        .collect(Collectors.toList()));
+                containedItemEntity.setRelativeProbability(item.getRelativeProbability());
+
+                containedItemEntities.add(containedItemEntity);
+            }
+
+            itemContainerEntity.setContainedItems(containedItemEntities);
+
+            itemContainerEntities.add(itemContainerEntity);
+        }
+
+        itemDefinitionEntity.getContainers().clear();
+        itemDefinitionEntity.getContainers().addAll(itemContainerEntities);
+    }
+
+    private static boolean hasTags(List<ItemTag> itemTags, List<String> tags) {
+        if (itemTags == null || itemTags.size() != tags.size()) {
+            return false;
+        }
+
+        for (int i = 0; i < tags.size(); ++i) {
+            if (itemTags.get(i) == null || !itemTags.get(i).getTag().equals(tags.get(i))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean hasContainers(List<ItemContainer> itemContainers,
+                                         List<PutItemDefinitionsRequestItemContainer> containers) {
+        if (itemContainers == null || itemContainers.size() != containers.size()) {
+            return false;
         }
 
-        return new GetItemSetsResponse(itemSets);
+        for (int i = 0; i < containers.size(); ++i) {
+            ItemContainer itemContainer = itemContainers.get(i);
+            PutItemDefinitionsRequestItemContainer container = containers.get(i);
+
+            if (itemContainer.getItemCount() != container.getItemCount() ||
+                    itemContainer.getContainedItems().size() != container.getContainedItems().size()) {
+                return false;
+            }
+
+            for (int j = 0; j < container.getContainedItems().size(); ++j) {
+                ContainedItem containedItem = itemContainer.getContainedItems().get(j);
+                PutItemDefinitionsRequestItemContainerItem item = container.getContainedItems().get(j);
+
+                if (containedItem.getRelativeProbability() != item.getRelativeProbability() ||
+                        !hasTags(containedItem.getRequiredTags(), item.getRequiredTags())) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Hashes everything that is stored for the specified item definition, in order.
+     */
+    private static String hashItemDefinition(PutItemDefinitionsRequestItem itemDefinition) {
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+
+        hasher.putBoolean(itemDefinition.getMaxCount() != null);
+        hasher.putInt(itemDefinition.getMaxCount() != null ? itemDefinition.getMaxCount() : 0);
+        putStrings(hasher, itemDefinition.getTags());
+
+        hasher.putInt(itemDefinition.getContainers().size());
+
+        for (PutItemDefinitionsRequestItemContainer container : itemDefinition.getContainers()) {
+            hasher.putInt(container.getItemCount());
+            hasher.putInt(container.getContainedItems().size());
+
+            for (PutItemDefinitionsRequestItemContainerItem item : container.getContainedItems()) {
+                hasher.putInt(item.getRelativeProbability());
+                putStrings(hasher, item.getRequiredTags());
+            }
+        }
+
+        return hasher.hash().toString();
+    }
+
+    private static void putStrings(Hasher hasher, List<String> strings) {
+        hasher.putInt(strings.size());
+
+        for (String string : strings) {
+            hasher.putInt(string.length());
+            hasher.putString(string, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Writes all item sets row by row, without loading any item set entities.
+     */
+    public void writeItemSets(JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        generator.writeArrayFieldStart("itemSets");
+
+        try (Stream<ItemSetItemCount> items = itemSetRepository.streamAllItems()) {
+            Iterator<ItemSetItemCount> iterator = items.iterator();
+            String currentItemSetId = null;
+
+            while (iterator.hasNext()) {
+                ItemSetItemCount item = iterator.next();
+
+                // Rows are ordered by item set, so start a new object whenever the item set changes.
+                if (!item.getItemSetId().equals(currentItemSetId)) {
+                    if (currentItemSetId != null) {
+                        generator.writeEndArray();
+                        generator.writeEndObject();
+                    }
+
+                    currentItemSetId = item.getItemSetId();
+
+                    generator.writeStartObject();
+                    generator.writeStringField("id", currentItemSetId);
+                    generator.writeArrayFieldStart("items");
+                }
+
+                if (item.getItemDefinitionId() != null) {
+                    generator.writeStartObject();
+                    generator.writeStringField("itemDefinitionId", item.getItemDefinitionId());
+                    generator.writeNumberField("count", item.getCount());
+                    generator.writeEndObject();
+                }
+            }
+
+            if (currentItemSetId != null) {
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+        }
+
+        generator.writeEndArray();
+        generator.writeEndObject();
     }
 
     public void putItemSets(PutItemSetsRequest request) throws ApiException {
@@ -332,6 +733,71 @@ public class CollectionService {
         // Apply changes.
         itemSetRepository.saveAll(itemSetsToSave);
         itemSetRepository.deleteAll(itemSetsToDelete);
+
+        catalogVersion.increment();
+    }
+
+    public GetContainerPityRulesResponse getContainerPityRules() {
+        GetContainerPityRulesResponse response = new GetContainerPityRulesResponse();
+        response.setRules(containerPityRuleRepository.findAll().stream()
+                .map(r -> new GetContainerPityRulesResponseRule(r.getItemDefinition().getId(), r.getItemTag().getTag(),
+                        r.getMaxOpenings()))
+                .collect(Collectors.toList()));
+        return response;
+    }
+
+    public void putContainerPityRules(PutContainerPityRulesRequest request) throws ApiException {
+        ItemCatalog catalog = itemCatalogProvider.getCatalog();
+
+        // Verify rules.
+        for (PutContainerPityRulesRequestRule rule : request.getRules()) {
+            if (Strings.isNullOrEmpty(rule.getItemDefinitionId())) {
+                throw new ApiException(ApiErrors.MISSING_ITEM_DEFINITION_CODE, ApiErrors.MISSING_ITEM_DEFINITION_MESSAGE);
+            }
+
+            CatalogItemDefinition itemDefinition = catalog.getItemDefinition(rule.getItemDefinitionId());
+
+            if (itemDefinition == null) {
+                throw new ApiException(ApiErrors.UNKNOWN_ITEM_DEFINITION_CODE, ApiErrors.UNKNOWN_ITEM_DEFINITION_MESSAGE);
+            }
+
+            if (!itemDefinition.isContainer()) {
+                throw new ApiException(ApiErrors.ITEM_NOT_A_CONTAINER_CODE, ApiErrors.ITEM_NOT_A_CONTAINER_MESSAGE);
+            }
+
+            if (!catalog.getItemTags().contains(rule.getItemTag())) {
+                throw new ApiException(ApiErrors.UNKNOWN_ITEMTAG_CODE, ApiErrors.UNKNOWN_ITEMTAG_MESSAGE);
+            }
+
+            if (rule.getMaxOpenings() <= 0) {
+                throw new ApiException(ApiErrors.INVALID_ITEM_COUNT_CODE, ApiErrors.INVALID_ITEM_COUNT_MESSAGE);
+            }
+        }
+
+        // Replace all rules.
+        HashMap<String, ItemTag> itemTags = new HashMap<>();
+
+        for (ItemTag itemTag : itemTagRepository.findAllById(request.getRules().stream()
+                .map(PutContainerPityRulesRequestRule::getItemTag)
+                .collect(Collectors.toSet()))) {
+            itemTags.put(itemTag.getTag(), itemTag);
+        }
+
+        ArrayList<ContainerPityRule> rulesToSave = new ArrayList<>();
+
+        for (PutContainerPityRulesRequestRule rule : request.getRules()) {
+            ContainerPityRule ruleEntity = new ContainerPityRule();
+            ruleEntity.setItemDefinition(getItemDefinitionReference(rule.getItemDefinitionId()));
+            ruleEntity.setItemTag(itemTags.get(rule.getItemTag()));
+            ruleEntity.setMaxOpenings(rule.getMaxOpenings());
+            rulesToSave.add(ruleEntity);
+        }
+
+        containerPityRuleRepository.deleteAll();
+        containerPityRuleRepository.saveAll(rulesToSave);
+
+        itemCatalogProvider.rebuildAfterCommit();
+        catalogVersion.increment();
     }
 
     public GetClaimedItemSetsResponse getClaimedItemSets(String playerId) {
@@ -347,37 +813,27 @@ public class CollectionService {
             throw new ApiException(ApiErrors.MISSING_PLAYER_ID_CODE, ApiErrors.MISSING_PLAYER_ID_MESSAGE);
         }
 
-        // Find unclaimed item set.
-        List<ItemSet> unclaimedItemSets = itemSetRepository.findUnclaimedItemSetsByPlayerId(playerId);
+        // Find unclaimed item set, preventing concurrent claims of the same player.
+        playerLockManager.lockUntilCompletion(playerId);
 
-        if (unclaimedItemSets == null || unclaimedItemSets.size() <= 0) {
+        ItemSet itemSet = itemSetRepository.findFirstUnclaimedItemSetByPlayerId(playerId).orElse(null);
+
+        if (itemSet == null) {
             return new ClaimItemSetResponse();
         }
 
-        // Add items to collection.
-        ItemSet itemSet = unclaimedItemSets.get(0);
+        // Save claim. Fails if the same item set has been claimed concurrently.
+        if (!claimedItemSetRepository.tryClaim(playerId, itemSet.getId())) {
+            return new ClaimItemSetResponse();
+        }
 
+        // Add items to collection.
         for (ItemSetItem itemSetItem : itemSet.getItems()) {
-            CollectionItem collectionItem = collectionItemRepository.findByPlayerIdAndItemDefinition
-                    (playerId, itemSetItem.getItemDefinition()).orElse(null);
-
-            if (collectionItem == null) {
-                collectionItem = new CollectionItem();
-                collectionItem.setPlayerId(playerId);
-                collectionItem.setItemDefinition(itemSetItem.getItemDefinition());
-            }
-
-            collectionItem.setCount(collectionItem.getCount() + itemSetItem.getCount());
-
-            collectionItemRepository.save(collectionItem);
+            collectionItemRepository.incrementCount(playerId, itemSetItem.getItemDefinition().getId(),
+                    itemSetItem.getCount());
         }
 
-        // Save claim.
-        ClaimedItemSet claimedItemSet = new ClaimedItemSet();
-        claimedItemSet.setPlayerId(playerId);
-        claimedItemSet.setItemSet(itemSet);
-
-        claimedItemSetRepository.save(claimedItemSet);
+        playerCollectionCache.invalidateAfterCompletion(playerId);
 
         // Send response.
         ClaimItemSetResponse response = new ClaimItemSetResponse();
@@ -388,100 +844,295 @@ public class CollectionService {
         return response;
     }
 
+    @RetryOnConflict
     public OpenContainerResponse openContainer(String playerId, String itemDefinitionId) throws ApiException {
-        // Get container owned by player.
-        CollectionItem container = getCollectionItemOfPlayer(playerId, itemDefinitionId);
-        ItemDefinition containerDefinition = container.getItemDefinition();
+        return openContainer(playerId, itemDefinitionId, 1);
+    }
+
+    @RetryOnConflict
+    public OpenContainerResponse openContainer(String playerId, String itemDefinitionId, int count)
+            throws ApiException {
+        LinkedHashMap<String, Integer> containersToOpen = new LinkedHashMap<>();
+        containersToOpen.put(itemDefinitionId, count);
+        return openContainers(playerId, containersToOpen);
+    }
+
+    @RetryOnConflict
+    public OpenContainerResponse openContainers(String playerId, OpenContainersRequest request) throws ApiException {
+        LinkedHashMap<String, Integer> containersToOpen = new LinkedHashMap<>();
+
+        for (OpenContainersRequestContainer container : request.getContainers()) {
+            if (container.getCount() <= 0) {
+                throw new ApiException(ApiErrors.INVALID_ITEM_COUNT_CODE, ApiErrors.INVALID_ITEM_COUNT_MESSAGE);
+            }
+
+            containersToOpen.merge(container.getItemDefinitionId(), container.getCount(), Integer::sum);
+        }
+
+        return openContainers(playerId, containersToOpen);
+    }
 
-        if (containerDefinition.getContainers().isEmpty()) {
-            throw new ApiException(ApiErrors.ITEM_NOT_A_CONTAINER_CODE, ApiErrors.ITEM_NOT_A_CONTAINER_MESSAGE);
+    private OpenContainerResponse openContainers(String playerId, Map<String, Integer> containersToOpen)
+            throws ApiException {
+        if (Strings.isNullOrEmpty(playerId)) {
+            throw new ApiException(ApiErrors.MISSING_PLAYER_ID_CODE, ApiErrors.MISSING_PLAYER_ID_MESSAGE);
+        }
+
+        ItemCatalog catalog = itemCatalogProvider.getCatalog();
+
+        for (Map.Entry<String, Integer> containerToOpen : containersToOpen.entrySet()) {
+            if (Strings.isNullOrEmpty(containerToOpen.getKey())) {
+                throw new ApiException(ApiErrors.MISSING_ITEM_DEFINITION_CODE, ApiErrors.MISSING_ITEM_DEFINITION_MESSAGE);
+            }
+
+            if (catalog.getItemDefinition(containerToOpen.getKey()) == null) {
+                throw new ApiException(ApiErrors.UNKNOWN_ITEM_DEFINITION_CODE, ApiErrors.UNKNOWN_ITEM_DEFINITION_MESSAGE);
+            }
+
+            if (containerToOpen.getValue() <= 0) {
+                throw new ApiException(ApiErrors.INVALID_ITEM_COUNT_CODE, ApiErrors.INVALID_ITEM_COUNT_MESSAGE);
+            }
+        }
+
+        // Track openings only if required for replaying rolls or evaluating pity rules.
+        boolean trackOpenings = lootRandomProvider.isDeterministic() ||
+                containersToOpen.keySet().stream().anyMatch(id -> !catalog.getPityRules(id).isEmpty());
+
+        // Get all items owned by player at once, preventing concurrent openings from overshooting max counts.
+        // Openings of owned containers are joined in the same query, if required.
+        playerLockManager.lockUntilCompletion(playerId);
+        collectionWriteBehind.flush(playerId);
+
+        HashMap<String, CollectionItem> ownedItems = new HashMap<>();
+        HashMap<String, ContainerOpening> containerOpenings = new HashMap<>();
+
+        if (trackOpenings) {
+            for (CollectionItemWithOpening ownedItem :
+                    collectionItemRepository.findWithContainerOpeningsByPlayerId(playerId)) {
+                String itemDefinitionId = ownedItem.getItem().getItemDefinition().getId();
+                ownedItems.put(itemDefinitionId, ownedItem.getItem());
+
+                if (ownedItem.getOpening() != null) {
+                    containerOpenings.put(itemDefinitionId, ownedItem.getOpening());
+                }
+            }
+        } else {
+            for (CollectionItem ownedItem : collectionItemRepository.findByPlayerId(playerId)) {
+                ownedItems.put(ownedItem.getItemDefinition().getId(), ownedItem);
+            }
         }
 
-        // Get all available item definitions.
-        ArrayList<ItemDefinition> allItemDefinitions = new ArrayList<>();
-        itemDefinitionRepository.findAll().forEach(allItemDefinitions::add);
+        // Verify containers.
+        for (Map.Entry<String, Integer> containerToOpen : containersToOpen.entrySet()) {
+            CollectionItem container = ownedItems.get(containerToOpen.getKey());
 
-        // Count owned items.
-        List<CollectionItem> ownedItems = collectionItemRepository.findByPlayerId(playerId);
+            if (container == null || container.getCount() < containerToOpen.getValue()) {
+                throw new ApiException(ApiErrors.PLAYER_DOES_NOT_OWN_ITEM_CODE, ApiErrors.PLAYER_DOES_NOT_OWN_ITEM_MESSAGE);
+            }
+
+            if (!catalog.getItemDefinition(containerToOpen.getKey()).isContainer()) {
+                throw new ApiException(ApiErrors.ITEM_NOT_A_CONTAINER_CODE, ApiErrors.ITEM_NOT_A_CONTAINER_MESSAGE);
+            }
+        }
 
         // Open all containers.
         HashMap<String, Integer> itemsToCreate = new HashMap<>();
-        Random random = new Random();
+        ArrayList<CatalogItemDefinition> openedItems = new ArrayList<>();
 
-        for (ItemContainer subContainer : containerDefinition.getContainers()) {
-            int totalProbability = subContainer.getContainedItems().stream()
-                    .map(ContainedItem::getRelativeProbability)
-                    .reduce(0, Integer::sum);
+        for (Map.Entry<String, Integer> containerToOpen : containersToOpen.entrySet()) {
+            List<LootTable> lootTables = catalog.getLootTables(containerToOpen.getKey());
+            List<PityRule> pityRules = catalog.getPityRules(containerToOpen.getKey());
 
-            for (int i = 0; i < subContainer.getItemCount(); ++i) {
-                // Find item type to create.
-                int roll = random.nextInt(totalProbability);
-                ContainedItem selectedItem = null;
+            ContainerOpening containerOpening = containerOpenings.get(containerToOpen.getKey());
 
-                for (ContainedItem containedItem : subContainer.getContainedItems()) {
-                    roll -= containedItem.getRelativeProbability();
+            if (trackOpenings && containerOpening == null) {
+                // The player lock doesn't span nodes: Another node may create the first opening concurrently, so
+                // insert it unless it exists, and continue with whichever row has been committed.
+                containerOpeningRepository.insertIfAbsent(playerId, containerToOpen.getKey());
+                containerOpening = containerOpeningRepository.findByPlayerIdAndItemDefinitionId(playerId,
+                        containerToOpen.getKey());
+            }
 
-                    if (roll < 0) {
-                        selectedItem = containedItem;
-                        break;
-                    }
-                }
+            long previousOpenings = containerOpening != null ? containerOpening.getCount() : 0L;
+            int[] pityCounters = new int[pityRules.size()];
 
-                // Find item to create.
-                final ContainedItem finalSelectedItem = selectedItem;
+            for (int rule = 0; rule < pityRules.size(); ++rule) {
+                pityCounters[rule] = containerOpening.getPityCounters().getOrDefault(pityRules.get(rule).getItemTag(), 0);
+            }
 
-                if (finalSelectedItem == null) {
-                    throw new RuntimeException("No item selected from container. This most likely indicates a bug.");
-                }
+            for (int opened = 0; opened < containerToOpen.getValue(); ++opened) {
+                LootRandom random = lootRandomProvider.getRandom(playerId, containerToOpen.getKey(),
+                        previousOpenings + opened);
+                openedItems.clear();
 
-                List<ItemDefinition> matchingItemDefinitions = allItemDefinitions.stream()
-                        .filter(itemDefinition -> itemDefinition.getItemTags().containsAll(finalSelectedItem.getRequiredTags()))
-                        .collect(Collectors.toList());
+                for (LootTable lootTable : lootTables) {
+                    for (int i = 0; i < lootTable.getItemCount(); ++i) {
+                        CatalogItemDefinition selectedItemDefinition =
+                                rollItemDefinition(lootTable, random, ownedItems, itemsToCreate);
 
-                List<ItemDefinition> matchingItemDefinitionsNotAtMaxCount = matchingItemDefinitions.stream()
-                        .filter(itemDefinition -> itemDefinition.getMaxCount() == null ||
-                                ownedItems.stream()
-                                .noneMatch(ownedItem -> ownedItem.getItemDefinition().getId().equals(itemDefinition.getId()) &&
-                                        ownedItem.getCount() + itemsToCreate.getOrDefault(ownedItem.getItemDefinition().getId(), 0) >= itemDefinition.getMaxCount()))
-                        .collect(Collectors.toList());
+                        // Add item.
+                        itemsToCreate.merge(selectedItemDefinition.getId(), 1, Integer::sum);
+                        openedItems.add(selectedItemDefinition);
+                    }
+                }
 
-                int randomIndex = matchingItemDefinitionsNotAtMaxCount.isEmpty()
-                        ? random.nextInt(matchingItemDefinitions.size())
-                        : random.nextInt(matchingItemDefinitionsNotAtMaxCount.size());
+                if (!pityRules.isEmpty()) {
+                    applyPityRules(pityRules, pityCounters, openedItems, random, ownedItems, itemsToCreate);
+                }
+            }
 
-                ItemDefinition selectedItemDefinition = matchingItemDefinitionsNotAtMaxCount.isEmpty()
-                        ? matchingItemDefinitions.get(randomIndex)
-                        : matchingItemDefinitionsNotAtMaxCount.get(randomIndex);
+            if (containerOpening != null) {
+                // Update counters in place, so only changed rows of the collection table are written.
+                Map<String, Integer> containerPityCounters = containerOpening.getPityCounters();
+                containerPityCounters.keySet().retainAll(pityRules.stream()
+                        .map(PityRule::getItemTag)
+                        .collect(Collectors.toSet()));
 
-                // Add item.
-                itemsToCreate.put(selectedItemDefinition.getId(), itemsToCreate.getOrDefault(selectedItemDefinition.getId(), 0) + 1);
+                for (int rule = 0; rule < pityRules.size(); ++rule) {
+                    containerPityCounters.put(pityRules.get(rule).getItemTag(), pityCounters[rule]);
+                }
+
+                containerOpening.setCount(previousOpenings + containerToOpen.getValue());
+                containerOpeningRepository.save(containerOpening);
             }
         }
 
-        // Add all items.
-        for (Map.Entry<String, Integer> itemToCreate : itemsToCreate.entrySet()) {
-            AddCollectionItemsRequest addCollectionItemsRequest = new AddCollectionItemsRequest();
-            addCollectionItemsRequest.setItemDefinitionId(itemToCreate.getKey());
-            addCollectionItemsRequest.setItemCount(itemToCreate.getValue());
-            addCollectionItems(playerId, addCollectionItemsRequest);
+        // Apply all changes at once.
+        HashMap<String, Integer> deltas = new HashMap<>(itemsToCreate);
+
+        for (Map.Entry<String, Integer> containerToOpen : containersToOpen.entrySet()) {
+            deltas.merge(containerToOpen.getKey(), -containerToOpen.getValue(), Integer::sum);
         }
 
-        // Remove opened container.
-        int newCount = container.getCount() - 1;
+        for (Map.Entry<String, Integer> delta : deltas.entrySet()) {
+            if (delta.getValue() == 0) {
+                continue;
+            }
 
-        if (newCount <= 0) {
-            collectionItemRepository.delete(container);
-        } else {
-            container.setCount(newCount);
-            collectionItemRepository.save(container);
+            if (delta.getValue() > 0) {
+                collectionItemRepository.incrementCount(playerId, delta.getKey(), delta.getValue());
+                continue;
+            }
+
+            CollectionItem collectionItem = ownedItems.get(delta.getKey());
+            int newCount = collectionItem.getCount() + delta.getValue();
+
+            if (newCount <= 0) {
+                collectionItemRepository.delete(collectionItem);
+            } else {
+                collectionItem.setCount(newCount);
+                collectionItemRepository.save(collectionItem);
+            }
         }
 
+        playerCollectionCache.invalidateAfterCompletion(playerId);
+
         // Return response.
         OpenContainerResponse response = new OpenContainerResponse();
         response.setAddedItems(itemsToCreate);
         return response;
     }
 
+    private CatalogItemDefinition rollItemDefinition(LootTable lootTable, LootRandom random,
+                                                     Map<String, CollectionItem> ownedItems,
+                                                     Map<String, Integer> itemsToCreate) {
+        // Find item type to create.
+        int selectedItem = lootTable.roll(random);
+
+        // Find item to create.
+        CatalogItemDefinition[] matchingItemDefinitions = lootTable.getCandidates(selectedItem);
+
+        if (matchingItemDefinitions.length == 0) {
+            throw new RuntimeException("No item definition matches the required tags of the selected item. " +
+                    "This most likely indicates a bug.");
+        }
+
+        return selectItemDefinition(matchingItemDefinitions, lootTable.candidatesHaveMaxCount(selectedItem), random,
+                ownedItems, itemsToCreate);
+    }
+
+    /**
+     * Counts the consecutive openings without any item satisfying each pity rule. Replaces items of the opening by
+     * items satisfying all rules that have reached their max openings, starting at the last item.
+     */
+    private void applyPityRules(List<PityRule> pityRules, int[] pityCounters, List<CatalogItemDefinition> openedItems,
+                                LootRandom random, Map<String, CollectionItem> ownedItems,
+                                Map<String, Integer> itemsToCreate) {
+        int replaceableItem = openedItems.size() - 1;
+
+        for (int rule = 0; rule < pityRules.size(); ++rule) {
+            PityRule pityRule = pityRules.get(rule);
+
+            if (openedItems.stream().anyMatch(pityRule::matches)) {
+                pityCounters[rule] = 0;
+                continue;
+            }
+
+            if (pityCounters[rule] + 1 < pityRule.getMaxOpenings() || pityRule.getCandidates().length == 0) {
+                ++pityCounters[rule];
+                continue;
+            }
+
+            // Never replace items that satisfy any other rule.
+            while (replaceableItem >= 0 && matchesAnyPityRule(pityRules, openedItems.get(replaceableItem))) {
+                --replaceableItem;
+            }
+
+            if (replaceableItem < 0) {
+                ++pityCounters[rule];
+                continue;
+            }
+
+            CatalogItemDefinition replacedItemDefinition = openedItems.get(replaceableItem);
+            itemsToCreate.computeIfPresent(replacedItemDefinition.getId(), (id, count) -> count > 1 ? count - 1 : null);
+
+            CatalogItemDefinition guaranteedItemDefinition = selectItemDefinition(pityRule.getCandidates(),
+                    pityRule.candidatesHaveMaxCount(), random, ownedItems, itemsToCreate);
+            itemsToCreate.merge(guaranteedItemDefinition.getId(), 1, Integer::sum);
+            openedItems.set(replaceableItem, guaranteedItemDefinition);
+
+            pityCounters[rule] = 0;
+        }
+    }
+
+    private boolean matchesAnyPityRule(List<PityRule> pityRules, CatalogItemDefinition itemDefinition) {
+        for (PityRule pityRule : pityRules) {
+            if (pityRule.matches(itemDefinition)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Randomly selects one of the specified item definitions, preferring item definitions not at their max count yet.
+     */
+    private CatalogItemDefinition selectItemDefinition(CatalogItemDefinition[] matchingItemDefinitions,
+                                                       boolean candidatesHaveMaxCount, LootRandom random,
+                                                       Map<String, CollectionItem> ownedItems,
+                                                       Map<String, Integer> itemsToCreate) {
+        if (candidatesHaveMaxCount) {
+            List<CatalogItemDefinition> matchingItemDefinitionsNotAtMaxCount = new ArrayList<>();
+
+            for (CatalogItemDefinition itemDefinition : matchingItemDefinitions) {
+                CollectionItem ownedItem = ownedItems.get(itemDefinition.getId());
+                int ownedCount = ownedItem != null ? ownedItem.getCount() : 0;
+
+                if (itemDefinition.getMaxCount() == null ||
+                        ownedCount + itemsToCreate.getOrDefault(itemDefinition.getId(), 0) < itemDefinition.getMaxCount()) {
+                    matchingItemDefinitionsNotAtMaxCount.add(itemDefinition);
+                }
+            }
+
+            if (!matchingItemDefinitionsNotAtMaxCount.isEmpty()) {
+                return matchingItemDefinitionsNotAtMaxCount.get(random.nextInt(matchingItemDefinitionsNotAtMaxCount.size()));
+            }
+        }
+
+        return matchingItemDefinitions[random.nextInt(matchingItemDefinitions.length)];
+    }
+
     private CollectionItem getCollectionItemOfPlayer(String playerId, String itemDefinitionId) throws ApiException {
         if (Strings.isNullOrEmpty(playerId)) {
             throw new ApiException(ApiErrors.MISSING_PLAYER_ID_CODE, ApiErrors.MISSING_PLAYER_ID_MESSAGE);
@@ -491,11 +1142,9 @@ public class CollectionService {
             throw new ApiException(ApiErrors.MISSING_ITEM_DEFINITION_CODE, ApiErrors.MISSING_ITEM_DEFINITION_MESSAGE);
         }
 
-        ItemDefinition itemDefinition = itemDefinitionRepository.findById(itemDefinitionId).orElse(null);
+        ItemDefinition itemDefinition = getItemDefinitionReference(itemDefinitionId);
 
-        if (itemDefinition == null) {
-            throw new ApiException(ApiErrors.UNKNOWN_ITEM_DEFINITION_CODE, ApiErrors.UNKNOWN_ITEM_DEFINITION_MESSAGE);
-        }
+        collectionWriteBehind.flush(playerId);
 
         CollectionItem collectionItem =
                 collectionItemRepository.findByPlayerIdAndItemDefinition(playerId, itemDefinition).orElse(null);
@@ -506,4 +1155,16 @@ public class CollectionService {
 
         return collectionItem;
     }
+
+    private void verifyItemDefinition(String itemDefinitionId) throws ApiException {
+        if (itemCatalogProvider.getCatalog().getItemDefinition(itemDefinitionId) == null) {
+            throw new ApiException(ApiErrors.UNKNOWN_ITEM_DEFINITION_CODE, ApiErrors.UNKNOWN_ITEM_DEFINITION_MESSAGE);
+        }
+    }
+
+    private ItemDefinition getItemDefinitionReference(String itemDefinitionId) throws ApiException {
+        // Validate against the catalog, and reference the entity without loading it.
+        verifyItemDefinition(itemDefinitionId);
+        return itemDefinitionRepository.getOne(itemDefinitionId);
+    }
 }
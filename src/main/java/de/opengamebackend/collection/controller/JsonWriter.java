@@ -0,0 +1,14 @@
+package de.opengamebackend.collection.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import de.opengamebackend.net.ApiException;
+
+import java.io.IOException;
+
+/**
+ * Writes a JSON response body directly to a generator.
+ */
+@FunctionalInterface
+public interface JsonWriter {
+    void write(JsonGenerator generator) throws ApiException, IOException;
+}
@@ -5,6 +5,7 @@ import de.opengamebackend.collection.model.requests.PutLoadoutTypesRequest;
 import de.opengamebackend.collection.model.responses.AddLoadoutResponse;
 import de.opengamebackend.collection.model.responses.GetLoadoutTypesResponse;
 import de.opengamebackend.collection.model.responses.GetLoadoutsResponse;
+import de.opengamebackend.collection.model.responses.ValidateLoadoutResponse;
 import de.opengamebackend.net.ApiErrors;
 import de.opengamebackend.net.ApiException;
 import de.opengamebackend.net.HttpHeader;
@@ -17,12 +18,18 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
 @RestController
 public class LoadoutController {
     private final LoadoutService loadoutService;
+    private final CatalogResponseCache catalogResponseCache;
 
-    public LoadoutController(LoadoutService loadoutService) {
+    public LoadoutController(LoadoutService loadoutService, CatalogResponseCache catalogResponseCache) {
         this.loadoutService = loadoutService;
+        this.catalogResponseCache = catalogResponseCache;
     }
 
     @PostMapping("/client/loadouts")
@@ -45,6 +52,29 @@ public class LoadoutController {
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
 
+    @PostMapping("/client/loadouts/validate")
+    @Operation(summary = "Validates a loadout for a player without saving it, reporting all violated rules at once.")
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Loadout validated.",
+                    content = { @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = ValidateLoadoutResponse.class)) }),
+            @ApiResponse(
+                    responseCode = "400",
+                    description =
+                            "Error " + ApiErrors.MISSING_PLAYER_ID_CODE + ": " + ApiErrors.MISSING_PLAYER_ID_MESSAGE + "<br />" +
+                            "Error " + ApiErrors.UNKNOWN_LOADOUT_TYPE_CODE + ": " + ApiErrors.UNKNOWN_LOADOUT_TYPE_MESSAGE,
+                    content = { @Content})
+    })
+    public ResponseEntity<ValidateLoadoutResponse> validateLoadout(@RequestHeader(HttpHeader.PLAYER_ID) String playerId,
+                                                                   @RequestBody LoadoutRequest request)
+            throws ApiException {
+        ValidateLoadoutResponse response = loadoutService.validateLoadout(playerId, request);
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
     @GetMapping("/client/loadouts")
     @Operation(summary = "Gets all loadouts of a player.")
     @ApiResponses(value = {
@@ -113,11 +143,15 @@ public class LoadoutController {
                     description = "Loadout types fetched.",
                     content = { @Content(
                             mediaType = "application/json",
-                            schema = @Schema(implementation = GetLoadoutTypesResponse.class)) })
+                            schema = @Schema(implementation = GetLoadoutTypesResponse.class)) }),
+            @ApiResponse(
+                    responseCode = "304",
+                    description = "Not modified since the version passed in If-None-Match.")
     })
-    public ResponseEntity<GetLoadoutTypesResponse> getLoadoutTypes() {
-        GetLoadoutTypesResponse response = loadoutService.getLoadoutTypes();
-        return new ResponseEntity<>(response, HttpStatus.OK);
+    public void getLoadoutTypes(HttpServletRequest request, HttpServletResponse response)
+            throws ApiException, IOException {
+        catalogResponseCache.write("loadoutTypes", request, response,
+                generator -> generator.writeObject(loadoutService.getLoadoutTypes()));
     }
 
     @PutMapping("/admin/loadouttypes")
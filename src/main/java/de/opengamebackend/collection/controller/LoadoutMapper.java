@@ -1,42 +1,51 @@
 package de.opengamebackend.collection.controller;
 
+import de.opengamebackend.collection.catalog.ItemCatalog;
+import de.opengamebackend.collection.catalog.ItemCatalogProvider;
+import de.opengamebackend.collection.catalog.LoadoutValidator;
+import de.opengamebackend.collection.catalog.LoadoutViolation;
 import de.opengamebackend.collection.model.entities.*;
 import de.opengamebackend.collection.model.repositories.ItemDefinitionRepository;
 import de.opengamebackend.collection.model.requests.LoadoutRequest;
 import de.opengamebackend.collection.model.requests.LoadoutRequestItem;
+import de.opengamebackend.collection.model.responses.ValidateLoadoutResponse;
+import de.opengamebackend.collection.model.responses.ValidateLoadoutResponseViolation;
 import de.opengamebackend.net.ApiErrors;
 import de.opengamebackend.net.ApiException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 
 @Component
 public class LoadoutMapper {
     private final ItemDefinitionRepository itemDefinitionRepository;
+    private final ItemCatalogProvider itemCatalogProvider;
 
     @Autowired
-    public LoadoutMapper(ItemDefinitionRepository itemDefinitionRepository) {
+    public LoadoutMapper(ItemDefinitionRepository itemDefinitionRepository, ItemCatalogProvider itemCatalogProvider) {
         this.itemDefinitionRepository = itemDefinitionRepository;
+        this.itemCatalogProvider = itemCatalogProvider;
     }
 
     public void mapLoadout(String playerId, LoadoutType loadoutType, LoadoutRequest request, Loadout loadout)
             throws ApiException {
+        ItemCatalog catalog = itemCatalogProvider.getCatalog();
+
         loadout.setPlayerId(playerId);
         loadout.setType(loadoutType);
 
         loadout.getItems().clear();
 
         for (LoadoutRequestItem item : request.getItems()) {
-            ItemDefinition itemDefinition = itemDefinitionRepository.findById(item.getId()).orElse(null);
-
-            if (itemDefinition == null) {
+            if (catalog.getItemDefinition(item.getId()) == null) {
                 throw new ApiException(ApiErrors.UNKNOWN_ITEM_DEFINITION_CODE, ApiErrors.UNKNOWN_ITEM_DEFINITION_MESSAGE);
             }
 
             LoadoutItem itemEntity = new LoadoutItem();
             itemEntity.setLoadout(loadout);
-            itemEntity.setItemDefinition(itemDefinition);
+            itemEntity.setItemDefinition(itemDefinitionRepository.getOne(item.getId()));
             itemEntity.setCount(item.getCount());
 
             loadout.getItems().add(itemEntity);
@@ -44,43 +53,69 @@ public class LoadoutMapper {
     }
 
     public void verifyLoadout(Loadout loadout) throws ApiException {
-        for (LoadoutRule rule : loadout.getType().getRules()) {
-            verifyLoadoutRule(loadout, rule);
+        List<LoadoutViolation> violations = getValidator(loadout.getType().getId())
+                .validate(loadout.getItems(), item -> item.getItemDefinition().getId(), LoadoutItem::getCount);
+
+        if (violations.isEmpty()) {
+            return;
         }
-    }
 
-    private void verifyLoadoutRule(Loadout loadout, LoadoutRule rule) throws ApiException {
-        int count = 0;
-        HashMap<String, Integer> copies = new HashMap<>();
+        StringBuilder message = new StringBuilder(ApiErrors.INVALID_LOADOUT_MESSAGE);
 
-        for (LoadoutItem item : loadout.getItems()) {
-            if (item.getItemDefinition().getItemTags().stream().noneMatch(t -> t.equals(rule.getItemTag()))) {
-                continue;
+        for (int i = 0; i < violations.size(); ++i) {
+            if (i > 0) {
+                message.append(' ');
             }
 
-            count += item.getCount();
+            message.append(violations.get(i).getMessage());
+        }
 
-            int newCopies = copies.getOrDefault(item.getItemDefinition().getId(), 0) + item.getCount();
+        throw new ApiException(ApiErrors.INVALID_LOADOUT_CODE, message.toString());
+    }
 
-            if (newCopies > rule.getMaxCopies()) {
-                throw new ApiException(ApiErrors.INVALID_LOADOUT_CODE, ApiErrors.INVALID_LOADOUT_MESSAGE +
-                        String.format("Item %s with tag %s occurs more than %d times.",
-                                item.getItemDefinition().getId(), rule.getItemTag().getTag(), rule.getMaxCopies()));
-            }
+    /**
+     * Checks the specified request against the current catalog and the rules of its loadout type,
+     * without mapping any entities. Unknown item definitions are reported along with all violated rules.
+     */
+    public ValidateLoadoutResponse validateLoadout(LoadoutRequest request) throws ApiException {
+        ItemCatalog catalog = itemCatalogProvider.getCatalog();
+        LoadoutValidator validator = catalog.getLoadoutValidator(request.getType());
 
-            copies.put(item.getItemDefinition().getId(), newCopies);
+        if (validator == null) {
+            throw new ApiException(ApiErrors.UNKNOWN_LOADOUT_TYPE_CODE, ApiErrors.UNKNOWN_LOADOUT_TYPE_MESSAGE);
         }
 
-        if (count < rule.getMinTotal()) {
-            throw new ApiException(ApiErrors.INVALID_LOADOUT_CODE, ApiErrors.INVALID_LOADOUT_MESSAGE +
-                    String.format("Items with tag %s occur less than %d times.",
-                            rule.getItemTag().getTag(), rule.getMinTotal()));
+        ArrayList<ValidateLoadoutResponseViolation> responseViolations = new ArrayList<>();
+
+        for (LoadoutRequestItem item : request.getItems()) {
+            if (catalog.getItemDefinition(item.getId()) == null) {
+                responseViolations.add(new ValidateLoadoutResponseViolation(ApiErrors.UNKNOWN_ITEM_DEFINITION_CODE,
+                        ApiErrors.UNKNOWN_ITEM_DEFINITION_MESSAGE + item.getId(), item.getId(), null));
+            }
+        }
+
+        List<LoadoutViolation> violations =
+                validator.validate(request.getItems(), LoadoutRequestItem::getId, LoadoutRequestItem::getCount);
+
+        for (LoadoutViolation violation : violations) {
+            responseViolations.add(new ValidateLoadoutResponseViolation(ApiErrors.INVALID_LOADOUT_CODE,
+                    ApiErrors.INVALID_LOADOUT_MESSAGE + violation.getMessage(), violation.getItemDefinitionId(),
+                    violation.getItemTag()));
         }
 
-        if (count > rule.getMaxTotal()) {
-            throw new ApiException(ApiErrors.INVALID_LOADOUT_CODE, ApiErrors.INVALID_LOADOUT_MESSAGE +
-                    String.format("Items with tag %s occur more than %d times.",
-                            rule.getItemTag().getTag(), rule.getMaxTotal()));
+        return new ValidateLoadoutResponse(responseViolations);
+    }
+
+    /**
+     * Gets the validator for the specified loadout type, compiled against the current catalog snapshot.
+     */
+    public LoadoutValidator getValidator(String loadoutTypeId) throws ApiException {
+        LoadoutValidator validator = itemCatalogProvider.getCatalog().getLoadoutValidator(loadoutTypeId);
+
+        if (validator == null) {
+            throw new ApiException(ApiErrors.UNKNOWN_LOADOUT_TYPE_CODE, ApiErrors.UNKNOWN_LOADOUT_TYPE_MESSAGE);
         }
+
+        return validator;
     }
 }
@@ -1,6 +1,7 @@
 package de.opengamebackend.collection.controller;
 
 import com.google.common.base.Strings;
+import de.opengamebackend.collection.catalog.CatalogVersion;
 import de.opengamebackend.collection.model.entities.*;
 import de.opengamebackend.collection.model.repositories.ItemTagRepository;
 import de.opengamebackend.collection.model.repositories.LoadoutRepository;
@@ -10,6 +11,7 @@ import de.opengamebackend.collection.model.requests.PutLoadoutTypesRequest;
 import de.opengamebackend.collection.model.requests.PutLoadoutTypesRequestType;
 import de.opengamebackend.collection.model.requests.PutLoadoutTypesRequestTypeRule;
 import de.opengamebackend.collection.model.responses.*;
+import de.opengamebackend.collection.retry.RetryOnConflict;
 import de.opengamebackend.net.ApiErrors;
 import de.opengamebackend.net.ApiException;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -27,15 +29,17 @@ public class LoadoutService {
     private final ItemTagRepository itemTagRepository;
 
     private final LoadoutMapper mapper;
+    private final CatalogVersion catalogVersion;
 
     @Autowired
     public LoadoutService(LoadoutRepository loadoutRepository, LoadoutTypeRepository loadoutTypeRepository,
-                          ItemTagRepository itemTagRepository, LoadoutMapper mapper) {
+                          ItemTagRepository itemTagRepository, LoadoutMapper mapper, CatalogVersion catalogVersion) {
         this.loadoutRepository = loadoutRepository;
         this.loadoutTypeRepository = loadoutTypeRepository;
         this.itemTagRepository = itemTagRepository;
 
         this.mapper = mapper;
+        this.catalogVersion = catalogVersion;
     }
 
     public AddLoadoutResponse addLoadout(String playerId, LoadoutRequest request) throws ApiException {
@@ -59,6 +63,19 @@ public class LoadoutService {
         return new AddLoadoutResponse(loadout.getId());
     }
 
+    /**
+     * Validates the specified loadout against the current catalog snapshot without saving it,
+     * so neither a transaction nor any database access is needed.
+     */
+    @Transactional(Transactional.TxType.SUPPORTS)
+    public ValidateLoadoutResponse validateLoadout(String playerId, LoadoutRequest request) throws ApiException {
+        if (Strings.isNullOrEmpty(playerId)) {
+            throw new ApiException(ApiErrors.MISSING_PLAYER_ID_CODE, ApiErrors.MISSING_PLAYER_ID_MESSAGE);
+        }
+
+        return mapper.validateLoadout(request);
+    }
+
     public GetLoadoutsResponse getLoadouts(String playerId) throws ApiException {
         if (Strings.isNullOrEmpty(playerId)) {
             throw new ApiException(ApiErrors.MISSING_PLAYER_ID_CODE, ApiErrors.MISSING_PLAYER_ID_MESSAGE);
@@ -93,6 +110,7 @@ public class LoadoutService {
         return response;
     }
 
+    @RetryOnConflict
     public void putLoadout(String playerId, long loadoutId, LoadoutRequest request) throws ApiException {
         if (Strings.isNullOrEmpty(playerId)) {
             throw new ApiException(ApiErrors.MISSING_PLAYER_ID_CODE, ApiErrors.MISSING_PLAYER_ID_MESSAGE);
@@ -116,6 +134,7 @@ public class LoadoutService {
         loadoutRepository.save(loadout);
     }
 
+    @RetryOnConflict
     public void deleteLoadout(String playerId, long loadoutId) throws ApiException {
         if (Strings.isNullOrEmpty(playerId)) {
             throw new ApiException(ApiErrors.MISSING_PLAYER_ID_CODE, ApiErrors.MISSING_PLAYER_ID_MESSAGE);
@@ -185,5 +204,7 @@ public class LoadoutService {
         // Save entities.
         loadoutTypeRepository.deleteAll();
         loadoutTypeRepository.saveAll(loadoutTypes);
+
+        catalogVersion.increment();
     }
 }
@@ -0,0 +1,68 @@
+package de.opengamebackend.collection.locking;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time spent waiting for player locks, and releases them after transaction completion.
+ */
+public abstract class AbstractPlayerLockManager implements PlayerLockManager {
+    public static final String LOCK_WAIT_METRIC = "collection.player.lock.wait";
+
+    private final PlayerLockType type;
+    private final Duration timeout;
+    private final MeterRegistry meterRegistry;
+
+    protected AbstractPlayerLockManager(PlayerLockType type, PlayerLockProperties properties,
+                                        MeterRegistry meterRegistry) {
+        this.type = type;
+        this.timeout = properties.getTimeout();
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void lockUntilCompletion(String playerId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Player locks can only be acquired within a transaction.");
+        }
+
+        long start = System.nanoTime();
+        boolean acquired = tryLock(playerId, timeout);
+
+        Timer.builder(LOCK_WAIT_METRIC)
+                .description("Time spent waiting for player locks")
+                .tag("type", type.name().toLowerCase())
+                .tag("outcome", acquired ? "acquired" : "timeout")
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        if (!acquired) {
+            throw new CannotAcquireLockException("Timed out waiting for the lock of player " + playerId + ".");
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {
+                unlock(playerId);
+            }
+        });
+    }
+
+    /**
+     * Waits for the lock of the specified player.
+     *
+     * @return whether the lock has been acquired within the timeout
+     */
+    protected abstract boolean tryLock(String playerId, Duration timeout);
+
+    /**
+     * Releases the lock of the specified player, once for each successful call to {@link #tryLock}.
+     */
+    protected abstract void unlock(String playerId);
+}
@@ -0,0 +1,68 @@
+package de.opengamebackend.collection.locking;
+
+import com.google.common.hash.Hashing;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.persistence.EntityManager;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Duration;
+
+/**
+ * Acquires MariaDB user-level locks on the connection of the current transaction. User-level locks belong to the
+ * connection rather than the transaction, so they are released explicitly after completion, while the connection is
+ * still held by the transaction.
+ */
+public class DatabasePlayerLockManager extends AbstractPlayerLockManager {
+    private static final Logger logger = LoggerFactory.getLogger(DatabasePlayerLockManager.class);
+
+    // Lock names are limited to 64 characters.
+    private static final String LOCK_NAME_PREFIX = "ogb.collection.player.";
+
+    private final EntityManager entityManager;
+
+    public DatabasePlayerLockManager(PlayerLockProperties properties, MeterRegistry meterRegistry,
+                                     EntityManager entityManager) {
+        super(PlayerLockType.DATABASE, properties, meterRegistry);
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    protected boolean tryLock(String playerId, Duration timeout) {
+        long timeoutSeconds = (timeout.toMillis() + 999L) / 1000L;
+
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+                statement.setString(1, getLockName(playerId));
+                statement.setLong(2, timeoutSeconds);
+
+                try (ResultSet result = statement.executeQuery()) {
+                    return result.next() && result.getInt(1) == 1;
+                }
+            }
+        });
+    }
+
+    @Override
+    protected void unlock(String playerId) {
+        try {
+            entityManager.unwrap(Session.class).doWork(connection -> {
+                try (PreparedStatement statement = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+                    statement.setString(1, getLockName(playerId));
+                    statement.executeQuery().close();
+                }
+            });
+        } catch (RuntimeException e) {
+            // The lock is released at the latest when the connection is closed.
+            logger.error("Failed to release the lock of player " + playerId + ".", e);
+        }
+    }
+
+    static String getLockName(String playerId) {
+        return LOCK_NAME_PREFIX + Hashing.murmur3_128().hashString(playerId, StandardCharsets.UTF_8);
+    }
+}
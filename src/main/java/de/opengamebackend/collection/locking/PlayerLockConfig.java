@@ -0,0 +1,25 @@
+package de.opengamebackend.collection.locking;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Selects the {@link PlayerLockManager} implementation by the configured {@link PlayerLockType}.
+ */
+@Configuration
+public class PlayerLockConfig {
+    @Bean
+    public PlayerLockManager playerLockManager(PlayerLockProperties properties, MeterRegistry meterRegistry,
+                                               EntityManagerFactory entityManagerFactory) {
+        if (properties.getType() == PlayerLockType.DATABASE) {
+            return new DatabasePlayerLockManager(properties, meterRegistry,
+                    SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory));
+        }
+
+        return new StripedPlayerLockManager(properties, meterRegistry);
+    }
+}
@@ -0,0 +1,16 @@
+package de.opengamebackend.collection.locking;
+
+/**
+ * Serializes transactions mutating the collection of the same player, e.g. to prevent concurrent container openings
+ * from overshooting the max count of items.
+ */
+public interface PlayerLockManager {
+    /**
+     * Acquires the lock of the specified player, and holds it until the current transaction has been committed
+     * or rolled back. Must be called before reading any data of that player.
+     *
+     * @throws org.springframework.dao.CannotAcquireLockException if the lock couldn't be acquired within the timeout
+     * @throws IllegalStateException if there is no active transaction
+     */
+    void lockUntilCompletion(String playerId);
+}
@@ -0,0 +1,47 @@
+package de.opengamebackend.collection.locking;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "de.opengamebackend.collection.player-locks")
+public class PlayerLockProperties {
+    /**
+     * Kind of locks to serialize transactions of the same player with.
+     */
+    private PlayerLockType type = PlayerLockType.STRIPED;
+
+    /**
+     * Number of in-process locks to hash players onto. Rounded up to the next power of two.
+     */
+    private int stripes = 1024;
+
+    /**
+     * Maximum time to wait for the lock of a player.
+     */
+    private Duration timeout = Duration.ofSeconds(5);
+
+    public PlayerLockType getType() {
+        return type;
+    }
+
+    public void setType(PlayerLockType type) {
+        this.type = type;
+    }
+
+    public int getStripes() {
+        return stripes;
+    }
+
+    public void setStripes(int stripes) {
+        this.stripes = stripes;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+}
@@ -0,0 +1,13 @@
+package de.opengamebackend.collection.locking;
+
+public enum PlayerLockType {
+    /**
+     * In-process locks, hashing players onto a fixed number of stripes. Only serializes transactions of the same node.
+     */
+    STRIPED,
+
+    /**
+     * MariaDB user-level locks acquired with GET_LOCK, serializing transactions across all nodes.
+     */
+    DATABASE
+}
@@ -0,0 +1,51 @@
+package de.opengamebackend.collection.locking;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hashes players onto a fixed array of reentrant locks. Players sharing a stripe block each other, but memory
+ * doesn't grow with the number of players, and players on different stripes never contend.
+ */
+public class StripedPlayerLockManager extends AbstractPlayerLockManager {
+    private final ReentrantLock[] locks;
+
+    public StripedPlayerLockManager(PlayerLockProperties properties, MeterRegistry meterRegistry) {
+        super(PlayerLockType.STRIPED, properties, meterRegistry);
+
+        int stripes = properties.getStripes() > 1 ? Integer.highestOneBit(properties.getStripes() - 1) << 1 : 1;
+        this.locks = new ReentrantLock[stripes];
+
+        for (int i = 0; i < stripes; ++i) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    protected boolean tryLock(String playerId, Duration timeout) {
+        try {
+            return getLock(playerId).tryLock(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @Override
+    protected void unlock(String playerId) {
+        getLock(playerId).unlock();
+    }
+
+    int getStripeCount() {
+        return locks.length;
+    }
+
+    private ReentrantLock getLock(String playerId) {
+        int hash = playerId.hashCode();
+        hash ^= hash >>> 16;
+        return locks[hash & (locks.length - 1)];
+    }
+}
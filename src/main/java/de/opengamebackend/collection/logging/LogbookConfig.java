@@ -0,0 +1,29 @@
+package de.opengamebackend.collection.logging;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.zalando.logbook.HttpRequest;
+import org.zalando.logbook.Strategy;
+
+import java.util.function.Predicate;
+
+import static org.zalando.logbook.Conditions.exclude;
+import static org.zalando.logbook.Conditions.requestTo;
+
+@Configuration
+public class LogbookConfig {
+    /**
+     * Skips logging reads of all loadouts, which are large and frequent. Writes to loadouts are still logged.
+     * Merged with the path excludes of the logbook properties.
+     */
+    @Bean
+    public Predicate<HttpRequest> requestCondition() {
+        Predicate<HttpRequest> getLoadouts = requestTo("/client/loadouts");
+        return exclude(getLoadouts.and(request -> "GET".equals(request.getMethod())));
+    }
+
+    @Bean
+    public Strategy samplingBodyStrategy(LogbookSamplingProperties properties) {
+        return new SamplingBodyStrategy(properties.getBodySampleRate());
+    }
+}
@@ -0,0 +1,32 @@
+package de.opengamebackend.collection.logging;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "de.opengamebackend.collection.logbook")
+public class LogbookSamplingProperties {
+    /**
+     * Fraction of requests whose request and response bodies are logged, between 0 and 1.
+     */
+    private double bodySampleRate = 1.0;
+
+    /**
+     * Maximum number of request log events waiting to be written. Read by logback-spring.xml.
+     */
+    private int queueSize = 512;
+
+    public double getBodySampleRate() {
+        return bodySampleRate;
+    }
+
+    public void setBodySampleRate(double bodySampleRate) {
+        this.bodySampleRate = bodySampleRate;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+}
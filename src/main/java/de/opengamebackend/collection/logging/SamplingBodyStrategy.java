@@ -0,0 +1,50 @@
+package de.opengamebackend.collection.logging;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.zalando.logbook.HttpRequest;
+import org.zalando.logbook.HttpResponse;
+import org.zalando.logbook.Strategy;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Logs all requests and responses, but buffers and logs bodies for a random sample of requests only.
+ * The sampling decision is made when processing the request, and stored as attribute of the current servlet request
+ * for processing the response, so it never carries over to other requests handled by the same thread.
+ */
+public class SamplingBodyStrategy implements Strategy {
+    static final String SAMPLED_ATTRIBUTE = SamplingBodyStrategy.class.getName() + ".sampled";
+
+    private final double sampleRate;
+
+    public SamplingBodyStrategy(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    public HttpRequest process(HttpRequest request) throws IOException {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+
+        // Without a servlet request, the decision couldn't be looked up for the response.
+        if (attributes == null) {
+            return request.withoutBody();
+        }
+
+        boolean sampleBody = sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+        attributes.setAttribute(SAMPLED_ATTRIBUTE, sampleBody, RequestAttributes.SCOPE_REQUEST);
+
+        return sampleBody ? request.withBody() : request.withoutBody();
+    }
+
+    @Override
+    public HttpResponse process(HttpRequest request, HttpResponse response) throws IOException {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        Object sampleBody = attributes != null
+                ? attributes.getAttribute(SAMPLED_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST)
+                : null;
+
+        return Boolean.TRUE.equals(sampleBody) ? response.withBody() : response.withoutBody();
+    }
+}
@@ -0,0 +1,40 @@
+package de.opengamebackend.collection.loot;
+
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Seeds a {@link SplittableLootRandom} for each opening from player, container and opening counter, so that the
+ * contents of any past opening can be rolled again, e.g. for investigating player complaints.
+ */
+public class DeterministicLootRandomProvider implements LootRandomProvider {
+    private final long secret;
+
+    public DeterministicLootRandomProvider(long secret) {
+        this.secret = secret;
+    }
+
+    @Override
+    public boolean isDeterministic() {
+        return true;
+    }
+
+    @Override
+    public LootRandom getRandom(String playerId, String containerId, long opening) {
+        return new SplittableLootRandom(getSeed(playerId, containerId, opening));
+    }
+
+    long getSeed(String playerId, String containerId, long opening) {
+        // Prefix strings by their length, so that no two different pairs of ids hash the same input.
+        return Hashing.murmur3_128().newHasher()
+                .putLong(secret)
+                .putInt(playerId.length())
+                .putString(playerId, StandardCharsets.UTF_8)
+                .putInt(containerId.length())
+                .putString(containerId, StandardCharsets.UTF_8)
+                .putLong(opening)
+                .hash()
+                .asLong();
+    }
+}
@@ -0,0 +1,16 @@
+package de.opengamebackend.collection.loot;
+
+/**
+ * Source of randomness for rolling the contents of containers.
+ */
+public interface LootRandom {
+    /**
+     * Returns a uniformly distributed value between zero (inclusive) and the specified bound (exclusive).
+     */
+    int nextInt(int bound);
+
+    /**
+     * Returns a uniformly distributed value between zero (inclusive) and one (exclusive).
+     */
+    double nextDouble();
+}
@@ -0,0 +1,25 @@
+package de.opengamebackend.collection.loot;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Selects the {@link LootRandomProvider} implementation by the configured {@link LootRandomType}.
+ */
+@Configuration
+public class LootRandomConfig {
+    @Bean
+    public LootRandomProvider lootRandomProvider(LootRandomProperties properties) {
+        if (properties.getType() == LootRandomType.DETERMINISTIC) {
+            // Without a secret, anyone knowing player id and opening counter could predict every roll.
+            if (properties.getSecret() == null || properties.getSecret() == 0L) {
+                throw new IllegalStateException("Deterministic loot rolls require a non-zero secret in " +
+                        "de.opengamebackend.collection.loot-random.secret.");
+            }
+
+            return new DeterministicLootRandomProvider(properties.getSecret());
+        }
+
+        return new ThreadLocalLootRandomProvider();
+    }
+}
@@ -0,0 +1,33 @@
+package de.opengamebackend.collection.loot;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "de.opengamebackend.collection.loot-random")
+public class LootRandomProperties {
+    /**
+     * Kind of random to roll container contents with.
+     */
+    private LootRandomType type = LootRandomType.THREAD_LOCAL;
+
+    /**
+     * Secret mixed into deterministic seeds, preventing players from predicting their rolls.
+     * Required for deterministic rolls, and must be kept private to the servers.
+     */
+    private Long secret;
+
+    public LootRandomType getType() {
+        return type;
+    }
+
+    public void setType(LootRandomType type) {
+        this.type = type;
+    }
+
+    public Long getSecret() {
+        return secret;
+    }
+
+    public void setSecret(Long secret) {
+        this.secret = secret;
+    }
+}
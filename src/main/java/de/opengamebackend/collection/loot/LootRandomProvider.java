@@ -0,0 +1,21 @@
+package de.opengamebackend.collection.loot;
+
+/**
+ * Provides the {@link LootRandom} to roll the contents of a single container opening with.
+ */
+public interface LootRandomProvider {
+    /**
+     * Checks whether the rolls of an opening only depend on player, container and opening counter.
+     * If so, callers need to keep track of the number of openings of each player and container.
+     */
+    boolean isDeterministic();
+
+    /**
+     * Gets the random to roll the contents of the specified opening with.
+     *
+     * @param playerId    player opening the container
+     * @param containerId item definition of the opened container
+     * @param opening     number of containers of that kind the player has opened before
+     */
+    LootRandom getRandom(String playerId, String containerId, long opening);
+}
@@ -0,0 +1,13 @@
+package de.opengamebackend.collection.loot;
+
+public enum LootRandomType {
+    /**
+     * Rolls with the random of the current thread. Fastest, but rolls can't be reproduced.
+     */
+    THREAD_LOCAL,
+
+    /**
+     * Rolls with a random seeded from player, container and opening counter, so that every opening can be replayed.
+     */
+    DETERMINISTIC
+}
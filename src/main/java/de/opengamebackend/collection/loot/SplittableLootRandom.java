@@ -0,0 +1,24 @@
+package de.opengamebackend.collection.loot;
+
+import java.util.SplittableRandom;
+
+/**
+ * Reproducible random for a single opening. Not thread-safe.
+ */
+public class SplittableLootRandom implements LootRandom {
+    private final SplittableRandom random;
+
+    public SplittableLootRandom(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+
+    @Override
+    public int nextInt(int bound) {
+        return random.nextInt(bound);
+    }
+
+    @Override
+    public double nextDouble() {
+        return random.nextDouble();
+    }
+}
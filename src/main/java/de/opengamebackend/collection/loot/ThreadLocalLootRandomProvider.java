@@ -0,0 +1,31 @@
+package de.opengamebackend.collection.loot;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Rolls all openings with the {@link ThreadLocalRandom} of the calling thread, without allocating or contending
+ * on a shared seed.
+ */
+public class ThreadLocalLootRandomProvider implements LootRandomProvider {
+    private static final LootRandom RANDOM = new LootRandom() {
+        @Override
+        public int nextInt(int bound) {
+            return ThreadLocalRandom.current().nextInt(bound);
+        }
+
+        @Override
+        public double nextDouble() {
+            return ThreadLocalRandom.current().nextDouble();
+        }
+    };
+
+    @Override
+    public boolean isDeterministic() {
+        return false;
+    }
+
+    @Override
+    public LootRandom getRandom(String playerId, String containerId, long opening) {
+        return RANDOM;
+    }
+}
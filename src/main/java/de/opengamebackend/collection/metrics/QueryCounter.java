@@ -0,0 +1,45 @@
+package de.opengamebackend.collection.metrics;
+
+import org.hibernate.event.spi.PostLoadEvent;
+import org.hibernate.event.spi.PostLoadEventListener;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts the JDBC statements prepared and the entities loaded by Hibernate on the current thread,
+ * between {@link #start()} and {@link #stop()}.
+ */
+@Component
+public class QueryCounter implements StatementInspector, PostLoadEventListener {
+    private final transient ThreadLocal<QueryCounts> counts = new ThreadLocal<>();
+
+    public void start() {
+        counts.set(new QueryCounts());
+    }
+
+    public QueryCounts stop() {
+        QueryCounts current = counts.get();
+        counts.remove();
+        return current != null ? current : new QueryCounts();
+    }
+
+    @Override
+    public String inspect(String sql) {
+        QueryCounts current = counts.get();
+
+        if (current != null) {
+            current.incrementStatements();
+        }
+
+        return sql;
+    }
+
+    @Override
+    public void onPostLoad(PostLoadEvent event) {
+        QueryCounts current = counts.get();
+
+        if (current != null) {
+            current.incrementEntityLoads();
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package de.opengamebackend.collection.metrics;
+
+public class QueryCounts {
+    private int statements;
+    private int entityLoads;
+
+    public int getStatements() {
+        return statements;
+    }
+
+    public int getEntityLoads() {
+        return entityLoads;
+    }
+
+    void incrementStatements() {
+        ++statements;
+    }
+
+    void incrementEntityLoads() {
+        ++entityLoads;
+    }
+}
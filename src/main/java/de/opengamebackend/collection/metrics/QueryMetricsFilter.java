@@ -0,0 +1,62 @@
+package de.opengamebackend.collection.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Records the number of JDBC statements and loaded entities of each request handled by a controller,
+ * tagged by method and URI pattern.
+ */
+@Component
+public class QueryMetricsFilter extends OncePerRequestFilter {
+    public static final String STATEMENTS_METRIC = "collection.requests.jdbc.statements";
+    public static final String ENTITY_LOADS_METRIC = "collection.requests.entity.loads";
+
+    private final MeterRegistry meterRegistry;
+    private final QueryCounter queryCounter;
+
+    @Autowired
+    public QueryMetricsFilter(MeterRegistry meterRegistry, QueryCounter queryCounter) {
+        this.meterRegistry = meterRegistry;
+        this.queryCounter = queryCounter;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        queryCounter.start();
+
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            QueryCounts counts = queryCounter.stop();
+            Object uri = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+
+            if (uri != null) {
+                DistributionSummary.builder(STATEMENTS_METRIC)
+                        .description("JDBC statements prepared per request")
+                        .tag("method", request.getMethod())
+                        .tag("uri", uri.toString())
+                        .register(meterRegistry)
+                        .record(counts.getStatements());
+
+                DistributionSummary.builder(ENTITY_LOADS_METRIC)
+                        .description("Entities loaded by Hibernate per request")
+                        .tag("method", request.getMethod())
+                        .tag("uri", uri.toString())
+                        .register(meterRegistry)
+                        .record(counts.getEntityLoads());
+            }
+        }
+    }
+}
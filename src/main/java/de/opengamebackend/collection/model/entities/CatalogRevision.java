@@ -0,0 +1,35 @@
+package de.opengamebackend.collection.model.entities;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * Single row holding the version of item definitions, item sets and loadout types shared by all instances.
+ */
+@Entity
+@Table(name = "collection_catalogrevision")
+public class CatalogRevision {
+    public static final int ID = 1;
+
+    @Id
+    private int id;
+
+    private long version;
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+}
@@ -17,6 +17,9 @@ public class CollectionItem {
 
     private int count;
 
+    @Version
+    private long version;
+
     public long getId() {
         return id;
     }
@@ -25,6 +28,10 @@ public class CollectionItem {
         this.id = id;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
     public String getPlayerId() {
         return playerId;
     }
@@ -7,7 +7,8 @@ import java.util.List;
 @Table(name = "collection_containeditem")
 public class ContainedItem {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "collection_containeditem_seq")
+    @SequenceGenerator(name = "collection_containeditem_seq", sequenceName = "collection_containeditem_seq", allocationSize = 50)
     private long id;
 
     @ManyToOne
@@ -0,0 +1,75 @@
+package de.opengamebackend.collection.model.entities;
+
+import javax.persistence.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Entity
+@Table(name = "collection_containeropening")
+public class ContainerOpening {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long id;
+
+    @Column(nullable = false)
+    private String playerId;
+
+    @ManyToOne(optional = false)
+    private ItemDefinition itemDefinition;
+
+    private long count;
+
+    /**
+     * Number of consecutive openings without an item of the tag of each pity rule of the container.
+     */
+    @ElementCollection
+    @CollectionTable(name = "collection_containeropeningpitycounter",
+            joinColumns = @JoinColumn(name = "container_opening_id"))
+    @MapKeyColumn(name = "item_tag")
+    @Column(name = "counter", nullable = false)
+    private Map<String, Integer> pityCounters;
+
+    public ContainerOpening() {
+        pityCounters = new LinkedHashMap<>();
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public String getPlayerId() {
+        return playerId;
+    }
+
+    public void setPlayerId(String playerId) {
+        this.playerId = playerId;
+    }
+
+    public ItemDefinition getItemDefinition() {
+        return itemDefinition;
+    }
+
+    public void setItemDefinition(ItemDefinition itemDefinition) {
+        this.itemDefinition = itemDefinition;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public Map<String, Integer> getPityCounters() {
+        return pityCounters;
+    }
+
+    public void setPityCounters(Map<String, Integer> pityCounters) {
+        this.pityCounters = pityCounters;
+    }
+}
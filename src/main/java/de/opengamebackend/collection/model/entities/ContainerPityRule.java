@@ -0,0 +1,47 @@
+package de.opengamebackend.collection.model.entities;
+
+import javax.persistence.*;
+
+@Entity
+@Table(name = "collection_containerpityrule")
+public class ContainerPityRule {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long id;
+
+    @ManyToOne(optional = false)
+    private ItemDefinition itemDefinition;
+
+    @ManyToOne(optional = false)
+    private ItemTag itemTag;
+
+    private int maxOpenings;
+
+    public long getId() {
+        return id;
+    }
+
+    public ItemDefinition getItemDefinition() {
+        return itemDefinition;
+    }
+
+    public void setItemDefinition(ItemDefinition itemDefinition) {
+        this.itemDefinition = itemDefinition;
+    }
+
+    public ItemTag getItemTag() {
+        return itemTag;
+    }
+
+    public void setItemTag(ItemTag itemTag) {
+        this.itemTag = itemTag;
+    }
+
+    public int getMaxOpenings() {
+        return maxOpenings;
+    }
+
+    public void setMaxOpenings(int maxOpenings) {
+        this.maxOpenings = maxOpenings;
+    }
+}
@@ -7,7 +7,8 @@ import java.util.List;
 @Table(name = "collection_itemcontainer")
 public class ItemContainer {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "collection_itemcontainer_seq")
+    @SequenceGenerator(name = "collection_itemcontainer_seq", sequenceName = "collection_itemcontainer_seq", allocationSize = 50)
     private long id;
 
     @ManyToOne
@@ -18,6 +18,8 @@ public class ItemDefinition {
     @OneToMany(mappedBy = "owningItemDefinition", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<ItemContainer> containers;
 
+    private String contentHash;
+
     public ItemDefinition() {
         itemTags = new ArrayList<>();
         containers = new ArrayList<>();
@@ -54,4 +56,16 @@ public class ItemDefinition {
     public void setContainers(List<ItemContainer> containers) {
         this.containers = containers;
     }
+
+    /**
+     * Gets the hash of the item definition as it was last imported, for detecting changes without comparing
+     * all rows.
+     */
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
 }
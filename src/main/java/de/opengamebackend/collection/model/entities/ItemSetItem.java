@@ -6,7 +6,8 @@ import javax.persistence.*;
 @Table(name = "collection_itemsetitem")
 public class ItemSetItem {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "collection_itemsetitem_seq")
+    @SequenceGenerator(name = "collection_itemsetitem_seq", sequenceName = "collection_itemsetitem_seq", allocationSize = 50)
     private long id;
 
     @ManyToOne
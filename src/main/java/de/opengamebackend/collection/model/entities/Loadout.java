@@ -20,6 +20,9 @@ public class Loadout {
     @ManyToOne(optional = false)
     private LoadoutType type;
 
+    @Version
+    private long version;
+
     public Loadout() {
         items = new ArrayList<>();
     }
@@ -28,6 +31,10 @@ public class Loadout {
         return id;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
     public String getPlayerId() {
         return playerId;
     }
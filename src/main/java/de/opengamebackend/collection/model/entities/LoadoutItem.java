@@ -6,7 +6,8 @@ import javax.persistence.*;
 @Table(name = "collection_loadoutitem")
 public class LoadoutItem {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "collection_loadoutitem_seq")
+    @SequenceGenerator(name = "collection_loadoutitem_seq", sequenceName = "collection_loadoutitem_seq", allocationSize = 50)
     private long id;
 
     @ManyToOne
@@ -6,7 +6,8 @@ import javax.persistence.*;
 @Table(name = "collection_loadoutrule")
 public class LoadoutRule {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "collection_loadoutrule_seq")
+    @SequenceGenerator(name = "collection_loadoutrule_seq", sequenceName = "collection_loadoutrule_seq", allocationSize = 50)
     private long id;
 
     @ManyToOne
@@ -0,0 +1,41 @@
+package de.opengamebackend.collection.model.entities;
+
+import org.springframework.data.domain.Persistable;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * Marks a flush of journaled grants as committed, so the journal of the flush isn't replayed after a crash.
+ */
+@Entity
+@Table(name = "collection_writebehindflush")
+public class WriteBehindFlush implements Persistable<String> {
+    @Id
+    private String id;
+
+    public WriteBehindFlush() {
+    }
+
+    public WriteBehindFlush(String id) {
+        this.id = id;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    /**
+     * Flushes are only ever inserted, so saving them never has to check for an existing row first.
+     */
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+}
@@ -0,0 +1,21 @@
+package de.opengamebackend.collection.model.repositories;
+
+import de.opengamebackend.collection.model.entities.CatalogRevision;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CatalogRevisionRepository extends JpaRepository<CatalogRevision, Integer> {
+    @Query("SELECT r.version FROM CatalogRevision r WHERE r.id = " + CatalogRevision.ID)
+    Long findVersion();
+
+    /**
+     * Increments the version as part of the current transaction. Locks the row until the transaction completes,
+     * which serializes concurrent catalog changes.
+     */
+    @Modifying
+    @Query("UPDATE CatalogRevision r SET r.version = r.version + 1 WHERE r.id = " + CatalogRevision.ID)
+    int incrementVersion();
+}
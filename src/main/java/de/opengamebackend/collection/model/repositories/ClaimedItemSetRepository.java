@@ -1,12 +1,12 @@
 package de.opengamebackend.collection.model.repositories;
 
 import de.opengamebackend.collection.model.entities.ClaimedItemSet;
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 
 @Repository
-public interface ClaimedItemSetRepository extends CrudRepository<ClaimedItemSet, Long> {
+public interface ClaimedItemSetRepository extends JpaRepository<ClaimedItemSet, Long>, ClaimedItemSetRepositoryCustom {
     List<ClaimedItemSet> findByPlayerId(String playerId);
 }
@@ -0,0 +1,10 @@
+package de.opengamebackend.collection.model.repositories;
+
+public interface ClaimedItemSetRepositoryCustom {
+    /**
+     * Claims the specified item set for the player, unless it has already been claimed.
+     *
+     * @return Whether the item set has been claimed by this call.
+     */
+    boolean tryClaim(String playerId, String itemSetId);
+}
@@ -0,0 +1,27 @@
+package de.opengamebackend.collection.model.repositories;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+public class ClaimedItemSetRepositoryImpl implements ClaimedItemSetRepositoryCustom {
+    private static final String CLAIM_MARIADB =
+            "INSERT IGNORE INTO collection_claimeditemset (player_id, item_set_id) VALUES (?1, ?2)";
+
+    private static final String CLAIM_H2 =
+            "MERGE INTO collection_claimeditemset t " +
+            "USING (SELECT CAST(?1 AS VARCHAR(100)) AS player_id, CAST(?2 AS VARCHAR(100)) AS item_set_id) s " +
+            "ON (t.player_id = s.player_id AND t.item_set_id = s.item_set_id) " +
+            "WHEN NOT MATCHED THEN INSERT (player_id, item_set_id) VALUES (s.player_id, s.item_set_id)";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public boolean tryClaim(String playerId, String itemSetId) {
+        int claimed = entityManager.createNativeQuery(NativeQueries.select(entityManager, CLAIM_MARIADB, CLAIM_H2))
+                .setParameter(1, playerId)
+                .setParameter(2, itemSetId)
+                .executeUpdate();
+        return claimed > 0;
+    }
+}
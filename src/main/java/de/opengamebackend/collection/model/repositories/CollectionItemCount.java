@@ -0,0 +1,9 @@
+package de.opengamebackend.collection.model.repositories;
+
+/**
+ * Projection of a single row of the collection of a player, without loading the entity.
+ */
+public interface CollectionItemCount {
+    String getItemDefinitionId();
+    int getCount();
+}
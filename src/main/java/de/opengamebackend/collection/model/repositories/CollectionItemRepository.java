@@ -2,15 +2,41 @@ package de.opengamebackend.collection.model.repositories;
 
 import de.opengamebackend.collection.model.entities.CollectionItem;
 import de.opengamebackend.collection.model.entities.ItemDefinition;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 @Repository
-public interface CollectionItemRepository extends CrudRepository<CollectionItem, Long> {
+public interface CollectionItemRepository extends CrudRepository<CollectionItem, Long>, CollectionItemRepositoryCustom {
+    @EntityGraph(attributePaths = "itemDefinition")
     List<CollectionItem> findByPlayerId(String playerId);
     Optional<CollectionItem> findByPlayerIdAndItemDefinition(String playerId, ItemDefinition itemDefinition);
     void deleteByPlayerIdAndItemDefinition(String playerId, ItemDefinition itemDefinition);
+
+    /**
+     * Gets the collection of the specified player, joining the openings of all owned containers and their pity
+     * counters in the same query. Owned containers with multiple pity counters are returned once per counter.
+     */
+    @Query("SELECT i AS item, o AS opening FROM CollectionItem i JOIN FETCH i.itemDefinition " +
+            "LEFT JOIN ContainerOpening o ON o.playerId = i.playerId AND o.itemDefinition = i.itemDefinition " +
+            "LEFT JOIN FETCH o.pityCounters " +
+            "WHERE i.playerId=:playerId")
+    List<CollectionItemWithOpening> findWithContainerOpeningsByPlayerId(String playerId);
+
+    /**
+     * Streams the collection of the specified player row by row. Must be consumed and closed within a transaction.
+     */
+    @Query("SELECT c.itemDefinition.id AS itemDefinitionId, c.count AS count FROM CollectionItem c " +
+            "WHERE c.playerId=:playerId")
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    Stream<CollectionItemCount> streamByPlayerId(String playerId);
 }
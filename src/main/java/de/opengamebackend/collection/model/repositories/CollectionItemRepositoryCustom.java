@@ -0,0 +1,18 @@
+package de.opengamebackend.collection.model.repositories;
+
+import java.util.Map;
+
+public interface CollectionItemRepositoryCustom {
+    /**
+     * Atomically adds the specified number of items to the collection of the player,
+     * creating the collection item if it doesn't exist yet. Increments the version of existing items,
+     * so that concurrent transactions having read the item fail on update.
+     */
+    void incrementCount(String playerId, String itemDefinitionId, int count);
+
+    /**
+     * Atomically adds the specified numbers of items to the collections of multiple players, using JDBC batches.
+     * Counts are mapped by player id and item definition id; rows are written in map iteration order.
+     */
+    void incrementCounts(Map<String, ? extends Map<String, Integer>> countsByPlayer);
+}
@@ -0,0 +1,70 @@
+package de.opengamebackend.collection.model.repositories;
+
+import org.hibernate.Session;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.sql.PreparedStatement;
+import java.util.Map;
+
+public class CollectionItemRepositoryImpl implements CollectionItemRepositoryCustom {
+    private static final String UPSERT_MARIADB =
+            "INSERT INTO collection_item (player_id, item_definition_id, count) VALUES (?1, ?2, ?3) " +
+            "ON DUPLICATE KEY UPDATE count = count + VALUES(count), version = version + 1";
+
+    private static final String UPSERT_H2 =
+            "MERGE INTO collection_item t " +
+            "USING (SELECT CAST(?1 AS VARCHAR(100)) AS player_id, CAST(?2 AS VARCHAR(100)) AS item_definition_id, " +
+                "CAST(?3 AS INT) AS count) s " +
+            "ON (t.player_id = s.player_id AND t.item_definition_id = s.item_definition_id) " +
+            "WHEN MATCHED THEN UPDATE SET t.count = t.count + s.count, t.version = t.version + 1 " +
+            "WHEN NOT MATCHED THEN INSERT (player_id, item_definition_id, count) " +
+                "VALUES (s.player_id, s.item_definition_id, s.count)";
+
+    // JDBC placeholders are positional only.
+    private static final String BATCH_UPSERT_MARIADB = UPSERT_MARIADB.replaceAll("\\?\\d", "?");
+    private static final String BATCH_UPSERT_H2 = UPSERT_H2.replaceAll("\\?\\d", "?");
+
+    private static final int BATCH_SIZE = 1000;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public void incrementCount(String playerId, String itemDefinitionId, int count) {
+        entityManager.createNativeQuery(NativeQueries.select(entityManager, UPSERT_MARIADB, UPSERT_H2))
+                .setParameter(1, playerId)
+                .setParameter(2, itemDefinitionId)
+                .setParameter(3, count)
+                .executeUpdate();
+    }
+
+    @Override
+    public void incrementCounts(Map<String, ? extends Map<String, Integer>> countsByPlayer) {
+        String sql = NativeQueries.select(entityManager, BATCH_UPSERT_MARIADB, BATCH_UPSERT_H2);
+
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                int batchedRows = 0;
+
+                for (Map.Entry<String, ? extends Map<String, Integer>> playerCounts : countsByPlayer.entrySet()) {
+                    for (Map.Entry<String, Integer> count : playerCounts.getValue().entrySet()) {
+                        statement.setString(1, playerCounts.getKey());
+                        statement.setString(2, count.getKey());
+                        statement.setInt(3, count.getValue());
+                        statement.addBatch();
+
+                        if (++batchedRows == BATCH_SIZE) {
+                            statement.executeBatch();
+                            batchedRows = 0;
+                        }
+                    }
+                }
+
+                if (batchedRows > 0) {
+                    statement.executeBatch();
+                }
+            }
+        });
+    }
+}
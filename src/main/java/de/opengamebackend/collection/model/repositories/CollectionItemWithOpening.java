@@ -0,0 +1,12 @@
+package de.opengamebackend.collection.model.repositories;
+
+import de.opengamebackend.collection.model.entities.CollectionItem;
+import de.opengamebackend.collection.model.entities.ContainerOpening;
+
+/**
+ * Single item of the collection of a player, along with the openings of that item by the player, if any.
+ */
+public interface CollectionItemWithOpening {
+    CollectionItem getItem();
+    ContainerOpening getOpening();
+}
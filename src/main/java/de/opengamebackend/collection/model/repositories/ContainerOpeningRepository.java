@@ -0,0 +1,29 @@
+package de.opengamebackend.collection.model.repositories;
+
+import de.opengamebackend.collection.model.entities.ContainerOpening;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import java.util.Collection;
+
+@Repository
+public interface ContainerOpeningRepository extends JpaRepository<ContainerOpening, Long>, ContainerOpeningRepositoryCustom {
+    /**
+     * Gets and locks the opening counter of the specified container for the player. Locking reads the latest
+     * committed row, including one inserted concurrently after the current transaction has started.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    ContainerOpening findByPlayerIdAndItemDefinitionId(String playerId, String itemDefinitionId);
+
+    /**
+     * Deletes the openings of all players of the specified containers, which is required before deleting the
+     * containers themselves.
+     */
+    @Modifying
+    @Query("DELETE FROM ContainerOpening o WHERE o.itemDefinition.id IN :itemDefinitionIds")
+    void deleteByItemDefinitionIdIn(Collection<String> itemDefinitionIds);
+}
@@ -0,0 +1,10 @@
+package de.opengamebackend.collection.model.repositories;
+
+public interface ContainerOpeningRepositoryCustom {
+    /**
+     * Creates the opening counter of the specified container for the player, unless it has already been created.
+     *
+     * @return Whether the opening counter has been created by this call.
+     */
+    boolean insertIfAbsent(String playerId, String itemDefinitionId);
+}
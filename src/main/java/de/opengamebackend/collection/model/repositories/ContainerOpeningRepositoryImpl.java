@@ -0,0 +1,29 @@
+package de.opengamebackend.collection.model.repositories;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+public class ContainerOpeningRepositoryImpl implements ContainerOpeningRepositoryCustom {
+    private static final String INSERT_MARIADB =
+            "INSERT IGNORE INTO collection_containeropening (player_id, item_definition_id, count) " +
+            "VALUES (?1, ?2, 0)";
+
+    private static final String INSERT_H2 =
+            "MERGE INTO collection_containeropening t " +
+            "USING (SELECT CAST(?1 AS VARCHAR(100)) AS player_id, CAST(?2 AS VARCHAR(100)) AS item_definition_id) s " +
+            "ON (t.player_id = s.player_id AND t.item_definition_id = s.item_definition_id) " +
+            "WHEN NOT MATCHED THEN INSERT (player_id, item_definition_id, count) " +
+            "VALUES (s.player_id, s.item_definition_id, 0)";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public boolean insertIfAbsent(String playerId, String itemDefinitionId) {
+        int inserted = entityManager.createNativeQuery(NativeQueries.select(entityManager, INSERT_MARIADB, INSERT_H2))
+                .setParameter(1, playerId)
+                .setParameter(2, itemDefinitionId)
+                .executeUpdate();
+        return inserted > 0;
+    }
+}
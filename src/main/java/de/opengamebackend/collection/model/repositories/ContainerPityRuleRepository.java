@@ -0,0 +1,9 @@
+package de.opengamebackend.collection.model.repositories;
+
+import de.opengamebackend.collection.model.entities.ContainerPityRule;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ContainerPityRuleRepository extends JpaRepository<ContainerPityRule, Long> {
+}
@@ -0,0 +1,9 @@
+package de.opengamebackend.collection.model.repositories;
+
+/**
+ * Projection of the id and content hash of an item definition, without loading the entity.
+ */
+public interface ItemDefinitionHash {
+    String getId();
+    String getContentHash();
+}
@@ -1,9 +1,14 @@
 package de.opengamebackend.collection.model.repositories;
 
 import de.opengamebackend.collection.model.entities.ItemDefinition;
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
-public interface ItemDefinitionRepository extends CrudRepository<ItemDefinition, String> {
+public interface ItemDefinitionRepository extends JpaRepository<ItemDefinition, String> {
+    @Query("SELECT d.id AS id, d.contentHash AS contentHash FROM ItemDefinition d")
+    List<ItemDefinitionHash> findAllHashes();
 }
@@ -0,0 +1,11 @@
+package de.opengamebackend.collection.model.repositories;
+
+/**
+ * Projection of a single item of an item set, without loading the entity. Item definition id and count are null
+ * for item sets without any items.
+ */
+public interface ItemSetItemCount {
+    String getItemSetId();
+    String getItemDefinitionId();
+    Integer getCount();
+}
@@ -2,14 +2,29 @@ package de.opengamebackend.collection.model.repositories;
 
 import de.opengamebackend.collection.model.entities.ItemSet;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
-import java.util.List;
+import javax.persistence.QueryHint;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface ItemSetRepository extends CrudRepository<ItemSet, String> {
-    @Query("SELECT s FROM ItemSet s WHERE NOT EXISTS " +
-            "(SELECT c FROM ClaimedItemSet c WHERE c.itemSet=s AND c.playerId=:playerId)")
-    List<ItemSet> findUnclaimedItemSetsByPlayerId(String playerId);
+    @Query("SELECT DISTINCT s FROM ItemSet s LEFT JOIN FETCH s.items i LEFT JOIN FETCH i.itemDefinition " +
+            "WHERE s.id = (SELECT MIN(u.id) FROM ItemSet u WHERE NOT EXISTS " +
+            "(SELECT c FROM ClaimedItemSet c WHERE c.itemSet=u AND c.playerId=:playerId))")
+    Optional<ItemSet> findFirstUnclaimedItemSetByPlayerId(String playerId);
+
+    /**
+     * Streams the items of all item sets row by row, ordered by item set. Must be consumed and closed within
+     * a transaction.
+     */
+    @Query("SELECT s.id AS itemSetId, d.id AS itemDefinitionId, i.count AS count " +
+            "FROM ItemSet s LEFT JOIN s.items i LEFT JOIN i.itemDefinition d ORDER BY s.id, i.id")
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    Stream<ItemSetItemCount> streamAllItems();
 }
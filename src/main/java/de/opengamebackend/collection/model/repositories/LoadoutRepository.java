@@ -1,6 +1,7 @@
 package de.opengamebackend.collection.model.repositories;
 
 import de.opengamebackend.collection.model.entities.Loadout;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
@@ -8,5 +9,7 @@ import java.util.List;
 
 @Repository
 public interface LoadoutRepository extends CrudRepository<Loadout, Long> {
+    @Query("SELECT DISTINCT l FROM Loadout l JOIN FETCH l.type LEFT JOIN FETCH l.items i " +
+            "LEFT JOIN FETCH i.itemDefinition WHERE l.playerId=:playerId")
     List<Loadout> findByPlayerId(String playerId);
 }
@@ -1,9 +1,14 @@
 package de.opengamebackend.collection.model.repositories;
 
 import de.opengamebackend.collection.model.entities.LoadoutType;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface LoadoutTypeRepository extends CrudRepository<LoadoutType, String> {
+    @Query("SELECT DISTINCT t FROM LoadoutType t LEFT JOIN FETCH t.rules r LEFT JOIN FETCH r.itemTag")
+    List<LoadoutType> findAllWithRules();
 }
@@ -0,0 +1,21 @@
+package de.opengamebackend.collection.model.repositories;
+
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+import javax.persistence.EntityManager;
+
+/**
+ * Selects between the MariaDB and H2 flavors of native statements that can't be expressed in JPQL.
+ */
+class NativeQueries {
+    private NativeQueries() {
+    }
+
+    static String select(EntityManager entityManager, String mariaDb, String h2) {
+        Dialect dialect = entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect();
+        return dialect instanceof H2Dialect ? h2 : mariaDb;
+    }
+}
@@ -0,0 +1,19 @@
+package de.opengamebackend.collection.model.repositories;
+
+import de.opengamebackend.collection.model.entities.WriteBehindFlush;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+
+@Repository
+public interface WriteBehindFlushRepository extends JpaRepository<WriteBehindFlush, String> {
+    /**
+     * Deletes the specified flushes, once their journals have been discarded.
+     */
+    @Modifying
+    @Query("DELETE FROM WriteBehindFlush f WHERE f.id IN :ids")
+    void deleteByIdIn(Collection<String> ids);
+}
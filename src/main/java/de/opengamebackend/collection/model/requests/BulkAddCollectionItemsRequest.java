@@ -0,0 +1,20 @@
+package de.opengamebackend.collection.model.requests;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BulkAddCollectionItemsRequest {
+    private List<BulkAddCollectionItemsRequestEntry> entries;
+
+    public BulkAddCollectionItemsRequest() {
+        this.entries = new ArrayList<>();
+    }
+
+    public List<BulkAddCollectionItemsRequestEntry> getEntries() {
+        return entries;
+    }
+
+    public void setEntries(List<BulkAddCollectionItemsRequestEntry> entries) {
+        this.entries = entries;
+    }
+}
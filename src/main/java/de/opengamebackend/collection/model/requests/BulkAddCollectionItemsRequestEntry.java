@@ -0,0 +1,40 @@
+package de.opengamebackend.collection.model.requests;
+
+public class BulkAddCollectionItemsRequestEntry {
+    private String playerId;
+    private String itemDefinitionId;
+    private int count;
+
+    public BulkAddCollectionItemsRequestEntry() {
+    }
+
+    public BulkAddCollectionItemsRequestEntry(String playerId, String itemDefinitionId, int count) {
+        this.playerId = playerId;
+        this.itemDefinitionId = itemDefinitionId;
+        this.count = count;
+    }
+
+    public String getPlayerId() {
+        return playerId;
+    }
+
+    public void setPlayerId(String playerId) {
+        this.playerId = playerId;
+    }
+
+    public String getItemDefinitionId() {
+        return itemDefinitionId;
+    }
+
+    public void setItemDefinitionId(String itemDefinitionId) {
+        this.itemDefinitionId = itemDefinitionId;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        this.count = count;
+    }
+}
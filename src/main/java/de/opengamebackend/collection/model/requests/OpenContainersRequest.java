@@ -0,0 +1,20 @@
+package de.opengamebackend.collection.model.requests;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class OpenContainersRequest {
+    private List<OpenContainersRequestContainer> containers;
+
+    public OpenContainersRequest() {
+        this.containers = new ArrayList<>();
+    }
+
+    public List<OpenContainersRequestContainer> getContainers() {
+        return containers;
+    }
+
+    public void setContainers(List<OpenContainersRequestContainer> containers) {
+        this.containers = containers;
+    }
+}
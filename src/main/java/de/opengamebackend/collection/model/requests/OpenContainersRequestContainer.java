@@ -0,0 +1,30 @@
+package de.opengamebackend.collection.model.requests;
+
+public class OpenContainersRequestContainer {
+    private String itemDefinitionId;
+    private int count;
+
+    public OpenContainersRequestContainer() {
+    }
+
+    public OpenContainersRequestContainer(String itemDefinitionId, int count) {
+        this.itemDefinitionId = itemDefinitionId;
+        this.count = count;
+    }
+
+    public String getItemDefinitionId() {
+        return itemDefinitionId;
+    }
+
+    public void setItemDefinitionId(String itemDefinitionId) {
+        this.itemDefinitionId = itemDefinitionId;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        this.count = count;
+    }
+}
@@ -0,0 +1,30 @@
+package de.opengamebackend.collection.model.requests;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class PatchItemDefinitionsRequest {
+    private List<PutItemDefinitionsRequestItem> upserts;
+    private List<String> deletes;
+
+    public PatchItemDefinitionsRequest() {
+        this.upserts = new ArrayList<>();
+        this.deletes = new ArrayList<>();
+    }
+
+    public List<PutItemDefinitionsRequestItem> getUpserts() {
+        return upserts;
+    }
+
+    public void setUpserts(List<PutItemDefinitionsRequestItem> upserts) {
+        this.upserts = upserts;
+    }
+
+    public List<String> getDeletes() {
+        return deletes;
+    }
+
+    public void setDeletes(List<String> deletes) {
+        this.deletes = deletes;
+    }
+}
@@ -0,0 +1,20 @@
+package de.opengamebackend.collection.model.requests;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class PutContainerPityRulesRequest {
+    private List<PutContainerPityRulesRequestRule> rules;
+
+    public PutContainerPityRulesRequest() {
+        this.rules = new ArrayList<>();
+    }
+
+    public List<PutContainerPityRulesRequestRule> getRules() {
+        return rules;
+    }
+
+    public void setRules(List<PutContainerPityRulesRequestRule> rules) {
+        this.rules = rules;
+    }
+}
@@ -0,0 +1,24 @@
+package de.opengamebackend.collection.model.responses;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BulkAddCollectionItemsResponse {
+    private List<BulkAddCollectionItemsResponseEntry> results;
+
+    public BulkAddCollectionItemsResponse() {
+        this.results = new ArrayList<>();
+    }
+
+    public BulkAddCollectionItemsResponse(List<BulkAddCollectionItemsResponseEntry> results) {
+        this.results = results;
+    }
+
+    public List<BulkAddCollectionItemsResponseEntry> getResults() {
+        return results;
+    }
+
+    public void setResults(List<BulkAddCollectionItemsResponseEntry> results) {
+        this.results = results;
+    }
+}
@@ -0,0 +1,55 @@
+package de.opengamebackend.collection.model.responses;
+
+/**
+ * Result of a single entry of a bulk grant, in request order. Error code and message are null if the items
+ * have been added.
+ */
+public class BulkAddCollectionItemsResponseEntry {
+    private String playerId;
+    private String itemDefinitionId;
+    private Integer errorCode;
+    private String errorMessage;
+
+    public BulkAddCollectionItemsResponseEntry() {
+    }
+
+    public BulkAddCollectionItemsResponseEntry(String playerId, String itemDefinitionId, Integer errorCode,
+                                               String errorMessage) {
+        this.playerId = playerId;
+        this.itemDefinitionId = itemDefinitionId;
+        this.errorCode = errorCode;
+        this.errorMessage = errorMessage;
+    }
+
+    public String getPlayerId() {
+        return playerId;
+    }
+
+    public void setPlayerId(String playerId) {
+        this.playerId = playerId;
+    }
+
+    public String getItemDefinitionId() {
+        return itemDefinitionId;
+    }
+
+    public void setItemDefinitionId(String itemDefinitionId) {
+        this.itemDefinitionId = itemDefinitionId;
+    }
+
+    public Integer getErrorCode() {
+        return errorCode;
+    }
+
+    public void setErrorCode(Integer errorCode) {
+        this.errorCode = errorCode;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+}
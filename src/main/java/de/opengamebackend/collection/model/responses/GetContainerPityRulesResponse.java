@@ -0,0 +1,20 @@
+package de.opengamebackend.collection.model.responses;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class GetContainerPityRulesResponse {
+    private List<GetContainerPityRulesResponseRule> rules;
+
+    public GetContainerPityRulesResponse() {
+        this.rules = new ArrayList<>();
+    }
+
+    public List<GetContainerPityRulesResponseRule> getRules() {
+        return rules;
+    }
+
+    public void setRules(List<GetContainerPityRulesResponseRule> rules) {
+        this.rules = rules;
+    }
+}
@@ -0,0 +1,40 @@
+package de.opengamebackend.collection.model.responses;
+
+public class GetContainerPityRulesResponseRule {
+    private String itemDefinitionId;
+    private String itemTag;
+    private int maxOpenings;
+
+    public GetContainerPityRulesResponseRule() {
+    }
+
+    public GetContainerPityRulesResponseRule(String itemDefinitionId, String itemTag, int maxOpenings) {
+        this.itemDefinitionId = itemDefinitionId;
+        this.itemTag = itemTag;
+        this.maxOpenings = maxOpenings;
+    }
+
+    public String getItemDefinitionId() {
+        return itemDefinitionId;
+    }
+
+    public void setItemDefinitionId(String itemDefinitionId) {
+        this.itemDefinitionId = itemDefinitionId;
+    }
+
+    public String getItemTag() {
+        return itemTag;
+    }
+
+    public void setItemTag(String itemTag) {
+        this.itemTag = itemTag;
+    }
+
+    public int getMaxOpenings() {
+        return maxOpenings;
+    }
+
+    public void setMaxOpenings(int maxOpenings) {
+        this.maxOpenings = maxOpenings;
+    }
+}
@@ -0,0 +1,34 @@
+package de.opengamebackend.collection.model.responses;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ValidateLoadoutResponse {
+    private boolean valid;
+    private List<ValidateLoadoutResponseViolation> violations;
+
+    public ValidateLoadoutResponse() {
+        this.violations = new ArrayList<>();
+    }
+
+    public ValidateLoadoutResponse(List<ValidateLoadoutResponseViolation> violations) {
+        this.valid = violations.isEmpty();
+        this.violations = violations;
+    }
+
+    public boolean isValid() {
+        return valid;
+    }
+
+    public void setValid(boolean valid) {
+        this.valid = valid;
+    }
+
+    public List<ValidateLoadoutResponseViolation> getViolations() {
+        return violations;
+    }
+
+    public void setViolations(List<ValidateLoadoutResponseViolation> violations) {
+        this.violations = violations;
+    }
+}
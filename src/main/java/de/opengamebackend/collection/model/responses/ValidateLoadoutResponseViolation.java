@@ -0,0 +1,55 @@
+package de.opengamebackend.collection.model.responses;
+
+/**
+ * Single problem of a validated loadout. Unknown item definitions don't have an item tag; violated totals of a loadout
+ * rule don't have an item definition.
+ */
+public class ValidateLoadoutResponseViolation {
+    private int errorCode;
+    private String errorMessage;
+    private String itemDefinitionId;
+    private String itemTag;
+
+    public ValidateLoadoutResponseViolation() {
+    }
+
+    public ValidateLoadoutResponseViolation(int errorCode, String errorMessage, String itemDefinitionId,
+                                            String itemTag) {
+        this.errorCode = errorCode;
+        this.errorMessage = errorMessage;
+        this.itemDefinitionId = itemDefinitionId;
+        this.itemTag = itemTag;
+    }
+
+    public int getErrorCode() {
+        return errorCode;
+    }
+
+    public void setErrorCode(int errorCode) {
+        this.errorCode = errorCode;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+
+    public String getItemDefinitionId() {
+        return itemDefinitionId;
+    }
+
+    public void setItemDefinitionId(String itemDefinitionId) {
+        this.itemDefinitionId = itemDefinitionId;
+    }
+
+    public String getItemTag() {
+        return itemTag;
+    }
+
+    public void setItemTag(String itemTag) {
+        this.itemTag = itemTag;
+    }
+}
@@ -0,0 +1,89 @@
+package de.opengamebackend.collection.retry;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.OptimisticLockException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Implements {@link RetryOnConflict}. Ordered before the transaction interceptor, so that every attempt runs in a new
+ * transaction. Calls joining an outer transaction are never retried, because the outer transaction is rolled back
+ * anyway. Backoff is randomized, so that conflicting requests don't collide again.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ConflictRetryAspect {
+    public static final String RETRIES_METRIC = "collection.conflict.retries";
+    public static final String FAILURES_METRIC = "collection.conflict.failures";
+
+    private static final Logger logger = LoggerFactory.getLogger(ConflictRetryAspect.class);
+
+    private final ConflictRetryProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public ConflictRetryAspect(ConflictRetryProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Around("@annotation(de.opengamebackend.collection.retry.RetryOnConflict)")
+    public Object retryOnConflict(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return joinPoint.proceed();
+        }
+
+        String operation = joinPoint.getSignature().getDeclaringType().getSimpleName() + "." +
+                joinPoint.getSignature().getName();
+
+        for (int attempt = 1; ; ++attempt) {
+            try {
+                return joinPoint.proceed();
+            } catch (OptimisticLockingFailureException | OptimisticLockException e) {
+                if (attempt >= properties.getMaxAttempts()) {
+                    count(FAILURES_METRIC, "Transactions failed after retrying concurrent updates", operation);
+                    throw e;
+                }
+
+                count(RETRIES_METRIC, "Transactions retried due to concurrent updates", operation);
+                logger.debug("Retrying {} after concurrent update (attempt {}).", operation, attempt);
+
+                backOff(attempt, e);
+            }
+        }
+    }
+
+    private void count(String metric, String description, String operation) {
+        Counter.builder(metric)
+                .description(description)
+                .tag("operation", operation)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private void backOff(int attempt, RuntimeException conflict) {
+        long maxBackoffMillis = properties.getMaxBackoff().toMillis();
+        long backoffMillis = properties.getInitialBackoff().toMillis() << Math.min(attempt - 1, 30);
+        long bound = Math.max(Math.min(backoffMillis, maxBackoffMillis), 1L);
+
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(bound));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw conflict;
+        }
+    }
+}
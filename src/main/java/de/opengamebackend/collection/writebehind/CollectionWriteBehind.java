@@ -0,0 +1,450 @@
+package de.opengamebackend.collection.writebehind;
+
+import de.opengamebackend.collection.cache.PlayerCollectionCache;
+import de.opengamebackend.collection.catalog.ItemCatalog;
+import de.opengamebackend.collection.catalog.ItemCatalogProvider;
+import de.opengamebackend.collection.model.entities.WriteBehindFlush;
+import de.opengamebackend.collection.model.repositories.CollectionItemRepository;
+import de.opengamebackend.collection.model.repositories.WriteBehindFlushRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Optionally buffers items granted to players in memory, coalescing multiple grants of the same item,
+ * and writes them to the database in batches, either periodically or as soon as enough grants are pending.
+ * Every grant is journaled to disk before being acknowledged, and journals are replayed on startup.
+ * Each flush is recorded in the same transaction as its grants, so replaying skips flushes that have been
+ * committed right before a crash. Grants of item definitions that have been removed from the catalog in the meantime
+ * are logged and discarded when flushing.
+ */
+@Component
+public class CollectionWriteBehind {
+    private static final Logger logger = LoggerFactory.getLogger(CollectionWriteBehind.class);
+
+    private final WriteBehindProperties properties;
+    private final CollectionItemRepository collectionItemRepository;
+    private final WriteBehindFlushRepository writeBehindFlushRepository;
+    private final PlayerCollectionCache playerCollectionCache;
+    private final ItemCatalogProvider itemCatalogProvider;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ConcurrentHashMap<String, PendingCollection> pendingCollections = new ConcurrentHashMap<>();
+    private final AtomicInteger pendingGrants = new AtomicInteger();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final ConcurrentLinkedQueue<String> completedFlushIds = new ConcurrentLinkedQueue<>();
+
+    private Path journalDirectory;
+    private ScheduledExecutorService scheduler;
+
+    @Autowired
+    public CollectionWriteBehind(WriteBehindProperties properties, CollectionItemRepository collectionItemRepository,
+                                 WriteBehindFlushRepository writeBehindFlushRepository,
+                                 PlayerCollectionCache playerCollectionCache, ItemCatalogProvider itemCatalogProvider,
+                                 PlatformTransactionManager transactionManager) {
+        this.properties = properties;
+        this.collectionItemRepository = collectionItemRepository;
+        this.writeBehindFlushRepository = writeBehindFlushRepository;
+        this.playerCollectionCache = playerCollectionCache;
+        this.itemCatalogProvider = itemCatalogProvider;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!properties.isEnabled()) {
+            return;
+        }
+
+        journalDirectory = Paths.get(properties.getJournalDirectory());
+        Files.createDirectories(journalDirectory);
+
+        recover();
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "collection-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long interval = properties.getFlushInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::flushAllLogged, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (scheduler == null) {
+            return;
+        }
+
+        scheduler.shutdown();
+        scheduler.awaitTermination(properties.getFlushInterval().toMillis() * 2, TimeUnit.MILLISECONDS);
+
+        flushAllLogged();
+
+        for (PendingCollection pending : pendingCollections.values()) {
+            synchronized (pending) {
+                try {
+                    pending.closeJournal();
+                } catch (IOException e) {
+                    logger.warn("Failed to close journal of player " + pending.getPlayerId(), e);
+                }
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return scheduler != null;
+    }
+
+    /**
+     * Adds the specified items to the collection of the player. Returns as soon as the grant has been journaled.
+     */
+    public void add(String playerId, String itemDefinitionId, int count) {
+        while (true) {
+            PendingCollection pending = pendingCollections.computeIfAbsent(playerId,
+                    id -> new PendingCollection(journalDirectory, id));
+
+            synchronized (pending) {
+                // Retry if the pending collection has just been removed after being flushed.
+                if (pending.isRemoved()) {
+                    continue;
+                }
+
+                try {
+                    pending.add(itemDefinitionId, count);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to journal grant for player " + playerId, e);
+                }
+            }
+
+            break;
+        }
+
+        if (pendingGrants.incrementAndGet() >= properties.getFlushThreshold() &&
+                flushScheduled.compareAndSet(false, true)) {
+            scheduler.execute(() -> {
+                flushScheduled.set(false);
+                flushAllLogged();
+            });
+        }
+    }
+
+    /**
+     * Gets the item counts granted to the specified player whose writes to the database have not been committed yet,
+     * including grants being written by flushes in progress.
+     */
+    public Map<String, Integer> getPendingDeltas(String playerId) {
+        PendingCollection pending = pendingCollections.get(playerId);
+
+        if (pending == null) {
+            return Collections.emptyMap();
+        }
+
+        synchronized (pending) {
+            return pending.getUnwrittenDeltas();
+        }
+    }
+
+    /**
+     * Gets the item counts granted to the specified player that have not been written to the database yet, for
+     * reading the rest of the collection from the database. Waits for flushes of other transactions in progress to
+     * complete, and keeps grants of the player from being written to the database until the read is closed.
+     * Must be called before reading anything from the database in the current transaction.
+     */
+    public PendingRead openRead(String playerId) {
+        while (true) {
+            PendingCollection pending = pendingCollections.get(playerId);
+
+            if (pending == null) {
+                // Grants added from now on have not been acknowledged before the read, and may or may not be read.
+                return new PendingRead(Collections.emptyMap());
+            }
+
+            synchronized (pending) {
+                // Grants drained by a concurrent transaction may or may not be visible to the read, depending on
+                // when that transaction commits. Grants drained by the current transaction are visible to it.
+                awaitFlushesElsewhere(pending);
+
+                if (pending.isRemoved()) {
+                    continue;
+                }
+
+                pending.addReader();
+                return new PendingRead(new HashMap<>(pending.getDeltas()), pending);
+            }
+        }
+    }
+
+    /**
+     * Writes all pending grants of the specified player to the database, as part of the current transaction.
+     * Waits for grants drained by other transactions to be written, and for reads of the collection to complete first.
+     * Must be called before modifying the collection of the player in any other way.
+     */
+    public void flush(String playerId) {
+        PendingCollection pending = pendingCollections.get(playerId);
+
+        if (pending != null) {
+            flush(pending, true);
+        }
+    }
+
+    /**
+     * Writes the pending grants of all players to the database, in batches of players per transaction.
+     * If a batch fails, its players are written one per transaction, so a single failing player doesn't keep
+     * the others from being written.
+     */
+    public void flushAll() {
+        ArrayList<PendingCollection> pendingCollectionsToFlush = new ArrayList<>(pendingCollections.values());
+
+        for (int i = 0; i < pendingCollectionsToFlush.size(); i += properties.getFlushBatchSize()) {
+            List<PendingCollection> batch = pendingCollectionsToFlush.subList(i,
+                    Math.min(i + properties.getFlushBatchSize(), pendingCollectionsToFlush.size()));
+
+            try {
+                flushBatch(batch);
+            } catch (RuntimeException e) {
+                if (batch.size() == 1) {
+                    logger.error("Failed to flush pending collection items of player " +
+                            batch.get(0).getPlayerId(), e);
+                    continue;
+                }
+
+                logger.warn("Failed to flush pending collection items of " + batch.size() +
+                        " players, flushing them one by one.", e);
+
+                for (PendingCollection pending : batch) {
+                    try {
+                        flushBatch(Collections.singletonList(pending));
+                    } catch (RuntimeException playerException) {
+                        logger.error("Failed to flush pending collection items of player " +
+                                pending.getPlayerId(), playerException);
+                    }
+                }
+            }
+        }
+
+        deleteCompletedFlushes();
+    }
+
+    private void flushBatch(List<PendingCollection> batch) {
+        transactionTemplate.execute(status -> {
+            for (PendingCollection pending : batch) {
+                flush(pending, false);
+            }
+
+            return null;
+        });
+    }
+
+    /**
+     * Deletes the records of committed flushes whose journals have been discarded, as they can't be replayed
+     * anymore.
+     */
+    private void deleteCompletedFlushes() {
+        ArrayList<String> flushIds = new ArrayList<>();
+        String flushId;
+
+        while ((flushId = completedFlushIds.poll()) != null) {
+            flushIds.add(flushId);
+        }
+
+        if (flushIds.isEmpty()) {
+            return;
+        }
+
+        transactionTemplate.execute(status -> {
+            writeBehindFlushRepository.deleteByIdIn(flushIds);
+            return null;
+        });
+    }
+
+    private void flushAllLogged() {
+        try {
+            flushAll();
+        } catch (RuntimeException e) {
+            logger.error("Failed to flush pending collection items.", e);
+        }
+    }
+
+    /**
+     * Writes all pending grants of the specified player to the database, as part of the current transaction.
+     * Players whose collection is being read are waited for, or skipped if not waiting for reads.
+     */
+    private void flush(PendingCollection pending, boolean awaitReads) {
+        ItemCatalog catalog = itemCatalogProvider.getCatalog();
+        PendingCollection.Drain drain;
+
+        synchronized (pending) {
+            // Grants drained by a concurrent transaction may not have been committed yet. Wait for that transaction
+            // to complete, so the current one neither misses nor overwrites them. Reads of the collection in progress
+            // must not see grants both pending and written, so wait for them as well.
+            while (pending.isFlushingElsewhere() || pending.isRead()) {
+                if (pending.isRead() && !awaitReads) {
+                    return;
+                }
+
+                await(pending);
+            }
+
+            if (pending.getDeltas().isEmpty()) {
+                if (!pending.isFlushing()) {
+                    pending.setRemoved(true);
+                    pendingCollections.remove(pending.getPlayerId(), pending);
+                }
+
+                return;
+            }
+
+            try {
+                drain = pending.drain();
+                pendingGrants.addAndGet(-drain.getGrants());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to drain journal of player " + pending.getPlayerId(), e);
+            }
+
+            // Writing grants of removed item definitions would violate foreign keys on every attempt.
+            for (String itemDefinitionId : new ArrayList<>(drain.getDeltas().keySet())) {
+                if (catalog.getItemDefinition(itemDefinitionId) == null) {
+                    logger.warn("Discarding " + drain.discard(itemDefinitionId) + " items of removed item definition " +
+                            itemDefinitionId + " granted to player " + pending.getPlayerId());
+                }
+            }
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    completeFlush(pending, drain, status == TransactionSynchronization.STATUS_COMMITTED);
+                }
+            });
+        }
+
+        try {
+            writeBehindFlushRepository.save(new WriteBehindFlush(drain.getFlushId()));
+
+            for (Map.Entry<String, Integer> delta : drain.getDeltas().entrySet()) {
+                collectionItemRepository.incrementCount(pending.getPlayerId(), delta.getKey(), delta.getValue());
+            }
+        } catch (RuntimeException e) {
+            if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+                completeFlush(pending, drain, false);
+            }
+
+            throw e;
+        }
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            completeFlush(pending, drain, true);
+        }
+    }
+
+    private void completeFlush(PendingCollection pending, PendingCollection.Drain drain, boolean committed) {
+        synchronized (pending) {
+            try {
+                if (committed) {
+                    pending.completeDrain(drain);
+                    completedFlushIds.add(drain.getFlushId());
+                } else {
+                    pending.abortDrain(drain);
+                    pendingGrants.addAndGet(drain.getGrants());
+                }
+            } catch (IOException e) {
+                logger.error("Failed to update journal of player " + pending.getPlayerId(), e);
+            } finally {
+                pending.notifyAll();
+            }
+        }
+
+        // Collections cached before have been read along with the drained grants, but reload them from the database.
+        playerCollectionCache.invalidate(pending.getPlayerId());
+    }
+
+    private static void awaitFlushesElsewhere(PendingCollection pending) {
+        while (pending.isFlushingElsewhere()) {
+            await(pending);
+        }
+    }
+
+    private static void await(PendingCollection pending) {
+        try {
+            pending.wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for pending collection items of player " +
+                    pending.getPlayerId() + " to be flushed or read.", e);
+        }
+    }
+
+    private void recover() throws IOException {
+        HashSet<String> playerIds = new HashSet<>();
+        HashSet<String> flushIds = new HashSet<>();
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(journalDirectory)) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+
+                if (fileName.endsWith(".compacting")) {
+                    // Compaction did not finish; the original journals are still there.
+                    Files.delete(file);
+                } else if (PendingCollection.isFlushingJournal(fileName)) {
+                    playerIds.add(PendingCollection.fromFileName(fileName));
+                    flushIds.add(PendingCollection.getFlushId(fileName));
+                } else if (PendingCollection.isMalformedFlushingJournal(fileName)) {
+                    // Without a flush id, replaying the journal might grant items that have been committed already.
+                    logger.error("Skipping journal " + file + " without flush id. " +
+                            "Its items have neither been recovered nor discarded.");
+                } else if (fileName.endsWith(".journal")) {
+                    playerIds.add(PendingCollection.fromFileName(fileName));
+                }
+            }
+        }
+
+        // Flushes that have been recorded have been committed along with their grants.
+        HashSet<String> committedFlushIds = new HashSet<>();
+
+        if (!flushIds.isEmpty()) {
+            for (WriteBehindFlush flush : writeBehindFlushRepository.findAllById(flushIds)) {
+                committedFlushIds.add(flush.getId());
+            }
+        }
+
+        for (String playerId : playerIds) {
+            PendingCollection pending = new PendingCollection(journalDirectory, playerId);
+            pending.recover(committedFlushIds);
+
+            pendingCollections.put(playerId, pending);
+            pendingGrants.addAndGet(pending.getGrants());
+        }
+
+        if (!playerIds.isEmpty()) {
+            logger.info("Recovered pending collection items of " + playerIds.size() + " players from journal.");
+        }
+
+        completedFlushIds.addAll(committedFlushIds);
+    }
+}
@@ -0,0 +1,355 @@
+package de.opengamebackend.collection.writebehind;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Item counts granted to a single player that have not been written to the database yet,
+ * along with the journal file holding the same grants. Not thread-safe; callers synchronize on the instance.
+ * <p>
+ * Drained grants are moved to a journal of their own, named after the id of the flush writing them, until that
+ * flush has completed.
+ */
+class PendingCollection {
+    private static final String JOURNAL_EXTENSION = ".journal";
+    private static final String FLUSHING_EXTENSION = ".flushing";
+    private static final String COMPACTING_EXTENSION = ".compacting";
+
+    private final String playerId;
+    private final Path journalDirectory;
+    private final Path journal;
+
+    private final HashMap<String, Integer> deltas = new HashMap<>();
+    private final ArrayList<Drain> drains = new ArrayList<>();
+    private int grants;
+    private int readers;
+    private FileChannel channel;
+    private boolean removed;
+
+    PendingCollection(Path journalDirectory, String playerId) {
+        this.playerId = playerId;
+        this.journalDirectory = journalDirectory;
+        this.journal = journalDirectory.resolve(toFileName(playerId) + JOURNAL_EXTENSION);
+    }
+
+    String getPlayerId() {
+        return playerId;
+    }
+
+    Map<String, Integer> getDeltas() {
+        return deltas;
+    }
+
+    /**
+     * Gets the pending grants along with the grants drained by flushes that have not completed yet.
+     */
+    Map<String, Integer> getUnwrittenDeltas() {
+        HashMap<String, Integer> unwrittenDeltas = new HashMap<>(deltas);
+
+        for (Drain drain : drains) {
+            for (Map.Entry<String, Integer> delta : drain.deltas.entrySet()) {
+                unwrittenDeltas.merge(delta.getKey(), delta.getValue(), Integer::sum);
+            }
+        }
+
+        return unwrittenDeltas;
+    }
+
+    int getGrants() {
+        return grants;
+    }
+
+    boolean isFlushing() {
+        return !drains.isEmpty();
+    }
+
+    /**
+     * Checks whether grants have been drained by a thread other than the current one, and thus by another
+     * transaction that has not completed yet.
+     */
+    boolean isFlushingElsewhere() {
+        for (Drain drain : drains) {
+            if (drain.owner != Thread.currentThread()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Checks whether the collection of the player is being read from the database, which requires grants not to be
+     * drained until the read has completed.
+     */
+    boolean isRead() {
+        return readers > 0;
+    }
+
+    void addReader() {
+        ++readers;
+    }
+
+    void removeReader() {
+        --readers;
+    }
+
+    boolean isRemoved() {
+        return removed;
+    }
+
+    void setRemoved(boolean removed) {
+        this.removed = removed;
+    }
+
+    /**
+     * Journals and adds the specified grant. Returns as soon as the journal has been written to disk.
+     */
+    void add(String itemDefinitionId, int count) throws IOException {
+        journal(itemDefinitionId, count);
+        channel.force(false);
+
+        deltas.merge(itemDefinitionId, count, Integer::sum);
+        ++grants;
+    }
+
+    /**
+     * Takes all pending grants, moving the journal aside until they have been written to the database.
+     */
+    Drain drain() throws IOException {
+        closeJournal();
+
+        String flushId = UUID.randomUUID().toString();
+        Path flushingJournal = journalDirectory.resolve(
+                journal.getFileName() + "." + flushId + FLUSHING_EXTENSION);
+        Files.move(journal, flushingJournal);
+
+        Drain drain = new Drain(flushId, flushingJournal, new HashMap<>(deltas), grants, Thread.currentThread());
+        drains.add(drain);
+
+        deltas.clear();
+        grants = 0;
+        return drain;
+    }
+
+    /**
+     * Discards the journal of drained grants after they have been written to the database.
+     */
+    void completeDrain(Drain drain) throws IOException {
+        drains.remove(drain);
+        Files.deleteIfExists(drain.journal);
+    }
+
+    /**
+     * Restores drained grants that could not be written to the database.
+     */
+    void abortDrain(Drain drain) throws IOException {
+        drains.remove(drain);
+
+        for (Map.Entry<String, Integer> delta : drain.deltas.entrySet()) {
+            journal(delta.getKey(), delta.getValue());
+            deltas.merge(delta.getKey(), delta.getValue(), Integer::sum);
+        }
+
+        channel.force(false);
+        grants += drain.grants;
+
+        Files.deleteIfExists(drain.journal);
+    }
+
+    /**
+     * Restores the grants of all journals that have been moved aside or written before a crash, skipping the
+     * journals of flushes that have been committed before the crash. Journals that have been moved aside without a
+     * flush id are left untouched, as there is no telling whether their grants have been committed.
+     */
+    void recover(Set<String> committedFlushIds) throws IOException {
+        ArrayList<Path> flushingJournals = new ArrayList<>();
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(journalDirectory,
+                journal.getFileName() + "*" + FLUSHING_EXTENSION)) {
+            for (Path file : files) {
+                if (isFlushingJournal(file.getFileName().toString())) {
+                    flushingJournals.add(file);
+                }
+            }
+        }
+
+        HashMap<String, Integer> recovered = new HashMap<>();
+        ArrayList<Path> journals = new ArrayList<>();
+
+        for (Path flushingJournal : flushingJournals) {
+            if (!committedFlushIds.contains(getFlushId(flushingJournal.getFileName().toString()))) {
+                journals.add(flushingJournal);
+            }
+        }
+
+        journals.add(journal);
+
+        for (Path file : journals) {
+            if (!Files.exists(file)) {
+                continue;
+            }
+
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+
+                while ((line = reader.readLine()) != null) {
+                    int separator = line.lastIndexOf('\t');
+
+                    // Ignore lines that have been partially written before the crash.
+                    if (separator <= 0) {
+                        continue;
+                    }
+
+                    try {
+                        recovered.merge(line.substring(0, separator),
+                                Integer.parseInt(line.substring(separator + 1)), Integer::sum);
+                    } catch (NumberFormatException e) {
+                        continue;
+                    }
+                }
+            }
+        }
+
+        if (recovered.isEmpty()) {
+            deleteAll(flushingJournals);
+            Files.deleteIfExists(journal);
+            return;
+        }
+
+        // Replace both files by a single compacted journal.
+        Path compactedJournal = journal.resolveSibling(journal.getFileName() + COMPACTING_EXTENSION);
+
+        try (FileChannel compacted = FileChannel.open(compactedJournal, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Map.Entry<String, Integer> delta : recovered.entrySet()) {
+                compacted.write(toJournalLine(delta.getKey(), delta.getValue()));
+            }
+
+            compacted.force(false);
+        }
+
+        Files.move(compactedJournal, journal, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        deleteAll(flushingJournals);
+
+        for (Map.Entry<String, Integer> delta : recovered.entrySet()) {
+            deltas.merge(delta.getKey(), delta.getValue(), Integer::sum);
+            ++grants;
+        }
+    }
+
+    void closeJournal() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private void journal(String itemDefinitionId, int count) throws IOException {
+        if (channel == null) {
+            channel = FileChannel.open(journal, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        }
+
+        channel.write(toJournalLine(itemDefinitionId, count));
+    }
+
+    private static void deleteAll(List<Path> files) throws IOException {
+        for (Path file : files) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static ByteBuffer toJournalLine(String itemDefinitionId, int count) {
+        return ByteBuffer.wrap((itemDefinitionId + "\t" + count + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String toFileName(String playerId) {
+        StringBuilder fileName = new StringBuilder();
+
+        for (byte b : playerId.getBytes(StandardCharsets.UTF_8)) {
+            fileName.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+
+        return fileName.toString();
+    }
+
+    static boolean isFlushingJournal(String fileName) {
+        int start = fileName.indexOf(JOURNAL_EXTENSION + ".");
+        return start > 0 && fileName.endsWith(FLUSHING_EXTENSION) &&
+                start + JOURNAL_EXTENSION.length() + 1 < fileName.length() - FLUSHING_EXTENSION.length();
+    }
+
+    static boolean isMalformedFlushingJournal(String fileName) {
+        return fileName.endsWith(FLUSHING_EXTENSION) && !isFlushingJournal(fileName);
+    }
+
+    /**
+     * Gets the id of the flush a journal has been moved aside for.
+     */
+    static String getFlushId(String fileName) {
+        if (!isFlushingJournal(fileName)) {
+            throw new IllegalArgumentException("Journal " + fileName + " has not been moved aside for a flush.");
+        }
+
+        int start = fileName.indexOf(JOURNAL_EXTENSION + ".") + JOURNAL_EXTENSION.length() + 1;
+        return fileName.substring(start, fileName.length() - FLUSHING_EXTENSION.length());
+    }
+
+    static String fromFileName(String fileName) {
+        String hex = fileName.substring(0, fileName.indexOf('.'));
+        byte[] bytes = new byte[hex.length() / 2];
+
+        for (int i = 0; i < bytes.length; ++i) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Grants taken by a single flush, until that flush has completed.
+     */
+    static class Drain {
+        private final String flushId;
+        private final Path journal;
+        private final Map<String, Integer> deltas;
+        private final int grants;
+        private final Thread owner;
+
+        private Drain(String flushId, Path journal, Map<String, Integer> deltas, int grants, Thread owner) {
+            this.flushId = flushId;
+            this.journal = journal;
+            this.deltas = deltas;
+            this.grants = grants;
+            this.owner = owner;
+        }
+
+        String getFlushId() {
+            return flushId;
+        }
+
+        Map<String, Integer> getDeltas() {
+            return deltas;
+        }
+
+        int getGrants() {
+            return grants;
+        }
+
+        /**
+         * Drops the drained grants of the specified item definition, so they are neither written nor restored.
+         */
+        Integer discard(String itemDefinitionId) {
+            return deltas.remove(itemDefinitionId);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package de.opengamebackend.collection.writebehind;
+
+import java.util.Map;
+
+/**
+ * Item counts granted to a player that have not been written to the database yet, taken while reading the collection
+ * of that player from the database. No grants of the player are written to the database until the read is closed,
+ * so the database and the pending item counts add up to every grant exactly once.
+ */
+public class PendingRead implements AutoCloseable {
+    private final Map<String, Integer> deltas;
+    private final PendingCollection pending;
+    private boolean closed;
+
+    public PendingRead(Map<String, Integer> deltas) {
+        this(deltas, null);
+    }
+
+    PendingRead(Map<String, Integer> deltas, PendingCollection pending) {
+        this.deltas = deltas;
+        this.pending = pending;
+    }
+
+    public Map<String, Integer> getDeltas() {
+        return deltas;
+    }
+
+    @Override
+    public void close() {
+        if (pending == null || closed) {
+            return;
+        }
+
+        closed = true;
+
+        synchronized (pending) {
+            pending.removeReader();
+            pending.notifyAll();
+        }
+    }
+}
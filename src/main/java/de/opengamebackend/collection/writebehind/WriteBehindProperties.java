@@ -0,0 +1,73 @@
+package de.opengamebackend.collection.writebehind;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "de.opengamebackend.collection.write-behind")
+public class WriteBehindProperties {
+    /**
+     * Whether to buffer granted collection items in memory instead of writing them to the database immediately.
+     */
+    private boolean enabled;
+
+    /**
+     * Time between two flushes of all pending grants.
+     */
+    private Duration flushInterval = Duration.ofSeconds(1);
+
+    /**
+     * Number of pending grants that triggers an early flush.
+     */
+    private int flushThreshold = 1000;
+
+    /**
+     * Maximum number of players to flush in a single transaction.
+     */
+    private int flushBatchSize = 100;
+
+    /**
+     * Directory to journal pending grants to, so they can be recovered after a crash.
+     */
+    private String journalDirectory = "collection-journal";
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getFlushInterval() {
+        return flushInterval;
+    }
+
+    public void setFlushInterval(Duration flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
+    public int getFlushThreshold() {
+        return flushThreshold;
+    }
+
+    public void setFlushThreshold(int flushThreshold) {
+        this.flushThreshold = flushThreshold;
+    }
+
+    public int getFlushBatchSize() {
+        return flushBatchSize;
+    }
+
+    public void setFlushBatchSize(int flushBatchSize) {
+        this.flushBatchSize = flushBatchSize;
+    }
+
+    public String getJournalDirectory() {
+        return journalDirectory;
+    }
+
+    public void setJournalDirectory(String journalDirectory) {
+        this.journalDirectory = journalDirectory;
+    }
+}
@@ -0,0 +1,14 @@
+CREATE TABLE collection_item_dedup AS
+    SELECT MIN(id) AS id, SUM(count) AS count
+    FROM collection_item
+    GROUP BY player_id, item_definition_id;
+
+UPDATE collection_item
+    SET count = (SELECT d.count FROM collection_item_dedup d WHERE d.id = collection_item.id)
+    WHERE id IN (SELECT id FROM collection_item_dedup);
+
+DELETE FROM collection_item WHERE id NOT IN (SELECT id FROM collection_item_dedup);
+
+DROP TABLE collection_item_dedup;
+
+CREATE UNIQUE INDEX ux_collection_item_player_id_item_definition_id ON collection_item (player_id, item_definition_id);
@@ -0,0 +1,12 @@
+CREATE TABLE collection_claimeditemset_dedup AS
+    SELECT MIN(id) AS id
+    FROM collection_claimeditemset
+    GROUP BY player_id, item_set_id;
+
+DELETE FROM collection_claimeditemset WHERE id NOT IN (SELECT id FROM collection_claimeditemset_dedup);
+
+DROP TABLE collection_claimeditemset_dedup;
+
+CREATE UNIQUE INDEX ux_collection_claimeditemset_player_id_item_set_id ON collection_claimeditemset (player_id, item_set_id);
+
+CREATE INDEX ix_collection_loadoutitem_loadout_id ON collection_loadoutitem (loadout_id);
@@ -0,0 +1 @@
+ALTER TABLE collection_itemdefinition ADD COLUMN content_hash VARCHAR(32) NULL;
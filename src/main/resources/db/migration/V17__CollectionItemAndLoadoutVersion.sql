@@ -0,0 +1,2 @@
+ALTER TABLE collection_item ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE collection_loadout ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
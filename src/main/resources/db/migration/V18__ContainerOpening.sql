@@ -0,0 +1,12 @@
+CREATE TABLE collection_containeropening (
+    id INT NOT NULL AUTO_INCREMENT,
+    player_id VARCHAR(100) NOT NULL,
+    item_definition_id VARCHAR(100) NOT NULL,
+    count BIGINT NOT NULL,
+
+    PRIMARY KEY (id),
+    FOREIGN KEY (item_definition_id) REFERENCES collection_itemdefinition(id)
+);
+
+CREATE UNIQUE INDEX ux_collection_containeropening_player_id_item_definition_id
+    ON collection_containeropening (player_id, item_definition_id);
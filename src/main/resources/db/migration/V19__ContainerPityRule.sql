@@ -0,0 +1,19 @@
+CREATE TABLE collection_containerpityrule (
+    id INT NOT NULL AUTO_INCREMENT,
+    item_definition_id VARCHAR(100) NOT NULL,
+    item_tag_tag VARCHAR(100) NOT NULL,
+    max_openings INT NOT NULL,
+
+    PRIMARY KEY (id),
+    FOREIGN KEY (item_definition_id) REFERENCES collection_itemdefinition(id) ON DELETE CASCADE,
+    FOREIGN KEY (item_tag_tag) REFERENCES collection_itemtag(tag) ON DELETE CASCADE
+);
+
+CREATE TABLE collection_containeropeningpitycounter (
+    container_opening_id INT NOT NULL,
+    item_tag VARCHAR(100) NOT NULL,
+    counter INT NOT NULL,
+
+    PRIMARY KEY (container_opening_id, item_tag),
+    FOREIGN KEY (container_opening_id) REFERENCES collection_containeropening(id) ON DELETE CASCADE
+);
@@ -0,0 +1,5 @@
+CREATE TABLE collection_writebehindflush (
+    id VARCHAR(36) NOT NULL,
+
+    PRIMARY KEY (id)
+);
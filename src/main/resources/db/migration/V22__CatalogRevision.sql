@@ -0,0 +1,8 @@
+CREATE TABLE collection_catalogrevision (
+    id INT NOT NULL,
+    version BIGINT NOT NULL,
+
+    PRIMARY KEY (id)
+);
+
+INSERT INTO collection_catalogrevision (id, version) VALUES (1, 1);
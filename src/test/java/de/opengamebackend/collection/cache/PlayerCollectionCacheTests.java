@@ -0,0 +1,209 @@
+package de.opengamebackend.collection.cache;
+
+import com.google.common.base.Ticker;
+import de.opengamebackend.collection.catalog.CatalogVersion;
+import de.opengamebackend.collection.catalog.CatalogVersionProperties;
+import de.opengamebackend.collection.model.repositories.CatalogRevisionRepository;
+import de.opengamebackend.net.ApiException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class PlayerCollectionCacheTests {
+    private PlayerCollectionCacheProperties properties;
+    private CatalogVersion catalogVersion;
+    private MeterRegistry meterRegistry;
+    private AtomicLong nanos;
+
+    private PlayerCollectionCache cache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    public void beforeEach() {
+        properties = new PlayerCollectionCacheProperties();
+        properties.setTimeToLive(Duration.ofMinutes(1));
+
+        catalogVersion = createCatalogVersion();
+        meterRegistry = new SimpleMeterRegistry();
+        nanos = new AtomicLong();
+
+        cache = createCache();
+        loads = new AtomicInteger();
+    }
+
+    private static CatalogVersion createCatalogVersion() {
+        AtomicLong persistedVersion = new AtomicLong(1L);
+
+        CatalogRevisionRepository catalogRevisionRepository = mock(CatalogRevisionRepository.class);
+        when(catalogRevisionRepository.findVersion()).thenAnswer(invocation -> persistedVersion.get());
+        when(catalogRevisionRepository.incrementVersion()).thenAnswer(invocation -> {
+            persistedVersion.incrementAndGet();
+            return 1;
+        });
+
+        CatalogVersion catalogVersion = new CatalogVersion(new CatalogVersionProperties(), catalogRevisionRepository,
+                mock(PlatformTransactionManager.class));
+        catalogVersion.refresh();
+        return catalogVersion;
+    }
+
+    private PlayerCollectionCache createCache() {
+        return new PlayerCollectionCache(properties, catalogVersion, meterRegistry, new Ticker() {
+            @Override
+            public long read() {
+                return nanos.get();
+            }
+        });
+    }
+
+    private byte[] load() {
+        return ("{\"load\":" + loads.incrementAndGet() + "}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private double count(String metric, String tag, String value) {
+        Counter counter = meterRegistry.find(metric).tag(tag, value).counter();
+        return counter != null ? counter.count() : 0;
+    }
+
+    @Test
+    public void givenCachedCollection_whenGet_thenReturnCachedCollection() throws ApiException, IOException {
+        // GIVEN
+        byte[] cached = cache.get("testPlayer", this::load);
+
+        // WHEN
+        byte[] collection = cache.get("testPlayer", this::load);
+
+        // THEN
+        assertThat(collection).isSameAs(cached);
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(count(PlayerCollectionCache.GETS_METRIC, "result", "miss")).isEqualTo(1);
+        assertThat(count(PlayerCollectionCache.GETS_METRIC, "result", "hit")).isEqualTo(1);
+    }
+
+    @Test
+    public void givenInvalidatedCollection_whenGet_thenLoadCollection() throws ApiException, IOException {
+        // GIVEN
+        cache.get("testPlayer", this::load);
+        cache.invalidateAfterCompletion("testPlayer");
+
+        // WHEN
+        cache.get("testPlayer", this::load);
+
+        // THEN
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void givenActiveTransaction_whenInvalidateAfterCompletion_thenInvalidateOnRollback()
+            throws ApiException, IOException {
+        // GIVEN
+        cache.get("testPlayer", this::load);
+
+        TransactionSynchronizationManager.initSynchronization();
+
+        try {
+            // WHEN
+            cache.invalidateAfterCompletion("testPlayer");
+            cache.get("testPlayer", this::load);
+
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        cache.get("testPlayer", this::load);
+
+        // THEN
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void givenInvalidationWhileLoading_whenGet_thenDoNotCacheCollection() throws ApiException, IOException {
+        // GIVEN
+        cache.get("testPlayer", () -> {
+            cache.invalidate("testPlayer");
+            return load();
+        });
+
+        // WHEN
+        cache.get("testPlayer", this::load);
+
+        // THEN
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void givenChangedCatalogVersion_whenGet_thenLoadCollection() throws ApiException, IOException {
+        // GIVEN
+        cache.get("testPlayer", this::load);
+        catalogVersion.increment();
+
+        // WHEN
+        cache.get("testPlayer", this::load);
+        cache.get("testPlayer", this::load);
+
+        // THEN
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void givenExpiredCollection_whenGet_thenLoadCollectionAndCountEviction() throws ApiException, IOException {
+        // GIVEN
+        cache.get("testPlayer", this::load);
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(2));
+
+        // WHEN
+        cache.get("testPlayer", this::load);
+
+        // THEN
+        assertThat(loads.get()).isEqualTo(2);
+        assertThat(count(PlayerCollectionCache.EVICTIONS_METRIC, "cause", "expired")).isEqualTo(1);
+    }
+
+    @Test
+    public void givenCollectionExceedingMaximumSize_whenGet_thenEvictCollection() throws ApiException, IOException {
+        // GIVEN
+        properties.setMaximumSize(DataSize.ofBytes(4));
+        cache = createCache();
+
+        // WHEN
+        cache.get("testPlayer", this::load);
+
+        // THEN
+        assertThat(cache.size()).isZero();
+        assertThat(count(PlayerCollectionCache.EVICTIONS_METRIC, "cause", "size")).isEqualTo(1);
+    }
+
+    @Test
+    public void givenDisabled_whenGet_thenAlwaysLoadCollection() throws ApiException, IOException {
+        // GIVEN
+        properties.setEnabled(false);
+        cache = createCache();
+
+        // WHEN
+        cache.get("testPlayer", this::load);
+        cache.get("testPlayer", this::load);
+
+        // THEN
+        assertThat(loads.get()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,103 @@
+package de.opengamebackend.collection.catalog;
+
+import de.opengamebackend.collection.model.repositories.CatalogRevisionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class CatalogVersionTests {
+    private CatalogRevisionRepository catalogRevisionRepository;
+    private CatalogVersion catalogVersion;
+
+    @BeforeEach
+    public void beforeEach() {
+        catalogRevisionRepository = mock(CatalogRevisionRepository.class);
+        when(catalogRevisionRepository.findVersion()).thenReturn(3L);
+
+        CatalogVersionProperties properties = new CatalogVersionProperties();
+        properties.setPollInterval(Duration.ZERO);
+
+        catalogVersion = new CatalogVersion(properties, catalogRevisionRepository,
+                mock(PlatformTransactionManager.class));
+        catalogVersion.start();
+    }
+
+    @Test
+    public void givenPersistedVersion_whenStart_thenReadVersion() {
+        // THEN
+        assertThat(catalogVersion.get()).isEqualTo(3L);
+    }
+
+    @Test
+    public void givenOtherInstanceWithSameVersion_whenGetETag_thenReturnSameETag() {
+        // GIVEN
+        CatalogVersionProperties properties = new CatalogVersionProperties();
+        properties.setPollInterval(Duration.ZERO);
+
+        CatalogVersion otherCatalogVersion = new CatalogVersion(properties, catalogRevisionRepository,
+                mock(PlatformTransactionManager.class));
+        otherCatalogVersion.start();
+
+        // WHEN
+        String eTag = catalogVersion.getETag();
+
+        // THEN
+        assertThat(eTag).isEqualTo("\"3\"");
+        assertThat(otherCatalogVersion.getETag()).isEqualTo(eTag);
+    }
+
+    @Test
+    public void givenVersionChangedByOtherInstance_whenRefresh_thenReadVersion() {
+        // GIVEN
+        when(catalogRevisionRepository.findVersion()).thenReturn(4L);
+
+        // WHEN
+        catalogVersion.refresh();
+
+        // THEN
+        assertThat(catalogVersion.get()).isEqualTo(4L);
+    }
+
+    @Test
+    public void givenOutdatedRead_whenRefresh_thenKeepVersion() {
+        // GIVEN
+        when(catalogRevisionRepository.findVersion()).thenReturn(2L);
+
+        // WHEN
+        catalogVersion.refresh();
+
+        // THEN
+        assertThat(catalogVersion.get()).isEqualTo(3L);
+    }
+
+    @Test
+    public void givenActiveTransaction_whenIncrement_thenPickUpVersionAfterCommit() {
+        // GIVEN
+        TransactionSynchronizationManager.initSynchronization();
+
+        try {
+            // WHEN
+            catalogVersion.increment();
+            when(catalogRevisionRepository.findVersion()).thenReturn(4L);
+
+            // THEN
+            verify(catalogRevisionRepository).incrementVersion();
+            assertThat(catalogVersion.get()).isEqualTo(3L);
+
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCommit();
+            }
+
+            assertThat(catalogVersion.get()).isEqualTo(4L);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package de.opengamebackend.collection.catalog;
+
+import de.opengamebackend.collection.model.entities.ItemDefinition;
+import de.opengamebackend.collection.model.repositories.ContainerPityRuleRepository;
+import de.opengamebackend.collection.model.repositories.ItemDefinitionRepository;
+import de.opengamebackend.collection.model.repositories.ItemTagRepository;
+import de.opengamebackend.collection.model.repositories.LoadoutTypeRepository;
+import org.assertj.core.util.Lists;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class ItemCatalogProviderTests {
+    private ItemDefinitionRepository itemDefinitionRepository;
+    private CatalogVersion catalogVersion;
+
+    private ItemCatalogProvider itemCatalogProvider;
+
+    @BeforeEach
+    public void beforeEach() {
+        ItemTagRepository itemTagRepository = mock(ItemTagRepository.class);
+        itemDefinitionRepository = mock(ItemDefinitionRepository.class);
+        ContainerPityRuleRepository containerPityRuleRepository = mock(ContainerPityRuleRepository.class);
+        catalogVersion = mock(CatalogVersion.class);
+
+        when(catalogVersion.get()).thenReturn(1L);
+
+        itemCatalogProvider = new ItemCatalogProvider(itemTagRepository, itemDefinitionRepository,
+                containerPityRuleRepository, mock(LoadoutTypeRepository.class), catalogVersion,
+                mock(PlatformTransactionManager.class));
+    }
+
+    private void givenItemDefinition(String itemDefinitionId) {
+        ItemDefinition itemDefinition = new ItemDefinition();
+        itemDefinition.setId(itemDefinitionId);
+
+        when(itemDefinitionRepository.findAll()).thenReturn(Lists.list(itemDefinition));
+    }
+
+    @Test
+    public void givenCurrentCatalog_whenGetCatalog_thenReturnSnapshot() {
+        // GIVEN
+        givenItemDefinition("testItemDefinition");
+        ItemCatalog catalog = itemCatalogProvider.getCatalog();
+
+        // WHEN
+        ItemCatalog currentCatalog = itemCatalogProvider.getCatalog();
+
+        // THEN
+        assertThat(currentCatalog).isSameAs(catalog);
+        verify(itemDefinitionRepository, times(1)).findAll();
+    }
+
+    @Test
+    public void givenCatalogChangedByOtherInstance_whenGetCatalog_thenRebuildCatalog() {
+        // GIVEN
+        givenItemDefinition("testItemDefinition");
+        itemCatalogProvider.getCatalog();
+
+        givenItemDefinition("changedItemDefinition");
+        when(catalogVersion.get()).thenReturn(2L);
+
+        // WHEN
+        ItemCatalog catalog = itemCatalogProvider.getCatalog();
+        itemCatalogProvider.getCatalog();
+
+        // THEN
+        assertThat(catalog.getItemDefinition("changedItemDefinition")).isNotNull();
+        assertThat(catalog.getItemDefinition("testItemDefinition")).isNull();
+        verify(itemDefinitionRepository, times(2)).findAll();
+    }
+}
@@ -0,0 +1,128 @@
+package de.opengamebackend.collection.catalog;
+
+import de.opengamebackend.collection.model.entities.*;
+import org.assertj.core.util.Lists;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LoadoutValidatorTests {
+    private static ItemDefinition itemDefinition(String id, ItemTag... itemTags) {
+        ItemDefinition itemDefinition = new ItemDefinition();
+        itemDefinition.setId(id);
+        itemDefinition.setItemTags(Lists.list(itemTags));
+        return itemDefinition;
+    }
+
+    private static LoadoutRule rule(LoadoutType loadoutType, ItemTag itemTag, Integer minTotal, Integer maxTotal,
+                                    Integer maxCopies) {
+        LoadoutRule rule = new LoadoutRule();
+        rule.setType(loadoutType);
+        rule.setItemTag(itemTag);
+        rule.setMinTotal(minTotal);
+        rule.setMaxTotal(maxTotal);
+        rule.setMaxCopies(maxCopies);
+
+        loadoutType.getRules().add(rule);
+        return rule;
+    }
+
+    private static LoadoutItem loadoutItem(ItemDefinition itemDefinition, int count) {
+        LoadoutItem item = new LoadoutItem();
+        item.setItemDefinition(itemDefinition);
+        item.setCount(count);
+        return item;
+    }
+
+    private static List<LoadoutViolation> validate(LoadoutValidator validator, LoadoutItem... items) {
+        return validator.validate(Lists.list(items), item -> item.getItemDefinition().getId(), LoadoutItem::getCount);
+    }
+
+    @Test
+    public void givenItemMatchingSeveralRules_whenValidate_thenCountsItemForAllRules() {
+        // GIVEN
+        ItemTag hero = new ItemTag("hero");
+        ItemTag legendary = new ItemTag("legendary");
+
+        ItemDefinition legendaryHero = itemDefinition("legendaryHero", hero, legendary);
+        ItemCatalog catalog = new ItemCatalog(Lists.emptyList(), Lists.list(legendaryHero));
+
+        LoadoutType loadoutType = new LoadoutType();
+        rule(loadoutType, hero, 3, null, null);
+        rule(loadoutType, legendary, null, 1, null);
+
+        LoadoutValidator validator = new LoadoutValidator(catalog, loadoutType);
+
+        // WHEN
+        List<LoadoutViolation> violations = validate(validator, loadoutItem(legendaryHero, 2));
+
+        // THEN
+        assertThat(violations).extracting(LoadoutViolation::getItemTag).containsExactly("hero", "legendary");
+        assertThat(violations).extracting(LoadoutViolation::getItemDefinitionId).containsOnlyNulls();
+    }
+
+    @Test
+    public void givenDuplicateLoadoutItems_whenValidate_thenSumsUpCopies() {
+        // GIVEN
+        ItemTag hero = new ItemTag("hero");
+
+        ItemDefinition firstHero = itemDefinition("firstHero", hero);
+        ItemDefinition secondHero = itemDefinition("secondHero", hero);
+        ItemCatalog catalog = new ItemCatalog(Lists.emptyList(), Lists.list(firstHero, secondHero));
+
+        LoadoutType loadoutType = new LoadoutType();
+        rule(loadoutType, hero, null, null, 2);
+
+        LoadoutValidator validator = new LoadoutValidator(catalog, loadoutType);
+
+        // WHEN
+        List<LoadoutViolation> violations = validate(validator,
+                loadoutItem(secondHero, 2), loadoutItem(firstHero, 2), loadoutItem(secondHero, 1));
+
+        // THEN
+        assertThat(violations).hasSize(1);
+        assertThat(violations.get(0).getItemDefinitionId()).isEqualTo("secondHero");
+        assertThat(violations.get(0).getMessage()).isEqualTo("Item secondHero with tag hero occurs more than 2 times.");
+    }
+
+    @Test
+    public void givenRuleWithUnknownTag_whenValidate_thenOnlyChecksMinTotal() {
+        // GIVEN
+        ItemTag hero = new ItemTag("hero");
+
+        ItemDefinition heroItem = itemDefinition("hero", hero);
+        ItemCatalog catalog = new ItemCatalog(Lists.emptyList(), Lists.list(heroItem));
+
+        LoadoutType loadoutType = new LoadoutType();
+        rule(loadoutType, new ItemTag("unknown"), 1, 0, 0);
+
+        LoadoutValidator validator = new LoadoutValidator(catalog, loadoutType);
+
+        // WHEN
+        List<LoadoutViolation> violations = validate(validator, loadoutItem(heroItem, 5));
+
+        // THEN
+        assertThat(violations).extracting(LoadoutViolation::getMessage)
+                .containsExactly("Items with tag unknown occur less than 1 times.");
+    }
+
+    @Test
+    public void givenUnknownItemDefinition_whenValidate_thenIgnoresItem() {
+        // GIVEN
+        ItemTag hero = new ItemTag("hero");
+        ItemCatalog catalog = new ItemCatalog(Lists.emptyList(), Lists.list(itemDefinition("hero", hero)));
+
+        LoadoutType loadoutType = new LoadoutType();
+        rule(loadoutType, hero, null, 0, 0);
+
+        LoadoutValidator validator = new LoadoutValidator(catalog, loadoutType);
+
+        // WHEN
+        List<LoadoutViolation> violations = validate(validator, loadoutItem(itemDefinition("unknown", hero), 1));
+
+        // THEN
+        assertThat(violations).isEmpty();
+    }
+}
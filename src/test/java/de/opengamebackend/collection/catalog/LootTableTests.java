@@ -0,0 +1,106 @@
+package de.opengamebackend.collection.catalog;
+
+import de.opengamebackend.collection.model.entities.ContainedItem;
+import de.opengamebackend.collection.model.entities.ItemContainer;
+import de.opengamebackend.collection.model.entities.ItemDefinition;
+import de.opengamebackend.collection.model.entities.ItemTag;
+import de.opengamebackend.collection.loot.LootRandom;
+import de.opengamebackend.collection.loot.SplittableLootRandom;
+import org.assertj.core.util.Lists;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.assertj.core.api.Assertions.within;
+
+public class LootTableTests {
+    private static ItemDefinition itemDefinition(String id, Integer maxCount, ItemTag... itemTags) {
+        ItemDefinition itemDefinition = new ItemDefinition();
+        itemDefinition.setId(id);
+        itemDefinition.setMaxCount(maxCount);
+        itemDefinition.setItemTags(Lists.list(itemTags));
+        itemDefinition.setContainers(new ArrayList<>());
+        return itemDefinition;
+    }
+
+    private static ContainedItem containedItem(int relativeProbability, ItemTag... requiredTags) {
+        ContainedItem containedItem = new ContainedItem();
+        containedItem.setRelativeProbability(relativeProbability);
+        containedItem.setRequiredTags(Lists.list(requiredTags));
+        return containedItem;
+    }
+
+    private static LootTable lootTable(ItemDefinition container, ItemDefinition... itemDefinitions) {
+        ArrayList<ItemDefinition> all = Lists.newArrayList(itemDefinitions);
+        all.add(container);
+
+        ItemCatalog catalog = new ItemCatalog(Lists.emptyList(), all);
+        return catalog.getLootTables(container.getId()).get(0);
+    }
+
+    private static ItemDefinition container(int itemCount, ContainedItem... containedItems) {
+        ItemContainer itemContainer = new ItemContainer();
+        itemContainer.setItemCount(itemCount);
+        itemContainer.setContainedItems(Lists.list(containedItems));
+
+        ItemDefinition container = itemDefinition("testContainer", null);
+        container.setContainers(Lists.list(itemContainer));
+        return container;
+    }
+
+    @Test
+    public void givenContainedItems_whenCompile_thenFindsCandidatesByRequiredTags() {
+        // GIVEN
+        ItemTag common = new ItemTag("common");
+        ItemTag rare = new ItemTag("rare");
+
+        ItemDefinition commonItem = itemDefinition("commonItem", null, common);
+        ItemDefinition rareItem = itemDefinition("rareItem", 1, common, rare);
+
+        ItemDefinition container = container(3, containedItem(1, common), containedItem(1, common, rare));
+
+        // WHEN
+        LootTable lootTable = lootTable(container, commonItem, rareItem);
+
+        // THEN
+        assertThat(lootTable.getItemCount()).isEqualTo(3);
+        assertThat(lootTable.getContainedItemCount()).isEqualTo(2);
+        assertThat(lootTable.getCandidates(0)).extracting(CatalogItemDefinition::getId)
+                .containsExactly("commonItem", "rareItem");
+        assertThat(lootTable.getCandidates(1)).extracting(CatalogItemDefinition::getId)
+                .containsExactly("rareItem");
+        assertThat(lootTable.candidatesHaveMaxCount(0)).isTrue();
+    }
+
+    @Test
+    public void givenRelativeProbabilities_whenRoll_thenRespectsProbabilities() {
+        // GIVEN
+        LootTable lootTable = lootTable(container(1, containedItem(1), containedItem(3), containedItem(0), containedItem(6)));
+        LootRandom random = new SplittableLootRandom(42L);
+
+        int rolls = 100000;
+        int[] counts = new int[lootTable.getContainedItemCount()];
+
+        // WHEN
+        for (int i = 0; i < rolls; ++i) {
+            ++counts[lootTable.roll(random)];
+        }
+
+        // THEN
+        assertThat((double) counts[0] / rolls).isCloseTo(0.1, within(0.01));
+        assertThat((double) counts[1] / rolls).isCloseTo(0.3, within(0.01));
+        assertThat(counts[2]).isZero();
+        assertThat((double) counts[3] / rolls).isCloseTo(0.6, within(0.01));
+    }
+
+    @Test
+    public void givenNoRelativeProbabilities_whenRoll_thenThrowException() {
+        // GIVEN
+        LootTable lootTable = lootTable(container(1, containedItem(0)));
+
+        // WHEN & THEN
+        assertThatIllegalStateException().isThrownBy(() -> lootTable.roll(new SplittableLootRandom(0L)));
+    }
+}
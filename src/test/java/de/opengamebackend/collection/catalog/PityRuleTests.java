@@ -0,0 +1,85 @@
+package de.opengamebackend.collection.catalog;
+
+import de.opengamebackend.collection.model.entities.*;
+import org.assertj.core.util.Lists;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PityRuleTests {
+    private static ItemDefinition itemDefinition(String id, Integer maxCount, ItemTag... itemTags) {
+        ItemDefinition itemDefinition = new ItemDefinition();
+        itemDefinition.setId(id);
+        itemDefinition.setMaxCount(maxCount);
+        itemDefinition.setItemTags(Lists.list(itemTags));
+        return itemDefinition;
+    }
+
+    private static ItemDefinition container(String id, ItemTag... requiredTags) {
+        ContainedItem containedItem = new ContainedItem();
+        containedItem.setRelativeProbability(1);
+        containedItem.setRequiredTags(Lists.list(requiredTags));
+
+        ItemContainer itemContainer = new ItemContainer();
+        itemContainer.setItemCount(1);
+        itemContainer.setContainedItems(Lists.list(containedItem));
+
+        ItemDefinition container = itemDefinition(id, null);
+        container.setContainers(Lists.list(itemContainer));
+        return container;
+    }
+
+    private static ContainerPityRule containerPityRule(ItemDefinition container, ItemTag itemTag, int maxOpenings) {
+        ContainerPityRule containerPityRule = new ContainerPityRule();
+        containerPityRule.setItemDefinition(container);
+        containerPityRule.setItemTag(itemTag);
+        containerPityRule.setMaxOpenings(maxOpenings);
+        return containerPityRule;
+    }
+
+    @Test
+    public void givenPityRule_whenCompile_thenFindsCandidatesOfContainerWithTag() {
+        // GIVEN
+        ItemTag hero = new ItemTag("hero");
+        ItemTag spell = new ItemTag("spell");
+        ItemTag epic = new ItemTag("epic");
+
+        ItemDefinition epicHero = itemDefinition("epicHero", 1, hero, epic);
+        ItemDefinition commonHero = itemDefinition("commonHero", null, hero);
+        ItemDefinition epicSpell = itemDefinition("epicSpell", null, spell, epic);
+        ItemDefinition container = container("heroContainer", hero);
+
+        // WHEN
+        ItemCatalog catalog = new ItemCatalog(Lists.emptyList(),
+                Lists.list(epicHero, commonHero, epicSpell, container),
+                Lists.list(containerPityRule(container, epic, 10)));
+
+        // THEN
+        List<PityRule> pityRules = catalog.getPityRules(container.getId());
+        assertThat(pityRules).hasSize(1);
+
+        PityRule pityRule = pityRules.get(0);
+        assertThat(pityRule.getItemTag()).isEqualTo("epic");
+        assertThat(pityRule.getMaxOpenings()).isEqualTo(10);
+        assertThat(pityRule.getCandidates()).extracting(CatalogItemDefinition::getId).containsExactly("epicHero");
+        assertThat(pityRule.candidatesHaveMaxCount()).isTrue();
+        assertThat(pityRule.matches(catalog.getItemDefinition("epicSpell"))).isTrue();
+        assertThat(pityRule.matches(catalog.getItemDefinition("commonHero"))).isFalse();
+    }
+
+    @Test
+    public void givenPityRuleOfItemNotAContainer_whenCompile_thenIgnoresRule() {
+        // GIVEN
+        ItemTag epic = new ItemTag("epic");
+        ItemDefinition epicItem = itemDefinition("epicItem", null, epic);
+
+        // WHEN
+        ItemCatalog catalog = new ItemCatalog(Lists.emptyList(), Lists.list(epicItem),
+                Lists.list(containerPityRule(epicItem, epic, 10)));
+
+        // THEN
+        assertThat(catalog.getPityRules(epicItem.getId())).isEmpty();
+    }
+}
@@ -0,0 +1,84 @@
+package de.opengamebackend.collection.catalog;
+
+import de.opengamebackend.collection.model.entities.ItemDefinition;
+import de.opengamebackend.collection.model.entities.ItemTag;
+import org.assertj.core.util.Lists;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TagIndexTests {
+    private ItemCatalog catalog;
+    private TagIndex tagIndex;
+
+    private static ItemDefinition itemDefinition(String id, String... tags) {
+        ItemDefinition itemDefinition = new ItemDefinition();
+        itemDefinition.setId(id);
+
+        ArrayList<ItemTag> itemTags = new ArrayList<>();
+
+        for (String tag : tags) {
+            itemTags.add(new ItemTag(tag));
+        }
+
+        itemDefinition.setItemTags(itemTags);
+        itemDefinition.setContainers(new ArrayList<>());
+        return itemDefinition;
+    }
+
+    @BeforeEach
+    public void beforeEach() {
+        // Use more than 64 tags to span multiple words.
+        ArrayList<ItemTag> itemTags = new ArrayList<>();
+
+        for (int i = 0; i < 100; ++i) {
+            itemTags.add(new ItemTag("tag" + i));
+        }
+
+        catalog = new ItemCatalog(itemTags, Lists.list(
+                itemDefinition("a", "tag1", "tag70"),
+                itemDefinition("b", "tag1"),
+                itemDefinition("c", "tag70", "tag99"),
+                itemDefinition("d", "tag1", "tag70", "tag99")));
+        tagIndex = catalog.getTagIndex();
+    }
+
+    @Test
+    public void givenTag_whenHasTag_thenChecksTags() {
+        // GIVEN
+        int tagOrdinal = tagIndex.getTagOrdinal("tag70");
+
+        // WHEN & THEN
+        assertThat(tagIndex.hasTag(catalog.getItemDefinition("a"), tagOrdinal)).isTrue();
+        assertThat(tagIndex.hasTag(catalog.getItemDefinition("b"), tagOrdinal)).isFalse();
+        assertThat(tagIndex.hasTag(catalog.getItemDefinition("a"), tagIndex.getTagOrdinal("unknown"))).isFalse();
+    }
+
+    @Test
+    public void givenTags_whenFindWithAllTags_thenReturnsMatchingDefinitionsInOrder() {
+        // WHEN & THEN
+        assertThat(tagIndex.findWithAllTags(Lists.list("tag1", "tag70")))
+                .extracting(CatalogItemDefinition::getId)
+                .containsExactly("a", "d");
+        assertThat(tagIndex.findWithAllTags(Lists.list("tag70", "tag99")))
+                .extracting(CatalogItemDefinition::getId)
+                .containsExactly("c", "d");
+    }
+
+    @Test
+    public void givenNoTags_whenFindWithAllTags_thenReturnsAllDefinitions() {
+        // WHEN & THEN
+        assertThat(tagIndex.findWithAllTags(Collections.emptyList())).hasSize(4);
+    }
+
+    @Test
+    public void givenUnknownTag_whenFindWithAllTags_thenReturnsNoDefinitions() {
+        // WHEN & THEN
+        assertThat(tagIndex.findWithAllTags(Lists.list("tag1", "unknown"))).isEmpty();
+        assertThat(tagIndex.findWithAllTags(Lists.list("tag2"))).isEmpty();
+    }
+}
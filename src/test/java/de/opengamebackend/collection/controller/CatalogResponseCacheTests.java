@@ -0,0 +1,248 @@
+package de.opengamebackend.collection.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.opengamebackend.collection.catalog.CatalogVersion;
+import de.opengamebackend.collection.catalog.CatalogVersionProperties;
+import de.opengamebackend.collection.model.repositories.CatalogRevisionRepository;
+import de.opengamebackend.net.ApiException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CatalogResponseCacheTests {
+    private CatalogVersion catalogVersion;
+    private CatalogResponseCache catalogResponseCache;
+
+    private AtomicInteger serializations;
+    private JsonWriter writer;
+
+    @BeforeEach
+    public void beforeEach() {
+        catalogVersion = createCatalogVersion();
+        catalogResponseCache = new CatalogResponseCache(catalogVersion, new ObjectMapper());
+
+        serializations = new AtomicInteger();
+        writer = generator -> {
+            serializations.incrementAndGet();
+
+            generator.writeStartObject();
+            generator.writeNumberField("serialization", serializations.get());
+            generator.writeEndObject();
+        };
+    }
+
+    private static CatalogVersion createCatalogVersion() {
+        AtomicLong persistedVersion = new AtomicLong(1L);
+
+        CatalogRevisionRepository catalogRevisionRepository = mock(CatalogRevisionRepository.class);
+        when(catalogRevisionRepository.findVersion()).thenAnswer(invocation -> persistedVersion.get());
+        when(catalogRevisionRepository.incrementVersion()).thenAnswer(invocation -> {
+            persistedVersion.incrementAndGet();
+            return 1;
+        });
+
+        CatalogVersion catalogVersion = new CatalogVersion(new CatalogVersionProperties(), catalogRevisionRepository,
+                mock(PlatformTransactionManager.class));
+        catalogVersion.refresh();
+        return catalogVersion;
+    }
+
+    private static MockHttpServletRequest requestAcceptingEncoding(String acceptEncoding) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        return request;
+    }
+
+    private static String readGzippedBody(MockHttpServletResponse response) throws IOException {
+        try (GZIPInputStream body = new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+            return StreamUtils.copyToString(body, StandardCharsets.UTF_8);
+        }
+    }
+
+    private MockHttpServletResponse write(MockHttpServletRequest request) throws ApiException, IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        catalogResponseCache.write("test", request, response, writer);
+        return response;
+    }
+
+    @Test
+    public void whenWrite_thenWriteBodyWithETag() throws ApiException, IOException {
+        // WHEN
+        MockHttpServletResponse response = write(new MockHttpServletRequest());
+
+        // THEN
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo("\"" + catalogVersion.get() + "-test\"");
+        assertThat(response.getContentAsString()).isEqualTo("{\"serialization\":1}");
+        assertThat(response.getContentLength()).isEqualTo(response.getContentAsByteArray().length);
+    }
+
+    @Test
+    public void givenMatchingETag_whenWrite_thenNotModified() throws ApiException, IOException {
+        // GIVEN
+        String eTag = write(new MockHttpServletRequest()).getHeader(HttpHeaders.ETAG);
+        serializations.set(0);
+
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"other\", W/" + eTag);
+
+        // WHEN
+        MockHttpServletResponse response = write(request);
+
+        // THEN
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.NOT_MODIFIED.value());
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo(eTag);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+        assertThat(serializations.get()).isZero();
+    }
+
+    @Test
+    public void givenOutdatedETag_whenWrite_thenWriteBody() throws ApiException, IOException {
+        // GIVEN
+        String eTag = write(new MockHttpServletRequest()).getHeader(HttpHeaders.ETAG);
+
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, eTag);
+
+        catalogVersion.increment();
+
+        // WHEN
+        MockHttpServletResponse response = write(request);
+
+        // THEN
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isNotEqualTo(eTag);
+    }
+
+    @Test
+    public void givenCachedResponse_whenWrite_thenDontSerializeAgain() throws ApiException, IOException {
+        // GIVEN
+        write(new MockHttpServletRequest());
+
+        // WHEN
+        MockHttpServletResponse response = write(new MockHttpServletRequest());
+
+        // THEN
+        assertThat(response.getContentAsString()).isEqualTo("{\"serialization\":1}");
+        assertThat(serializations.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void givenNewVersion_whenWrite_thenSerializeAgain() throws ApiException, IOException {
+        // GIVEN
+        write(new MockHttpServletRequest());
+        catalogVersion.increment();
+
+        // WHEN
+        MockHttpServletResponse response = write(new MockHttpServletRequest());
+
+        // THEN
+        assertThat(response.getContentAsString()).isEqualTo("{\"serialization\":2}");
+        assertThat(serializations.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void givenAcceptGzip_whenWrite_thenWriteCompressedBody() throws ApiException, IOException {
+        // GIVEN
+        MockHttpServletRequest request = requestAcceptingEncoding("gzip, deflate");
+
+        // WHEN
+        MockHttpServletResponse response = write(request);
+
+        // THEN
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(readGzippedBody(response)).isEqualTo("{\"serialization\":1}");
+    }
+
+    @Test
+    public void givenAcceptAnyEncoding_whenWrite_thenWriteCompressedBody() throws ApiException, IOException {
+        // WHEN
+        MockHttpServletResponse response = write(requestAcceptingEncoding("*"));
+
+        // THEN
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(readGzippedBody(response)).isEqualTo("{\"serialization\":1}");
+    }
+
+    @Test
+    public void givenRefuseGzip_whenWrite_thenWriteUncompressedBody() throws ApiException, IOException {
+        // WHEN
+        MockHttpServletResponse response = write(requestAcceptingEncoding("gzip;q=0, deflate"));
+
+        // THEN
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(response.getContentAsString()).isEqualTo("{\"serialization\":1}");
+    }
+
+    @Test
+    public void givenPreferIdentity_whenWrite_thenWriteUncompressedBody() throws ApiException, IOException {
+        // WHEN
+        MockHttpServletResponse response = write(requestAcceptingEncoding("identity;q=1, gzip;q=0.5"));
+
+        // THEN
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(response.getContentAsString()).isEqualTo("{\"serialization\":1}");
+    }
+
+    @Test
+    public void givenAcceptGzip_whenWrite_thenWriteETagOfCompressedBody() throws ApiException, IOException {
+        // GIVEN
+        String identityETag = write(new MockHttpServletRequest()).getHeader(HttpHeaders.ETAG);
+
+        // WHEN
+        MockHttpServletResponse response = write(requestAcceptingEncoding("gzip"));
+
+        // THEN
+        assertThat(response.getHeader(HttpHeaders.ETAG))
+                .isEqualTo("\"" + catalogVersion.get() + "-test-gzip\"")
+                .isNotEqualTo(identityETag);
+    }
+
+    @Test
+    public void givenETagOfOtherKey_whenWrite_thenWriteBody() throws ApiException, IOException {
+        // GIVEN
+        MockHttpServletResponse otherResponse = new MockHttpServletResponse();
+        catalogResponseCache.write("other", new MockHttpServletRequest(), otherResponse, writer);
+
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, otherResponse.getHeader(HttpHeaders.ETAG));
+
+        // WHEN
+        MockHttpServletResponse response = write(request);
+
+        // THEN
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+    }
+
+    @Test
+    public void givenETagOfOtherCoding_whenWrite_thenNotModified() throws ApiException, IOException {
+        // GIVEN
+        String gzipETag = write(requestAcceptingEncoding("gzip")).getHeader(HttpHeaders.ETAG);
+
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, gzipETag);
+
+        // WHEN
+        MockHttpServletResponse response = write(request);
+
+        // THEN
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.NOT_MODIFIED.value());
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isNotEqualTo(gzipETag);
+    }
+}
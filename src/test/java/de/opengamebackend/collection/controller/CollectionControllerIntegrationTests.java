@@ -1,12 +1,18 @@
 package de.opengamebackend.collection.controller;
 
-import de.opengamebackend.collection.model.entities.CollectionItem;
-import de.opengamebackend.collection.model.entities.ContainedItem;
-import de.opengamebackend.collection.model.entities.ItemContainer;
-import de.opengamebackend.collection.model.entities.ItemDefinition;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.opengamebackend.collection.catalog.ItemCatalogProvider;
+import de.opengamebackend.collection.model.entities.*;
 import de.opengamebackend.collection.model.requests.AddCollectionItemsRequest;
+import de.opengamebackend.collection.model.requests.BulkAddCollectionItemsRequest;
+import de.opengamebackend.collection.model.requests.BulkAddCollectionItemsRequestEntry;
+import de.opengamebackend.collection.model.requests.OpenContainersRequest;
+import de.opengamebackend.collection.model.requests.OpenContainersRequestContainer;
+import de.opengamebackend.collection.model.requests.PatchItemDefinitionsRequest;
 import de.opengamebackend.collection.model.requests.PutCollectionItemsRequest;
+import de.opengamebackend.collection.model.requests.PutContainerPityRulesRequest;
 import de.opengamebackend.collection.model.requests.PutItemDefinitionsRequest;
+import de.opengamebackend.collection.model.requests.PutItemDefinitionsRequestItem;
 import de.opengamebackend.collection.model.requests.PutItemSetsRequest;
 import de.opengamebackend.collection.model.responses.*;
 import de.opengamebackend.test.HttpRequestUtils;
@@ -18,10 +24,17 @@ import org.springframework.boot.test.autoconfigure.orm.jpa.AutoConfigureTestEnti
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
 import javax.transaction.Transactional;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
 @SpringBootTest
 @AutoConfigureMockMvc
 @AutoConfigureTestEntityManager
@@ -29,14 +42,17 @@ import javax.transaction.Transactional;
 public class CollectionControllerIntegrationTests {
     private MockMvc mvc;
     private TestEntityManager entityManager;
+    private ItemCatalogProvider itemCatalogProvider;
     private HttpRequestUtils httpRequestUtils;
 
     private ItemDefinition itemDefinition;
 
     @Autowired
-    public CollectionControllerIntegrationTests(MockMvc mvc, TestEntityManager entityManager) {
+    public CollectionControllerIntegrationTests(MockMvc mvc, TestEntityManager entityManager,
+                                                ItemCatalogProvider itemCatalogProvider) {
         this.mvc = mvc;
         this.entityManager = entityManager;
+        this.itemCatalogProvider = itemCatalogProvider;
 
         this.httpRequestUtils = new HttpRequestUtils();
     }
@@ -48,6 +64,7 @@ public class CollectionControllerIntegrationTests {
         entityManager.persist(this.itemDefinition);
 
         entityManager.flush();
+        itemCatalogProvider.rebuild();
     }
 
     @Test
@@ -69,6 +86,15 @@ public class CollectionControllerIntegrationTests {
         httpRequestUtils.assertPostOk(mvc, "/admin/collection/testPlayerId/items", request);
     }
 
+    @Test
+    public void whenPostCollectionItemsBulk_thenOk() throws Exception {
+        BulkAddCollectionItemsRequest request = new BulkAddCollectionItemsRequest();
+        request.getEntries().add(new BulkAddCollectionItemsRequestEntry("testPlayerId1", itemDefinition.getId(), 2));
+        request.getEntries().add(new BulkAddCollectionItemsRequestEntry("testPlayerId2", itemDefinition.getId(), 3));
+
+        httpRequestUtils.assertPostOk(mvc, "/admin/collection/bulk", request);
+    }
+
     @Test
     public void whenPutCollectionItem_thenOk() throws Exception {
         String playerId = "testPlayerId";
@@ -103,12 +129,102 @@ public class CollectionControllerIntegrationTests {
         httpRequestUtils.assertGetOk(mvc, "/admin/itemdefinitions", GetItemDefinitionsResponse.class);
     }
 
+    @Test
+    public void givenETag_whenGetItemDefinitions_thenNotModified() throws Exception {
+        // GIVEN
+        String eTag = mvc.perform(get("/admin/itemdefinitions"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // WHEN & THEN
+        mvc.perform(get("/admin/itemdefinitions").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+    }
+
     @Test
     public void whenPutItemDefinitions_thenOk() throws Exception {
         PutItemDefinitionsRequest request = new PutItemDefinitionsRequest();
         httpRequestUtils.assertPutOk(mvc, "/admin/itemdefinitions", request);
     }
 
+    @Test
+    public void whenPatchItemDefinitions_thenNoContent() throws Exception {
+        // GIVEN
+        PutItemDefinitionsRequestItem item = new PutItemDefinitionsRequestItem();
+        item.setId(itemDefinition.getId());
+        item.setMaxCount(3);
+        item.setTags(Lists.list("testTag"));
+        item.setContainers(Lists.list());
+
+        PatchItemDefinitionsRequest request = new PatchItemDefinitionsRequest();
+        request.getUpserts().add(item);
+
+        // WHEN & THEN
+        mvc.perform(patch("/admin/itemdefinitions")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(new ObjectMapper().writeValueAsString(request)))
+                .andExpect(status().isNoContent());
+    }
+
+    @Test
+    public void givenOpenedContainer_whenPutItemDefinitionsWithoutContainer_thenRemovesOpenings() throws Exception {
+        // GIVEN
+        givenOpenedContainer("testPlayerId");
+
+        // WHEN
+        httpRequestUtils.assertPutOk(mvc, "/admin/itemdefinitions", new PutItemDefinitionsRequest());
+        entityManager.flush();
+
+        // THEN
+        assertThat(countContainerOpenings()).isZero();
+    }
+
+    @Test
+    public void givenOpenedContainer_whenPatchItemDefinitionsDeletingContainer_thenRemovesOpenings()
+            throws Exception {
+        // GIVEN
+        ItemDefinition container = givenOpenedContainer("testPlayerId");
+
+        PatchItemDefinitionsRequest request = new PatchItemDefinitionsRequest();
+        request.getDeletes().add(container.getId());
+
+        // WHEN
+        mvc.perform(patch("/admin/itemdefinitions")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(new ObjectMapper().writeValueAsString(request)))
+                .andExpect(status().isNoContent());
+        entityManager.flush();
+
+        // THEN
+        assertThat(countContainerOpenings()).isZero();
+    }
+
+    private ItemDefinition givenOpenedContainer(String playerId) {
+        ItemDefinition container = new ItemDefinition();
+        container.setId("testContainerItemDefinition");
+        container.setContainers(Lists.list());
+        entityManager.persist(container);
+
+        ContainerOpening containerOpening = new ContainerOpening();
+        containerOpening.setPlayerId(playerId);
+        containerOpening.setItemDefinition(container);
+        containerOpening.setCount(1L);
+        entityManager.persist(containerOpening);
+
+        // Detach the opening, as the service deletes openings in bulk, bypassing the persistence context.
+        entityManager.flush();
+        entityManager.clear();
+        itemCatalogProvider.rebuild();
+
+        return container;
+    }
+
+    private long countContainerOpenings() {
+        return entityManager.getEntityManager()
+                .createQuery("SELECT COUNT(o) FROM ContainerOpening o", Long.class)
+                .getSingleResult();
+    }
+
     @Test
     public void whenGetItemSets_thenOk() throws Exception {
         httpRequestUtils.assertGetOk(mvc, "/admin/itemsets", GetItemSetsResponse.class);
@@ -120,6 +236,17 @@ public class CollectionControllerIntegrationTests {
         httpRequestUtils.assertPutOk(mvc, "/admin/itemsets", request);
     }
 
+    @Test
+    public void whenGetContainerPityRules_thenOk() throws Exception {
+        httpRequestUtils.assertGetOk(mvc, "/admin/containerpityrules", GetContainerPityRulesResponse.class);
+    }
+
+    @Test
+    public void whenPutContainerPityRules_thenOk() throws Exception {
+        PutContainerPityRulesRequest request = new PutContainerPityRulesRequest();
+        httpRequestUtils.assertPutOk(mvc, "/admin/containerpityrules", request);
+    }
+
     @Test
     public void whenGetClaimedItemSets_thenOk() throws Exception {
         httpRequestUtils.assertGetOk(mvc, "/admin/claimeditemsets/testPlayer", GetClaimedItemSetsResponse.class);
@@ -131,11 +258,7 @@ public class CollectionControllerIntegrationTests {
                 "testId");
     }
 
-    @Test
-    public void whenOpenContainer_thenOk() throws Exception {
-        // GIVEN
-        String playerId = "testPlayerId";
-
+    private ItemDefinition givenContainer(String playerId, int count) {
         ItemContainer itemContainer = new ItemContainer();
 
         ItemDefinition containerItemDefinition = new ItemDefinition();
@@ -155,13 +278,86 @@ public class CollectionControllerIntegrationTests {
         CollectionItem collectionItem = new CollectionItem();
         collectionItem.setPlayerId(playerId);
         collectionItem.setItemDefinition(containerItemDefinition);
-        collectionItem.setCount(1);
+        collectionItem.setCount(count);
         entityManager.persist(collectionItem);
 
         entityManager.flush();
+        itemCatalogProvider.rebuild();
+
+        return containerItemDefinition;
+    }
+
+    @Test
+    public void whenOpenContainer_thenOk() throws Exception {
+        // GIVEN
+        String playerId = "testPlayerId";
+        ItemDefinition containerItemDefinition = givenContainer(playerId, 1);
 
         // WHEN & THEN
         httpRequestUtils.assertPostOk(mvc, "/client/opencontainer/" + containerItemDefinition.getId(), null, OpenContainerResponse.class,
                 playerId);
     }
+
+    @Test
+    public void whenOpenContainerWithCount_thenOk() throws Exception {
+        // GIVEN
+        String playerId = "testPlayerId";
+        ItemDefinition containerItemDefinition = givenContainer(playerId, 3);
+
+        // WHEN & THEN
+        httpRequestUtils.assertPostOk(mvc, "/client/opencontainer/" + containerItemDefinition.getId() + "?count=3", null,
+                OpenContainerResponse.class, playerId);
+    }
+
+    @Test
+    public void whenOpenContainers_thenOk() throws Exception {
+        // GIVEN
+        String playerId = "testPlayerId";
+        ItemDefinition containerItemDefinition = givenContainer(playerId, 2);
+
+        OpenContainersRequest request = new OpenContainersRequest();
+        request.getContainers().add(new OpenContainersRequestContainer(containerItemDefinition.getId(), 2));
+
+        // WHEN & THEN
+        httpRequestUtils.assertPostOk(mvc, "/client/opencontainers", request, OpenContainerResponse.class, playerId);
+    }
+
+    @Test
+    public void givenPityRule_whenOpenContainer_thenStoresPityCounters() throws Exception {
+        // GIVEN
+        String playerId = "testPlayerId";
+
+        ItemTag itemTag = new ItemTag("testTag");
+        entityManager.persist(itemTag);
+
+        ItemDefinition taggedItemDefinition = new ItemDefinition();
+        taggedItemDefinition.setId("testTaggedItemDefinition");
+        taggedItemDefinition.setItemTags(Lists.list(itemTag));
+        entityManager.persist(taggedItemDefinition);
+
+        ItemDefinition containerItemDefinition = givenContainer(playerId, 1);
+        containerItemDefinition.getContainers().get(0).setItemCount(1);
+
+        ContainerPityRule containerPityRule = new ContainerPityRule();
+        containerPityRule.setItemDefinition(containerItemDefinition);
+        containerPityRule.setItemTag(itemTag);
+        containerPityRule.setMaxOpenings(1);
+        entityManager.persist(containerPityRule);
+
+        entityManager.flush();
+        itemCatalogProvider.rebuild();
+
+        // WHEN
+        httpRequestUtils.assertPostOk(mvc, "/client/opencontainer/" + containerItemDefinition.getId(), null,
+                OpenContainerResponse.class, playerId);
+
+        // THEN
+        ContainerOpening containerOpening = entityManager.getEntityManager()
+                .createQuery("SELECT o FROM ContainerOpening o WHERE o.playerId = :playerId", ContainerOpening.class)
+                .setParameter("playerId", playerId)
+                .getSingleResult();
+
+        assertThat(containerOpening.getCount()).isEqualTo(1L);
+        assertThat(containerOpening.getPityCounters()).containsEntry(itemTag.getTag(), 0);
+    }
 }
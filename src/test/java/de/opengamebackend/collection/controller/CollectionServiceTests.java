@@ -1,18 +1,37 @@
 package de.opengamebackend.collection.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.opengamebackend.collection.cache.PlayerCollectionCache;
+import de.opengamebackend.collection.catalog.CatalogVersion;
+import de.opengamebackend.collection.catalog.ItemCatalog;
+import de.opengamebackend.collection.catalog.ItemCatalogProvider;
+import de.opengamebackend.collection.locking.PlayerLockManager;
+import de.opengamebackend.collection.loot.LootRandomProvider;
+import de.opengamebackend.collection.loot.ThreadLocalLootRandomProvider;
 import de.opengamebackend.collection.model.entities.*;
 import de.opengamebackend.collection.model.repositories.*;
 import de.opengamebackend.collection.model.requests.*;
 import de.opengamebackend.collection.model.responses.*;
+import de.opengamebackend.collection.writebehind.CollectionWriteBehind;
+import de.opengamebackend.collection.writebehind.PendingRead;
 import de.opengamebackend.net.ApiErrors;
 import de.opengamebackend.net.ApiException;
 import org.assertj.core.util.Lists;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
@@ -24,8 +43,17 @@ public class CollectionServiceTests {
     private ItemTagRepository itemTagRepository;
     private ItemSetRepository itemSetRepository;
     private ClaimedItemSetRepository claimedItemSetRepository;
+    private ContainerOpeningRepository containerOpeningRepository;
+    private ContainerPityRuleRepository containerPityRuleRepository;
+    private ItemCatalogProvider itemCatalogProvider;
+    private CatalogVersion catalogVersion;
+    private CollectionWriteBehind collectionWriteBehind;
+    private PlayerLockManager playerLockManager;
+    private LootRandomProvider lootRandomProvider;
+    private PlayerCollectionCache playerCollectionCache;
 
     private CollectionService collectionService;
+    private ObjectMapper objectMapper = new ObjectMapper();
 
     @BeforeEach
     public void beforeEach() {
@@ -34,21 +62,157 @@ public class CollectionServiceTests {
         itemTagRepository = mock(ItemTagRepository.class);
         itemSetRepository = mock(ItemSetRepository.class);
         claimedItemSetRepository = mock(ClaimedItemSetRepository.class);
+        containerOpeningRepository = mock(ContainerOpeningRepository.class);
+        containerPityRuleRepository = mock(ContainerPityRuleRepository.class);
+
+        itemCatalogProvider = mock(ItemCatalogProvider.class);
+        when(itemCatalogProvider.getCatalog()).thenReturn(ItemCatalog.empty());
+
+        catalogVersion = mock(CatalogVersion.class);
+        collectionWriteBehind = mock(CollectionWriteBehind.class);
+        when(collectionWriteBehind.openRead(any())).thenReturn(new PendingRead(Collections.emptyMap()));
+        playerLockManager = mock(PlayerLockManager.class);
+        lootRandomProvider = spy(new ThreadLocalLootRandomProvider());
+        playerCollectionCache = mock(PlayerCollectionCache.class);
 
         collectionService = new CollectionService(collectionItemRepository, itemDefinitionRepository, itemTagRepository,
-                itemSetRepository, claimedItemSetRepository);
+                itemSetRepository, claimedItemSetRepository, containerOpeningRepository, containerPityRuleRepository,
+                itemCatalogProvider, catalogVersion, collectionWriteBehind, playerLockManager, lootRandomProvider,
+                playerCollectionCache);
     }
 
-    @Test
-    public void givenMissingPlayerId_whenGetCollection_thenThrowException() {
-        // WHEN & THEN
-        assertThatExceptionOfType(ApiException.class)
-                .isThrownBy(() -> collectionService.getCollection(""))
-                .withMessage(ApiErrors.MISSING_PLAYER_ID_MESSAGE);
+    private JsonNode writeJson(JsonWriter writer) throws ApiException, IOException {
+        StringWriter json = new StringWriter();
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(json)) {
+            writer.write(generator);
+        }
+
+        return objectMapper.readTree(json.toString());
+    }
+
+    @FunctionalInterface
+    private interface JsonWriter {
+        void write(JsonGenerator generator) throws ApiException, IOException;
+    }
+
+    private void givenItemDefinitionHashes(String... itemDefinitionIds) {
+        List<ItemDefinitionHash> hashes = new ArrayList<>();
+
+        for (String itemDefinitionId : itemDefinitionIds) {
+            ItemDefinitionHash hash = mock(ItemDefinitionHash.class);
+            when(hash.getId()).thenReturn(itemDefinitionId);
+            hashes.add(hash);
+        }
+
+        when(itemDefinitionRepository.findAllHashes()).thenReturn(hashes);
+    }
+
+    private void givenCatalog(ItemDefinition... itemDefinitions) {
+        ItemCatalog catalog = new ItemCatalog(Lists.emptyList(), Lists.list(itemDefinitions));
+        when(itemCatalogProvider.getCatalog()).thenReturn(catalog);
+    }
+
+    private void givenCollection(CollectionItem collectionItem, ContainerOpening containerOpening) {
+        CollectionItemWithOpening collectionItemWithOpening = mock(CollectionItemWithOpening.class);
+        when(collectionItemWithOpening.getItem()).thenReturn(collectionItem);
+        when(collectionItemWithOpening.getOpening()).thenReturn(containerOpening);
+
+        when(collectionItemRepository.findByPlayerId(collectionItem.getPlayerId()))
+                .thenReturn(Lists.list(collectionItem));
+        when(collectionItemRepository.findWithContainerOpeningsByPlayerId(collectionItem.getPlayerId()))
+                .thenReturn(Lists.list(collectionItemWithOpening));
+    }
+
+    private CollectionItem givenContainerInCollection(String playerId, String containerId, int count) {
+        ItemTag itemTag = new ItemTag("testItemTag");
+
+        ItemDefinition containedItemDefinition = new ItemDefinition();
+        containedItemDefinition.setId("testContainedItemDefinition");
+        containedItemDefinition.setItemTags(Lists.list(itemTag));
+        containedItemDefinition.setContainers(Lists.emptyList());
+
+        ContainedItem containedItem = new ContainedItem();
+        containedItem.setRelativeProbability(1);
+        containedItem.setRequiredTags(Lists.list(itemTag));
+
+        ItemContainer itemContainer = new ItemContainer();
+        itemContainer.setItemCount(1);
+        itemContainer.setContainedItems(Lists.list(containedItem));
+
+        ItemDefinition container = new ItemDefinition();
+        container.setId(containerId);
+        container.setItemTags(Lists.emptyList());
+        container.setContainers(Lists.list(itemContainer));
+        givenCatalog(containedItemDefinition, container);
+
+        CollectionItem collectionItem = new CollectionItem();
+        collectionItem.setPlayerId(playerId);
+        collectionItem.setItemDefinition(container);
+        collectionItem.setCount(count);
+        givenCollection(collectionItem, null);
+
+        return collectionItem;
+    }
+
+    /**
+     * Sets up a container rolling one common or epic item, guaranteeing an epic item within the specified number
+     * of openings, and a player owning that container.
+     */
+    private ContainerOpening givenContainerWithPityRule(String playerId, int commonProbability, int epicProbability,
+                                                        int maxOpenings, int pityCounter, int count) {
+        ItemTag common = new ItemTag("common");
+        ItemTag epic = new ItemTag("epic");
+
+        ItemDefinition commonItemDefinition = new ItemDefinition();
+        commonItemDefinition.setId("testCommonItemDefinition");
+        commonItemDefinition.setItemTags(Lists.list(common));
+
+        ItemDefinition epicItemDefinition = new ItemDefinition();
+        epicItemDefinition.setId("testEpicItemDefinition");
+        epicItemDefinition.setItemTags(Lists.list(epic));
+
+        ContainedItem commonContainedItem = new ContainedItem();
+        commonContainedItem.setRelativeProbability(commonProbability);
+        commonContainedItem.setRequiredTags(Lists.list(common));
+
+        ContainedItem epicContainedItem = new ContainedItem();
+        epicContainedItem.setRelativeProbability(epicProbability);
+        epicContainedItem.setRequiredTags(Lists.list(epic));
+
+        ItemContainer itemContainer = new ItemContainer();
+        itemContainer.setItemCount(1);
+        itemContainer.setContainedItems(Lists.list(commonContainedItem, epicContainedItem));
+
+        ItemDefinition container = new ItemDefinition();
+        container.setId("testContainer");
+        container.setContainers(Lists.list(itemContainer));
+
+        ContainerPityRule containerPityRule = new ContainerPityRule();
+        containerPityRule.setItemDefinition(container);
+        containerPityRule.setItemTag(epic);
+        containerPityRule.setMaxOpenings(maxOpenings);
+
+        ItemCatalog catalog = new ItemCatalog(Lists.emptyList(),
+                Lists.list(commonItemDefinition, epicItemDefinition, container), Lists.list(containerPityRule));
+        when(itemCatalogProvider.getCatalog()).thenReturn(catalog);
+
+        CollectionItem collectionItem = new CollectionItem();
+        collectionItem.setPlayerId(playerId);
+        collectionItem.setItemDefinition(container);
+        collectionItem.setCount(count);
+
+        ContainerOpening containerOpening = new ContainerOpening();
+        containerOpening.setPlayerId(playerId);
+        containerOpening.setItemDefinition(container);
+        containerOpening.getPityCounters().put(epic.getTag(), pityCounter);
+
+        givenCollection(collectionItem, containerOpening);
+        return containerOpening;
     }
 
     @Test
-    public void givenItems_whenGetCollection_thenReturnItems() throws ApiException {
+    public void givenItems_whenWriteCollection_thenWriteItems() throws ApiException, IOException {
         // GIVEN
         String playerId = "testPlayerId";
 
@@ -63,18 +227,22 @@ public class CollectionServiceTests {
         when(itemDefinition2.getId()).thenReturn("testItemDefinition2");
         when(itemDefinition2.getItemTags()).thenReturn(Lists.list(itemTag));
 
-        CollectionItem item1 = mock(CollectionItem.class);
-        when(item1.getItemDefinition()).thenReturn(itemDefinition1);
+        CollectionItemCount item1 = mock(CollectionItemCount.class);
+        when(item1.getItemDefinitionId()).thenReturn("testItemDefinition1");
         when(item1.getCount()).thenReturn(2);
 
-        CollectionItem item2 = mock(CollectionItem.class);
-        when(item2.getItemDefinition()).thenReturn(itemDefinition2);
+        CollectionItemCount item2 = mock(CollectionItemCount.class);
+        when(item2.getItemDefinitionId()).thenReturn("testItemDefinition2");
         when(item2.getCount()).thenReturn(3);
 
-        when(collectionItemRepository.findByPlayerId(playerId)).thenReturn(Lists.list(item1, item2));
+        when(collectionItemRepository.streamByPlayerId(playerId)).thenReturn(Stream.of(item1, item2));
+
+        givenCatalog(itemDefinition1, itemDefinition2);
 
         // WHEN
-        GetCollectionResponse response = collectionService.getCollection(playerId);
+        GetCollectionResponse response = objectMapper.treeToValue(
+                writeJson(generator -> collectionService.writeCollection(playerId, generator)),
+                GetCollectionResponse.class);
 
         // THEN
         assertThat(response).isNotNull();
@@ -92,6 +260,63 @@ public class CollectionServiceTests {
         assertThat(response.getCollection().get(1).getCount()).isEqualTo(item2.getCount());
     }
 
+    @Test
+    public void givenPendingDeltas_whenWriteCollection_thenIncludePendingDeltas() throws ApiException, IOException {
+        // GIVEN
+        String playerId = "testPlayerId";
+
+        ItemDefinition itemDefinition1 = mock(ItemDefinition.class);
+        when(itemDefinition1.getId()).thenReturn("testItemDefinition1");
+
+        ItemDefinition itemDefinition2 = mock(ItemDefinition.class);
+        when(itemDefinition2.getId()).thenReturn("testItemDefinition2");
+
+        CollectionItemCount item1 = mock(CollectionItemCount.class);
+        when(item1.getItemDefinitionId()).thenReturn("testItemDefinition1");
+        when(item1.getCount()).thenReturn(2);
+
+        when(collectionItemRepository.streamByPlayerId(playerId)).thenReturn(Stream.of(item1));
+        when(collectionWriteBehind.openRead(playerId)).thenReturn(new PendingRead(Collections.singletonMap(
+                "testItemDefinition1", 3)));
+
+        givenCatalog(itemDefinition1, itemDefinition2);
+
+        // WHEN
+        GetCollectionResponse response = objectMapper.treeToValue(
+                writeJson(generator -> collectionService.writeCollection(playerId, generator)),
+                GetCollectionResponse.class);
+
+        // THEN
+        assertThat(response.getCollection()).hasSize(1);
+        assertThat(response.getCollection().get(0).getId()).isEqualTo(itemDefinition1.getId());
+        assertThat(response.getCollection().get(0).getCount()).isEqualTo(5);
+    }
+
+    @Test
+    public void givenPendingDeltasForNewItems_whenWriteCollection_thenWriteNewItems() throws ApiException, IOException {
+        // GIVEN
+        String playerId = "testPlayerId";
+
+        ItemDefinition itemDefinition = mock(ItemDefinition.class);
+        when(itemDefinition.getId()).thenReturn("testItemDefinition");
+
+        when(collectionItemRepository.streamByPlayerId(playerId)).thenReturn(Stream.empty());
+        when(collectionWriteBehind.openRead(playerId)).thenReturn(new PendingRead(Collections.singletonMap(
+                "testItemDefinition", 3)));
+
+        givenCatalog(itemDefinition);
+
+        // WHEN
+        GetCollectionResponse response = objectMapper.treeToValue(
+                writeJson(generator -> collectionService.writeCollection(playerId, generator)),
+                GetCollectionResponse.class);
+
+        // THEN
+        assertThat(response.getCollection()).hasSize(1);
+        assertThat(response.getCollection().get(0).getId()).isEqualTo(itemDefinition.getId());
+        assertThat(response.getCollection().get(0).getCount()).isEqualTo(3);
+    }
+
     @Test
     public void givenMissingPlayerId_whenAddCollectionItems_thenThrowException() {
         // WHEN & THEN
@@ -129,7 +354,9 @@ public class CollectionServiceTests {
         String itemDefinitionId = "testItemDefinition";
 
         ItemDefinition itemDefinition = mock(ItemDefinition.class);
-        when(itemDefinitionRepository.findById(itemDefinitionId)).thenReturn(Optional.of(itemDefinition));
+        when(itemDefinition.getId()).thenReturn(itemDefinitionId);
+        when(itemDefinitionRepository.getOne(itemDefinitionId)).thenReturn(itemDefinition);
+        givenCatalog(itemDefinition);
 
         AddCollectionItemsRequest request = mock(AddCollectionItemsRequest.class);
         when(request.getItemDefinitionId()).thenReturn(itemDefinitionId);
@@ -141,12 +368,13 @@ public class CollectionServiceTests {
     }
 
     @Test
-    public void givenCollectionItems_whenAddCollectionItems_thenSaveItems() throws ApiException {
+    public void givenCollectionItems_whenAddCollectionItems_thenIncrementsCount() throws ApiException {
         // GIVEN
         String itemDefinitionId = "testItemDefinition";
 
         ItemDefinition itemDefinition = mock(ItemDefinition.class);
-        when(itemDefinitionRepository.findById(itemDefinitionId)).thenReturn(Optional.of(itemDefinition));
+        when(itemDefinition.getId()).thenReturn(itemDefinitionId);
+        givenCatalog(itemDefinition);
 
         AddCollectionItemsRequest request = mock(AddCollectionItemsRequest.class);
         when(request.getItemDefinitionId()).thenReturn(itemDefinitionId);
@@ -158,41 +386,126 @@ public class CollectionServiceTests {
         collectionService.addCollectionItems(playerId, request);
 
         // THEN
-        ArgumentCaptor<CollectionItem> argumentCaptor = ArgumentCaptor.forClass(CollectionItem.class);
-        verify(collectionItemRepository).save(argumentCaptor.capture());
+        verify(collectionItemRepository).incrementCount(playerId, itemDefinitionId, 2);
+        verify(collectionItemRepository, never()).findByPlayerIdAndItemDefinition(any(), any());
+    }
+
+    @Test
+    public void givenWriteBehindEnabled_whenAddCollectionItems_thenAddToWriteBehind() throws ApiException {
+        // GIVEN
+        String itemDefinitionId = "testItemDefinition";
+
+        ItemDefinition itemDefinition = mock(ItemDefinition.class);
+        when(itemDefinition.getId()).thenReturn(itemDefinitionId);
+        givenCatalog(itemDefinition);
+
+        AddCollectionItemsRequest request = mock(AddCollectionItemsRequest.class);
+        when(request.getItemDefinitionId()).thenReturn(itemDefinitionId);
+        when(request.getItemCount()).thenReturn(2);
+
+        when(collectionWriteBehind.isEnabled()).thenReturn(true);
+
+        String playerId = "testPlayer";
 
-        CollectionItem savedItem = argumentCaptor.getValue();
+        // WHEN
+        collectionService.addCollectionItems(playerId, request);
 
-        assertThat(savedItem).isNotNull();
-        assertThat(savedItem.getPlayerId()).isEqualTo(playerId);
-        assertThat(savedItem.getItemDefinition()).isEqualTo(itemDefinition);
-        assertThat(savedItem.getCount()).isEqualTo(request.getItemCount());
+        // THEN
+        verify(collectionWriteBehind).add(playerId, itemDefinitionId, 2);
+        verify(collectionItemRepository, never()).incrementCount(any(), any(), anyInt());
     }
 
     @Test
-    public void givenCollectionItems_whenAddCollectionItems_thenIncreasesCount() throws ApiException {
+    public void givenCollectionItems_whenAddCollectionItems_thenInvalidatesCachedCollection() throws ApiException {
         // GIVEN
-        String playerId = "testPlayer";
         String itemDefinitionId = "testItemDefinition";
-        int oldCount = 2;
 
         ItemDefinition itemDefinition = mock(ItemDefinition.class);
-        when(itemDefinitionRepository.findById(itemDefinitionId)).thenReturn(Optional.of(itemDefinition));
-
-        CollectionItem collectionItem = mock(CollectionItem.class);
-        when(collectionItem.getCount()).thenReturn(oldCount);
-        when(collectionItemRepository.findByPlayerIdAndItemDefinition(playerId, itemDefinition)).thenReturn(Optional.of(collectionItem));
+        when(itemDefinition.getId()).thenReturn(itemDefinitionId);
+        givenCatalog(itemDefinition);
 
         AddCollectionItemsRequest request = mock(AddCollectionItemsRequest.class);
         when(request.getItemDefinitionId()).thenReturn(itemDefinitionId);
-        when(request.getItemCount()).thenReturn(3);
+        when(request.getItemCount()).thenReturn(2);
+
+        String playerId = "testPlayer";
 
         // WHEN
         collectionService.addCollectionItems(playerId, request);
 
         // THEN
-        verify(collectionItem).setCount(oldCount + request.getItemCount());
-        verify(collectionItemRepository).save(collectionItem);
+        verify(playerCollectionCache).invalidateAfterCompletion(playerId);
+    }
+
+    @Test
+    public void givenEntries_whenBulkAddCollectionItems_thenIncrementCountsGroupedByPlayer() {
+        // GIVEN
+        ItemDefinition itemDefinition = mock(ItemDefinition.class);
+        when(itemDefinition.getId()).thenReturn("testItemDefinition");
+        givenCatalog(itemDefinition);
+
+        BulkAddCollectionItemsRequest request = new BulkAddCollectionItemsRequest();
+        request.getEntries().add(new BulkAddCollectionItemsRequestEntry("testPlayer2", "testItemDefinition", 1));
+        request.getEntries().add(new BulkAddCollectionItemsRequestEntry("testPlayer1", "testItemDefinition", 2));
+        request.getEntries().add(new BulkAddCollectionItemsRequestEntry("testPlayer1", "testItemDefinition", 3));
+
+        // WHEN
+        BulkAddCollectionItemsResponse response = collectionService.bulkAddCollectionItems(request);
+
+        // THEN
+        assertThat(response.getResults()).hasSize(3);
+        assertThat(response.getResults()).allMatch(r -> r.getErrorCode() == null);
+
+        ArgumentCaptor<Map<String, Map<String, Integer>>> argument = ArgumentCaptor.forClass(Map.class);
+        verify(collectionItemRepository).incrementCounts(argument.capture());
+
+        assertThat(argument.getValue()).containsOnlyKeys("testPlayer1", "testPlayer2");
+        assertThat(argument.getValue().keySet()).containsExactly("testPlayer1", "testPlayer2");
+        assertThat(argument.getValue().get("testPlayer1")).containsEntry("testItemDefinition", 5);
+        assertThat(argument.getValue().get("testPlayer2")).containsEntry("testItemDefinition", 1);
+    }
+
+    @Test
+    public void givenEntries_whenBulkAddCollectionItems_thenInvalidatesCachedCollectionsOfValidEntries() {
+        // GIVEN
+        ItemDefinition itemDefinition = mock(ItemDefinition.class);
+        when(itemDefinition.getId()).thenReturn("testItemDefinition");
+        givenCatalog(itemDefinition);
+
+        BulkAddCollectionItemsRequest request = new BulkAddCollectionItemsRequest();
+        request.getEntries().add(new BulkAddCollectionItemsRequestEntry("testPlayer1", "testItemDefinition", 1));
+        request.getEntries().add(new BulkAddCollectionItemsRequestEntry("testPlayer2", "testItemDefinition", 2));
+        request.getEntries().add(new BulkAddCollectionItemsRequestEntry("testPlayer3", "testItemDefinition", 0));
+
+        // WHEN
+        collectionService.bulkAddCollectionItems(request);
+
+        // THEN
+        verify(playerCollectionCache).invalidateAfterCompletion("testPlayer1");
+        verify(playerCollectionCache).invalidateAfterCompletion("testPlayer2");
+        verify(playerCollectionCache, never()).invalidateAfterCompletion("testPlayer3");
+    }
+
+    @Test
+    public void givenInvalidEntries_whenBulkAddCollectionItems_thenReportErrorsAndSkipEntries() {
+        // GIVEN
+        ItemDefinition itemDefinition = mock(ItemDefinition.class);
+        when(itemDefinition.getId()).thenReturn("testItemDefinition");
+        givenCatalog(itemDefinition);
+
+        BulkAddCollectionItemsRequest request = new BulkAddCollectionItemsRequest();
+        request.getEntries().add(new BulkAddCollectionItemsRequestEntry("", "testItemDefinition", 1));
+        request.getEntries().add(new BulkAddCollectionItemsRequestEntry("testPlayer", "unknownItemDefinition", 1));
+        request.getEntries().add(new BulkAddCollectionItemsRequestEntry("testPlayer", "testItemDefinition", 0));
+
+        // WHEN
+        BulkAddCollectionItemsResponse response = collectionService.bulkAddCollectionItems(request);
+
+        // THEN
+        assertThat(response.getResults()).extracting(BulkAddCollectionItemsResponseEntry::getErrorCode)
+                .containsExactly(ApiErrors.MISSING_PLAYER_ID_CODE, ApiErrors.UNKNOWN_ITEM_DEFINITION_CODE,
+                        ApiErrors.INVALID_ITEM_COUNT_CODE);
+        verify(collectionItemRepository, never()).incrementCounts(any());
     }
 
     @Test
@@ -229,7 +542,9 @@ public class CollectionServiceTests {
         String itemDefinitionId = "testItemDefinition";
 
         ItemDefinition itemDefinition = mock(ItemDefinition.class);
-        when(itemDefinitionRepository.findById(itemDefinitionId)).thenReturn(Optional.of(itemDefinition));
+        when(itemDefinition.getId()).thenReturn(itemDefinitionId);
+        when(itemDefinitionRepository.getOne(itemDefinitionId)).thenReturn(itemDefinition);
+        givenCatalog(itemDefinition);
 
         CollectionItem collectionItem = mock(CollectionItem.class);
         when(collectionItemRepository.findByPlayerIdAndItemDefinition(playerId, itemDefinition))
@@ -249,7 +564,9 @@ public class CollectionServiceTests {
         String itemDefinitionId = "testItemDefinition";
 
         ItemDefinition itemDefinition = mock(ItemDefinition.class);
-        when(itemDefinitionRepository.findById(itemDefinitionId)).thenReturn(Optional.of(itemDefinition));
+        when(itemDefinition.getId()).thenReturn(itemDefinitionId);
+        when(itemDefinitionRepository.getOne(itemDefinitionId)).thenReturn(itemDefinition);
+        givenCatalog(itemDefinition);
 
         PutCollectionItemsRequest request = mock(PutCollectionItemsRequest.class);
         when(request.getItemCount()).thenReturn(2);
@@ -267,7 +584,9 @@ public class CollectionServiceTests {
         String itemDefinitionId = "testItemDefinition";
 
         ItemDefinition itemDefinition = mock(ItemDefinition.class);
-        when(itemDefinitionRepository.findById(itemDefinitionId)).thenReturn(Optional.of(itemDefinition));
+        when(itemDefinition.getId()).thenReturn(itemDefinitionId);
+        when(itemDefinitionRepository.getOne(itemDefinitionId)).thenReturn(itemDefinition);
+        givenCatalog(itemDefinition);
 
         CollectionItem collectionItem = mock(CollectionItem.class);
         when(collectionItemRepository.findByPlayerIdAndItemDefinition(playerId, itemDefinition))
@@ -284,6 +603,31 @@ public class CollectionServiceTests {
         verify(collectionItemRepository).save(collectionItem);
     }
 
+    @Test
+    public void givenCollectionItems_whenPutCollectionItems_thenInvalidatesCachedCollection() throws ApiException {
+        // GIVEN
+        String playerId = "testPlayer";
+        String itemDefinitionId = "testItemDefinition";
+
+        ItemDefinition itemDefinition = mock(ItemDefinition.class);
+        when(itemDefinition.getId()).thenReturn(itemDefinitionId);
+        when(itemDefinitionRepository.getOne(itemDefinitionId)).thenReturn(itemDefinition);
+        givenCatalog(itemDefinition);
+
+        CollectionItem collectionItem = mock(CollectionItem.class);
+        when(collectionItemRepository.findByPlayerIdAndItemDefinition(playerId, itemDefinition))
+                .thenReturn(Optional.of(collectionItem));
+
+        PutCollectionItemsRequest request = mock(PutCollectionItemsRequest.class);
+        when(request.getItemCount()).thenReturn(2);
+
+        // WHEN
+        collectionService.putCollectionItems(playerId, itemDefinitionId, request);
+
+        // THEN
+        verify(playerCollectionCache).invalidateAfterCompletion(playerId);
+    }
+
     @Test
     public void givenMissingPlayerId_whenRemoveCollectionItems_thenThrowException() {
         // WHEN & THEN
@@ -315,7 +659,9 @@ public class CollectionServiceTests {
         String itemDefinitionId = "testItemDefinition";
 
         ItemDefinition itemDefinition = mock(ItemDefinition.class);
-        when(itemDefinitionRepository.findById(itemDefinitionId)).thenReturn(Optional.of(itemDefinition));
+        when(itemDefinition.getId()).thenReturn(itemDefinitionId);
+        when(itemDefinitionRepository.getOne(itemDefinitionId)).thenReturn(itemDefinition);
+        givenCatalog(itemDefinition);
 
         // WHEN
         collectionService.removeCollectionItems(playerId, itemDefinitionId);
@@ -325,7 +671,33 @@ public class CollectionServiceTests {
     }
 
     @Test
-    public void givenItemDefinitions_whenGetItemDefinitions_thenReturnDefinitions() {
+    public void givenCollectionItems_whenDeleteCollectionItems_thenInvalidatesCachedCollection() throws ApiException {
+        // GIVEN
+        String playerId = "testPlayer";
+        String itemDefinitionId = "testItemDefinition";
+
+        ItemDefinition itemDefinition = mock(ItemDefinition.class);
+        when(itemDefinition.getId()).thenReturn(itemDefinitionId);
+        when(itemDefinitionRepository.getOne(itemDefinitionId)).thenReturn(itemDefinition);
+        givenCatalog(itemDefinition);
+
+        // WHEN
+        collectionService.removeCollectionItems(playerId, itemDefinitionId);
+
+        // THEN
+        verify(playerCollectionCache).invalidateAfterCompletion(playerId);
+    }
+
+    @Test
+    public void givenMissingPlayerId_whenWriteCollection_thenThrowException() {
+        // WHEN & THEN
+        assertThatExceptionOfType(ApiException.class)
+                .isThrownBy(() -> writeJson(generator -> collectionService.writeCollection("", generator)))
+                .withMessage(ApiErrors.MISSING_PLAYER_ID_MESSAGE);
+    }
+
+    @Test
+    public void givenItemDefinitions_whenWriteItemDefinitions_thenWriteDefinitions() throws ApiException, IOException {
         // GIVEN
         ItemTag itemTag = mock(ItemTag.class);
         when(itemTag.getTag()).thenReturn("testItemTag");
@@ -346,13 +718,14 @@ public class CollectionServiceTests {
 
         ItemDefinition itemDefinition2 = mock(ItemDefinition.class);
         when(itemDefinition2.getId()).thenReturn("testItemDefinition2");
-        when(itemDefinition2.getMaxCount()).thenReturn(3);
+        when(itemDefinition2.getMaxCount()).thenReturn(null);
         when(itemDefinition2.getItemTags()).thenReturn(Lists.list(itemTag));
 
-        when(itemDefinitionRepository.findAll()).thenReturn(Lists.list(itemDefinition1, itemDefinition2));
+        givenCatalog(itemDefinition1, itemDefinition2);
 
         // WHEN
-        GetItemDefinitionsResponse response = collectionService.getItemDefinitions();
+        GetItemDefinitionsResponse response = objectMapper.treeToValue(
+                writeJson(collectionService::writeItemDefinitions), GetItemDefinitionsResponse.class);
 
         // THEN
         assertThat(response).isNotNull();
@@ -373,7 +746,7 @@ public class CollectionServiceTests {
         assertThat(response.getItemDefinitions().get(0).getContainers().get(0).getContainedItems().get(0).getRequiredTags())
                 .containsExactly(itemTag.getTag());
         assertThat(response.getItemDefinitions().get(1).getId()).isEqualTo(itemDefinition2.getId());
-        assertThat(response.getItemDefinitions().get(1).getMaxCount()).isEqualTo(itemDefinition2.getMaxCount());
+        assertThat(response.getItemDefinitions().get(1).getMaxCount()).isNull();
         assertThat(response.getItemDefinitions().get(1).getTags()).isNotNull();
         assertThat(response.getItemDefinitions().get(1).getTags()).hasSize(1);
         assertThat(response.getItemDefinitions().get(1).getTags().get(0)).isEqualTo(itemTag.getTag());
@@ -543,8 +916,10 @@ public class CollectionServiceTests {
         ItemDefinition item2 = mock(ItemDefinition.class);
         when(item2.getId()).thenReturn("Item2");
 
+        givenItemDefinitionHashes("Item1", "Item2");
+
         List<ItemDefinition> existingDefinitions = Lists.list(item1, item2);
-        when(itemDefinitionRepository.findAll()).thenReturn(existingDefinitions);
+        when(itemDefinitionRepository.findAllById(Lists.list("Item1", "Item2"))).thenReturn(existingDefinitions);
 
         PutItemDefinitionsRequest request = mock(PutItemDefinitionsRequest.class);
 
@@ -576,8 +951,10 @@ public class CollectionServiceTests {
         ItemDefinition item2 = mock(ItemDefinition.class);
         when(item2.getId()).thenReturn(itemId2);
 
+        givenItemDefinitionHashes(itemId1, itemId2);
+
         List<ItemDefinition> existingDefinitions = Lists.list(item1, item2);
-        when(itemDefinitionRepository.findAll()).thenReturn(existingDefinitions);
+        when(itemDefinitionRepository.findAllById(Lists.list(itemId1, itemId2))).thenReturn(existingDefinitions);
 
         PutItemDefinitionsRequest request = mock(PutItemDefinitionsRequest.class);
 
@@ -602,109 +979,344 @@ public class CollectionServiceTests {
     }
 
     @Test
-    public void givenItemSets_whenGetItemSets_thenReturnItemSets() {
+    @SuppressWarnings("unchecked")
+    public void givenChangedItemDefinition_whenPutItemDefinitions_thenUpdatesChangedDefinitionOnly() {
         // GIVEN
-        ItemDefinition itemDefinition1 = mock(ItemDefinition.class);
-        when(itemDefinition1.getId()).thenReturn("testItem1");
+        PutItemDefinitionsRequestItem unchangedItem = new PutItemDefinitionsRequestItem();
+        unchangedItem.setId("UnchangedItem");
+        unchangedItem.setTags(Lists.list());
+        unchangedItem.setContainers(Lists.list());
 
-        ItemDefinition itemDefinition2 = mock(ItemDefinition.class);
-        when(itemDefinition2.getId()).thenReturn("testItem2");
+        PutItemDefinitionsRequestItem changedItem = new PutItemDefinitionsRequestItem();
+        changedItem.setId("ChangedItem");
+        changedItem.setMaxCount(2);
+        changedItem.setTags(Lists.list());
+        changedItem.setContainers(Lists.list());
 
-        ItemSetItem itemSetItem1 = mock(ItemSetItem.class);
-        when(itemSetItem1.getItemDefinition()).thenReturn(itemDefinition1);
-        when(itemSetItem1.getCount()).thenReturn(2);
+        PutItemDefinitionsRequest request = new PutItemDefinitionsRequest();
+        request.setItemDefinitions(Lists.list(unchangedItem, changedItem));
 
-        ItemSetItem itemSetItem2 = mock(ItemSetItem.class);
-        when(itemSetItem2.getItemDefinition()).thenReturn(itemDefinition2);
-        when(itemSetItem2.getCount()).thenReturn(3);
+        // Import once to get the hashes of both items.
+        collectionService.putItemDefinitions(request);
 
-        ItemSet itemSet = mock(ItemSet.class);
-        when(itemSet.getId()).thenReturn("testItemSet");
-        when(itemSet.getItems()).thenReturn(Lists.list(itemSetItem1, itemSetItem2));
+        ArgumentCaptor<List<ItemDefinition>> argument = ArgumentCaptor.forClass(List.class);
+        verify(itemDefinitionRepository).saveAll(argument.capture());
+
+        ItemDefinitionHash unchangedHash = mock(ItemDefinitionHash.class);
+        when(unchangedHash.getId()).thenReturn("UnchangedItem");
+        when(unchangedHash.getContentHash()).thenReturn(argument.getValue().get(0).getContentHash());
+
+        ItemDefinitionHash changedHash = mock(ItemDefinitionHash.class);
+        when(changedHash.getId()).thenReturn("ChangedItem");
+        when(changedHash.getContentHash()).thenReturn(argument.getValue().get(1).getContentHash());
 
-        when(itemSetRepository.findAll()).thenReturn(Lists.list(itemSet));
+        when(itemDefinitionRepository.findAllHashes()).thenReturn(Lists.list(unchangedHash, changedHash));
+
+        ItemDefinition changedItemDefinition = new ItemDefinition();
+        changedItemDefinition.setId("ChangedItem");
+        when(itemDefinitionRepository.findAllById(Lists.list("ChangedItem")))
+                .thenReturn(Lists.list(changedItemDefinition));
+
+        changedItem.setMaxCount(3);
 
         // WHEN
-        GetItemSetsResponse response = collectionService.getItemSets();
+        collectionService.putItemDefinitions(request);
 
         // THEN
-        assertThat(response).isNotNull();
-        assertThat(response.getItemSets()).isNotNull();
-        assertThat(response.getItemSets()).hasSize(1);
-        assertThat(response.getItemSets().get(0).getId()).isEqualTo(itemSet.getId());
-        assertThat(response.getItemSets().get(0).getItems()).isNotNull();
-        assertThat(response.getItemSets().get(0).getItems()).hasSize(2);
-        assertThat(response.getItemSets().get(0).getItems().get(0).getItemDefinitionId()).isEqualTo(itemDefinition1.getId());
-        assertThat(response.getItemSets().get(0).getItems().get(0).getCount()).isEqualTo(itemSetItem1.getCount());
-        assertThat(response.getItemSets().get(0).getItems().get(1).getItemDefinitionId()).isEqualTo(itemDefinition2.getId());
-        assertThat(response.getItemSets().get(0).getItems().get(1).getCount()).isEqualTo(itemSetItem2.getCount());
+        verify(itemDefinitionRepository, times(2)).saveAll(argument.capture());
+
+        List<ItemDefinition> savedDefinitions = argument.getValue();
+
+        assertThat(savedDefinitions).containsExactly(changedItemDefinition);
+        assertThat(changedItemDefinition.getMaxCount()).isEqualTo(3);
     }
 
     @Test
-    public void givenUnknownItemDefinition_whenPutItemSets_thenThrowException() {
+    public void givenUnchangedItemDefinitions_whenPutItemDefinitions_thenDoesNothing() {
         // GIVEN
-        PutItemSetsRequestItem item = mock(PutItemSetsRequestItem.class);
-        when(item.getItemDefinitionId()).thenReturn("testItem");
-
-        PutItemSetsRequestItemSet itemSet = mock(PutItemSetsRequestItemSet.class);
-        when(itemSet.getItems()).thenReturn(Lists.list(item));
+        PutItemDefinitionsRequest request = mock(PutItemDefinitionsRequest.class);
 
-        PutItemSetsRequest request = mock(PutItemSetsRequest.class);
-        when(request.getItemSets()).thenReturn(Lists.newArrayList(itemSet));
+        // WHEN
+        collectionService.putItemDefinitions(request);
 
-        // WHEN & THEN
-        assertThatExceptionOfType(ApiException.class)
-                .isThrownBy(() -> collectionService.putItemSets(request))
-                .withMessage(ApiErrors.UNKNOWN_ITEM_DEFINITION_MESSAGE);
+        // THEN
+        verify(itemDefinitionRepository, never()).saveAll(any());
+        verify(itemCatalogProvider, never()).rebuildAfterCommit();
+        verify(catalogVersion, never()).increment();
     }
 
     @Test
-    @SuppressWarnings("unchecked")
-    public void givenItemSets_whenPutItemSets_thenAddsNewSets() throws ApiException {
+    public void givenItemDefinitions_whenPutItemDefinitions_thenRebuildsCatalog() {
         // GIVEN
-        String itemDefinitionId = "testItem";
+        PutItemDefinitionsRequestItem item = mock(PutItemDefinitionsRequestItem.class);
+        when(item.getId()).thenReturn("testItem");
 
-        PutItemSetsRequestItem item = mock(PutItemSetsRequestItem.class);
-        when(item.getItemDefinitionId()).thenReturn(itemDefinitionId);
-        when(item.getCount()).thenReturn(2);
+        PutItemDefinitionsRequest request = mock(PutItemDefinitionsRequest.class);
+        when(request.getItemDefinitions()).thenReturn(Lists.list(item));
 
-        PutItemSetsRequestItemSet itemSet = mock(PutItemSetsRequestItemSet.class);
-        when(itemSet.getId()).thenReturn("testItemSet");
-        when(itemSet.getItems()).thenReturn(Lists.list(item));
+        // WHEN
+        collectionService.putItemDefinitions(request);
 
-        PutItemSetsRequest request = mock(PutItemSetsRequest.class);
-        when(request.getItemSets()).thenReturn(Lists.newArrayList(itemSet));
+        // THEN
+        verify(itemCatalogProvider).rebuildAfterCommit();
+    }
 
-        ItemDefinition itemDefinition = mock(ItemDefinition.class);
-        when(itemDefinition.getId()).thenReturn(itemDefinitionId);
-        when(itemDefinitionRepository.findAll()).thenReturn(Lists.list(itemDefinition));
+    @Test
+    public void givenItemDefinitions_whenPutItemDefinitions_thenIncrementsCatalogVersion() {
+        // GIVEN
+        PutItemDefinitionsRequestItem item = mock(PutItemDefinitionsRequestItem.class);
+        when(item.getId()).thenReturn("testItem");
+
+        PutItemDefinitionsRequest request = mock(PutItemDefinitionsRequest.class);
+        when(request.getItemDefinitions()).thenReturn(Lists.list(item));
 
         // WHEN
-        collectionService.putItemSets(request);
+        collectionService.putItemDefinitions(request);
 
         // THEN
-        ArgumentCaptor<List<ItemSet>> argument = ArgumentCaptor.forClass(List.class);
-        verify(itemSetRepository).saveAll(argument.capture());
+        verify(catalogVersion).increment();
+    }
 
-        List<ItemSet> savedItemSets = argument.getValue();
+    @Test
+    public void givenMissingItemDefinitionId_whenPatchItemDefinitions_thenThrowException() {
+        // GIVEN
+        PatchItemDefinitionsRequest request = new PatchItemDefinitionsRequest();
+        request.getUpserts().add(new PutItemDefinitionsRequestItem());
 
-        assertThat(savedItemSets).isNotNull();
-        assertThat(savedItemSets).hasSize(1);
-        assertThat(savedItemSets.get(0).getId()).isEqualTo(itemSet.getId());
-        assertThat(savedItemSets.get(0).getItems()).isNotNull();
-        assertThat(savedItemSets.get(0).getItems()).hasSize(1);
-        assertThat(savedItemSets.get(0).getItems().get(0).getItemDefinition()).isEqualTo(itemDefinition);
-        assertThat(savedItemSets.get(0).getItems().get(0).getCount()).isEqualTo(item.getCount());
+        // WHEN & THEN
+        assertThatExceptionOfType(ApiException.class)
+                .isThrownBy(() -> collectionService.patchItemDefinitions(request))
+                .withMessage(ApiErrors.MISSING_ITEM_DEFINITION_MESSAGE);
     }
 
     @Test
-    @SuppressWarnings("unchecked")
-    public void givenItemSets_whenPutItemSets_thenRemovesObsoleteSets() throws ApiException {
+    public void givenUnknownItemDefinition_whenPatchItemDefinitions_thenThrowException() {
         // GIVEN
-        ItemSet itemSet1 = mock(ItemSet.class);
-        when(itemSet1.getId()).thenReturn("testItemSet1");
+        PatchItemDefinitionsRequest request = new PatchItemDefinitionsRequest();
+        request.getDeletes().add("testItem");
 
-        ItemSet itemSet2 = mock(ItemSet.class);
+        // WHEN & THEN
+        assertThatExceptionOfType(ApiException.class)
+                .isThrownBy(() -> collectionService.patchItemDefinitions(request))
+                .withMessage(ApiErrors.UNKNOWN_ITEM_DEFINITION_MESSAGE + "testItem");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void givenNewItemDefinition_whenPatchItemDefinitions_thenAddsDefinitionAndTags() throws ApiException {
+        // GIVEN
+        PutItemDefinitionsRequestItem item = new PutItemDefinitionsRequestItem();
+        item.setId("testItem");
+        item.setMaxCount(2);
+        item.setTags(Lists.list("A"));
+        item.setContainers(Lists.list());
+
+        PatchItemDefinitionsRequest request = new PatchItemDefinitionsRequest();
+        request.getUpserts().add(item);
+
+        // WHEN
+        collectionService.patchItemDefinitions(request);
+
+        // THEN
+        ArgumentCaptor<List<ItemTag>> tagArgument = ArgumentCaptor.forClass(List.class);
+        verify(itemTagRepository).saveAll(tagArgument.capture());
+
+        assertThat(tagArgument.getValue()).hasSize(1);
+        assertThat(tagArgument.getValue().get(0).getTag()).isEqualTo("A");
+
+        ArgumentCaptor<List<ItemDefinition>> argument = ArgumentCaptor.forClass(List.class);
+        verify(itemDefinitionRepository).saveAll(argument.capture());
+
+        List<ItemDefinition> savedDefinitions = argument.getValue();
+
+        assertThat(savedDefinitions).hasSize(1);
+        assertThat(savedDefinitions.get(0).getId()).isEqualTo(item.getId());
+        assertThat(savedDefinitions.get(0).getMaxCount()).isEqualTo(item.getMaxCount());
+        assertThat(savedDefinitions.get(0).getItemTags()).hasSize(1);
+        assertThat(savedDefinitions.get(0).getItemTags().get(0).getTag()).isEqualTo("A");
+        assertThat(savedDefinitions.get(0).getContentHash()).isNotNull();
+
+        verify(itemCatalogProvider).rebuildAfterCommit();
+        verify(catalogVersion).increment();
+    }
+
+    @Test
+    public void givenUnchangedItemDefinition_whenPatchItemDefinitions_thenDoesNothing() throws ApiException {
+        // GIVEN
+        PutItemDefinitionsRequestItem item = new PutItemDefinitionsRequestItem();
+        item.setId("testItem");
+        item.setTags(Lists.list());
+        item.setContainers(Lists.list());
+
+        PatchItemDefinitionsRequest request = new PatchItemDefinitionsRequest();
+        request.getUpserts().add(item);
+
+        // Import once to get the hash of the item.
+        collectionService.patchItemDefinitions(request);
+
+        ItemDefinition itemDefinition = new ItemDefinition();
+        itemDefinition.setId("testItem");
+        itemDefinition.setMaxCount(7);
+        itemDefinition.setContentHash(getSavedContentHash());
+        when(itemDefinitionRepository.findAllById(Collections.singleton("testItem")))
+                .thenReturn(Lists.list(itemDefinition));
+
+        // WHEN
+        collectionService.patchItemDefinitions(request);
+
+        // THEN
+        assertThat(itemDefinition.getMaxCount()).isEqualTo(7);
+        verify(itemCatalogProvider, times(1)).rebuildAfterCommit();
+    }
+
+    @SuppressWarnings("unchecked")
+    private String getSavedContentHash() {
+        ArgumentCaptor<List<ItemDefinition>> argument = ArgumentCaptor.forClass(List.class);
+        verify(itemDefinitionRepository).saveAll(argument.capture());
+        return argument.getValue().get(0).getContentHash();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void givenDeletedItemDefinition_whenPatchItemDefinitions_thenRemovesDefinition() throws ApiException {
+        // GIVEN
+        ItemDefinition itemDefinition = mock(ItemDefinition.class);
+        when(itemDefinition.getId()).thenReturn("testItem");
+        when(itemDefinitionRepository.findAllById(Lists.list("testItem"))).thenReturn(Lists.list(itemDefinition));
+
+        PatchItemDefinitionsRequest request = new PatchItemDefinitionsRequest();
+        request.getDeletes().add("testItem");
+
+        // WHEN
+        collectionService.patchItemDefinitions(request);
+
+        // THEN
+        ArgumentCaptor<List<ItemDefinition>> argument = ArgumentCaptor.forClass(List.class);
+        verify(itemDefinitionRepository).deleteAll(argument.capture());
+
+        assertThat(argument.getValue()).containsExactly(itemDefinition);
+        verify(catalogVersion).increment();
+    }
+
+    @Test
+    public void givenDeletedItemDefinition_whenPatchItemDefinitions_thenRemovesContainerOpenings() throws ApiException {
+        // GIVEN
+        ItemDefinition itemDefinition = mock(ItemDefinition.class);
+        when(itemDefinition.getId()).thenReturn("testItem");
+        when(itemDefinitionRepository.findAllById(Lists.list("testItem"))).thenReturn(Lists.list(itemDefinition));
+
+        PatchItemDefinitionsRequest request = new PatchItemDefinitionsRequest();
+        request.getDeletes().add("testItem");
+
+        // WHEN
+        collectionService.patchItemDefinitions(request);
+
+        // THEN
+        InOrder inOrder = inOrder(containerOpeningRepository, itemDefinitionRepository);
+        inOrder.verify(containerOpeningRepository).deleteByItemDefinitionIdIn(Lists.list("testItem"));
+        inOrder.verify(itemDefinitionRepository).deleteAll(Lists.list(itemDefinition));
+    }
+
+    @Test
+    public void givenItemSets_whenWriteItemSets_thenWriteItemSets() throws ApiException, IOException {
+        // GIVEN
+        ItemSetItemCount item1 = mock(ItemSetItemCount.class);
+        when(item1.getItemSetId()).thenReturn("testItemSet1");
+        when(item1.getItemDefinitionId()).thenReturn("testItem1");
+        when(item1.getCount()).thenReturn(2);
+
+        ItemSetItemCount item2 = mock(ItemSetItemCount.class);
+        when(item2.getItemSetId()).thenReturn("testItemSet1");
+        when(item2.getItemDefinitionId()).thenReturn("testItem2");
+        when(item2.getCount()).thenReturn(3);
+
+        ItemSetItemCount emptyItemSet = mock(ItemSetItemCount.class);
+        when(emptyItemSet.getItemSetId()).thenReturn("testItemSet2");
+
+        when(itemSetRepository.streamAllItems()).thenReturn(Stream.of(item1, item2, emptyItemSet));
+
+        // WHEN
+        JsonNode json = writeJson(collectionService::writeItemSets);
+
+        // THEN
+        GetItemSetsResponse response = objectMapper.treeToValue(json, GetItemSetsResponse.class);
+
+        assertThat(response.getItemSets()).hasSize(2);
+        assertThat(response.getItemSets().get(0).getId()).isEqualTo("testItemSet1");
+        assertThat(response.getItemSets().get(0).getItems()).hasSize(2);
+        assertThat(response.getItemSets().get(0).getItems().get(0).getItemDefinitionId()).isEqualTo("testItem1");
+        assertThat(response.getItemSets().get(0).getItems().get(0).getCount()).isEqualTo(2);
+        assertThat(response.getItemSets().get(0).getItems().get(1).getItemDefinitionId()).isEqualTo("testItem2");
+        assertThat(response.getItemSets().get(0).getItems().get(1).getCount()).isEqualTo(3);
+        assertThat(response.getItemSets().get(1).getId()).isEqualTo("testItemSet2");
+        assertThat(response.getItemSets().get(1).getItems()).isEmpty();
+    }
+
+    @Test
+    public void givenUnknownItemDefinition_whenPutItemSets_thenThrowException() {
+        // GIVEN
+        PutItemSetsRequestItem item = mock(PutItemSetsRequestItem.class);
+        when(item.getItemDefinitionId()).thenReturn("testItem");
+
+        PutItemSetsRequestItemSet itemSet = mock(PutItemSetsRequestItemSet.class);
+        when(itemSet.getItems()).thenReturn(Lists.list(item));
+
+        PutItemSetsRequest request = mock(PutItemSetsRequest.class);
+        when(request.getItemSets()).thenReturn(Lists.newArrayList(itemSet));
+
+        // WHEN & THEN
+        assertThatExceptionOfType(ApiException.class)
+                .isThrownBy(() -> collectionService.putItemSets(request))
+                .withMessage(ApiErrors.UNKNOWN_ITEM_DEFINITION_MESSAGE);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void givenItemSets_whenPutItemSets_thenAddsNewSets() throws ApiException {
+        // GIVEN
+        String itemDefinitionId = "testItem";
+
+        PutItemSetsRequestItem item = mock(PutItemSetsRequestItem.class);
+        when(item.getItemDefinitionId()).thenReturn(itemDefinitionId);
+        when(item.getCount()).thenReturn(2);
+
+        PutItemSetsRequestItemSet itemSet = mock(PutItemSetsRequestItemSet.class);
+        when(itemSet.getId()).thenReturn("testItemSet");
+        when(itemSet.getItems()).thenReturn(Lists.list(item));
+
+        PutItemSetsRequest request = mock(PutItemSetsRequest.class);
+        when(request.getItemSets()).thenReturn(Lists.newArrayList(itemSet));
+
+        ItemDefinition itemDefinition = mock(ItemDefinition.class);
+        when(itemDefinition.getId()).thenReturn(itemDefinitionId);
+        when(itemDefinitionRepository.findAll()).thenReturn(Lists.list(itemDefinition));
+
+        // WHEN
+        collectionService.putItemSets(request);
+
+        // THEN
+        ArgumentCaptor<List<ItemSet>> argument = ArgumentCaptor.forClass(List.class);
+        verify(itemSetRepository).saveAll(argument.capture());
+
+        List<ItemSet> savedItemSets = argument.getValue();
+
+        assertThat(savedItemSets).isNotNull();
+        assertThat(savedItemSets).hasSize(1);
+        assertThat(savedItemSets.get(0).getId()).isEqualTo(itemSet.getId());
+        assertThat(savedItemSets.get(0).getItems()).isNotNull();
+        assertThat(savedItemSets.get(0).getItems()).hasSize(1);
+        assertThat(savedItemSets.get(0).getItems().get(0).getItemDefinition()).isEqualTo(itemDefinition);
+        assertThat(savedItemSets.get(0).getItems().get(0).getCount()).isEqualTo(item.getCount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void givenItemSets_whenPutItemSets_thenRemovesObsoleteSets() throws ApiException {
+        // GIVEN
+        ItemSet itemSet1 = mock(ItemSet.class);
+        when(itemSet1.getId()).thenReturn("testItemSet1");
+
+        ItemSet itemSet2 = mock(ItemSet.class);
         when(itemSet2.getId()).thenReturn("testItemSet2");
 
         List<ItemSet> existingItemSets = Lists.list(itemSet1, itemSet2);
@@ -727,6 +1339,18 @@ public class CollectionServiceTests {
         assertThat(deletedItemSets.get(1)).isEqualTo(itemSet2);
     }
 
+    @Test
+    public void givenItemSets_whenPutItemSets_thenIncrementsCatalogVersion() throws ApiException {
+        // GIVEN
+        PutItemSetsRequest request = mock(PutItemSetsRequest.class);
+
+        // WHEN
+        collectionService.putItemSets(request);
+
+        // THEN
+        verify(catalogVersion).increment();
+    }
+
     @Test
     @SuppressWarnings("unchecked")
     public void givenItemSets_whenPutItemSets_thenRetainsExistingSets() throws ApiException {
@@ -791,7 +1415,7 @@ public class CollectionServiceTests {
         // GIVEN
         String playerId = "testPlayer";
 
-        when(itemSetRepository.findUnclaimedItemSetsByPlayerId(playerId)).thenReturn(Lists.emptyList());
+        when(itemSetRepository.findFirstUnclaimedItemSetByPlayerId(playerId)).thenReturn(Optional.empty());
 
         // WHEN
         ClaimItemSetResponse response = collectionService.claimItemSet(playerId);
@@ -802,11 +1426,26 @@ public class CollectionServiceTests {
     }
 
     @Test
-    public void givenUnclaimedItemSet_whenClaimItemSet_thenAddNewItemsToCollection() throws ApiException {
+    public void givenPlayer_whenClaimItemSet_thenLocksPlayerBeforeFindingItemSet() throws ApiException {
+        // GIVEN
+        String playerId = "testPlayer";
+
+        // WHEN
+        collectionService.claimItemSet(playerId);
+
+        // THEN
+        InOrder inOrder = inOrder(playerLockManager, itemSetRepository);
+        inOrder.verify(playerLockManager).lockUntilCompletion(playerId);
+        inOrder.verify(itemSetRepository).findFirstUnclaimedItemSetByPlayerId(playerId);
+    }
+
+    @Test
+    public void givenUnclaimedItemSet_whenClaimItemSet_thenIncrementsCollectionItemCounts() throws ApiException {
         // GIVEN
         String playerId = "testPlayer";
 
         ItemDefinition itemDefinition = mock(ItemDefinition.class);
+        when(itemDefinition.getId()).thenReturn("testItem");
 
         ItemSetItem itemSetItem = mock(ItemSetItem.class);
         when(itemSetItem.getItemDefinition()).thenReturn(itemDefinition);
@@ -815,51 +1454,32 @@ public class CollectionServiceTests {
         ItemSet itemSet = mock(ItemSet.class);
         when(itemSet.getItems()).thenReturn(Lists.list(itemSetItem));
 
-        when(itemSetRepository.findUnclaimedItemSetsByPlayerId(playerId)).thenReturn(Lists.list(itemSet));
+        when(itemSetRepository.findFirstUnclaimedItemSetByPlayerId(playerId)).thenReturn(Optional.of(itemSet));
+        when(claimedItemSetRepository.tryClaim(playerId, itemSet.getId())).thenReturn(true);
 
         // WHEN
         collectionService.claimItemSet(playerId);
 
         // THEN
-        ArgumentCaptor<CollectionItem> argumentCaptor = ArgumentCaptor.forClass(CollectionItem.class);
-        verify(collectionItemRepository).save(argumentCaptor.capture());
-
-        CollectionItem collectionItem = argumentCaptor.getValue();
-
-        assertThat(collectionItem).isNotNull();
-        assertThat(collectionItem.getPlayerId()).isEqualTo(playerId);
-        assertThat(collectionItem.getItemDefinition()).isEqualTo(itemSetItem.getItemDefinition());
-        assertThat(collectionItem.getCount()).isEqualTo(itemSetItem.getCount());
+        verify(collectionItemRepository).incrementCount(playerId, "testItem", 2);
     }
 
     @Test
-    public void givenUnclaimedItemSet_whenClaimItemSet_thenIncreasesExistingCollectionItemCount() throws ApiException {
+    public void givenUnclaimedItemSet_whenClaimItemSet_thenInvalidatesCachedCollection() throws ApiException {
         // GIVEN
         String playerId = "testPlayer";
-        int oldCount = 2;
-        int additionalCount = 3;
-
-        ItemDefinition itemDefinition = mock(ItemDefinition.class);
-
-        CollectionItem collectionItem = mock(CollectionItem.class);
-        when(collectionItem.getCount()).thenReturn(oldCount);
-        when(collectionItemRepository.findByPlayerIdAndItemDefinition(playerId, itemDefinition)).thenReturn(Optional.of(collectionItem));
-
-        ItemSetItem itemSetItem = mock(ItemSetItem.class);
-        when(itemSetItem.getItemDefinition()).thenReturn(itemDefinition);
-        when(itemSetItem.getCount()).thenReturn(additionalCount);
 
         ItemSet itemSet = mock(ItemSet.class);
-        when(itemSet.getItems()).thenReturn(Lists.list(itemSetItem));
+        when(itemSet.getItems()).thenReturn(Lists.emptyList());
 
-        when(itemSetRepository.findUnclaimedItemSetsByPlayerId(playerId)).thenReturn(Lists.list(itemSet));
+        when(itemSetRepository.findFirstUnclaimedItemSetByPlayerId(playerId)).thenReturn(Optional.of(itemSet));
+        when(claimedItemSetRepository.tryClaim(playerId, itemSet.getId())).thenReturn(true);
 
         // WHEN
         collectionService.claimItemSet(playerId);
 
         // THEN
-        verify(collectionItem).setCount(oldCount + additionalCount);
-        verify(collectionItemRepository).save(collectionItem);
+        verify(playerCollectionCache).invalidateAfterCompletion(playerId);
     }
 
     @Test
@@ -868,20 +1488,41 @@ public class CollectionServiceTests {
         String playerId = "testPlayer";
         ItemSet itemSet = mock(ItemSet.class);
 
-        when(itemSetRepository.findUnclaimedItemSetsByPlayerId(playerId)).thenReturn(Lists.list(itemSet));
+        when(itemSetRepository.findFirstUnclaimedItemSetByPlayerId(playerId)).thenReturn(Optional.of(itemSet));
+        when(claimedItemSetRepository.tryClaim(playerId, itemSet.getId())).thenReturn(true);
 
         // WHEN
         collectionService.claimItemSet(playerId);
 
         // THEN
-        ArgumentCaptor<ClaimedItemSet> argumentCaptor = ArgumentCaptor.forClass(ClaimedItemSet.class);
-        verify(claimedItemSetRepository).save(argumentCaptor.capture());
+        verify(claimedItemSetRepository).tryClaim(playerId, itemSet.getId());
+    }
+
+    @Test
+    public void givenConcurrentlyClaimedItemSet_whenClaimItemSet_thenDoesNotAddItems() throws ApiException {
+        // GIVEN
+        String playerId = "testPlayer";
+
+        ItemDefinition itemDefinition = mock(ItemDefinition.class);
+        when(itemDefinition.getId()).thenReturn("testItem");
+
+        ItemSetItem itemSetItem = mock(ItemSetItem.class);
+        when(itemSetItem.getItemDefinition()).thenReturn(itemDefinition);
+        when(itemSetItem.getCount()).thenReturn(2);
+
+        ItemSet itemSet = mock(ItemSet.class);
+        when(itemSet.getId()).thenReturn("testItemSet");
+        when(itemSet.getItems()).thenReturn(Lists.list(itemSetItem));
 
-        ClaimedItemSet claimedItemSet = argumentCaptor.getValue();
+        when(itemSetRepository.findFirstUnclaimedItemSetByPlayerId(playerId)).thenReturn(Optional.of(itemSet));
+        when(claimedItemSetRepository.tryClaim(playerId, itemSet.getId())).thenReturn(false);
 
-        assertThat(claimedItemSet).isNotNull();
-        assertThat(claimedItemSet.getItemSet()).isEqualTo(itemSet);
-        assertThat(claimedItemSet.getPlayerId()).isEqualTo(playerId);
+        // WHEN
+        ClaimItemSetResponse response = collectionService.claimItemSet(playerId);
+
+        // THEN
+        assertThat(response.getItemSetId()).isNull();
+        verify(collectionItemRepository, never()).incrementCount(any(), any(), anyInt());
     }
 
     @Test
@@ -900,7 +1541,8 @@ public class CollectionServiceTests {
         when(itemSet.getId()).thenReturn("testItemSet");
         when(itemSet.getItems()).thenReturn(Lists.list(itemSetItem));
 
-        when(itemSetRepository.findUnclaimedItemSetsByPlayerId(playerId)).thenReturn(Lists.list(itemSet));
+        when(itemSetRepository.findFirstUnclaimedItemSetByPlayerId(playerId)).thenReturn(Optional.of(itemSet));
+        when(claimedItemSetRepository.tryClaim(playerId, itemSet.getId())).thenReturn(true);
 
         // WHEN
         ClaimItemSetResponse response = collectionService.claimItemSet(playerId);
@@ -943,7 +1585,9 @@ public class CollectionServiceTests {
         String itemDefinitionId = "testItemDefinition";
 
         ItemDefinition itemDefinition = mock(ItemDefinition.class);
-        when(itemDefinitionRepository.findById(itemDefinitionId)).thenReturn(Optional.of(itemDefinition));
+        when(itemDefinition.getId()).thenReturn(itemDefinitionId);
+        when(itemDefinitionRepository.getOne(itemDefinitionId)).thenReturn(itemDefinition);
+        givenCatalog(itemDefinition);
 
         // WHEN & THEN
         assertThatExceptionOfType(ApiException.class)
@@ -951,6 +1595,27 @@ public class CollectionServiceTests {
                 .withMessage(ApiErrors.PLAYER_DOES_NOT_OWN_ITEM_MESSAGE);
     }
 
+    @Test
+    public void givenPlayer_whenOpenContainer_thenLocksPlayerBeforeReadingCollection() {
+        // GIVEN
+        String playerId = "testPlayer";
+        String itemDefinitionId = "testItemDefinition";
+
+        ItemDefinition itemDefinition = mock(ItemDefinition.class);
+        when(itemDefinition.getId()).thenReturn(itemDefinitionId);
+        givenCatalog(itemDefinition);
+
+        // WHEN
+        assertThatExceptionOfType(ApiException.class)
+                .isThrownBy(() -> collectionService.openContainer(playerId, itemDefinitionId));
+
+        // THEN
+        InOrder inOrder = inOrder(playerLockManager, collectionWriteBehind, collectionItemRepository);
+        inOrder.verify(playerLockManager).lockUntilCompletion(playerId);
+        inOrder.verify(collectionWriteBehind).flush(playerId);
+        inOrder.verify(collectionItemRepository).findByPlayerId(playerId);
+    }
+
     @Test
     public void givenInvalidContainer_whenOpenContainer_thenThrowException() {
         // GIVEN
@@ -959,12 +1624,14 @@ public class CollectionServiceTests {
 
         ItemDefinition itemDefinition = mock(ItemDefinition.class);
         when(itemDefinition.getContainers()).thenReturn(Lists.emptyList());
-        when(itemDefinitionRepository.findById(itemDefinitionId)).thenReturn(Optional.of(itemDefinition));
+        when(itemDefinition.getId()).thenReturn(itemDefinitionId);
+        when(itemDefinitionRepository.getOne(itemDefinitionId)).thenReturn(itemDefinition);
+        givenCatalog(itemDefinition);
 
         CollectionItem collectionItem = mock(CollectionItem.class);
         when(collectionItem.getItemDefinition()).thenReturn(itemDefinition);
-        when(collectionItemRepository.findByPlayerIdAndItemDefinition(playerId, itemDefinition))
-                .thenReturn(Optional.of(collectionItem));
+        when(collectionItem.getCount()).thenReturn(1);
+        when(collectionItemRepository.findByPlayerId(playerId)).thenReturn(Lists.list(collectionItem));
 
         // WHEN & THEN
         assertThatExceptionOfType(ApiException.class)
@@ -985,8 +1652,7 @@ public class CollectionServiceTests {
         when(containedItemDefinition.getId()).thenReturn(containedItemDefinitionId);
         when(containedItemDefinition.getItemTags()).thenReturn(Lists.list(itemTag));
 
-        when(itemDefinitionRepository.findById(containedItemDefinitionId)).thenReturn(Optional.of(containedItemDefinition));
-        when(itemDefinitionRepository.findAll()).thenReturn(Lists.list(containedItemDefinition));
+        when(itemDefinitionRepository.getOne(containedItemDefinitionId)).thenReturn(containedItemDefinition);
 
         ContainedItem containedItem1 = mock(ContainedItem.class);
         when(containedItem1.getRelativeProbability()).thenReturn(2);
@@ -1002,26 +1668,20 @@ public class CollectionServiceTests {
 
         ItemDefinition itemDefinition = mock(ItemDefinition.class);
         when(itemDefinition.getContainers()).thenReturn(Lists.list(itemContainer));
-        when(itemDefinitionRepository.findById(itemDefinitionId)).thenReturn(Optional.of(itemDefinition));
+        when(itemDefinition.getId()).thenReturn(itemDefinitionId);
+        when(itemDefinitionRepository.getOne(itemDefinitionId)).thenReturn(itemDefinition);
+        givenCatalog(itemDefinition, containedItemDefinition);
 
         CollectionItem collectionItem = mock(CollectionItem.class);
         when(collectionItem.getItemDefinition()).thenReturn(itemDefinition);
-        when(collectionItemRepository.findByPlayerIdAndItemDefinition(playerId, itemDefinition))
-                .thenReturn(Optional.of(collectionItem));
+        when(collectionItem.getCount()).thenReturn(1);
+        when(collectionItemRepository.findByPlayerId(playerId)).thenReturn(Lists.list(collectionItem));
 
         // WHEN
         collectionService.openContainer(playerId, itemDefinitionId);
 
         // THEN
-        ArgumentCaptor<CollectionItem> argumentCaptor = ArgumentCaptor.forClass(CollectionItem.class);
-        verify(collectionItemRepository).save(argumentCaptor.capture());
-
-        CollectionItem savedItem = argumentCaptor.getValue();
-
-        assertThat(savedItem).isNotNull();
-        assertThat(savedItem.getPlayerId()).isEqualTo(playerId);
-        assertThat(savedItem.getItemDefinition()).isEqualTo(containedItemDefinition);
-        assertThat(savedItem.getCount()).isEqualTo(1);
+        verify(collectionItemRepository).incrementCount(playerId, containedItemDefinitionId, 1);
     }
 
     @Test
@@ -1043,10 +1703,10 @@ public class CollectionServiceTests {
         ItemDefinition containedOtherItemDefinition = mock(ItemDefinition.class);
         when(containedOtherItemDefinition.getId()).thenReturn(containedOtherItemDefinitionId);
         when(containedOtherItemDefinition.getItemTags()).thenReturn(Lists.list(itemTag));
+        when(containedOtherItemDefinition.getMaxCount()).thenReturn(null);
 
-        when(itemDefinitionRepository.findById(containedItemDefinitionAtMaxCountId)).thenReturn(Optional.of(containedItemDefinitionAtMaxCount));
-        when(itemDefinitionRepository.findById(containedOtherItemDefinitionId)).thenReturn(Optional.of(containedOtherItemDefinition));
-        when(itemDefinitionRepository.findAll()).thenReturn(Lists.list(containedItemDefinitionAtMaxCount, containedOtherItemDefinition));
+        when(itemDefinitionRepository.getOne(containedItemDefinitionAtMaxCountId)).thenReturn(containedItemDefinitionAtMaxCount);
+        when(itemDefinitionRepository.getOne(containedOtherItemDefinitionId)).thenReturn(containedOtherItemDefinition);
 
         ContainedItem containedItem = mock(ContainedItem.class);
         when(containedItem.getRelativeProbability()).thenReturn(2);
@@ -1058,29 +1718,25 @@ public class CollectionServiceTests {
 
         ItemDefinition itemDefinition = mock(ItemDefinition.class);
         when(itemDefinition.getContainers()).thenReturn(Lists.list(itemContainer));
-        when(itemDefinitionRepository.findById(itemDefinitionId)).thenReturn(Optional.of(itemDefinition));
+        when(itemDefinition.getId()).thenReturn(itemDefinitionId);
+        when(itemDefinitionRepository.getOne(itemDefinitionId)).thenReturn(itemDefinition);
+        givenCatalog(itemDefinition, containedItemDefinitionAtMaxCount, containedOtherItemDefinition);
 
         CollectionItem collectionItem = mock(CollectionItem.class);
         when(collectionItem.getItemDefinition()).thenReturn(itemDefinition);
-        when(collectionItemRepository.findByPlayerIdAndItemDefinition(playerId, itemDefinition))
-                .thenReturn(Optional.of(collectionItem));
+        when(collectionItem.getCount()).thenReturn(1);
 
         CollectionItem collectionItemAtMaxCount = mock(CollectionItem.class);
         when(collectionItemAtMaxCount.getItemDefinition()).thenReturn(containedItemDefinitionAtMaxCount);
         when(collectionItemAtMaxCount.getCount()).thenReturn(maxCount);
-        when(collectionItemRepository.findByPlayerId(playerId)).thenReturn(Lists.list(collectionItemAtMaxCount));
+        when(collectionItemRepository.findByPlayerId(playerId)).thenReturn(Lists.list(collectionItem, collectionItemAtMaxCount));
 
         // WHEN
         collectionService.openContainer(playerId, itemDefinitionId);
 
         // THEN
-        ArgumentCaptor<CollectionItem> argumentCaptor = ArgumentCaptor.forClass(CollectionItem.class);
-        verify(collectionItemRepository).save(argumentCaptor.capture());
-
-        CollectionItem savedItem = argumentCaptor.getValue();
-
-        assertThat(savedItem).isNotNull();
-        assertThat(savedItem.getItemDefinition()).isNotEqualTo(containedItemDefinitionAtMaxCount);
+        verify(collectionItemRepository).incrementCount(playerId, containedOtherItemDefinitionId, 1);
+        verify(collectionItemRepository, never()).incrementCount(playerId, containedItemDefinitionAtMaxCountId, 1);
     }
 
     @Test
@@ -1104,9 +1760,8 @@ public class CollectionServiceTests {
         when(containedOtherItemDefinition.getItemTags()).thenReturn(Lists.list(itemTag));
         when(containedOtherItemDefinition.getMaxCount()).thenReturn(maxCount);
 
-        when(itemDefinitionRepository.findById(containedItemDefinitionAtMaxCountId)).thenReturn(Optional.of(containedItemDefinitionAtMaxCount));
-        when(itemDefinitionRepository.findById(containedOtherItemDefinitionId)).thenReturn(Optional.of(containedOtherItemDefinition));
-        when(itemDefinitionRepository.findAll()).thenReturn(Lists.list(containedItemDefinitionAtMaxCount, containedOtherItemDefinition));
+        when(itemDefinitionRepository.getOne(containedItemDefinitionAtMaxCountId)).thenReturn(containedItemDefinitionAtMaxCount);
+        when(itemDefinitionRepository.getOne(containedOtherItemDefinitionId)).thenReturn(containedOtherItemDefinition);
 
         ContainedItem containedItem = mock(ContainedItem.class);
         when(containedItem.getRelativeProbability()).thenReturn(2);
@@ -1118,12 +1773,13 @@ public class CollectionServiceTests {
 
         ItemDefinition itemDefinition = mock(ItemDefinition.class);
         when(itemDefinition.getContainers()).thenReturn(Lists.list(itemContainer));
-        when(itemDefinitionRepository.findById(itemDefinitionId)).thenReturn(Optional.of(itemDefinition));
+        when(itemDefinition.getId()).thenReturn(itemDefinitionId);
+        when(itemDefinitionRepository.getOne(itemDefinitionId)).thenReturn(itemDefinition);
+        givenCatalog(itemDefinition, containedItemDefinitionAtMaxCount, containedOtherItemDefinition);
 
         CollectionItem collectionItem = mock(CollectionItem.class);
         when(collectionItem.getItemDefinition()).thenReturn(itemDefinition);
-        when(collectionItemRepository.findByPlayerIdAndItemDefinition(playerId, itemDefinition))
-                .thenReturn(Optional.of(collectionItem));
+        when(collectionItem.getCount()).thenReturn(1);
 
         CollectionItem collectionItemAtMaxCount = mock(CollectionItem.class);
         when(collectionItemAtMaxCount.getItemDefinition()).thenReturn(containedItemDefinitionAtMaxCount);
@@ -1131,21 +1787,16 @@ public class CollectionServiceTests {
         CollectionItem otherCollectionItemAtMaxCount = mock(CollectionItem.class);
         when(otherCollectionItemAtMaxCount.getItemDefinition()).thenReturn(containedOtherItemDefinition);
         when(otherCollectionItemAtMaxCount.getCount()).thenReturn(maxCount);
-        when(collectionItemRepository.findByPlayerId(playerId)).thenReturn(Lists.list(collectionItemAtMaxCount, otherCollectionItemAtMaxCount));
+        when(collectionItemRepository.findByPlayerId(playerId)).thenReturn(Lists.list(collectionItem, collectionItemAtMaxCount, otherCollectionItemAtMaxCount));
 
         // WHEN
         collectionService.openContainer(playerId, itemDefinitionId);
 
         // THEN
-        ArgumentCaptor<CollectionItem> argumentCaptor = ArgumentCaptor.forClass(CollectionItem.class);
-        verify(collectionItemRepository).save(argumentCaptor.capture());
-
-        CollectionItem savedItem = argumentCaptor.getValue();
+        ArgumentCaptor<String> argumentCaptor = ArgumentCaptor.forClass(String.class);
+        verify(collectionItemRepository).incrementCount(eq(playerId), argumentCaptor.capture(), eq(1));
 
-        assertThat(savedItem).isNotNull();
-        assertThat(savedItem.getPlayerId()).isEqualTo(playerId);
-        assertThat(savedItem.getItemDefinition()).isIn(containedItemDefinitionAtMaxCount, containedOtherItemDefinition);
-        assertThat(savedItem.getCount()).isEqualTo(1);
+        assertThat(argumentCaptor.getValue()).isIn(containedItemDefinitionAtMaxCountId, containedOtherItemDefinitionId);
     }
 
     @Test
@@ -1161,8 +1812,7 @@ public class CollectionServiceTests {
         when(containedItemDefinition.getId()).thenReturn(containedItemDefinitionId);
         when(containedItemDefinition.getItemTags()).thenReturn(Lists.list(itemTag));
 
-        when(itemDefinitionRepository.findById(containedItemDefinitionId)).thenReturn(Optional.of(containedItemDefinition));
-        when(itemDefinitionRepository.findAll()).thenReturn(Lists.list(containedItemDefinition));
+        when(itemDefinitionRepository.getOne(containedItemDefinitionId)).thenReturn(containedItemDefinition);
 
         ContainedItem containedItem1 = mock(ContainedItem.class);
         when(containedItem1.getRelativeProbability()).thenReturn(2);
@@ -1178,22 +1828,38 @@ public class CollectionServiceTests {
 
         ItemDefinition itemDefinition = mock(ItemDefinition.class);
         when(itemDefinition.getContainers()).thenReturn(Lists.list(itemContainer));
-        when(itemDefinitionRepository.findById(itemDefinitionId)).thenReturn(Optional.of(itemDefinition));
+        when(itemDefinition.getId()).thenReturn(itemDefinitionId);
+        when(itemDefinitionRepository.getOne(itemDefinitionId)).thenReturn(itemDefinition);
+        givenCatalog(itemDefinition, containedItemDefinition);
 
         CollectionItem collectionItem = mock(CollectionItem.class);
         when(collectionItem.getItemDefinition()).thenReturn(itemDefinition);
         when(collectionItem.getCount()).thenReturn(2);
-        when(collectionItemRepository.findByPlayerIdAndItemDefinition(playerId, itemDefinition))
-                .thenReturn(Optional.of(collectionItem));
+        when(collectionItemRepository.findByPlayerId(playerId)).thenReturn(Lists.list(collectionItem));
 
         // WHEN
         collectionService.openContainer(playerId, itemDefinitionId);
 
         // THEN
-        verify(collectionItem).setCount(collectionItem.getCount() - 1);
+        verify(collectionItem).setCount(1);
         verify(collectionItemRepository).save(collectionItem);
     }
 
+    @Test
+    public void givenValidContainer_whenOpenContainer_thenInvalidatesCachedCollection() throws ApiException {
+        // GIVEN
+        String playerId = "testPlayer";
+        String containerId = "testContainer";
+
+        givenContainerInCollection(playerId, containerId, 1);
+
+        // WHEN
+        collectionService.openContainer(playerId, containerId);
+
+        // THEN
+        verify(playerCollectionCache).invalidateAfterCompletion(playerId);
+    }
+
     @Test
     public void givenLastValidContainer_whenOpenContainer_thenRemovesContainer() throws ApiException {
         // GIVEN
@@ -1207,8 +1873,7 @@ public class CollectionServiceTests {
         when(containedItemDefinition.getId()).thenReturn(containedItemDefinitionId);
         when(containedItemDefinition.getItemTags()).thenReturn(Lists.list(itemTag));
 
-        when(itemDefinitionRepository.findById(containedItemDefinitionId)).thenReturn(Optional.of(containedItemDefinition));
-        when(itemDefinitionRepository.findAll()).thenReturn(Lists.list(containedItemDefinition));
+        when(itemDefinitionRepository.getOne(containedItemDefinitionId)).thenReturn(containedItemDefinition);
 
         ContainedItem containedItem1 = mock(ContainedItem.class);
         when(containedItem1.getRelativeProbability()).thenReturn(2);
@@ -1224,12 +1889,14 @@ public class CollectionServiceTests {
 
         ItemDefinition itemDefinition = mock(ItemDefinition.class);
         when(itemDefinition.getContainers()).thenReturn(Lists.list(itemContainer));
-        when(itemDefinitionRepository.findById(itemDefinitionId)).thenReturn(Optional.of(itemDefinition));
+        when(itemDefinition.getId()).thenReturn(itemDefinitionId);
+        when(itemDefinitionRepository.getOne(itemDefinitionId)).thenReturn(itemDefinition);
+        givenCatalog(itemDefinition, containedItemDefinition);
 
         CollectionItem collectionItem = mock(CollectionItem.class);
         when(collectionItem.getItemDefinition()).thenReturn(itemDefinition);
-        when(collectionItemRepository.findByPlayerIdAndItemDefinition(playerId, itemDefinition))
-                .thenReturn(Optional.of(collectionItem));
+        when(collectionItem.getCount()).thenReturn(1);
+        when(collectionItemRepository.findByPlayerId(playerId)).thenReturn(Lists.list(collectionItem));
 
         // WHEN
         collectionService.openContainer(playerId, itemDefinitionId);
@@ -1251,8 +1918,7 @@ public class CollectionServiceTests {
         when(containedItemDefinition.getId()).thenReturn(containedItemDefinitionId);
         when(containedItemDefinition.getItemTags()).thenReturn(Lists.list(itemTag));
 
-        when(itemDefinitionRepository.findById(containedItemDefinitionId)).thenReturn(Optional.of(containedItemDefinition));
-        when(itemDefinitionRepository.findAll()).thenReturn(Lists.list(containedItemDefinition));
+        when(itemDefinitionRepository.getOne(containedItemDefinitionId)).thenReturn(containedItemDefinition);
 
         ContainedItem containedItem1 = mock(ContainedItem.class);
         when(containedItem1.getRelativeProbability()).thenReturn(2);
@@ -1268,12 +1934,14 @@ public class CollectionServiceTests {
 
         ItemDefinition itemDefinition = mock(ItemDefinition.class);
         when(itemDefinition.getContainers()).thenReturn(Lists.list(itemContainer));
-        when(itemDefinitionRepository.findById(itemDefinitionId)).thenReturn(Optional.of(itemDefinition));
+        when(itemDefinition.getId()).thenReturn(itemDefinitionId);
+        when(itemDefinitionRepository.getOne(itemDefinitionId)).thenReturn(itemDefinition);
+        givenCatalog(itemDefinition, containedItemDefinition);
 
         CollectionItem collectionItem = mock(CollectionItem.class);
         when(collectionItem.getItemDefinition()).thenReturn(itemDefinition);
-        when(collectionItemRepository.findByPlayerIdAndItemDefinition(playerId, itemDefinition))
-                .thenReturn(Optional.of(collectionItem));
+        when(collectionItem.getCount()).thenReturn(1);
+        when(collectionItemRepository.findByPlayerId(playerId)).thenReturn(Lists.list(collectionItem));
 
         // WHEN
         OpenContainerResponse response = collectionService.openContainer(playerId, itemDefinitionId);
@@ -1284,4 +1952,388 @@ public class CollectionServiceTests {
         assertThat(response.getAddedItems()).hasSize(1);
         assertThat(response.getAddedItems().get(containedItemDefinitionId)).isEqualTo(1);
     }
+
+    @Test
+    public void givenInvalidCount_whenOpenContainer_thenThrowException() {
+        // GIVEN
+        String itemDefinitionId = "testItemDefinition";
+
+        ItemDefinition itemDefinition = mock(ItemDefinition.class);
+        when(itemDefinition.getId()).thenReturn(itemDefinitionId);
+        givenCatalog(itemDefinition);
+
+        // WHEN & THEN
+        assertThatExceptionOfType(ApiException.class)
+                .isThrownBy(() -> collectionService.openContainer("testPlayer", itemDefinitionId, 0))
+                .withMessage(ApiErrors.INVALID_ITEM_COUNT_MESSAGE);
+    }
+
+    @Test
+    public void givenTooFewContainers_whenOpenContainer_thenThrowException() {
+        // GIVEN
+        String playerId = "testPlayer";
+        String itemDefinitionId = "testItemDefinition";
+
+        ItemDefinition itemDefinition = mock(ItemDefinition.class);
+        when(itemDefinition.getId()).thenReturn(itemDefinitionId);
+        givenCatalog(itemDefinition);
+
+        CollectionItem collectionItem = mock(CollectionItem.class);
+        when(collectionItem.getItemDefinition()).thenReturn(itemDefinition);
+        when(collectionItem.getCount()).thenReturn(2);
+        when(collectionItemRepository.findByPlayerId(playerId)).thenReturn(Lists.list(collectionItem));
+
+        // WHEN & THEN
+        assertThatExceptionOfType(ApiException.class)
+                .isThrownBy(() -> collectionService.openContainer(playerId, itemDefinitionId, 3))
+                .withMessage(ApiErrors.PLAYER_DOES_NOT_OWN_ITEM_MESSAGE);
+    }
+
+    @Test
+    public void givenMultipleContainers_whenOpenContainer_thenRespectsMaxCountAcrossBatch() throws ApiException {
+        // GIVEN
+        String playerId = "testPlayer";
+        String itemDefinitionId = "testItemDefinition";
+
+        ItemTag itemTag = new ItemTag("testItemTag");
+
+        ItemDefinition uniqueItemDefinition = new ItemDefinition();
+        uniqueItemDefinition.setId("testUniqueItemDefinition");
+        uniqueItemDefinition.setMaxCount(1);
+        uniqueItemDefinition.setItemTags(Lists.list(itemTag));
+        uniqueItemDefinition.setContainers(Lists.emptyList());
+
+        ItemDefinition commonItemDefinition = new ItemDefinition();
+        commonItemDefinition.setId("testCommonItemDefinition");
+        commonItemDefinition.setItemTags(Lists.list(itemTag));
+        commonItemDefinition.setContainers(Lists.emptyList());
+
+        ContainedItem containedItem = new ContainedItem();
+        containedItem.setRelativeProbability(1);
+        containedItem.setRequiredTags(Lists.list(itemTag));
+
+        ItemContainer itemContainer = new ItemContainer();
+        itemContainer.setItemCount(5);
+        itemContainer.setContainedItems(Lists.list(containedItem));
+
+        ItemDefinition itemDefinition = new ItemDefinition();
+        itemDefinition.setId(itemDefinitionId);
+        itemDefinition.setItemTags(Lists.emptyList());
+        itemDefinition.setContainers(Lists.list(itemContainer));
+        givenCatalog(itemDefinition, uniqueItemDefinition, commonItemDefinition);
+
+        when(itemDefinitionRepository.getOne(uniqueItemDefinition.getId())).thenReturn(uniqueItemDefinition);
+        when(itemDefinitionRepository.getOne(commonItemDefinition.getId())).thenReturn(commonItemDefinition);
+
+        CollectionItem collectionItem = new CollectionItem();
+        collectionItem.setPlayerId(playerId);
+        collectionItem.setItemDefinition(itemDefinition);
+        collectionItem.setCount(4);
+        when(collectionItemRepository.findByPlayerId(playerId)).thenReturn(Lists.list(collectionItem));
+
+        // WHEN
+        OpenContainerResponse response = collectionService.openContainer(playerId, itemDefinitionId, 4);
+
+        // THEN
+        assertThat(response.getAddedItems().getOrDefault(uniqueItemDefinition.getId(), 0)).isLessThanOrEqualTo(1);
+        assertThat(response.getAddedItems().values().stream().mapToInt(Integer::intValue).sum()).isEqualTo(20);
+
+        verify(collectionItemRepository).delete(collectionItem);
+        verify(collectionItemRepository, never()).findByPlayerIdAndItemDefinition(any(), any());
+    }
+
+    @Test
+    public void givenContainersOfDifferentTypes_whenOpenContainers_thenOpensAll() throws ApiException {
+        // GIVEN
+        String playerId = "testPlayer";
+
+        ItemTag itemTag = new ItemTag("testItemTag");
+
+        ItemDefinition containedItemDefinition = new ItemDefinition();
+        containedItemDefinition.setId("testContainedItemDefinition");
+        containedItemDefinition.setItemTags(Lists.list(itemTag));
+        containedItemDefinition.setContainers(Lists.emptyList());
+        when(itemDefinitionRepository.getOne(containedItemDefinition.getId())).thenReturn(containedItemDefinition);
+
+        ContainedItem containedItem = new ContainedItem();
+        containedItem.setRelativeProbability(1);
+        containedItem.setRequiredTags(Lists.list(itemTag));
+
+        ItemContainer itemContainer = new ItemContainer();
+        itemContainer.setItemCount(1);
+        itemContainer.setContainedItems(Lists.list(containedItem));
+
+        ItemDefinition firstContainer = new ItemDefinition();
+        firstContainer.setId("testFirstContainer");
+        firstContainer.setItemTags(Lists.emptyList());
+        firstContainer.setContainers(Lists.list(itemContainer));
+
+        ItemDefinition secondContainer = new ItemDefinition();
+        secondContainer.setId("testSecondContainer");
+        secondContainer.setItemTags(Lists.emptyList());
+        secondContainer.setContainers(Lists.list(itemContainer, itemContainer));
+
+        givenCatalog(containedItemDefinition, firstContainer, secondContainer);
+
+        CollectionItem firstCollectionItem = new CollectionItem();
+        firstCollectionItem.setItemDefinition(firstContainer);
+        firstCollectionItem.setCount(3);
+
+        CollectionItem secondCollectionItem = new CollectionItem();
+        secondCollectionItem.setItemDefinition(secondContainer);
+        secondCollectionItem.setCount(1);
+
+        when(collectionItemRepository.findByPlayerId(playerId))
+                .thenReturn(Lists.list(firstCollectionItem, secondCollectionItem));
+
+        OpenContainersRequest request = new OpenContainersRequest();
+        request.getContainers().add(new OpenContainersRequestContainer(firstContainer.getId(), 2));
+        request.getContainers().add(new OpenContainersRequestContainer(secondContainer.getId(), 1));
+
+        // WHEN
+        OpenContainerResponse response = collectionService.openContainers(playerId, request);
+
+        // THEN
+        assertThat(response.getAddedItems()).containsOnlyKeys(containedItemDefinition.getId());
+        assertThat(response.getAddedItems().get(containedItemDefinition.getId())).isEqualTo(4);
+
+        assertThat(firstCollectionItem.getCount()).isEqualTo(1);
+        verify(collectionItemRepository).save(firstCollectionItem);
+        verify(collectionItemRepository).delete(secondCollectionItem);
+    }
+
+    @Test
+    public void givenDeterministicRandom_whenOpenContainer_thenRollsWithOpeningCounter() throws ApiException {
+        // GIVEN
+        String playerId = "testPlayer";
+        String containerId = "testContainer";
+        CollectionItem collectionItem = givenContainerInCollection(playerId, containerId, 2);
+
+        doReturn(true).when(lootRandomProvider).isDeterministic();
+
+        ContainerOpening containerOpening = new ContainerOpening();
+        containerOpening.setPlayerId(playerId);
+        containerOpening.setItemDefinition(collectionItem.getItemDefinition());
+        containerOpening.setCount(5L);
+        givenCollection(collectionItem, containerOpening);
+
+        // WHEN
+        collectionService.openContainer(playerId, containerId, 2);
+
+        // THEN
+        verify(lootRandomProvider).getRandom(playerId, containerId, 5L);
+        verify(lootRandomProvider).getRandom(playerId, containerId, 6L);
+
+        assertThat(containerOpening.getCount()).isEqualTo(7L);
+        verify(containerOpeningRepository).save(containerOpening);
+    }
+
+    @Test
+    public void givenDeterministicRandomAndFirstOpening_whenOpenContainer_thenCreatesOpeningCounter()
+            throws ApiException {
+        // GIVEN
+        String playerId = "testPlayer";
+        String containerId = "testContainer";
+        ItemDefinition container = givenContainerInCollection(playerId, containerId, 3).getItemDefinition();
+
+        ContainerOpening containerOpening = new ContainerOpening();
+        containerOpening.setPlayerId(playerId);
+        containerOpening.setItemDefinition(container);
+
+        doReturn(true).when(lootRandomProvider).isDeterministic();
+        when(containerOpeningRepository.findByPlayerIdAndItemDefinitionId(playerId, containerId))
+                .thenReturn(containerOpening);
+
+        // WHEN
+        collectionService.openContainer(playerId, containerId, 3);
+
+        // THEN
+        verify(lootRandomProvider).getRandom(playerId, containerId, 0L);
+
+        InOrder inOrder = inOrder(containerOpeningRepository);
+        inOrder.verify(containerOpeningRepository).insertIfAbsent(playerId, containerId);
+        inOrder.verify(containerOpeningRepository).findByPlayerIdAndItemDefinitionId(playerId, containerId);
+        inOrder.verify(containerOpeningRepository).save(containerOpening);
+
+        assertThat(containerOpening.getCount()).isEqualTo(3L);
+    }
+
+    @Test
+    public void givenFirstOpeningCreatedConcurrently_whenOpenContainer_thenContinuesConcurrentOpeningCounter()
+            throws ApiException {
+        // GIVEN
+        String playerId = "testPlayer";
+        String containerId = "testContainer";
+        ItemDefinition container = givenContainerInCollection(playerId, containerId, 1).getItemDefinition();
+
+        ContainerOpening concurrentOpening = new ContainerOpening();
+        concurrentOpening.setPlayerId(playerId);
+        concurrentOpening.setItemDefinition(container);
+        concurrentOpening.setCount(2L);
+
+        doReturn(true).when(lootRandomProvider).isDeterministic();
+        when(containerOpeningRepository.insertIfAbsent(playerId, containerId)).thenReturn(false);
+        when(containerOpeningRepository.findByPlayerIdAndItemDefinitionId(playerId, containerId))
+                .thenReturn(concurrentOpening);
+
+        // WHEN
+        collectionService.openContainer(playerId, containerId);
+
+        // THEN
+        verify(lootRandomProvider).getRandom(playerId, containerId, 2L);
+        verify(containerOpeningRepository).save(concurrentOpening);
+        assertThat(concurrentOpening.getCount()).isEqualTo(3L);
+    }
+
+    @Test
+    public void givenThreadLocalRandom_whenOpenContainer_thenDoesNotCountOpenings() throws ApiException {
+        // GIVEN
+        String playerId = "testPlayer";
+        String containerId = "testContainer";
+        givenContainerInCollection(playerId, containerId, 1);
+
+        // WHEN
+        collectionService.openContainer(playerId, containerId);
+
+        // THEN
+        verifyNoInteractions(containerOpeningRepository);
+        verify(collectionItemRepository, never()).findWithContainerOpeningsByPlayerId(any());
+    }
+
+    @Test
+    public void givenPityRuleAtMaxOpenings_whenOpenContainer_thenGuaranteesItem() throws ApiException {
+        // GIVEN
+        String playerId = "testPlayer";
+        ContainerOpening containerOpening = givenContainerWithPityRule(playerId, 1, 0, 3, 2, 1);
+
+        // WHEN
+        OpenContainerResponse response = collectionService.openContainer(playerId, "testContainer");
+
+        // THEN
+        assertThat(response.getAddedItems()).containsOnlyKeys("testEpicItemDefinition");
+        assertThat(containerOpening.getPityCounters()).containsEntry("epic", 0);
+        verify(containerOpeningRepository).save(containerOpening);
+    }
+
+    @Test
+    public void givenPityRuleBelowMaxOpenings_whenOpenContainer_thenIncrementsCounter() throws ApiException {
+        // GIVEN
+        String playerId = "testPlayer";
+        ContainerOpening containerOpening = givenContainerWithPityRule(playerId, 1, 0, 3, 1, 1);
+
+        // WHEN
+        OpenContainerResponse response = collectionService.openContainer(playerId, "testContainer");
+
+        // THEN
+        assertThat(response.getAddedItems()).containsOnlyKeys("testCommonItemDefinition");
+        assertThat(containerOpening.getPityCounters()).containsEntry("epic", 2);
+    }
+
+    @Test
+    public void givenItemSatisfyingPityRule_whenOpenContainer_thenResetsCounter() throws ApiException {
+        // GIVEN
+        String playerId = "testPlayer";
+        ContainerOpening containerOpening = givenContainerWithPityRule(playerId, 0, 1, 3, 1, 1);
+
+        // WHEN
+        OpenContainerResponse response = collectionService.openContainer(playerId, "testContainer");
+
+        // THEN
+        assertThat(response.getAddedItems()).containsOnlyKeys("testEpicItemDefinition");
+        assertThat(containerOpening.getPityCounters()).containsEntry("epic", 0);
+    }
+
+    @Test
+    public void givenPityRuleAndMultipleContainers_whenOpenContainer_thenGuaranteesItemWithinEachMaxOpenings()
+            throws ApiException {
+        // GIVEN
+        String playerId = "testPlayer";
+        ContainerOpening containerOpening = givenContainerWithPityRule(playerId, 1, 0, 2, 0, 5);
+
+        // WHEN
+        OpenContainerResponse response = collectionService.openContainer(playerId, "testContainer", 5);
+
+        // THEN
+        assertThat(response.getAddedItems()).containsEntry("testCommonItemDefinition", 3);
+        assertThat(response.getAddedItems()).containsEntry("testEpicItemDefinition", 2);
+        assertThat(containerOpening.getPityCounters()).containsEntry("epic", 1);
+        assertThat(containerOpening.getCount()).isEqualTo(5L);
+
+        verify(collectionItemRepository, never()).findByPlayerId(playerId);
+    }
+
+    @Test
+    public void givenUnknownItemTag_whenPutContainerPityRules_thenThrowException() {
+        // GIVEN
+        ItemDefinition container = new ItemDefinition();
+        container.setId("testContainer");
+        ItemContainer itemContainer = new ItemContainer();
+        itemContainer.setContainedItems(Lists.emptyList());
+        container.setContainers(Lists.list(itemContainer));
+        givenCatalog(container);
+
+        PutContainerPityRulesRequest request = new PutContainerPityRulesRequest();
+        request.getRules().add(new PutContainerPityRulesRequestRule(container.getId(), "unknownTag", 10));
+
+        // WHEN & THEN
+        assertThatExceptionOfType(ApiException.class)
+                .isThrownBy(() -> collectionService.putContainerPityRules(request))
+                .withMessage(ApiErrors.UNKNOWN_ITEMTAG_MESSAGE);
+    }
+
+    @Test
+    public void givenItemNotAContainer_whenPutContainerPityRules_thenThrowException() {
+        // GIVEN
+        ItemDefinition itemDefinition = new ItemDefinition();
+        itemDefinition.setId("testItemDefinition");
+        itemDefinition.setItemTags(Lists.list(new ItemTag("epic")));
+        givenCatalog(itemDefinition);
+
+        PutContainerPityRulesRequest request = new PutContainerPityRulesRequest();
+        request.getRules().add(new PutContainerPityRulesRequestRule(itemDefinition.getId(), "epic", 10));
+
+        // WHEN & THEN
+        assertThatExceptionOfType(ApiException.class)
+                .isThrownBy(() -> collectionService.putContainerPityRules(request))
+                .withMessage(ApiErrors.ITEM_NOT_A_CONTAINER_MESSAGE);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void givenValidRules_whenPutContainerPityRules_thenReplacesRulesAndRebuildsCatalog() throws ApiException {
+        // GIVEN
+        ItemTag epic = new ItemTag("epic");
+
+        ItemDefinition container = new ItemDefinition();
+        container.setId("testContainer");
+        container.setItemTags(Lists.list(epic));
+        ItemContainer itemContainer = new ItemContainer();
+        itemContainer.setContainedItems(Lists.emptyList());
+        container.setContainers(Lists.list(itemContainer));
+        givenCatalog(container);
+
+        when(itemDefinitionRepository.getOne(container.getId())).thenReturn(container);
+        when(itemTagRepository.findAllById(any())).thenReturn(Lists.list(epic));
+
+        PutContainerPityRulesRequest request = new PutContainerPityRulesRequest();
+        request.getRules().add(new PutContainerPityRulesRequestRule(container.getId(), epic.getTag(), 10));
+
+        // WHEN
+        collectionService.putContainerPityRules(request);
+
+        // THEN
+        ArgumentCaptor<List<ContainerPityRule>> argument = ArgumentCaptor.forClass(List.class);
+
+        InOrder inOrder = inOrder(containerPityRuleRepository);
+        inOrder.verify(containerPityRuleRepository).deleteAll();
+        inOrder.verify(containerPityRuleRepository).saveAll(argument.capture());
+
+        assertThat(argument.getValue()).hasSize(1);
+        assertThat(argument.getValue().get(0).getItemDefinition()).isEqualTo(container);
+        assertThat(argument.getValue().get(0).getItemTag()).isEqualTo(epic);
+        assertThat(argument.getValue().get(0).getMaxOpenings()).isEqualTo(10);
+
+        verify(itemCatalogProvider).rebuildAfterCommit();
+        verify(catalogVersion).increment();
+    }
 }
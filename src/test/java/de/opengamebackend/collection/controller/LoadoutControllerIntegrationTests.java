@@ -7,6 +7,7 @@ import de.opengamebackend.collection.model.requests.PutLoadoutTypesRequest;
 import de.opengamebackend.collection.model.responses.AddLoadoutResponse;
 import de.opengamebackend.collection.model.responses.GetLoadoutTypesResponse;
 import de.opengamebackend.collection.model.responses.GetLoadoutsResponse;
+import de.opengamebackend.collection.model.responses.ValidateLoadoutResponse;
 import de.opengamebackend.test.HttpRequestUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -55,6 +56,15 @@ public class LoadoutControllerIntegrationTests {
         httpRequestUtils.assertPostOk(mvc, "/client/loadouts", request, AddLoadoutResponse.class,"testPlayer");
     }
 
+    @Test
+    public void whenValidateLoadout_thenOk() throws Exception {
+        LoadoutRequest request = new LoadoutRequest();
+        request.setType(loadoutType.getId());
+
+        httpRequestUtils.assertPostOk(mvc, "/client/loadouts/validate", request, ValidateLoadoutResponse.class,
+                "testPlayer");
+    }
+
     @Test
     public void whenGetLoadouts_thenOk() throws Exception {
         httpRequestUtils.assertGetOk(mvc, "/client/loadouts", GetLoadoutsResponse.class, "testPlayer");
@@ -1,22 +1,29 @@
 package de.opengamebackend.collection.controller;
 
+import de.opengamebackend.collection.catalog.ItemCatalog;
+import de.opengamebackend.collection.catalog.ItemCatalogProvider;
+import de.opengamebackend.collection.catalog.LoadoutValidator;
 import de.opengamebackend.collection.model.entities.*;
 import de.opengamebackend.collection.model.repositories.ItemDefinitionRepository;
 import de.opengamebackend.collection.model.requests.LoadoutRequest;
 import de.opengamebackend.collection.model.requests.LoadoutRequestItem;
+import de.opengamebackend.collection.model.responses.ValidateLoadoutResponse;
 import de.opengamebackend.net.ApiErrors;
 import de.opengamebackend.net.ApiException;
 import org.assertj.core.util.Lists;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
-import java.util.Optional;
+import java.util.List;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.mockito.Mockito.*;
 
 public class LoadoutMapperTests {
     private ItemDefinitionRepository itemDefinitionRepository;
+    private ItemCatalogProvider itemCatalogProvider;
+    private List<ItemDefinition> itemDefinitions;
 
     private LoadoutMapper loadoutMapper;
 
@@ -24,7 +31,24 @@ public class LoadoutMapperTests {
     public void beforeEach() {
         itemDefinitionRepository = mock(ItemDefinitionRepository.class);
 
-        loadoutMapper = new LoadoutMapper(itemDefinitionRepository);
+        itemCatalogProvider = mock(ItemCatalogProvider.class);
+        when(itemCatalogProvider.getCatalog()).thenReturn(ItemCatalog.empty());
+        itemDefinitions = Lists.emptyList();
+
+        loadoutMapper = new LoadoutMapper(itemDefinitionRepository, itemCatalogProvider);
+    }
+
+    private void givenCatalog(ItemDefinition... itemDefinitions) {
+        this.itemDefinitions = Lists.list(itemDefinitions);
+
+        ItemCatalog catalog = new ItemCatalog(Lists.emptyList(), this.itemDefinitions);
+        when(itemCatalogProvider.getCatalog()).thenReturn(catalog);
+    }
+
+    private void givenLoadoutTypes(LoadoutType... loadoutTypes) {
+        ItemCatalog catalog = new ItemCatalog(Lists.emptyList(), itemDefinitions, Lists.emptyList(),
+                Lists.list(loadoutTypes));
+        when(itemCatalogProvider.getCatalog()).thenReturn(catalog);
     }
 
     @Test
@@ -57,7 +81,9 @@ public class LoadoutMapperTests {
         when(item.getId()).thenReturn(itemId);
 
         ItemDefinition itemDefinition = mock(ItemDefinition.class);
-        when(itemDefinitionRepository.findById(itemId)).thenReturn(Optional.of(itemDefinition));
+        when(itemDefinition.getId()).thenReturn(itemId);
+        when(itemDefinitionRepository.getOne(itemId)).thenReturn(itemDefinition);
+        givenCatalog(itemDefinition);
 
         LoadoutRequest request = mock(LoadoutRequest.class);
         when(request.getType()).thenReturn("testLoadoutType");
@@ -78,11 +104,14 @@ public class LoadoutMapperTests {
         // GIVEN
         int maxCopies = 2;
 
-        ItemTag itemTag = mock(ItemTag.class);
+        ItemTag itemTag = new ItemTag("testItemTag");
 
         ItemDefinition itemDefinition = mock(ItemDefinition.class);
+        when(itemDefinition.getId()).thenReturn("testItem");
         when(itemDefinition.getItemTags()).thenReturn(Lists.list(itemTag));
 
+        givenCatalog(itemDefinition);
+
         LoadoutItem loadoutItem = mock(LoadoutItem.class);
         when(loadoutItem.getItemDefinition()).thenReturn(itemDefinition);
         when(loadoutItem.getCount()).thenReturn(maxCopies + 1);
@@ -92,7 +121,9 @@ public class LoadoutMapperTests {
         when(loadoutRule.getMaxCopies()).thenReturn(maxCopies);
 
         LoadoutType loadoutType = mock(LoadoutType.class);
+        when(loadoutType.getId()).thenReturn("testLoadoutType");
         when(loadoutType.getRules()).thenReturn(Lists.list(loadoutRule));
+        givenLoadoutTypes(loadoutType);
 
         Loadout loadout = mock(Loadout.class);
         when(loadout.getItems()).thenReturn(Lists.list(loadoutItem));
@@ -107,11 +138,14 @@ public class LoadoutMapperTests {
         // GIVEN
         int minTotal = 2;
 
-        ItemTag itemTag = mock(ItemTag.class);
+        ItemTag itemTag = new ItemTag("testItemTag");
 
         ItemDefinition itemDefinition = mock(ItemDefinition.class);
+        when(itemDefinition.getId()).thenReturn("testItem");
         when(itemDefinition.getItemTags()).thenReturn(Lists.list(itemTag));
 
+        givenCatalog(itemDefinition);
+
         LoadoutItem loadoutItem = mock(LoadoutItem.class);
         when(loadoutItem.getItemDefinition()).thenReturn(itemDefinition);
         when(loadoutItem.getCount()).thenReturn(minTotal - 1);
@@ -122,7 +156,9 @@ public class LoadoutMapperTests {
         when(loadoutRule.getMinTotal()).thenReturn(minTotal);
 
         LoadoutType loadoutType = mock(LoadoutType.class);
+        when(loadoutType.getId()).thenReturn("testLoadoutType");
         when(loadoutType.getRules()).thenReturn(Lists.list(loadoutRule));
+        givenLoadoutTypes(loadoutType);
 
         Loadout loadout = mock(Loadout.class);
         when(loadout.getItems()).thenReturn(Lists.list(loadoutItem));
@@ -137,11 +173,14 @@ public class LoadoutMapperTests {
         // GIVEN
         int maxTotal = 2;
 
-        ItemTag itemTag = mock(ItemTag.class);
+        ItemTag itemTag = new ItemTag("testItemTag");
 
         ItemDefinition itemDefinition = mock(ItemDefinition.class);
+        when(itemDefinition.getId()).thenReturn("testItem");
         when(itemDefinition.getItemTags()).thenReturn(Lists.list(itemTag));
 
+        givenCatalog(itemDefinition);
+
         LoadoutItem loadoutItem = mock(LoadoutItem.class);
         when(loadoutItem.getItemDefinition()).thenReturn(itemDefinition);
         when(loadoutItem.getCount()).thenReturn(maxTotal + 1);
@@ -152,7 +191,9 @@ public class LoadoutMapperTests {
         when(loadoutRule.getMaxTotal()).thenReturn(maxTotal);
 
         LoadoutType loadoutType = mock(LoadoutType.class);
+        when(loadoutType.getId()).thenReturn("testLoadoutType");
         when(loadoutType.getRules()).thenReturn(Lists.list(loadoutRule));
+        givenLoadoutTypes(loadoutType);
 
         Loadout loadout = mock(Loadout.class);
         when(loadout.getItems()).thenReturn(Lists.list(loadoutItem));
@@ -167,14 +208,18 @@ public class LoadoutMapperTests {
         // GIVEN
         int itemCount = 2;
 
-        ItemTag itemTag = mock(ItemTag.class);
+        ItemTag itemTag = new ItemTag("testItemTag");
 
         ItemDefinition itemDefinition = mock(ItemDefinition.class);
+        when(itemDefinition.getId()).thenReturn("testItem");
         when(itemDefinition.getItemTags()).thenReturn(Lists.list(itemTag));
 
         ItemDefinition otherItemDefinition = mock(ItemDefinition.class);
+        when(otherItemDefinition.getId()).thenReturn("otherTestItem");
         when(otherItemDefinition.getItemTags()).thenReturn(Lists.emptyList());
 
+        givenCatalog(itemDefinition, otherItemDefinition);
+
         LoadoutItem loadoutItemMatchingRule = mock(LoadoutItem.class);
         when(loadoutItemMatchingRule.getItemDefinition()).thenReturn(itemDefinition);
         when(loadoutItemMatchingRule.getCount()).thenReturn(itemCount);
@@ -188,7 +233,9 @@ public class LoadoutMapperTests {
         when(loadoutRule.getMaxTotal()).thenReturn(itemCount + 1);
 
         LoadoutType loadoutType = mock(LoadoutType.class);
+        when(loadoutType.getId()).thenReturn("testLoadoutType");
         when(loadoutType.getRules()).thenReturn(Lists.list(loadoutRule));
+        givenLoadoutTypes(loadoutType);
 
         Loadout loadout = mock(Loadout.class);
         when(loadout.getItems()).thenReturn(Lists.list(loadoutItemMatchingRule, loadoutItemMatchingNoRule));
@@ -197,4 +244,157 @@ public class LoadoutMapperTests {
         // WHEN & THEN
         loadoutMapper.verifyLoadout(loadout);
     }
+
+    @Test
+    public void givenSeveralViolatedRules_whenVerifyLoadout_thenReportsAllViolations() {
+        // GIVEN
+        ItemTag hero = new ItemTag("hero");
+        ItemTag spell = new ItemTag("spell");
+
+        ItemDefinition itemDefinition = new ItemDefinition();
+        itemDefinition.setId("testHero");
+        itemDefinition.setItemTags(Lists.list(hero));
+        givenCatalog(itemDefinition);
+
+        LoadoutType loadoutType = new LoadoutType();
+        loadoutType.setId("testLoadoutType");
+        loadoutType.getRules().add(loadoutRule(loadoutType, hero, null, null, 1));
+        loadoutType.getRules().add(loadoutRule(loadoutType, spell, 1, null, null));
+        givenLoadoutTypes(loadoutType);
+
+        Loadout loadout = new Loadout();
+        loadout.setType(loadoutType);
+        loadout.getItems().add(loadoutItem(loadout, itemDefinition, 2));
+
+        // WHEN & THEN
+        assertThatExceptionOfType(ApiException.class)
+                .isThrownBy(() -> loadoutMapper.verifyLoadout(loadout))
+                .withMessage(ApiErrors.INVALID_LOADOUT_MESSAGE +
+                        "Item testHero with tag hero occurs more than 1 times. " +
+                        "Items with tag spell occur less than 1 times.");
+    }
+
+    @Test
+    public void givenUnknownItemsAndViolatedRules_whenValidateLoadout_thenReportsAllViolations() throws ApiException {
+        // GIVEN
+        ItemTag hero = new ItemTag("hero");
+
+        ItemDefinition itemDefinition = new ItemDefinition();
+        itemDefinition.setId("testHero");
+        itemDefinition.setItemTags(Lists.list(hero));
+        givenCatalog(itemDefinition);
+
+        LoadoutType loadoutType = new LoadoutType();
+        loadoutType.setId("testLoadoutType");
+        loadoutType.getRules().add(loadoutRule(loadoutType, hero, null, 1, null));
+        givenLoadoutTypes(loadoutType);
+
+        LoadoutRequestItem heroItem = new LoadoutRequestItem();
+        heroItem.setId(itemDefinition.getId());
+        heroItem.setCount(2);
+
+        LoadoutRequestItem unknownItem = new LoadoutRequestItem();
+        unknownItem.setId("unknownItem");
+        unknownItem.setCount(1);
+
+        LoadoutRequest request = new LoadoutRequest();
+        request.setType(loadoutType.getId());
+        request.setItems(Lists.list(heroItem, unknownItem));
+
+        // WHEN
+        ValidateLoadoutResponse response = loadoutMapper.validateLoadout(request);
+
+        // THEN
+        assertThat(response.isValid()).isFalse();
+        assertThat(response.getViolations()).hasSize(2);
+
+        assertThat(response.getViolations().get(0).getErrorCode()).isEqualTo(ApiErrors.UNKNOWN_ITEM_DEFINITION_CODE);
+        assertThat(response.getViolations().get(0).getItemDefinitionId()).isEqualTo(unknownItem.getId());
+
+        assertThat(response.getViolations().get(1).getErrorCode()).isEqualTo(ApiErrors.INVALID_LOADOUT_CODE);
+        assertThat(response.getViolations().get(1).getItemTag()).isEqualTo(hero.getTag());
+        assertThat(response.getViolations().get(1).getErrorMessage())
+                .isEqualTo(ApiErrors.INVALID_LOADOUT_MESSAGE + "Items with tag hero occur more than 1 times.");
+
+        verifyNoInteractions(itemDefinitionRepository);
+    }
+
+    @Test
+    public void givenUnchangedCatalog_whenGetValidator_thenReusesValidator() throws ApiException {
+        // GIVEN
+        LoadoutType loadoutType = new LoadoutType();
+        loadoutType.setId("testLoadoutType");
+        loadoutType.getRules().add(loadoutRule(loadoutType, new ItemTag("testItemTag"), 1, 2, 3));
+        givenLoadoutTypes(loadoutType);
+
+        LoadoutValidator validator = loadoutMapper.getValidator(loadoutType.getId());
+
+        // WHEN
+        LoadoutValidator reusedValidator = loadoutMapper.getValidator(loadoutType.getId());
+
+        // THEN
+        assertThat(reusedValidator).isSameAs(validator);
+    }
+
+    @Test
+    public void givenNewCatalog_whenGetValidator_thenUsesValidatorOfNewCatalog() throws ApiException {
+        // GIVEN
+        LoadoutType loadoutType = new LoadoutType();
+        loadoutType.setId("testLoadoutType");
+        LoadoutRule loadoutRule = loadoutRule(loadoutType, new ItemTag("testItemTag"), 1, 2, 3);
+        loadoutType.getRules().add(loadoutRule);
+        givenLoadoutTypes(loadoutType);
+
+        LoadoutValidator validator = loadoutMapper.getValidator(loadoutType.getId());
+
+        loadoutRule.setMaxTotal(4);
+        givenLoadoutTypes(loadoutType);
+
+        // WHEN
+        LoadoutValidator newValidator = loadoutMapper.getValidator(loadoutType.getId());
+
+        // THEN
+        assertThat(newValidator).isNotSameAs(validator);
+        assertThat(newValidator).isSameAs(itemCatalogProvider.getCatalog().getLoadoutValidator(loadoutType.getId()));
+    }
+
+    @Test
+    public void givenUnknownLoadoutType_whenGetValidator_thenThrowException() {
+        // WHEN & THEN
+        assertThatExceptionOfType(ApiException.class)
+                .isThrownBy(() -> loadoutMapper.getValidator("unknownLoadoutType"))
+                .withMessage(ApiErrors.UNKNOWN_LOADOUT_TYPE_MESSAGE);
+    }
+
+    @Test
+    public void givenUnknownLoadoutType_whenValidateLoadout_thenThrowException() {
+        // GIVEN
+        LoadoutRequest request = new LoadoutRequest();
+        request.setType("unknownLoadoutType");
+        request.setItems(Lists.emptyList());
+
+        // WHEN & THEN
+        assertThatExceptionOfType(ApiException.class)
+                .isThrownBy(() -> loadoutMapper.validateLoadout(request))
+                .withMessage(ApiErrors.UNKNOWN_LOADOUT_TYPE_MESSAGE);
+    }
+
+    private static LoadoutRule loadoutRule(LoadoutType loadoutType, ItemTag itemTag, Integer minTotal,
+                                           Integer maxTotal, Integer maxCopies) {
+        LoadoutRule loadoutRule = new LoadoutRule();
+        loadoutRule.setType(loadoutType);
+        loadoutRule.setItemTag(itemTag);
+        loadoutRule.setMinTotal(minTotal);
+        loadoutRule.setMaxTotal(maxTotal);
+        loadoutRule.setMaxCopies(maxCopies);
+        return loadoutRule;
+    }
+
+    private static LoadoutItem loadoutItem(Loadout loadout, ItemDefinition itemDefinition, int count) {
+        LoadoutItem loadoutItem = new LoadoutItem();
+        loadoutItem.setLoadout(loadout);
+        loadoutItem.setItemDefinition(itemDefinition);
+        loadoutItem.setCount(count);
+        return loadoutItem;
+    }
 }
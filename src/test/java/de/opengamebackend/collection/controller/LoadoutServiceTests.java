@@ -1,11 +1,13 @@
 package de.opengamebackend.collection.controller;
 
+import de.opengamebackend.collection.catalog.CatalogVersion;
 import de.opengamebackend.collection.model.entities.*;
 import de.opengamebackend.collection.model.repositories.*;
 import de.opengamebackend.collection.model.requests.*;
 import de.opengamebackend.collection.model.responses.AddLoadoutResponse;
 import de.opengamebackend.collection.model.responses.GetLoadoutTypesResponse;
 import de.opengamebackend.collection.model.responses.GetLoadoutsResponse;
+import de.opengamebackend.collection.model.responses.ValidateLoadoutResponse;
 import de.opengamebackend.net.ApiErrors;
 import de.opengamebackend.net.ApiException;
 import org.assertj.core.util.Lists;
@@ -27,6 +29,7 @@ public class LoadoutServiceTests {
     private ItemDefinitionRepository itemDefinitionRepository;
 
     private LoadoutMapper loadoutMapper;
+    private CatalogVersion catalogVersion;
 
     private LoadoutService loadoutService;
 
@@ -38,9 +41,10 @@ public class LoadoutServiceTests {
         itemDefinitionRepository = mock(ItemDefinitionRepository.class);
 
         loadoutMapper = mock(LoadoutMapper.class);
+        catalogVersion = mock(CatalogVersion.class);
 
         loadoutService = new LoadoutService(loadoutRepository, loadoutTypeRepository, itemTagRepository,
-                loadoutMapper);
+                loadoutMapper, catalogVersion);
     }
 
     @Test
@@ -142,6 +146,32 @@ public class LoadoutServiceTests {
         assertThat(response.getLoadouts().get(0).getItems().get(0).getCount()).isEqualTo(loadoutItem.getCount());
     }
 
+    @Test
+    public void givenMissingPlayerId_whenValidateLoadout_thenThrowException() {
+        // WHEN & THEN
+        assertThatExceptionOfType(ApiException.class)
+                .isThrownBy(() -> loadoutService.validateLoadout("", null))
+                .withMessage(ApiErrors.MISSING_PLAYER_ID_MESSAGE);
+    }
+
+    @Test
+    public void givenLoadout_whenValidateLoadout_thenReturnsViolationsWithoutQueries() throws ApiException {
+        // GIVEN
+        LoadoutRequest request = mock(LoadoutRequest.class);
+        when(request.getType()).thenReturn("testLoadoutType");
+
+        ValidateLoadoutResponse validateLoadoutResponse = mock(ValidateLoadoutResponse.class);
+        when(loadoutMapper.validateLoadout(request)).thenReturn(validateLoadoutResponse);
+
+        // WHEN
+        ValidateLoadoutResponse response = loadoutService.validateLoadout("testPlayer", request);
+
+        // THEN
+        assertThat(response).isEqualTo(validateLoadoutResponse);
+        verifyNoInteractions(loadoutRepository);
+        verifyNoInteractions(loadoutTypeRepository);
+    }
+
     @Test
     public void givenMissingPlayerId_whenPutLoadout_thenThrowException() {
         // WHEN & THEN
@@ -335,4 +365,16 @@ public class LoadoutServiceTests {
         assertThat(loadoutTypes.get(0).getRules().get(0).getMaxTotal()).isEqualTo(requestTypeRule.getMaxTotal());
         assertThat(loadoutTypes.get(0).getRules().get(0).getMaxCopies()).isEqualTo(requestTypeRule.getMaxCopies());
     }
+
+    @Test
+    public void givenLoadoutTypes_whenPutLoadoutTypes_thenIncrementsCatalogVersion() throws ApiException {
+        // GIVEN
+        PutLoadoutTypesRequest request = mock(PutLoadoutTypesRequest.class);
+
+        // WHEN
+        loadoutService.putLoadoutTypes(request);
+
+        // THEN
+        verify(catalogVersion).increment();
+    }
 }
@@ -0,0 +1,89 @@
+package de.opengamebackend.collection.locking;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.Session;
+import org.hibernate.jdbc.ReturningWork;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.persistence.EntityManager;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class DatabasePlayerLockManagerTests {
+    private PreparedStatement statement;
+    private ResultSet resultSet;
+
+    private DatabasePlayerLockManager lockManager;
+
+    @BeforeEach
+    public void beforeEach() throws Exception {
+        resultSet = mock(ResultSet.class);
+
+        statement = mock(PreparedStatement.class);
+        when(statement.executeQuery()).thenReturn(resultSet);
+
+        Connection connection = mock(Connection.class);
+        when(connection.prepareStatement(any())).thenReturn(statement);
+
+        Session session = mock(Session.class);
+        when(session.doReturningWork(any())).thenAnswer(invocation ->
+                invocation.<ReturningWork<?>>getArgument(0).execute(connection));
+
+        EntityManager entityManager = mock(EntityManager.class);
+        when(entityManager.unwrap(Session.class)).thenReturn(session);
+
+        lockManager = new DatabasePlayerLockManager(new PlayerLockProperties(), new SimpleMeterRegistry(),
+                entityManager);
+    }
+
+    @Test
+    public void givenFreeLock_whenTryLock_thenAcquiresNamedLockWithTimeoutInSeconds() throws Exception {
+        // GIVEN
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getInt(1)).thenReturn(1);
+
+        // WHEN
+        boolean acquired = lockManager.tryLock("testPlayer", Duration.ofMillis(1500));
+
+        // THEN
+        assertThat(acquired).isTrue();
+        verify(statement).setString(1, DatabasePlayerLockManager.getLockName("testPlayer"));
+        verify(statement).setLong(2, 2L);
+    }
+
+    @Test
+    public void givenTimeout_whenTryLock_thenReturnsFalse() throws Exception {
+        // GIVEN
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getInt(1)).thenReturn(0);
+
+        // WHEN
+        boolean acquired = lockManager.tryLock("testPlayer", Duration.ofSeconds(1));
+
+        // THEN
+        assertThat(acquired).isFalse();
+    }
+
+    @Test
+    public void givenLongPlayerId_whenGetLockName_thenFitsMariaDbLimit() {
+        // GIVEN
+        StringBuilder playerId = new StringBuilder();
+
+        for (int i = 0; i < 100; ++i) {
+            playerId.append('x');
+        }
+
+        // WHEN
+        String lockName = DatabasePlayerLockManager.getLockName(playerId.toString());
+
+        // THEN
+        assertThat(lockName).hasSizeLessThanOrEqualTo(64);
+    }
+}
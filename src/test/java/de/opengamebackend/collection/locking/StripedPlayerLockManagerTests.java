@@ -0,0 +1,132 @@
+package de.opengamebackend.collection.locking;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+public class StripedPlayerLockManagerTests {
+    private PlayerLockProperties properties;
+    private MeterRegistry meterRegistry;
+
+    private StripedPlayerLockManager lockManager;
+
+    @BeforeEach
+    public void beforeEach() {
+        properties = new PlayerLockProperties();
+        properties.setTimeout(Duration.ofMillis(10));
+
+        meterRegistry = new SimpleMeterRegistry();
+
+        lockManager = new StripedPlayerLockManager(properties, meterRegistry);
+
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    public void afterEach() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    private boolean tryLockOnOtherThread(String playerId) {
+        return CompletableFuture.supplyAsync(() -> {
+            boolean acquired = lockManager.tryLock(playerId, Duration.ZERO);
+
+            if (acquired) {
+                lockManager.unlock(playerId);
+            }
+
+            return acquired;
+        }).join();
+    }
+
+    private static void completeTransaction() {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+    }
+
+    @Test
+    public void givenNoTransaction_whenLockUntilCompletion_thenThrowException() {
+        // GIVEN
+        TransactionSynchronizationManager.clearSynchronization();
+
+        // WHEN & THEN
+        try {
+            assertThatIllegalStateException().isThrownBy(() -> lockManager.lockUntilCompletion("testPlayer"));
+        } finally {
+            TransactionSynchronizationManager.initSynchronization();
+        }
+    }
+
+    @Test
+    public void givenTransaction_whenLockUntilCompletion_thenHoldsLockUntilCompletion() {
+        // GIVEN
+        String playerId = "testPlayer";
+
+        // WHEN
+        lockManager.lockUntilCompletion(playerId);
+
+        // THEN
+        assertThat(tryLockOnOtherThread(playerId)).isFalse();
+
+        completeTransaction();
+        assertThat(tryLockOnOtherThread(playerId)).isTrue();
+    }
+
+    @Test
+    public void givenLockHeldByOtherThread_whenLockUntilCompletion_thenTimesOut() {
+        // GIVEN
+        String playerId = "testPlayer";
+        lockManager.lockUntilCompletion(playerId);
+
+        // WHEN & THEN
+        CompletableFuture<Void> otherTransaction = CompletableFuture.runAsync(() -> {
+            TransactionSynchronizationManager.initSynchronization();
+
+            try {
+                assertThatExceptionOfType(CannotAcquireLockException.class)
+                        .isThrownBy(() -> lockManager.lockUntilCompletion(playerId));
+            } finally {
+                TransactionSynchronizationManager.clearSynchronization();
+            }
+        });
+
+        otherTransaction.join();
+        completeTransaction();
+    }
+
+    @Test
+    public void givenLock_whenLockUntilCompletion_thenRecordsWaitTime() {
+        // WHEN
+        lockManager.lockUntilCompletion("testPlayer");
+        completeTransaction();
+
+        // THEN
+        assertThat(meterRegistry.timer(AbstractPlayerLockManager.LOCK_WAIT_METRIC,
+                "outcome", "acquired", "type", "striped").count()).isEqualTo(1L);
+    }
+
+    @Test
+    public void givenStripes_whenCreate_thenRoundsUpToPowerOfTwo() {
+        // GIVEN
+        properties.setStripes(1000);
+
+        // WHEN
+        StripedPlayerLockManager roundedLockManager = new StripedPlayerLockManager(properties, meterRegistry);
+
+        // THEN
+        assertThat(roundedLockManager.getStripeCount()).isEqualTo(1024);
+    }
+}
@@ -0,0 +1,49 @@
+package de.opengamebackend.collection.logging;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.zalando.logbook.HttpRequest;
+
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class LogbookConfigTests {
+    private Predicate<HttpRequest> requestCondition;
+
+    @BeforeEach
+    public void beforeEach() {
+        requestCondition = new LogbookConfig().requestCondition();
+    }
+
+    private static HttpRequest request(String method, String path) {
+        HttpRequest request = mock(HttpRequest.class);
+        when(request.getMethod()).thenReturn(method);
+        when(request.getPath()).thenReturn(path);
+        return request;
+    }
+
+    @Test
+    public void givenGetLoadouts_whenTest_thenSkipLogging() {
+        // WHEN
+        boolean logged = requestCondition.test(request("GET", "/client/loadouts"));
+
+        // THEN
+        assertThat(logged).isFalse();
+    }
+
+    @Test
+    public void givenWriteLoadouts_whenTest_thenLog() {
+        // WHEN
+        boolean postLogged = requestCondition.test(request("POST", "/client/loadouts"));
+        boolean putLogged = requestCondition.test(request("PUT", "/client/loadouts/testLoadout"));
+        boolean validateLogged = requestCondition.test(request("POST", "/client/loadouts/validate"));
+
+        // THEN
+        assertThat(postLogged).isTrue();
+        assertThat(putLogged).isTrue();
+        assertThat(validateLogged).isTrue();
+    }
+}
@@ -0,0 +1,85 @@
+package de.opengamebackend.collection.logging;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.zalando.logbook.HttpRequest;
+import org.zalando.logbook.HttpResponse;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class SamplingBodyStrategyTests {
+    private MockHttpServletRequest servletRequest;
+
+    @BeforeEach
+    public void beforeEach() {
+        servletRequest = new MockHttpServletRequest();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(servletRequest));
+    }
+
+    @AfterEach
+    public void afterEach() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    public void givenSampleRateOne_whenProcess_thenLogBodies() throws IOException {
+        // GIVEN
+        SamplingBodyStrategy strategy = new SamplingBodyStrategy(1.0);
+
+        HttpRequest request = mock(HttpRequest.class);
+        HttpResponse response = mock(HttpResponse.class);
+
+        // WHEN
+        strategy.process(request);
+        strategy.process(request, response);
+
+        // THEN
+        verify(request).withBody();
+        verify(response).withBody();
+        assertThat(servletRequest.getAttribute(SamplingBodyStrategy.SAMPLED_ATTRIBUTE)).isEqualTo(true);
+    }
+
+    @Test
+    public void givenSampleRateZero_whenProcess_thenSkipBodies() throws IOException {
+        // GIVEN
+        SamplingBodyStrategy strategy = new SamplingBodyStrategy(0.0);
+
+        HttpRequest request = mock(HttpRequest.class);
+        HttpResponse response = mock(HttpResponse.class);
+
+        // WHEN
+        strategy.process(request);
+        strategy.process(request, response);
+
+        // THEN
+        verify(request).withoutBody();
+        verify(request, never()).withBody();
+        verify(response).withoutBody();
+        verify(response, never()).withBody();
+    }
+
+    @Test
+    public void givenSampledPreviousRequestOnSameThread_whenProcessResponse_thenSkipBody() throws IOException {
+        // GIVEN
+        SamplingBodyStrategy strategy = new SamplingBodyStrategy(1.0);
+        strategy.process(mock(HttpRequest.class));
+
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+
+        HttpResponse response = mock(HttpResponse.class);
+
+        // WHEN
+        strategy.process(mock(HttpRequest.class), response);
+
+        // THEN
+        verify(response).withoutBody();
+        verify(response, never()).withBody();
+    }
+}
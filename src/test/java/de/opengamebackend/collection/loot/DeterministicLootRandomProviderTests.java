@@ -0,0 +1,58 @@
+package de.opengamebackend.collection.loot;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DeterministicLootRandomProviderTests {
+    private static int[] roll(LootRandom random) {
+        int[] rolls = new int[16];
+
+        for (int i = 0; i < rolls.length; ++i) {
+            rolls[i] = random.nextInt(1000);
+        }
+
+        return rolls;
+    }
+
+    @Test
+    public void givenSameOpening_whenGetRandom_thenRollsSameValues() {
+        // GIVEN
+        DeterministicLootRandomProvider provider = new DeterministicLootRandomProvider(42L);
+
+        // WHEN
+        int[] firstRolls = roll(provider.getRandom("testPlayer", "testContainer", 7L));
+        int[] secondRolls = roll(new DeterministicLootRandomProvider(42L).getRandom("testPlayer", "testContainer", 7L));
+
+        // THEN
+        assertThat(secondRolls).containsExactly(firstRolls);
+    }
+
+    @Test
+    public void givenDifferentOpenings_whenGetSeed_thenReturnsDifferentSeeds() {
+        // GIVEN
+        DeterministicLootRandomProvider provider = new DeterministicLootRandomProvider(42L);
+
+        // WHEN
+        long seed = provider.getSeed("testPlayer", "testContainer", 7L);
+
+        // THEN
+        assertThat(provider.getSeed("testPlayer", "testContainer", 8L)).isNotEqualTo(seed);
+        assertThat(provider.getSeed("testPlayer", "otherContainer", 7L)).isNotEqualTo(seed);
+        assertThat(provider.getSeed("otherPlayer", "testContainer", 7L)).isNotEqualTo(seed);
+        assertThat(new DeterministicLootRandomProvider(43L).getSeed("testPlayer", "testContainer", 7L))
+                .isNotEqualTo(seed);
+    }
+
+    @Test
+    public void givenShiftedIds_whenGetSeed_thenReturnsDifferentSeeds() {
+        // GIVEN
+        DeterministicLootRandomProvider provider = new DeterministicLootRandomProvider(42L);
+
+        // WHEN
+        long seed = provider.getSeed("ab", "c", 0L);
+
+        // THEN
+        assertThat(provider.getSeed("a", "bc", 0L)).isNotEqualTo(seed);
+    }
+}
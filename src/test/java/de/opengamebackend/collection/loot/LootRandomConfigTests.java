@@ -0,0 +1,57 @@
+package de.opengamebackend.collection.loot;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+public class LootRandomConfigTests {
+    @Test
+    public void givenDeterministicWithoutSecret_whenCreateProvider_thenThrowException() {
+        // GIVEN
+        LootRandomProperties properties = new LootRandomProperties();
+        properties.setType(LootRandomType.DETERMINISTIC);
+
+        // WHEN & THEN
+        assertThatIllegalStateException()
+                .isThrownBy(() -> new LootRandomConfig().lootRandomProvider(properties));
+    }
+
+    @Test
+    public void givenDeterministicWithZeroSecret_whenCreateProvider_thenThrowException() {
+        // GIVEN
+        LootRandomProperties properties = new LootRandomProperties();
+        properties.setType(LootRandomType.DETERMINISTIC);
+        properties.setSecret(0L);
+
+        // WHEN & THEN
+        assertThatIllegalStateException()
+                .isThrownBy(() -> new LootRandomConfig().lootRandomProvider(properties));
+    }
+
+    @Test
+    public void givenDeterministicWithSecret_whenCreateProvider_thenDeterministic() {
+        // GIVEN
+        LootRandomProperties properties = new LootRandomProperties();
+        properties.setType(LootRandomType.DETERMINISTIC);
+        properties.setSecret(42L);
+
+        // WHEN
+        LootRandomProvider provider = new LootRandomConfig().lootRandomProvider(properties);
+
+        // THEN
+        assertThat(provider.isDeterministic()).isTrue();
+    }
+
+    @Test
+    public void givenThreadLocalWithoutSecret_whenCreateProvider_thenNotDeterministic() {
+        // GIVEN
+        LootRandomProperties properties = new LootRandomProperties();
+
+        // WHEN
+        LootRandomProvider provider = new LootRandomConfig().lootRandomProvider(properties);
+
+        // THEN
+        assertThat(provider.isDeterministic()).isFalse();
+    }
+}
@@ -0,0 +1,85 @@
+package de.opengamebackend.collection.metrics;
+
+import de.opengamebackend.collection.GlobalControllerExceptionHandler;
+import de.opengamebackend.net.ApiErrors;
+import de.opengamebackend.net.HttpHeader;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.transaction.Transactional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+public class QueryMetricsIntegrationTests {
+    private MockMvc mvc;
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    public QueryMetricsIntegrationTests(MockMvc mvc, MeterRegistry meterRegistry) {
+        this.mvc = mvc;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Test
+    public void givenCollectionRequest_whenGetCollection_thenRecordStatements() throws Exception {
+        // GIVEN
+        double statementsBefore = getTotal(QueryMetricsFilter.STATEMENTS_METRIC, "/client/collection");
+
+        // WHEN
+        mvc.perform(get("/client/collection").header(HttpHeader.PLAYER_ID, "testPlayer"))
+                .andExpect(status().isOk());
+
+        // THEN
+        DistributionSummary summary = meterRegistry.find(QueryMetricsFilter.STATEMENTS_METRIC)
+                .tag("method", "GET")
+                .tag("uri", "/client/collection")
+                .summary();
+
+        assertThat(summary).isNotNull();
+        assertThat(summary.totalAmount() - statementsBefore).isEqualTo(1);
+        assertThat(meterRegistry.find(QueryMetricsFilter.ENTITY_LOADS_METRIC)
+                .tag("uri", "/client/collection")
+                .summary()).isNotNull();
+    }
+
+    @Test
+    public void givenUnknownContainer_whenOpenContainer_thenCountError() throws Exception {
+        // GIVEN
+        String uri = "/client/opencontainer/{itemDefinitionId}";
+        Counter counter = meterRegistry.find(GlobalControllerExceptionHandler.API_ERRORS_METRIC)
+                .tag("code", String.valueOf(ApiErrors.UNKNOWN_ITEM_DEFINITION_CODE))
+                .tag("uri", uri)
+                .counter();
+        double errorsBefore = counter != null ? counter.count() : 0;
+
+        // WHEN
+        mvc.perform(post("/client/opencontainer/unknownContainer").header(HttpHeader.PLAYER_ID, "testPlayer"))
+                .andExpect(status().isBadRequest());
+
+        // THEN
+        counter = meterRegistry.find(GlobalControllerExceptionHandler.API_ERRORS_METRIC)
+                .tag("code", String.valueOf(ApiErrors.UNKNOWN_ITEM_DEFINITION_CODE))
+                .tag("uri", uri)
+                .counter();
+
+        assertThat(counter).isNotNull();
+        assertThat(counter.count() - errorsBefore).isEqualTo(1);
+    }
+
+    private double getTotal(String metric, String uri) {
+        DistributionSummary summary = meterRegistry.find(metric).tag("uri", uri).summary();
+        return summary != null ? summary.totalAmount() : 0;
+    }
+}
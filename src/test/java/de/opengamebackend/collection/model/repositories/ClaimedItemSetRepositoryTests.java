@@ -6,11 +6,13 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.test.context.ActiveProfiles;
 
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 
 @DataJpaTest
 @ActiveProfiles("test")
@@ -51,4 +53,66 @@ public class ClaimedItemSetRepositoryTests {
         assertThat(claimedItemSets).hasSize(1);
         assertThat(claimedItemSets.get(0)).isEqualTo(claimedItemSet);
     }
+
+    @Test
+    public void givenClaimedItemSet_whenClaimAgain_thenThrowException() {
+        // GIVEN
+        ItemSet itemSet = new ItemSet();
+        itemSet.setId("testItemSet");
+        entityManager.persist(itemSet);
+
+        ClaimedItemSet claimedItemSet = new ClaimedItemSet();
+        claimedItemSet.setPlayerId("testPlayerId");
+        claimedItemSet.setItemSet(itemSet);
+        entityManager.persist(claimedItemSet);
+
+        entityManager.flush();
+
+        ClaimedItemSet duplicateClaimedItemSet = new ClaimedItemSet();
+        duplicateClaimedItemSet.setPlayerId(claimedItemSet.getPlayerId());
+        duplicateClaimedItemSet.setItemSet(itemSet);
+
+        // WHEN & THEN
+        assertThatExceptionOfType(DataIntegrityViolationException.class)
+                .isThrownBy(() -> claimedItemSetRepository.saveAndFlush(duplicateClaimedItemSet));
+    }
+
+    @Test
+    public void givenUnclaimedItemSet_whenTryClaim_thenClaimItemSet() {
+        // GIVEN
+        ItemSet itemSet = new ItemSet();
+        itemSet.setId("testItemSet");
+        entityManager.persist(itemSet);
+
+        entityManager.flush();
+
+        // WHEN
+        boolean claimed = claimedItemSetRepository.tryClaim("testPlayerId", itemSet.getId());
+
+        // THEN
+        assertThat(claimed).isTrue();
+        assertThat(claimedItemSetRepository.findByPlayerId("testPlayerId")).hasSize(1);
+    }
+
+    @Test
+    public void givenClaimedItemSet_whenTryClaim_thenRejectClaim() {
+        // GIVEN
+        ItemSet itemSet = new ItemSet();
+        itemSet.setId("testItemSet");
+        entityManager.persist(itemSet);
+
+        ClaimedItemSet claimedItemSet = new ClaimedItemSet();
+        claimedItemSet.setPlayerId("testPlayerId");
+        claimedItemSet.setItemSet(itemSet);
+        entityManager.persist(claimedItemSet);
+
+        entityManager.flush();
+
+        // WHEN
+        boolean claimed = claimedItemSetRepository.tryClaim(claimedItemSet.getPlayerId(), itemSet.getId());
+
+        // THEN
+        assertThat(claimed).isFalse();
+        assertThat(claimedItemSetRepository.findByPlayerId(claimedItemSet.getPlayerId())).hasSize(1);
+    }
 }
@@ -1,20 +1,28 @@
 package de.opengamebackend.collection.model.repositories;
 
 import de.opengamebackend.collection.model.entities.CollectionItem;
+import de.opengamebackend.collection.model.entities.ContainerOpening;
 import de.opengamebackend.collection.model.entities.ItemDefinition;
 import de.opengamebackend.collection.model.entities.ItemTag;
 import org.assertj.core.util.Lists;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.test.context.ActiveProfiles;
 
+import javax.persistence.OptimisticLockException;
 import java.util.List;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 
-@DataJpaTest
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
 @ActiveProfiles("test")
 public class CollectionItemRepositoryTests {
     private TestEntityManager entityManager;
@@ -68,6 +76,40 @@ public class CollectionItemRepositoryTests {
         assertThat(items.get(1)).isEqualTo(item2);
     }
 
+    @Test
+    public void givenItems_whenStreamByPlayerId_thenReturnItemCountsOfPlayer() {
+        // GIVEN
+        ItemDefinition itemDefinition = new ItemDefinition();
+        itemDefinition.setId("testDefinition");
+        entityManager.persist(itemDefinition);
+
+        CollectionItem item1 = new CollectionItem();
+        item1.setPlayerId("testPlayerId1");
+        item1.setItemDefinition(itemDefinition);
+        item1.setCount(2);
+        entityManager.persist(item1);
+
+        CollectionItem item2 = new CollectionItem();
+        item2.setPlayerId("testPlayerId2");
+        item2.setItemDefinition(itemDefinition);
+        item2.setCount(3);
+        entityManager.persist(item2);
+
+        entityManager.flush();
+
+        // WHEN
+        List<CollectionItemCount> items;
+
+        try (Stream<CollectionItemCount> stream = collectionItemRepository.streamByPlayerId("testPlayerId1")) {
+            items = stream.collect(Collectors.toList());
+        }
+
+        // THEN
+        assertThat(items).hasSize(1);
+        assertThat(items.get(0).getItemDefinitionId()).isEqualTo(itemDefinition.getId());
+        assertThat(items.get(0).getCount()).isEqualTo(item1.getCount());
+    }
+
     @Test
     public void givenItem_whenFindByPlayerIdAndItemDefinition_thenReturnItem() {
         // GIVEN
@@ -113,4 +155,217 @@ public class CollectionItemRepositoryTests {
         // THEN
         assertThat(entityManager.find(itemEntity.getClass(), itemEntity.getId())).isNull();
     }
+
+    @Test
+    public void givenNoItem_whenIncrementCount_thenCreateItem() {
+        // GIVEN
+        ItemDefinition itemDefinition = new ItemDefinition();
+        itemDefinition.setId("testDefinition");
+        entityManager.persist(itemDefinition);
+
+        entityManager.flush();
+
+        // WHEN
+        collectionItemRepository.incrementCount("testPlayer", itemDefinition.getId(), 3);
+
+        // THEN
+        List<CollectionItem> items = collectionItemRepository.findByPlayerId("testPlayer");
+
+        assertThat(items).hasSize(1);
+        assertThat(items.get(0).getItemDefinition()).isEqualTo(itemDefinition);
+        assertThat(items.get(0).getCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void givenItem_whenIncrementCount_thenIncreaseCount() {
+        // GIVEN
+        ItemDefinition itemDefinition = new ItemDefinition();
+        itemDefinition.setId("testDefinition");
+        entityManager.persist(itemDefinition);
+
+        CollectionItem itemEntity = new CollectionItem();
+        itemEntity.setPlayerId("testPlayer");
+        itemEntity.setItemDefinition(itemDefinition);
+        itemEntity.setCount(2);
+        entityManager.persist(itemEntity);
+
+        entityManager.flush();
+        entityManager.clear();
+
+        // WHEN
+        collectionItemRepository.incrementCount(itemEntity.getPlayerId(), itemDefinition.getId(), 3);
+
+        // THEN
+        List<CollectionItem> items = collectionItemRepository.findByPlayerId(itemEntity.getPlayerId());
+
+        assertThat(items).hasSize(1);
+        assertThat(items.get(0).getId()).isEqualTo(itemEntity.getId());
+        assertThat(items.get(0).getCount()).isEqualTo(5);
+        assertThat(items.get(0).getVersion()).isEqualTo(itemEntity.getVersion() + 1);
+    }
+
+    @Test
+    public void givenLoadedItem_whenIncrementCount_thenStaleUpdateFails() {
+        // GIVEN
+        ItemDefinition itemDefinition = new ItemDefinition();
+        itemDefinition.setId("testDefinition");
+        entityManager.persist(itemDefinition);
+
+        CollectionItem itemEntity = new CollectionItem();
+        itemEntity.setPlayerId("testPlayer");
+        itemEntity.setItemDefinition(itemDefinition);
+        itemEntity.setCount(2);
+        entityManager.persist(itemEntity);
+
+        entityManager.flush();
+        entityManager.clear();
+
+        CollectionItem loadedItem = collectionItemRepository
+                .findByPlayerIdAndItemDefinition(itemEntity.getPlayerId(), itemDefinition).get();
+
+        // WHEN
+        collectionItemRepository.incrementCount(itemEntity.getPlayerId(), itemDefinition.getId(), 3);
+        loadedItem.setCount(1);
+
+        // THEN
+        assertThatExceptionOfType(OptimisticLockException.class).isThrownBy(() -> entityManager.flush());
+    }
+
+    @Test
+    public void givenItemsOfMultiplePlayers_whenIncrementCounts_thenCreateAndIncreaseCounts() {
+        // GIVEN
+        ItemDefinition itemDefinition1 = new ItemDefinition();
+        itemDefinition1.setId("testDefinition1");
+        entityManager.persist(itemDefinition1);
+
+        ItemDefinition itemDefinition2 = new ItemDefinition();
+        itemDefinition2.setId("testDefinition2");
+        entityManager.persist(itemDefinition2);
+
+        CollectionItem itemEntity = new CollectionItem();
+        itemEntity.setPlayerId("testPlayer1");
+        itemEntity.setItemDefinition(itemDefinition1);
+        itemEntity.setCount(2);
+        entityManager.persist(itemEntity);
+
+        entityManager.flush();
+        entityManager.clear();
+
+        TreeMap<String, TreeMap<String, Integer>> countsByPlayer = new TreeMap<>();
+        countsByPlayer.computeIfAbsent("testPlayer1", p -> new TreeMap<>()).put(itemDefinition1.getId(), 3);
+        countsByPlayer.computeIfAbsent("testPlayer1", p -> new TreeMap<>()).put(itemDefinition2.getId(), 1);
+        countsByPlayer.computeIfAbsent("testPlayer2", p -> new TreeMap<>()).put(itemDefinition2.getId(), 4);
+
+        // WHEN
+        collectionItemRepository.incrementCounts(countsByPlayer);
+
+        // THEN
+        List<CollectionItem> items1 = collectionItemRepository.findByPlayerId("testPlayer1");
+        List<CollectionItem> items2 = collectionItemRepository.findByPlayerId("testPlayer2");
+
+        assertThat(items1).hasSize(2);
+        assertThat(items1).filteredOn(i -> i.getItemDefinition().getId().equals(itemDefinition1.getId()))
+                .extracting(CollectionItem::getCount).containsExactly(5);
+        assertThat(items1).filteredOn(i -> i.getItemDefinition().getId().equals(itemDefinition2.getId()))
+                .extracting(CollectionItem::getCount).containsExactly(1);
+        assertThat(items2).hasSize(1);
+        assertThat(items2.get(0).getCount()).isEqualTo(4);
+    }
+
+    @Test
+    public void givenItems_whenFindByPlayerId_thenLoadItemDefinitionsWithSingleStatement() {
+        // GIVEN
+        String playerId = "testPlayerId";
+
+        for (int i = 0; i < 5; ++i) {
+            ItemDefinition itemDefinition = new ItemDefinition();
+            itemDefinition.setId("testDefinition" + i);
+            entityManager.persist(itemDefinition);
+
+            CollectionItem item = new CollectionItem();
+            item.setPlayerId(playerId);
+            item.setItemDefinition(itemDefinition);
+            item.setCount(1);
+            entityManager.persist(item);
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // WHEN
+        List<CollectionItem> items = collectionItemRepository.findByPlayerId(playerId);
+
+        for (CollectionItem item : items) {
+            item.getItemDefinition().getMaxCount();
+        }
+
+        // THEN
+        assertThat(items).hasSize(5);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void givenContainerOpening_whenFindWithContainerOpeningsByPlayerId_thenJoinOpeningsWithSingleStatement() {
+        // GIVEN
+        String playerId = "testPlayerId";
+
+        ItemDefinition container = new ItemDefinition();
+        container.setId("testContainer");
+        entityManager.persist(container);
+
+        ItemDefinition itemDefinition = new ItemDefinition();
+        itemDefinition.setId("testDefinition");
+        entityManager.persist(itemDefinition);
+
+        for (ItemDefinition owned : new ItemDefinition[] { container, itemDefinition }) {
+            CollectionItem item = new CollectionItem();
+            item.setPlayerId(playerId);
+            item.setItemDefinition(owned);
+            item.setCount(1);
+            entityManager.persist(item);
+        }
+
+        ContainerOpening containerOpening = new ContainerOpening();
+        containerOpening.setPlayerId(playerId);
+        containerOpening.setItemDefinition(container);
+        containerOpening.setCount(12L);
+        containerOpening.getPityCounters().put("epic", 3);
+        // Tags may contain any characters, including those that used to separate counters.
+        containerOpening.getPityCounters().put("legendary,rare=1", 11);
+        entityManager.persist(containerOpening);
+
+        ContainerOpening otherPlayerOpening = new ContainerOpening();
+        otherPlayerOpening.setPlayerId("otherPlayerId");
+        otherPlayerOpening.setItemDefinition(container);
+        entityManager.persist(otherPlayerOpening);
+
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // WHEN
+        List<CollectionItemWithOpening> items = collectionItemRepository.findWithContainerOpeningsByPlayerId(playerId);
+
+        TreeMap<String, ContainerOpening> openings = new TreeMap<>();
+
+        for (CollectionItemWithOpening item : items) {
+            openings.put(item.getItem().getItemDefinition().getId(), item.getOpening());
+        }
+
+        // THEN
+        assertThat(openings).containsOnlyKeys(container.getId(), itemDefinition.getId());
+        assertThat(openings.get(itemDefinition.getId())).isNull();
+        assertThat(openings.get(container.getId()).getCount()).isEqualTo(12L);
+        assertThat(openings.get(container.getId()).getPityCounters())
+                .containsEntry("epic", 3)
+                .containsEntry("legendary,rare=1", 11);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
 }
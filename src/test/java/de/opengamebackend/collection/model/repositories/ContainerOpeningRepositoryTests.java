@@ -0,0 +1,76 @@
+package de.opengamebackend.collection.model.repositories;
+
+import de.opengamebackend.collection.model.entities.ContainerOpening;
+import de.opengamebackend.collection.model.entities.ItemDefinition;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+public class ContainerOpeningRepositoryTests {
+    private TestEntityManager entityManager;
+    private ContainerOpeningRepository containerOpeningRepository;
+
+    @Autowired
+    public ContainerOpeningRepositoryTests(TestEntityManager entityManager,
+                                           ContainerOpeningRepository containerOpeningRepository) {
+        this.entityManager = entityManager;
+        this.containerOpeningRepository = containerOpeningRepository;
+    }
+
+    @Test
+    public void givenNoOpening_whenInsertIfAbsent_thenCreateOpening() {
+        // GIVEN
+        ItemDefinition container = new ItemDefinition();
+        container.setId("testContainer");
+        entityManager.persist(container);
+
+        entityManager.flush();
+
+        // WHEN
+        boolean inserted = containerOpeningRepository.insertIfAbsent("testPlayerId", container.getId());
+
+        // THEN
+        assertThat(inserted).isTrue();
+
+        ContainerOpening containerOpening =
+                containerOpeningRepository.findByPlayerIdAndItemDefinitionId("testPlayerId", container.getId());
+        assertThat(containerOpening).isNotNull();
+        assertThat(containerOpening.getCount()).isZero();
+        assertThat(containerOpening.getPityCounters()).isEmpty();
+    }
+
+    @Test
+    public void givenOpening_whenInsertIfAbsent_thenKeepOpening() {
+        // GIVEN
+        ItemDefinition container = new ItemDefinition();
+        container.setId("testContainer");
+        entityManager.persist(container);
+
+        ContainerOpening containerOpening = new ContainerOpening();
+        containerOpening.setPlayerId("testPlayerId");
+        containerOpening.setItemDefinition(container);
+        containerOpening.setCount(5L);
+        containerOpening.getPityCounters().put("epic", 2);
+        entityManager.persist(containerOpening);
+
+        entityManager.flush();
+        entityManager.clear();
+
+        // WHEN
+        boolean inserted = containerOpeningRepository.insertIfAbsent("testPlayerId", container.getId());
+
+        // THEN
+        assertThat(inserted).isFalse();
+
+        ContainerOpening existingOpening =
+                containerOpeningRepository.findByPlayerIdAndItemDefinitionId("testPlayerId", container.getId());
+        assertThat(existingOpening.getCount()).isEqualTo(5L);
+        assertThat(existingOpening.getPityCounters()).containsEntry("epic", 2);
+    }
+}
@@ -0,0 +1,56 @@
+package de.opengamebackend.collection.model.repositories;
+
+import de.opengamebackend.collection.model.entities.ItemDefinition;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+public class ItemDefinitionRepositoryTests {
+    private TestEntityManager entityManager;
+    private ItemDefinitionRepository itemDefinitionRepository;
+
+    @Autowired
+    public ItemDefinitionRepositoryTests(TestEntityManager entityManager,
+                                         ItemDefinitionRepository itemDefinitionRepository) {
+        this.entityManager = entityManager;
+        this.itemDefinitionRepository = itemDefinitionRepository;
+    }
+
+    @Test
+    public void givenItemDefinitions_whenFindAllHashes_thenReturnHashes() {
+        // GIVEN
+        ItemDefinition itemDefinition1 = new ItemDefinition();
+        itemDefinition1.setId("testDefinition1");
+        itemDefinition1.setContentHash("testHash");
+        entityManager.persist(itemDefinition1);
+
+        ItemDefinition itemDefinition2 = new ItemDefinition();
+        itemDefinition2.setId("testDefinition2");
+        entityManager.persist(itemDefinition2);
+
+        entityManager.flush();
+        entityManager.clear();
+
+        // WHEN
+        List<ItemDefinitionHash> hashes = itemDefinitionRepository.findAllHashes();
+
+        // THEN
+        assertThat(hashes).hasSize(2);
+        assertThat(hashes).anySatisfy(hash -> {
+            assertThat(hash.getId()).isEqualTo(itemDefinition1.getId());
+            assertThat(hash.getContentHash()).isEqualTo(itemDefinition1.getContentHash());
+        });
+        assertThat(hashes).anySatisfy(hash -> {
+            assertThat(hash.getId()).isEqualTo(itemDefinition2.getId());
+            assertThat(hash.getContentHash()).isNull();
+        });
+    }
+}
@@ -1,18 +1,26 @@
 package de.opengamebackend.collection.model.repositories;
 
 import de.opengamebackend.collection.model.entities.ClaimedItemSet;
+import de.opengamebackend.collection.model.entities.ItemDefinition;
 import de.opengamebackend.collection.model.entities.ItemSet;
+import de.opengamebackend.collection.model.entities.ItemSetItem;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.test.context.ActiveProfiles;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
-@DataJpaTest
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
 @ActiveProfiles("test")
 public class ItemSetRepositoryTests {
     private TestEntityManager entityManager;
@@ -34,12 +42,39 @@ public class ItemSetRepositoryTests {
         entityManager.flush();
 
         // WHEN
-        List<ItemSet> itemSets = itemSetRepository.findUnclaimedItemSetsByPlayerId("testPlayer");
+        ItemSet unclaimedItemSet = itemSetRepository.findFirstUnclaimedItemSetByPlayerId("testPlayer").orElse(null);
 
         // THEN
-        assertThat(itemSets).isNotNull();
-        assertThat(itemSets).hasSize(1);
-        assertThat(itemSets.get(0)).isEqualTo(itemSet);
+        assertThat(unclaimedItemSet).isEqualTo(itemSet);
+    }
+
+    @Test
+    public void givenUnclaimedItemSets_whenFindFirstUnclaimedItemSetByPlayerId_thenReturnFirstItemSet() {
+        // GIVEN
+        ItemSet secondItemSet = new ItemSet();
+        secondItemSet.setId("testItemSet2");
+        entityManager.persist(secondItemSet);
+
+        ItemSet firstItemSet = new ItemSet();
+        firstItemSet.setId("testItemSet1");
+        entityManager.persist(firstItemSet);
+
+        ItemSet claimedItemSet = new ItemSet();
+        claimedItemSet.setId("testItemSet0");
+        entityManager.persist(claimedItemSet);
+
+        ClaimedItemSet claim = new ClaimedItemSet();
+        claim.setItemSet(claimedItemSet);
+        claim.setPlayerId("testPlayer");
+        entityManager.persist(claim);
+
+        entityManager.flush();
+
+        // WHEN
+        ItemSet unclaimedItemSet = itemSetRepository.findFirstUnclaimedItemSetByPlayerId("testPlayer").orElse(null);
+
+        // THEN
+        assertThat(unclaimedItemSet).isEqualTo(firstItemSet);
     }
 
     @Test
@@ -57,10 +92,82 @@ public class ItemSetRepositoryTests {
         entityManager.flush();
 
         // WHEN
-        List<ItemSet> itemSets = itemSetRepository.findUnclaimedItemSetsByPlayerId(claimedItemSet.getPlayerId());
+        Optional<ItemSet> unclaimedItemSet =
+                itemSetRepository.findFirstUnclaimedItemSetByPlayerId(claimedItemSet.getPlayerId());
+
+        // THEN
+        assertThat(unclaimedItemSet).isEmpty();
+    }
+
+    @Test
+    public void givenItemSets_whenStreamAllItems_thenReturnItemsOrderedByItemSet() {
+        // GIVEN
+        ItemDefinition itemDefinition = new ItemDefinition();
+        itemDefinition.setId("testItemDefinition");
+        entityManager.persist(itemDefinition);
+
+        ItemSet emptyItemSet = new ItemSet();
+        emptyItemSet.setId("testItemSet2");
+        entityManager.persist(emptyItemSet);
+
+        ItemSet itemSet = new ItemSet();
+        itemSet.setId("testItemSet1");
+        entityManager.persist(itemSet);
+
+        ItemSetItem itemSetItem = new ItemSetItem();
+        itemSetItem.setItemSet(itemSet);
+        itemSetItem.setItemDefinition(itemDefinition);
+        itemSetItem.setCount(2);
+        entityManager.persist(itemSetItem);
+
+        entityManager.flush();
+
+        // WHEN
+        List<ItemSetItemCount> items;
+
+        try (Stream<ItemSetItemCount> stream = itemSetRepository.streamAllItems()) {
+            items = stream.collect(Collectors.toList());
+        }
+
+        // THEN
+        assertThat(items).hasSize(2);
+        assertThat(items.get(0).getItemSetId()).isEqualTo(itemSet.getId());
+        assertThat(items.get(0).getItemDefinitionId()).isEqualTo(itemDefinition.getId());
+        assertThat(items.get(0).getCount()).isEqualTo(itemSetItem.getCount());
+        assertThat(items.get(1).getItemSetId()).isEqualTo(emptyItemSet.getId());
+        assertThat(items.get(1).getItemDefinitionId()).isNull();
+        assertThat(items.get(1).getCount()).isNull();
+    }
+
+    @Test
+    public void givenManyItems_whenSave_thenBatchInserts() {
+        // GIVEN
+        ItemDefinition itemDefinition = new ItemDefinition();
+        itemDefinition.setId("testItemDefinition");
+        entityManager.persistAndFlush(itemDefinition);
+
+        ItemSet itemSet = new ItemSet();
+        itemSet.setId("testItemSet");
+        itemSet.setItems(new ArrayList<>());
+
+        for (int i = 0; i < 200; ++i) {
+            ItemSetItem itemSetItem = new ItemSetItem();
+            itemSetItem.setItemSet(itemSet);
+            itemSetItem.setItemDefinition(itemDefinition);
+            itemSetItem.setCount(i + 1);
+            itemSet.getItems().add(itemSetItem);
+        }
+
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // WHEN
+        itemSetRepository.save(itemSet);
+        entityManager.flush();
 
         // THEN
-        assertThat(itemSets).isNotNull();
-        assertThat(itemSets).isEmpty();
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(201);
+        assertThat(statistics.getPrepareStatementCount()).isLessThan(20);
     }
 }
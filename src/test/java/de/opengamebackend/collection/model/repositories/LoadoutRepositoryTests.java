@@ -1,7 +1,11 @@
 package de.opengamebackend.collection.model.repositories;
 
+import de.opengamebackend.collection.model.entities.ItemDefinition;
 import de.opengamebackend.collection.model.entities.Loadout;
+import de.opengamebackend.collection.model.entities.LoadoutItem;
 import de.opengamebackend.collection.model.entities.LoadoutType;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
@@ -12,7 +16,7 @@ import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
-@DataJpaTest
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
 @ActiveProfiles("test")
 public class LoadoutRepositoryTests {
     private TestEntityManager entityManager;
@@ -52,4 +56,61 @@ public class LoadoutRepositoryTests {
         assertThat(items).isNotNull();
         assertThat(items).containsExactly(ownLoadout);
     }
+
+    @Test
+    public void givenLoadouts_whenFindByPlayerId_thenLoadTypesAndItemsWithSingleStatement() {
+        // GIVEN
+        String playerId = "testPlayer";
+
+        LoadoutType loadoutType = new LoadoutType();
+        loadoutType.setId("testLoadout");
+        entityManager.persist(loadoutType);
+
+        ItemDefinition itemDefinition1 = new ItemDefinition();
+        itemDefinition1.setId("testDefinition1");
+        entityManager.persist(itemDefinition1);
+
+        ItemDefinition itemDefinition2 = new ItemDefinition();
+        itemDefinition2.setId("testDefinition2");
+        entityManager.persist(itemDefinition2);
+
+        for (int i = 0; i < 3; ++i) {
+            Loadout loadout = new Loadout();
+            loadout.setPlayerId(playerId);
+            loadout.setType(loadoutType);
+
+            for (ItemDefinition itemDefinition : new ItemDefinition[] { itemDefinition1, itemDefinition2 }) {
+                LoadoutItem loadoutItem = new LoadoutItem();
+                loadoutItem.setLoadout(loadout);
+                loadoutItem.setItemDefinition(itemDefinition);
+                loadoutItem.setCount(1);
+                loadout.getItems().add(loadoutItem);
+            }
+
+            entityManager.persist(loadout);
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // WHEN
+        List<Loadout> loadouts = loadoutRepository.findByPlayerId(playerId);
+
+        for (Loadout loadout : loadouts) {
+            loadout.getType().getId();
+
+            for (LoadoutItem item : loadout.getItems()) {
+                item.getItemDefinition().getMaxCount();
+            }
+        }
+
+        // THEN
+        assertThat(loadouts).hasSize(3);
+        assertThat(loadouts.get(0).getItems()).hasSize(2);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
 }
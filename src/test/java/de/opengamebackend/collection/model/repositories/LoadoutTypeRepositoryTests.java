@@ -0,0 +1,66 @@
+package de.opengamebackend.collection.model.repositories;
+
+import de.opengamebackend.collection.model.entities.ItemTag;
+import de.opengamebackend.collection.model.entities.LoadoutRule;
+import de.opengamebackend.collection.model.entities.LoadoutType;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+public class LoadoutTypeRepositoryTests {
+    private TestEntityManager entityManager;
+    private LoadoutTypeRepository loadoutTypeRepository;
+
+    @Autowired
+    public LoadoutTypeRepositoryTests(TestEntityManager entityManager, LoadoutTypeRepository loadoutTypeRepository) {
+        this.entityManager = entityManager;
+        this.loadoutTypeRepository = loadoutTypeRepository;
+    }
+
+    @Test
+    public void givenLoadoutType_whenFindAllWithRules_thenLoadRulesAndTagsWithSingleStatement() {
+        // GIVEN
+        LoadoutType loadoutType = new LoadoutType();
+        loadoutType.setId("testLoadoutType");
+
+        for (String tag : new String[] { "testTag1", "testTag2" }) {
+            ItemTag itemTag = new ItemTag(tag);
+            entityManager.persist(itemTag);
+
+            LoadoutRule loadoutRule = new LoadoutRule();
+            loadoutRule.setType(loadoutType);
+            loadoutRule.setItemTag(itemTag);
+            loadoutType.getRules().add(loadoutRule);
+        }
+
+        entityManager.persist(loadoutType);
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // WHEN
+        List<LoadoutType> found = loadoutTypeRepository.findAllWithRules();
+
+        for (LoadoutRule loadoutRule : found.get(0).getRules()) {
+            loadoutRule.getItemTag().getTag();
+        }
+
+        // THEN
+        assertThat(found).hasSize(1);
+        assertThat(found.get(0).getRules()).hasSize(2);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+}
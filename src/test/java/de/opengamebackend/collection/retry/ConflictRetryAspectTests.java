@@ -0,0 +1,108 @@
+package de.opengamebackend.collection.retry;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.Signature;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.Mockito.*;
+
+public class ConflictRetryAspectTests {
+    private ConflictRetryProperties properties;
+    private MeterRegistry meterRegistry;
+    private ProceedingJoinPoint joinPoint;
+
+    private ConflictRetryAspect conflictRetryAspect;
+
+    @BeforeEach
+    public void beforeEach() {
+        properties = new ConflictRetryProperties();
+        properties.setMaxAttempts(3);
+        properties.setInitialBackoff(Duration.ofMillis(1));
+        properties.setMaxBackoff(Duration.ofMillis(1));
+
+        meterRegistry = new SimpleMeterRegistry();
+
+        Signature signature = mock(Signature.class);
+        when(signature.getDeclaringType()).thenReturn(ConflictRetryAspectTests.class);
+        when(signature.getName()).thenReturn("testOperation");
+
+        joinPoint = mock(ProceedingJoinPoint.class);
+        when(joinPoint.getSignature()).thenReturn(signature);
+
+        conflictRetryAspect = new ConflictRetryAspect(properties, meterRegistry);
+    }
+
+    private static ObjectOptimisticLockingFailureException conflict() {
+        return new ObjectOptimisticLockingFailureException("testEntity", 1L);
+    }
+
+    private double getCount(String metric) {
+        return meterRegistry.counter(metric, "operation", "ConflictRetryAspectTests.testOperation").count();
+    }
+
+    @Test
+    public void givenConflict_whenRetryOnConflict_thenRetriesAndReturnsResult() throws Throwable {
+        // GIVEN
+        when(joinPoint.proceed()).thenThrow(conflict()).thenReturn("testResult");
+
+        // WHEN
+        Object result = conflictRetryAspect.retryOnConflict(joinPoint);
+
+        // THEN
+        assertThat(result).isEqualTo("testResult");
+        verify(joinPoint, times(2)).proceed();
+        assertThat(getCount(ConflictRetryAspect.RETRIES_METRIC)).isEqualTo(1.0);
+    }
+
+    @Test
+    public void givenPersistentConflict_whenRetryOnConflict_thenThrowsAfterMaxAttempts() throws Throwable {
+        // GIVEN
+        when(joinPoint.proceed()).thenThrow(conflict());
+
+        // WHEN & THEN
+        assertThatExceptionOfType(ObjectOptimisticLockingFailureException.class)
+                .isThrownBy(() -> conflictRetryAspect.retryOnConflict(joinPoint));
+
+        verify(joinPoint, times(properties.getMaxAttempts())).proceed();
+        assertThat(getCount(ConflictRetryAspect.RETRIES_METRIC)).isEqualTo(properties.getMaxAttempts() - 1);
+        assertThat(getCount(ConflictRetryAspect.FAILURES_METRIC)).isEqualTo(1.0);
+    }
+
+    @Test
+    public void givenOtherException_whenRetryOnConflict_thenDoesNotRetry() throws Throwable {
+        // GIVEN
+        when(joinPoint.proceed()).thenThrow(new IllegalStateException());
+
+        // WHEN & THEN
+        assertThatExceptionOfType(IllegalStateException.class)
+                .isThrownBy(() -> conflictRetryAspect.retryOnConflict(joinPoint));
+
+        verify(joinPoint).proceed();
+    }
+
+    @Test
+    public void givenOuterTransaction_whenRetryOnConflict_thenDoesNotRetry() throws Throwable {
+        // GIVEN
+        when(joinPoint.proceed()).thenThrow(conflict());
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+
+        // WHEN & THEN
+        try {
+            assertThatExceptionOfType(ObjectOptimisticLockingFailureException.class)
+                    .isThrownBy(() -> conflictRetryAspect.retryOnConflict(joinPoint));
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+
+        verify(joinPoint).proceed();
+    }
+}
@@ -0,0 +1,72 @@
+package de.opengamebackend.collection.retry;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.transaction.Transactional;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+public class ConflictRetryIntegrationTests {
+    private ConflictingService conflictingService;
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    public ConflictRetryIntegrationTests(ConflictingService conflictingService, MeterRegistry meterRegistry) {
+        this.conflictingService = conflictingService;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Test
+    public void givenConflict_whenCallTransactionalMethod_thenRetriesInNewTransaction() {
+        // WHEN
+        int attempts = conflictingService.update();
+
+        // THEN
+        assertThat(attempts).isEqualTo(2);
+        assertThat(conflictingService.getTransactionNames()).hasSize(2).doesNotContainNull();
+        assertThat(meterRegistry.counter(ConflictRetryAspect.RETRIES_METRIC,
+                "operation", "ConflictingService.update").count()).isEqualTo(1.0);
+    }
+
+    @TestConfiguration
+    static class ConflictingServiceConfig {
+        @Bean
+        public ConflictingService conflictingService() {
+            return new ConflictingService();
+        }
+    }
+
+    /**
+     * Fails the first transaction as if another transaction had updated the same entity concurrently.
+     */
+    static class ConflictingService {
+        private final List<String> transactionNames = new ArrayList<>();
+
+        @Transactional
+        @RetryOnConflict
+        public int update() {
+            transactionNames.add(TransactionSynchronizationManager.isActualTransactionActive() ?
+                    TransactionSynchronizationManager.getCurrentTransactionName() : null);
+
+            if (transactionNames.size() == 1) {
+                throw new ObjectOptimisticLockingFailureException("testEntity", 1L);
+            }
+
+            return transactionNames.size();
+        }
+
+        public List<String> getTransactionNames() {
+            return transactionNames;
+        }
+    }
+}
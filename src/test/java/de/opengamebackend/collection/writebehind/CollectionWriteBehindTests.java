@@ -0,0 +1,510 @@
+package de.opengamebackend.collection.writebehind;
+
+import de.opengamebackend.collection.cache.PlayerCollectionCache;
+import de.opengamebackend.collection.catalog.ItemCatalog;
+import de.opengamebackend.collection.catalog.ItemCatalogProvider;
+import de.opengamebackend.collection.model.entities.ItemDefinition;
+import de.opengamebackend.collection.model.entities.WriteBehindFlush;
+import de.opengamebackend.collection.model.repositories.CollectionItemRepository;
+import de.opengamebackend.collection.model.repositories.WriteBehindFlushRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.Mockito.*;
+
+public class CollectionWriteBehindTests {
+    @TempDir
+    Path journalDirectory;
+
+    private WriteBehindProperties properties;
+    private CollectionItemRepository collectionItemRepository;
+    private WriteBehindFlushRepository writeBehindFlushRepository;
+    private PlayerCollectionCache playerCollectionCache;
+    private ItemCatalogProvider itemCatalogProvider;
+    private PlatformTransactionManager transactionManager;
+
+    private CollectionWriteBehind collectionWriteBehind;
+
+    @BeforeEach
+    public void beforeEach() throws IOException {
+        properties = new WriteBehindProperties();
+        properties.setEnabled(true);
+        properties.setFlushInterval(Duration.ofHours(1));
+        properties.setJournalDirectory(journalDirectory.toString());
+
+        collectionItemRepository = mock(CollectionItemRepository.class);
+        writeBehindFlushRepository = mock(WriteBehindFlushRepository.class);
+        playerCollectionCache = mock(PlayerCollectionCache.class);
+        itemCatalogProvider = mock(ItemCatalogProvider.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+
+        givenCatalog("testItemDefinition", "testItemDefinition1", "testItemDefinition2");
+
+        collectionWriteBehind = createCollectionWriteBehind();
+    }
+
+    @AfterEach
+    public void afterEach() throws InterruptedException {
+        collectionWriteBehind.stop();
+    }
+
+    private CollectionWriteBehind createCollectionWriteBehind() throws IOException {
+        CollectionWriteBehind writeBehind =
+                new CollectionWriteBehind(properties, collectionItemRepository, writeBehindFlushRepository,
+                        playerCollectionCache, itemCatalogProvider, transactionManager);
+        writeBehind.start();
+        return writeBehind;
+    }
+
+    private void givenCatalog(String... itemDefinitionIds) {
+        ArrayList<ItemDefinition> itemDefinitions = new ArrayList<>();
+
+        for (String itemDefinitionId : itemDefinitionIds) {
+            ItemDefinition itemDefinition = mock(ItemDefinition.class);
+            when(itemDefinition.getId()).thenReturn(itemDefinitionId);
+            itemDefinitions.add(itemDefinition);
+        }
+
+        when(itemCatalogProvider.getCatalog()).thenReturn(new ItemCatalog(Collections.emptyList(), itemDefinitions));
+    }
+
+    @Test
+    public void givenDisabled_whenStart_thenNotEnabled() throws IOException {
+        // GIVEN
+        properties.setEnabled(false);
+
+        // WHEN
+        CollectionWriteBehind writeBehind = createCollectionWriteBehind();
+
+        // THEN
+        assertThat(writeBehind.isEnabled()).isFalse();
+        assertThat(writeBehind.getPendingDeltas("testPlayer")).isEmpty();
+    }
+
+    @Test
+    public void givenGrants_whenGetPendingDeltas_thenCoalesceGrants() {
+        // GIVEN
+        String playerId = "testPlayer";
+
+        collectionWriteBehind.add(playerId, "testItemDefinition", 2);
+        collectionWriteBehind.add(playerId, "testItemDefinition", 3);
+
+        // WHEN
+        assertThat(collectionWriteBehind.getPendingDeltas(playerId)).containsEntry("testItemDefinition", 5);
+
+        // THEN
+        verify(collectionItemRepository, never()).incrementCount(any(), any(), anyInt());
+    }
+
+    @Test
+    public void givenGrants_whenFlush_thenIncrementCount() {
+        // GIVEN
+        String playerId = "testPlayer";
+
+        collectionWriteBehind.add(playerId, "testItemDefinition", 2);
+        collectionWriteBehind.add(playerId, "testItemDefinition", 3);
+
+        // WHEN
+        collectionWriteBehind.flush(playerId);
+
+        // THEN
+        verify(collectionItemRepository).incrementCount(playerId, "testItemDefinition", 5);
+        assertThat(collectionWriteBehind.getPendingDeltas(playerId)).isEmpty();
+    }
+
+    @Test
+    public void givenGrants_whenFlush_thenInvalidateCachedCollection() {
+        // GIVEN
+        String playerId = "testPlayer";
+        collectionWriteBehind.add(playerId, "testItemDefinition", 2);
+
+        // WHEN
+        collectionWriteBehind.flush(playerId);
+
+        // THEN
+        verify(playerCollectionCache).invalidate(playerId);
+    }
+
+    @Test
+    public void givenGrantsOfMultiplePlayers_whenFlushAll_thenIncrementCounts() {
+        // GIVEN
+        collectionWriteBehind.add("testPlayer1", "testItemDefinition", 2);
+        collectionWriteBehind.add("testPlayer2", "testItemDefinition", 3);
+
+        // WHEN
+        collectionWriteBehind.flushAll();
+
+        // THEN
+        verify(collectionItemRepository).incrementCount("testPlayer1", "testItemDefinition", 2);
+        verify(collectionItemRepository).incrementCount("testPlayer2", "testItemDefinition", 3);
+    }
+
+    @Test
+    public void givenFailingRepository_whenFlush_thenKeepGrants() {
+        // GIVEN
+        String playerId = "testPlayer";
+        collectionWriteBehind.add(playerId, "testItemDefinition", 2);
+
+        doThrow(new IllegalStateException()).when(collectionItemRepository)
+                .incrementCount(playerId, "testItemDefinition", 2);
+
+        // WHEN
+        assertThatExceptionOfType(IllegalStateException.class)
+                .isThrownBy(() -> collectionWriteBehind.flush(playerId));
+
+        // THEN
+        assertThat(collectionWriteBehind.getPendingDeltas(playerId)).containsEntry("testItemDefinition", 2);
+    }
+
+    @Test
+    public void givenFailingPlayer_whenFlushAll_thenFlushOtherPlayers() {
+        // GIVEN
+        properties.setFlushBatchSize(2);
+
+        collectionWriteBehind.add("testPlayer1", "testItemDefinition", 2);
+        collectionWriteBehind.add("testPlayer2", "testItemDefinition", 3);
+
+        doThrow(new IllegalStateException()).when(collectionItemRepository)
+                .incrementCount("testPlayer1", "testItemDefinition", 2);
+
+        // WHEN
+        collectionWriteBehind.flushAll();
+
+        // THEN
+        verify(collectionItemRepository).incrementCount("testPlayer2", "testItemDefinition", 3);
+        assertThat(collectionWriteBehind.getPendingDeltas("testPlayer1")).containsEntry("testItemDefinition", 2);
+        assertThat(collectionWriteBehind.getPendingDeltas("testPlayer2")).isEmpty();
+    }
+
+    @Test
+    public void givenGrantOfRemovedItemDefinition_whenFlush_thenDiscardGrant() {
+        // GIVEN
+        String playerId = "testPlayer";
+
+        collectionWriteBehind.add(playerId, "testItemDefinition", 2);
+        collectionWriteBehind.add(playerId, "removedItemDefinition", 3);
+
+        givenCatalog("testItemDefinition");
+
+        // WHEN
+        collectionWriteBehind.flush(playerId);
+
+        // THEN
+        verify(collectionItemRepository).incrementCount(playerId, "testItemDefinition", 2);
+        verify(collectionItemRepository, never()).incrementCount(playerId, "removedItemDefinition", 3);
+        assertThat(collectionWriteBehind.getPendingDeltas(playerId)).isEmpty();
+    }
+
+    @Test
+    public void givenJournaledGrants_whenRestart_thenRecoverGrants() throws IOException {
+        // GIVEN
+        String playerId = "testPlayer";
+
+        collectionWriteBehind.add(playerId, "testItemDefinition1", 2);
+        collectionWriteBehind.add(playerId, "testItemDefinition1", 3);
+        collectionWriteBehind.add(playerId, "testItemDefinition2", 1);
+
+        // WHEN
+        CollectionWriteBehind restarted = createCollectionWriteBehind();
+
+        // THEN
+        assertThat(restarted.getPendingDeltas(playerId))
+                .containsEntry("testItemDefinition1", 5)
+                .containsEntry("testItemDefinition2", 1);
+    }
+
+    @Test
+    public void givenFlushedGrants_whenRestart_thenDoNotRecoverGrants() throws IOException {
+        // GIVEN
+        String playerId = "testPlayer";
+
+        collectionWriteBehind.add(playerId, "testItemDefinition", 2);
+        collectionWriteBehind.flush(playerId);
+
+        // WHEN
+        CollectionWriteBehind restarted = createCollectionWriteBehind();
+
+        // THEN
+        assertThat(restarted.getPendingDeltas(playerId)).isEmpty();
+    }
+
+    @Test
+    public void givenGrants_whenFlush_thenRecordFlush() {
+        // GIVEN
+        String playerId = "testPlayer";
+        collectionWriteBehind.add(playerId, "testItemDefinition", 2);
+
+        // WHEN
+        collectionWriteBehind.flush(playerId);
+
+        // THEN
+        verify(writeBehindFlushRepository).save(any(WriteBehindFlush.class));
+    }
+
+    @Test
+    public void givenGrantsDrainedByOtherTransaction_whenFlush_thenWaitAndWriteRemainingGrants() throws Exception {
+        // GIVEN
+        String playerId = "testPlayer";
+        collectionWriteBehind.add(playerId, "testItemDefinition1", 2);
+
+        TransactionSynchronizationManager.initSynchronization();
+
+        try {
+            collectionWriteBehind.flush(playerId);
+            collectionWriteBehind.add(playerId, "testItemDefinition2", 3);
+
+            // WHEN
+            CompletableFuture<Void> flush = CompletableFuture.runAsync(() -> collectionWriteBehind.flush(playerId));
+
+            // THEN
+            Thread.sleep(100L);
+            assertThat(flush).isNotDone();
+            verify(collectionItemRepository, never()).incrementCount(playerId, "testItemDefinition2", 3);
+
+            completeTransaction(TransactionSynchronization.STATUS_COMMITTED);
+
+            flush.get(10L, TimeUnit.SECONDS);
+            verify(collectionItemRepository).incrementCount(playerId, "testItemDefinition2", 3);
+            assertThat(collectionWriteBehind.getPendingDeltas(playerId)).isEmpty();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void givenGrantsDrainedByOwnTransaction_whenFlush_thenWriteRemainingGrants() {
+        // GIVEN
+        String playerId = "testPlayer";
+        collectionWriteBehind.add(playerId, "testItemDefinition1", 2);
+
+        TransactionSynchronizationManager.initSynchronization();
+
+        try {
+            collectionWriteBehind.flush(playerId);
+            collectionWriteBehind.add(playerId, "testItemDefinition2", 3);
+
+            // WHEN
+            collectionWriteBehind.flush(playerId);
+
+            // THEN
+            verify(collectionItemRepository).incrementCount(playerId, "testItemDefinition2", 3);
+            verify(writeBehindFlushRepository, times(2)).save(any(WriteBehindFlush.class));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void givenGrantsDrainedByUncommittedTransaction_whenGetPendingDeltas_thenIncludeDrainedGrants() {
+        // GIVEN
+        String playerId = "testPlayer";
+        collectionWriteBehind.add(playerId, "testItemDefinition", 2);
+
+        TransactionSynchronizationManager.initSynchronization();
+
+        try {
+            collectionWriteBehind.flush(playerId);
+            collectionWriteBehind.add(playerId, "testItemDefinition", 3);
+
+            // WHEN
+            Map<String, Integer> pendingDeltas = collectionWriteBehind.getPendingDeltas(playerId);
+
+            // THEN
+            assertThat(pendingDeltas).containsEntry("testItemDefinition", 5);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void givenGrantsDrainedByOtherTransaction_whenOpenRead_thenWaitAndReadRemainingGrants() throws Exception {
+        // GIVEN
+        String playerId = "testPlayer";
+        collectionWriteBehind.add(playerId, "testItemDefinition1", 2);
+
+        TransactionSynchronizationManager.initSynchronization();
+
+        try {
+            collectionWriteBehind.flush(playerId);
+            collectionWriteBehind.add(playerId, "testItemDefinition2", 3);
+
+            // WHEN
+            CompletableFuture<Map<String, Integer>> read = CompletableFuture.supplyAsync(() -> {
+                try (PendingRead pendingRead = collectionWriteBehind.openRead(playerId)) {
+                    return pendingRead.getDeltas();
+                }
+            });
+
+            // THEN
+            Thread.sleep(100L);
+            assertThat(read).isNotDone();
+
+            completeTransaction(TransactionSynchronization.STATUS_COMMITTED);
+
+            assertThat(read.get(10L, TimeUnit.SECONDS))
+                    .doesNotContainKey("testItemDefinition1")
+                    .containsEntry("testItemDefinition2", 3);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void givenOpenRead_whenFlush_thenWaitForRead() throws Exception {
+        // GIVEN
+        String playerId = "testPlayer";
+        collectionWriteBehind.add(playerId, "testItemDefinition", 2);
+
+        PendingRead pendingRead = collectionWriteBehind.openRead(playerId);
+
+        // WHEN
+        CompletableFuture<Void> flush = CompletableFuture.runAsync(() -> collectionWriteBehind.flush(playerId));
+
+        // THEN
+        Thread.sleep(100L);
+        assertThat(flush).isNotDone();
+        assertThat(pendingRead.getDeltas()).containsEntry("testItemDefinition", 2);
+        verify(collectionItemRepository, never()).incrementCount(any(), any(), anyInt());
+
+        pendingRead.close();
+
+        flush.get(10L, TimeUnit.SECONDS);
+        verify(collectionItemRepository).incrementCount(playerId, "testItemDefinition", 2);
+    }
+
+    @Test
+    public void givenOpenRead_whenFlushAll_thenSkipPlayer() {
+        // GIVEN
+        collectionWriteBehind.add("testPlayer1", "testItemDefinition", 2);
+        collectionWriteBehind.add("testPlayer2", "testItemDefinition", 3);
+
+        try (PendingRead pendingRead = collectionWriteBehind.openRead("testPlayer1")) {
+            // WHEN
+            collectionWriteBehind.flushAll();
+        }
+
+        // THEN
+        verify(collectionItemRepository, never()).incrementCount(eq("testPlayer1"), any(), anyInt());
+        verify(collectionItemRepository).incrementCount("testPlayer2", "testItemDefinition", 3);
+        assertThat(collectionWriteBehind.getPendingDeltas("testPlayer1")).containsEntry("testItemDefinition", 2);
+    }
+
+    @Test
+    public void givenRolledBackFlush_whenFlush_thenWriteGrantsAgain() {
+        // GIVEN
+        String playerId = "testPlayer";
+        collectionWriteBehind.add(playerId, "testItemDefinition", 2);
+
+        TransactionSynchronizationManager.initSynchronization();
+
+        try {
+            collectionWriteBehind.flush(playerId);
+            completeTransaction(TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        // WHEN
+        collectionWriteBehind.flush(playerId);
+
+        // THEN
+        verify(collectionItemRepository, times(2)).incrementCount(playerId, "testItemDefinition", 2);
+        assertThat(collectionWriteBehind.getPendingDeltas(playerId)).isEmpty();
+    }
+
+    @Test
+    public void givenCommittedFlushWithJournal_whenRestart_thenDoNotReplayFlush() throws IOException {
+        // GIVEN
+        String playerId = "testPlayer";
+        collectionWriteBehind.add(playerId, "testItemDefinition1", 2);
+
+        TransactionSynchronizationManager.initSynchronization();
+
+        try {
+            // Crash after committing, before discarding the journal of the flush.
+            collectionWriteBehind.flush(playerId);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        collectionWriteBehind.add(playerId, "testItemDefinition2", 3);
+
+        ArgumentCaptor<WriteBehindFlush> flush = ArgumentCaptor.forClass(WriteBehindFlush.class);
+        verify(writeBehindFlushRepository).save(flush.capture());
+        when(writeBehindFlushRepository.findAllById(any())).thenReturn(Collections.singletonList(flush.getValue()));
+
+        // WHEN
+        CollectionWriteBehind restarted = createCollectionWriteBehind();
+
+        // THEN
+        assertThat(restarted.getPendingDeltas(playerId))
+                .doesNotContainKey("testItemDefinition1")
+                .containsEntry("testItemDefinition2", 3);
+    }
+
+    @Test
+    public void givenUncommittedFlushWithJournal_whenRestart_thenReplayFlush() throws IOException {
+        // GIVEN
+        String playerId = "testPlayer";
+        collectionWriteBehind.add(playerId, "testItemDefinition", 2);
+
+        TransactionSynchronizationManager.initSynchronization();
+
+        try {
+            // Crash before committing.
+            collectionWriteBehind.flush(playerId);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        // WHEN
+        CollectionWriteBehind restarted = createCollectionWriteBehind();
+
+        // THEN
+        assertThat(restarted.getPendingDeltas(playerId)).containsEntry("testItemDefinition", 2);
+    }
+
+    @Test
+    public void givenFlushingJournalWithoutFlushId_whenRestart_thenSkipJournal() throws IOException {
+        // GIVEN
+        String playerId = "testPlayer";
+        collectionWriteBehind.add(playerId, "testItemDefinition1", 1);
+
+        Path malformedJournal = journalDirectory.resolve(PendingCollection.toFileName(playerId) + ".journal.flushing");
+        Files.write(malformedJournal, "testItemDefinition2\t2\n".getBytes(StandardCharsets.UTF_8));
+
+        // WHEN
+        CollectionWriteBehind restarted = createCollectionWriteBehind();
+
+        // THEN
+        assertThat(restarted.getPendingDeltas(playerId))
+                .containsEntry("testItemDefinition1", 1)
+                .doesNotContainKey("testItemDefinition2");
+        assertThat(malformedJournal).exists();
+    }
+
+    private static void completeTransaction(int status) {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(status);
+        }
+    }
+}